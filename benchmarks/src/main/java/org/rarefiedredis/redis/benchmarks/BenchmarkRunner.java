@@ -0,0 +1,37 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once for each thread count, with the gc profiler
+ * on so that every result comes with its allocation rate, the same as
+ * passing -prof gc to the JMH command line.
+ *
+ * Usage: java -jar benchmarks.jar [regex] [threads,...]
+ *
+ * The regex picks the benchmarks to run, all of them by default, and
+ * the thread counts default to 1 and 4.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+        String threads = args.length > 1 ? args[1] : "1,4";
+        for (String count : threads.split(",")) {
+            Options options = new OptionsBuilder()
+                .include(include)
+                .threads(Integer.parseInt(count.trim()))
+                .addProfiler(GCProfiler.class)
+                .build();
+            new Runner(options).run();
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+import org.rarefiedredis.redis.RedisMockClient;
+import org.rarefiedredis.redis.adapter.jedis.JedisAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same commands called on the database directly, through a
+ * {@link RedisMockClient}, and through a {@link JedisAdapter}, to
+ * measure what each layer costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of keys. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    private AbstractRedisMock redis;
+    private RedisMockClient client;
+    private JedisAdapter jedis;
+    private String[] keys;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        client = new RedisMockClient(redis);
+        jedis = new JedisAdapter(redis);
+        keys = Mocks.names("key:", size);
+        for (String key : keys) {
+            redis.set(key, "value");
+        }
+    }
+
+    @Benchmark public String getDirect(Mocks.Cursor cursor) throws Exception {
+        return redis.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark public String getClient(Mocks.Cursor cursor) throws Exception {
+        return client.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark public String getJedis(Mocks.Cursor cursor) {
+        return jedis.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark public String setDirect(Mocks.Cursor cursor) throws Exception {
+        return redis.set(keys[cursor.next(size)], "value");
+    }
+
+    @Benchmark public String setClient(Mocks.Cursor cursor) throws Exception {
+        return client.set(keys[cursor.next(size)], "value");
+    }
+
+    @Benchmark public String setJedis(Mocks.Cursor cursor) {
+        return jedis.set(keys[cursor.next(size)], "value");
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hash commands, on a hash with the given number of fields.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of fields of the hash. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    private AbstractRedisMock redis;
+    private String[] fields;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        fields = Mocks.names("field:", size);
+        for (String field : fields) {
+            redis.hset("hash", field, "value");
+        }
+    }
+
+    @Benchmark public Boolean hset(Mocks.Cursor cursor) throws Exception {
+        return redis.hset("hash", fields[cursor.next(size)], "value");
+    }
+
+    @Benchmark public String hget(Mocks.Cursor cursor) throws Exception {
+        return redis.hget("hash", fields[cursor.next(size)]);
+    }
+
+    @Benchmark public Long hincrby(Mocks.Cursor cursor) throws Exception {
+        return redis.hincrby("counters", fields[cursor.next(size) & 15], 1L);
+    }
+
+    @Benchmark public Map<String, String> hgetall() throws Exception {
+        return redis.hgetall("hash");
+    }
+
+}
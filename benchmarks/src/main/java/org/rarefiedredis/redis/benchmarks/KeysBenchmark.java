@@ -0,0 +1,93 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+import org.rarefiedredis.redis.ScanResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The key and expiry commands, on a keyspace of the given size with
+ * half of the keys set to expire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeysBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of keys. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    private AbstractRedisMock redis;
+    private String[] keys;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        keys = Mocks.names("key:", size);
+        for (int idx = 0; idx < size; ++idx) {
+            redis.set(keys[idx], "value");
+            if (idx % 2 == 0) {
+                redis.pexpire(keys[idx], 3600000L);
+            }
+        }
+    }
+
+    @Benchmark public Boolean exists(Mocks.Cursor cursor) throws Exception {
+        return redis.exists(keys[cursor.next(size)]);
+    }
+
+    @Benchmark public Boolean pexpire(Mocks.Cursor cursor) throws Exception {
+        return redis.pexpire(keys[cursor.next(size) & ~1], 3600000L);
+    }
+
+    @Benchmark public Long ttl(Mocks.Cursor cursor) throws Exception {
+        return redis.ttl(keys[cursor.next(size)]);
+    }
+
+    /** Set a key to expire then delete it, so the keyspace keeps its size. */
+    @Benchmark public Long setExpireDel(Mocks.Cursor cursor) throws Exception {
+        String key = "new:" + cursor.next(size);
+        redis.set(key, "value");
+        redis.pexpire(key, 60000L);
+        return redis.del(key);
+    }
+
+    /** One call of a full scan of the keyspace. */
+    @Benchmark public long scan(ScanCursor cursor) throws Exception {
+        ScanResult<Set<String>> result = redis.scan(cursor.cursor, "count", "10");
+        cursor.cursor = result.cursor;
+        return cursor.cursor;
+    }
+
+    @Benchmark public String[] keys() throws Exception {
+        return redis.keys("key:1*");
+    }
+
+    /**
+     * Where the scan of a benchmark thread is at.
+     */
+    @State(Scope.Thread)
+    public static class ScanCursor {
+        long cursor;
+    }
+
+}
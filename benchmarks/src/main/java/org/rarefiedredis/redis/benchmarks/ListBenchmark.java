@@ -0,0 +1,71 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The list commands, on a list of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The length of the list. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    private AbstractRedisMock redis;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        for (String element : Mocks.names("element:", size)) {
+            redis.rpush("list", element);
+        }
+    }
+
+    /** Push then pop, so the list keeps its length. */
+    @Benchmark public String pushPop() throws Exception {
+        redis.lpush("list", "element");
+        return redis.lpop("list");
+    }
+
+    /** Push at the tail then pop at the head, so the list rotates. */
+    @Benchmark public String rotate() throws Exception {
+        redis.rpush("list", "element");
+        return redis.lpop("list");
+    }
+
+    @Benchmark public String lindex(Mocks.Cursor cursor) throws Exception {
+        return redis.lindex("list", cursor.next(size));
+    }
+
+    @Benchmark public List<String> lrangeHead() throws Exception {
+        return redis.lrange("list", 0, 9);
+    }
+
+    @Benchmark public List<String> lrangeAll() throws Exception {
+        return redis.lrange("list", 0, -1);
+    }
+
+}
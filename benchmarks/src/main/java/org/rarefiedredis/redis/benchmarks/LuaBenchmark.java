@@ -0,0 +1,62 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+import org.rarefiedredis.redis.LuaScripter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lua scripts run through the {@link LuaScripter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LuaBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    private AbstractRedisMock redis;
+    private LuaScripter scripter;
+    private List<String> keys;
+    private List<String> args;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        scripter = new LuaScripter(redis);
+        keys = Arrays.asList("key");
+        args = Arrays.asList("value");
+        redis.set("key", "value");
+    }
+
+    /** A script that does not call redis, to measure the interpreter alone. */
+    @Benchmark public List<Object> echo() {
+        return scripter.execute("return {KEYS[1],ARGV[1]}", keys, args);
+    }
+
+    @Benchmark public List<Object> get() {
+        return scripter.execute("return {redis.call('get', KEYS[1])}", keys, args);
+    }
+
+    @Benchmark public List<Object> setGet() {
+        return scripter.execute("redis.call('set', KEYS[1], ARGV[1]) return {redis.call('get', KEYS[1])}", keys, args);
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+import org.rarefiedredis.redis.RedisMock;
+import org.rarefiedredis.redis.ConcurrentRedisMock;
+import org.rarefiedredis.redis.EventLoopRedisMock;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * What the benchmarks share: the databases they run against, and the
+ * keys and members they use, built once so that building them is not
+ * measured.
+ */
+final class Mocks {
+
+    /** The names of the databases a benchmark can run against. */
+    static final String REDIS_MOCK = "RedisMock";
+    static final String CONCURRENT = "ConcurrentRedisMock";
+    static final String EVENT_LOOP = "EventLoopRedisMock";
+
+    private Mocks() {
+    }
+
+    /**
+     * Make an empty database.
+     *
+     * @param impl The name of the implementation.
+     *
+     * @return The database.
+     */
+    static AbstractRedisMock create(final String impl) {
+        if (REDIS_MOCK.equals(impl)) {
+            return new RedisMock();
+        }
+        if (CONCURRENT.equals(impl)) {
+            return new ConcurrentRedisMock();
+        }
+        if (EVENT_LOOP.equals(impl)) {
+            return new EventLoopRedisMock();
+        }
+        throw new IllegalArgumentException("Unknown implementation " + impl);
+    }
+
+    /**
+     * Make names with a common prefix.
+     *
+     * @param prefix The prefix.
+     * @param size The number of names.
+     *
+     * @return The names, prefix0 to prefix(size - 1).
+     */
+    static String[] names(final String prefix, final int size) {
+        String[] names = new String[size];
+        for (int idx = 0; idx < size; ++idx) {
+            names[idx] = prefix + idx;
+        }
+        return names;
+    }
+
+    /**
+     * The position of a benchmark thread in the names it walks through,
+     * so that threads do not all hit the same key.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        /**
+         * @return The next index below size.
+         */
+        public int next(final int size) {
+            if (++next >= size) {
+                next = 0;
+            }
+            return next;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The set commands, on sets of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of members of each set. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    private AbstractRedisMock redis;
+    private String[] members;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        members = Mocks.names("member:", size);
+        for (int idx = 0; idx < size; ++idx) {
+            redis.sadd("set", members[idx]);
+            // Half of the members are in both sets.
+            redis.sadd("other", idx % 2 == 0 ? members[idx] : "other:" + idx);
+        }
+    }
+
+    /** Add then remove, so the set keeps its size. */
+    @Benchmark public Long saddSrem(Mocks.Cursor cursor) throws Exception {
+        String member = "new:" + cursor.next(size);
+        redis.sadd("set", member);
+        return redis.srem("set", member);
+    }
+
+    @Benchmark public Boolean sismember(Mocks.Cursor cursor) throws Exception {
+        return redis.sismember("set", members[cursor.next(size)]);
+    }
+
+    @Benchmark public Set<String> smembers() throws Exception {
+        return redis.smembers("set");
+    }
+
+    @Benchmark public Set<String> sinter() throws Exception {
+        return redis.sinter("set", "other");
+    }
+
+    @Benchmark public Set<String> sunion() throws Exception {
+        return redis.sunion("set", "other");
+    }
+
+    @Benchmark public String srandmember() throws Exception {
+        return redis.srandmember("set");
+    }
+
+}
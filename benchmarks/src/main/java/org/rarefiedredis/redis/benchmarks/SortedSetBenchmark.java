@@ -0,0 +1,77 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+import org.rarefiedredis.redis.IRedisSortedSet.ZsetPair;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sorted set commands, on a sorted set of the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedSetBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of members of the sorted set. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    private AbstractRedisMock redis;
+    private String[] members;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        members = Mocks.names("member:", size);
+        for (int idx = 0; idx < size; ++idx) {
+            redis.zadd("zset", (double)idx, members[idx]);
+        }
+    }
+
+    /** Move a member to a new score, so the set keeps its size. */
+    @Benchmark public Long zadd(Mocks.Cursor cursor) throws Exception {
+        int idx = cursor.next(size);
+        return redis.zadd("zset", (double)((idx * 7) % size), members[idx]);
+    }
+
+    @Benchmark public String zincrby(Mocks.Cursor cursor) throws Exception {
+        return redis.zincrby("zset", 0.0, members[cursor.next(size)]);
+    }
+
+    @Benchmark public Double zscore(Mocks.Cursor cursor) throws Exception {
+        return redis.zscore("zset", members[cursor.next(size)]);
+    }
+
+    @Benchmark public Long zrank(Mocks.Cursor cursor) throws Exception {
+        return redis.zrank("zset", members[cursor.next(size)]);
+    }
+
+    @Benchmark public Set<ZsetPair> zrangeHead() throws Exception {
+        return redis.zrange("zset", 0, 9, "withscores");
+    }
+
+    @Benchmark public Set<ZsetPair> zrangebyscore(Mocks.Cursor cursor) throws Exception {
+        int min = cursor.next(size);
+        return redis.zrangebyscore("zset", String.valueOf(min), String.valueOf(min + 10));
+    }
+
+}
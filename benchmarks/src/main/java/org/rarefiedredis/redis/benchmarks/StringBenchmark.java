@@ -0,0 +1,87 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The string commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of keys. */
+    @Param({ "100", "10000" })
+    public int size;
+
+    /** The length of a value. */
+    @Param({ "16", "1024" })
+    public int valueSize;
+
+    private AbstractRedisMock redis;
+    private String[] keys;
+    private String[] batch;
+    private String value;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+        keys = Mocks.names("string:", size);
+        batch = new String[10];
+        StringBuilder sb = new StringBuilder();
+        for (int idx = 0; idx < valueSize; ++idx) {
+            sb.append((char)('a' + idx % 26));
+        }
+        value = sb.toString();
+        for (String key : keys) {
+            redis.set(key, value);
+        }
+        for (int idx = 0; idx < batch.length; ++idx) {
+            batch[idx] = keys[idx * (size / batch.length)];
+        }
+    }
+
+    @Benchmark public String set(Mocks.Cursor cursor) throws Exception {
+        return redis.set(keys[cursor.next(size)], value);
+    }
+
+    @Benchmark public String get(Mocks.Cursor cursor) throws Exception {
+        return redis.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark public Long incr(Mocks.Cursor cursor) throws Exception {
+        return redis.incr("counter:" + (cursor.next(size) & 15));
+    }
+
+    @Benchmark public Long append(Mocks.Cursor cursor) throws Exception {
+        String key = "append:" + (cursor.next(size) & 15);
+        if (redis.strlen(key) > 65536L) {
+            redis.del(key);
+        }
+        return redis.append(key, "x");
+    }
+
+    @Benchmark public String[] mget() throws Exception {
+        return redis.mget(batch);
+    }
+
+}
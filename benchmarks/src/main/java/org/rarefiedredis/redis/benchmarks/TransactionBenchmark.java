@@ -0,0 +1,74 @@
+package org.rarefiedredis.redis.benchmarks;
+
+import org.rarefiedredis.redis.AbstractRedisMock;
+import org.rarefiedredis.redis.IRedisClient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactions and pipelines of the given number of commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+
+    @Param({ Mocks.REDIS_MOCK, Mocks.CONCURRENT, Mocks.EVENT_LOOP })
+    public String impl;
+
+    /** The number of commands queued. */
+    @Param({ "1", "10" })
+    public int size;
+
+    private AbstractRedisMock redis;
+
+    @Setup public void setup() throws Exception {
+        redis = Mocks.create(impl);
+    }
+
+    @Benchmark public List<Object> multiExec(Mocks.Cursor cursor) throws Exception {
+        IRedisClient multi = redis.multi();
+        String key = "counter:" + cursor.next(16);
+        for (int idx = 0; idx < size; ++idx) {
+            multi.incr(key);
+        }
+        return multi.exec();
+    }
+
+    @Benchmark public List<Object> watchMultiExec(Mocks.Cursor cursor) throws Exception {
+        IRedisClient client = redis.createClient();
+        String key = "counter:" + cursor.next(16);
+        client.watch(key);
+        IRedisClient multi = client.multi();
+        for (int idx = 0; idx < size; ++idx) {
+            multi.incr(key);
+        }
+        return multi.exec();
+    }
+
+    @Benchmark public List<Object> pipelineSync(Mocks.Cursor cursor) throws Exception {
+        IRedisClient pipeline = redis.pipelined();
+        String key = "counter:" + cursor.next(16);
+        for (int idx = 0; idx < size; ++idx) {
+            pipeline.incr(key);
+        }
+        return pipeline.sync();
+    }
+
+}
@@ -104,12 +104,20 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    @Override public ScanResult<Set<String>> scan(long cursor, String ... options) throws NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     /* IRedisString commands */
 
     @Override public Long append(String key, String value) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
 
+    @Override public Long append(byte[] key, byte[] value) throws WrongTypeException, NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     @Override public Long bitcount(String key, long ... options) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
@@ -134,6 +142,10 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    @Override public byte[] get(byte[] key) throws WrongTypeException, NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     @Override public Boolean getbit(String key, long offset) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
@@ -142,10 +154,18 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    @Override public byte[] getrange(byte[] key, long start, long end) throws WrongTypeException, NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     @Override public String getset(String key, String value) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
 
+    @Override public byte[] getset(byte[] key, byte[] value) throws WrongTypeException, NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     @Override public Long incr(String key) throws WrongTypeException, NotIntegerException, NotImplementedException {
         throw new NotImplementedException();
     }
@@ -178,6 +198,10 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    @Override public String set(byte[] key, byte[] value, String ... options) throws NotImplementedException, SyntaxErrorException {
+        throw new NotImplementedException();
+    }
+
     @Override public Long setbit(String key, long offset, boolean value) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
@@ -194,6 +218,10 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    @Override public Long setrange(byte[] key, long offset, byte[] value) throws WrongTypeException, NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     @Override public Long strlen(String key) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
@@ -298,6 +326,10 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    @Override public Set<String> spop(String key, long count) throws WrongTypeException, NotIntegerException, NotImplementedException {
+        throw new NotImplementedException();
+    }
+
     @Override public String srandmember(String key) throws WrongTypeException, NotImplementedException {
         throw new NotImplementedException();
     }
@@ -496,4 +528,14 @@ public abstract class AbstractRedisClient implements IRedisClient {
         throw new NotImplementedException();
     }
 
+    /* IRedisPipeline commands */
+
+    @Override public IRedisClient pipelined() throws NotImplementedException {
+        throw new NotImplementedException();
+    }
+
+    @Override public List<Object> sync() throws NotImplementedException {
+        throw new NotImplementedException();
+    }
+
 }
@@ -12,6 +12,60 @@ import org.rarefiedredis.redis.IRedisSortedSet.ZsetPair;
 
 public abstract class AbstractRedisMock extends AbstractRedisClient {
 
-    public abstract boolean modified(Integer hashCode, String command, List<Object> args);
+    /**
+     * A unit of work run by {@link AbstractRedisMock#atomically}.
+     *
+     * @param <T> The type of the result.
+     */
+    public interface Block<T> {
+        /**
+         * Run the block.
+         *
+         * @return The result of the block.
+         *
+         * @throws Exception Whatever the commands in the block throw.
+         */
+        T run() throws Exception;
+    }
+
+    /**
+     * Has any key a client watches changed since the client watched it?
+     *
+     * @param hashCode The identity of the watching client.
+     *
+     * @return true if a watched key changed, or false.
+     */
+    public abstract boolean modified(Integer hashCode);
+
+    /**
+     * Watch a key on behalf of a client.
+     *
+     * @param key The key to watch.
+     * @param hashCode The identity of the watching client.
+     *
+     * @return "OK"
+     */
+    public abstract String watch(String key, Integer hashCode);
+
+    /**
+     * Forget every key a client watches.
+     *
+     * @param hashCode The identity of the watching client.
+     *
+     * @return "OK"
+     */
+    public abstract String unwatch(Integer hashCode);
+
+    /**
+     * Run a block of commands so that no other command runs against
+     * the database while it does.
+     *
+     * @param block The block to run.
+     *
+     * @return The result of the block.
+     *
+     * @throws Exception Whatever the block throws.
+     */
+    public abstract <T> T atomically(Block<T> block) throws Exception;
 
 }
@@ -0,0 +1,773 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.Map;
+
+/**
+ * A client that queues its commands instead of running them, and runs
+ * them later as one batch against the client it wraps. Each command
+ * returns null when it is queued; the replies come back from running
+ * the batch, in order.
+ */
+public abstract class AbstractRedisMockBatch extends AbstractRedisMock {
+
+    /**
+     * A queued command. It runs itself on the client with a direct call
+     * when the batch is run.
+     */
+    protected abstract static class QueuedCommand {
+        public abstract Object exec(AbstractRedisMock redisMock) throws Exception;
+    }
+
+    protected final AbstractRedisMock redisMock;
+    protected final List<QueuedCommand> commands;
+
+    protected AbstractRedisMockBatch(AbstractRedisMock redisMock) {
+        this.redisMock = redisMock;
+        commands = new ArrayList<QueuedCommand>();
+    }
+
+    private synchronized Object command(QueuedCommand command) {
+        commands.add(command);
+        return null;
+    }
+
+    /**
+     * Run the queued commands in order, and empty the queue. Call this
+     * inside atomically, so that the batch runs as one block.
+     *
+     * @return The replies. A command that failed has its exception as its reply.
+     */
+    protected List<Object> runCommands() {
+        List<Object> returns = new ArrayList<Object>(commands.size());
+        for (QueuedCommand command : commands) {
+            try {
+                returns.add(command.exec(redisMock));
+            }
+            catch (Exception e) {
+                returns.add(e);
+            }
+        }
+        commands.clear();
+        return returns;
+    }
+
+    @Override public String unwatch() throws NotImplementedException {
+        return redisMock.unwatch();
+    }
+
+    @Override public String watch(String key) throws NotImplementedException {
+        return redisMock.watch(key);
+    }
+
+    @Override public IRedisClient createClient() {
+        return redisMock.createClient();
+    }
+
+    @Override public boolean modified(Integer hashCode) {
+        return redisMock.modified(hashCode);
+    }
+
+    @Override public String watch(String key, Integer hashCode) {
+        return redisMock.watch(key, hashCode);
+    }
+
+    @Override public String unwatch(Integer hashCode) {
+        return redisMock.unwatch(hashCode);
+    }
+
+    @Override public <T> T atomically(Block<T> block) throws Exception {
+        return redisMock.atomically(block);
+    }
+
+    @Override public  Long del(final String ... keys) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.del(keys);
+                }
+            });
+    }
+
+    @Override public  Boolean exists(final String key) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.exists(key);
+                }
+            });
+    }
+
+    @Override public  Boolean expire(final String key, final int seconds) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.expire(key, seconds);
+                }
+            });
+    }
+
+    @Override public  Boolean expireat(final String key, final long timestamp) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.expireat(key, timestamp);
+                }
+            });
+    }
+
+    @Override public  Boolean persist(final String key) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.persist(key);
+                }
+            });
+    }
+
+    @Override public  Boolean pexpire(final String key, final long milliseconds) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.pexpire(key, milliseconds);
+                }
+            });
+    }
+
+    @Override public  Boolean pexpireat(final String key, final long timestamp) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.pexpireat(key, timestamp);
+                }
+            });
+    }
+
+    @Override public  String type(final String key) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.type(key);
+                }
+            });
+    }
+
+    @Override public  String randomkey() {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.randomkey();
+                }
+            });
+    }
+
+    @Override public  String[] keys(final String pattern) {
+        return (String[])command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.keys(pattern);
+                }
+            });
+    }
+
+    @Override public  ScanResult<Set<String>> scan(final long cursor, final String ... options) {
+        return (ScanResult<Set<String>>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.scan(cursor, options);
+                }
+            });
+    }
+
+    @Override public  Long append(final String key, final String value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.append(key, value);
+                }
+            });
+    }
+
+    @Override public  Long append(final byte[] key, final byte[] value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.append(key, value);
+                }
+            });
+    }
+
+    @Override public  Long bitcount(final String key, final long ... options) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.bitcount(key, options);
+                }
+            });
+    }
+
+    @Override public  Long bitop(final String operation, final String destkey, final String ... keys) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.bitop(operation, destkey, keys);
+                }
+            });
+    }
+
+    @Override public  Long bitpos(final String key, final long bit, final long ... options) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.bitpos(key, bit, options);
+                }
+            });
+    }
+
+    @Override public  Long decr(final String key) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.decr(key);
+                }
+            });
+    }
+
+    @Override public  Long decrby(final String key, final long decrement) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.decrby(key, decrement);
+                }
+            });
+    }
+
+    @Override public  String get(final String key) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.get(key);
+                }
+            });
+    }
+
+    @Override public  byte[] get(final byte[] key) {
+        return (byte[])command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.get(key);
+                }
+            });
+    }
+
+    @Override public  Boolean getbit(final String key, final long offset) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.getbit(key, offset);
+                }
+            });
+    }
+
+    @Override public  String getrange(final String key, final long start, final long end) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.getrange(key, start, end);
+                }
+            });
+    }
+
+    @Override public  byte[] getrange(final byte[] key, final long start, final long end) {
+        return (byte[])command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.getrange(key, start, end);
+                }
+            });
+    }
+
+    @Override public  String getset(final String key, final String value) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.getset(key, value);
+                }
+            });
+    }
+
+    @Override public  byte[] getset(final byte[] key, final byte[] value) {
+        return (byte[])command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.getset(key, value);
+                }
+            });
+    }
+
+    @Override public  Long incr(final String key) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.incr(key);
+                }
+            });
+    }
+
+    @Override public  Long incrby(final String key, final long increment) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.incrby(key, increment);
+                }
+            });
+    }
+
+    @Override public  String incrbyfloat(final String key, final double increment) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.incrbyfloat(key, increment);
+                }
+            });
+    }
+
+    @Override public  String[] mget(final String ... keys) {
+        return (String[])command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.mget(keys);
+                }
+            });
+    }
+
+    @Override public  String mset(final String ... keyvalues) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.mset(keyvalues);
+                }
+            });
+    }
+
+    @Override public  Boolean msetnx(final String ... keyvalues) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.msetnx(keyvalues);
+                }
+            });
+    }
+
+    @Override public  String psetex(final String key, final long milliseconds, final String value) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.psetex(key, milliseconds, value);
+                }
+            });
+    }
+
+    @Override public  String set(final String key, final String value, final String ... options) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.set(key, value, options);
+                }
+            });
+    }
+
+    @Override public  String set(final byte[] key, final byte[] value, final String ... options) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.set(key, value, options);
+                }
+            });
+    }
+
+    @Override public  Long setbit(final String key, final long offset, final boolean value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.setbit(key, offset, value);
+                }
+            });
+    }
+
+    @Override public  String setex(final String key, final int seconds, final String value) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.setex(key, seconds, value);
+                }
+            });
+    }
+
+    @Override public  Long setnx(final String key, final String value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.setnx(key, value);
+                }
+            });
+    }
+
+    @Override public  Long setrange(final String key, final long offset, final String value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.setrange(key, offset, value);
+                }
+            });
+    }
+
+    @Override public  Long setrange(final byte[] key, final long offset, final byte[] value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.setrange(key, offset, value);
+                }
+            });
+    }
+
+    @Override public  Long strlen(final String key) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.strlen(key);
+                }
+            });
+    }
+
+    @Override public  String lindex(final String key, final long index) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lindex(key, index);
+                }
+            });
+    }
+
+    @Override public  Long linsert(final String key, final String before_after, final String pivot, final String value) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.linsert(key, before_after, pivot, value);
+                }
+            });
+    }
+
+    @Override public  Long llen(final String key) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.llen(key);
+                }
+            });
+    }
+
+    @Override public  String lpop(final String key) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lpop(key);
+                }
+            });
+    }
+
+    @Override public  Long lpush(final String key, final String element, final String ... elements) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lpush(key, element, elements);
+                }
+            });
+    }
+
+    @Override public  Long lpushx(final String key, final String element) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lpushx(key, element);
+                }
+            });
+    }
+
+    @Override public  List<String> lrange(final String key, final long start, final long end) {
+        return (List<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lrange(key, start, end);
+                }
+            });
+    }
+
+    @Override public  Long lrem(final String key, final long count, final String element) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lrem(key, count, element);
+                }
+            });
+    }
+
+    @Override public  String lset(final String key, final long index, final String element) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.lset(key, index, element);
+                }
+            });
+    }
+
+    @Override public  String ltrim(final String key, final long start, final long end) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.ltrim(key, start, end);
+                }
+            });
+    }
+
+    @Override public  String rpop(final String key) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.rpop(key);
+                }
+            });
+    }
+
+    @Override public  String rpoplpush(final String source, final String dest) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.rpoplpush(source, dest);
+                }
+            });
+    }
+
+    @Override public  Long rpush(final String key, final String element, final String ... elements) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.rpush(key, element, elements);
+                }
+            });
+    }
+
+    @Override public  Long rpushx(final String key, final String element) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.rpushx(key, element);
+                }
+            });
+    }
+
+    @Override public  Long sadd(final String key, final String member, final String ... members) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sadd(key, member, members);
+                }
+            });
+    }
+
+    @Override public  Long scard(final String key) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.scard(key);
+                }
+            });
+    }
+
+    @Override public  Set<String> sdiff(final String key, final String ... keys) {
+        return (Set<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sdiff(key, keys);
+                }
+            });
+    }
+
+    @Override public  Long sdiffstore(final String destination, final String key, final String ... keys) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sdiffstore(destination, key, keys);
+                }
+            });
+    }
+
+    @Override public  Set<String> sinter(final String key, final String ... keys) {
+        return (Set<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sinter(key, keys);
+                }
+            });
+    }
+
+    @Override public  Long sinterstore(final String destination, final String key, final String ... keys) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sinterstore(destination, key, keys);
+                }
+            });
+    }
+
+    @Override public  Boolean sismember(final String key, final String member) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sismember(key, member);
+                }
+            });
+    }
+
+    @Override public  Set<String> smembers(final String key) {
+        return (Set<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.smembers(key);
+                }
+            });
+    }
+
+    @Override public  Boolean smove(final String source, final String dest, final String member) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.smove(source, dest, member);
+                }
+            });
+    }
+
+    @Override public  String spop(final String key) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.spop(key);
+                }
+            });
+    }
+
+    @Override public  Set<String> spop(final String key, final long count) {
+        return (Set<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.spop(key, count);
+                }
+            });
+    }
+
+    @Override public  String srandmember(final String key) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.srandmember(key);
+                }
+            });
+    }
+
+    @Override public  List<String> srandmember(final String key, final long count) {
+        return (List<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.srandmember(key, count);
+                }
+            });
+    }
+
+    @Override public  Long srem(final String key, final String member, final String ... members) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.srem(key, member, members);
+                }
+            });
+    }
+
+    @Override public  Set<String> sunion(final String key, final String ... keys) {
+        return (Set<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sunion(key, keys);
+                }
+            });
+    }
+
+    @Override public  Long sunionstore(final String destination, final String key, final String ... keys) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sunionstore(destination, key, keys);
+                }
+            });
+    }
+
+    @Override public  ScanResult<Set<String>> sscan(final String key, final long cursor, final String ... options) {
+        return (ScanResult<Set<String>>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.sscan(key, cursor, options);
+                }
+            });
+    }
+
+    @Override public  Long hdel(final String key, final String field, final String ... fields) {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hdel(key, field, fields);
+                }
+            });
+    }
+
+    @Override public  Boolean hexists(final String key, final String field) {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hexists(key, field);
+                }
+            });
+    }
+
+    @Override public  String hget(final String key, final String field) {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hget(key, field);
+                }
+            });
+    }
+
+    @Override public  Map<String, String> hgetall(final String key) {
+        return (Map<String, String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hgetall(key);
+                }
+            });
+    }
+
+    @Override public  Long hincrby(final String key, final String field, final long increment) throws WrongTypeException, NotIntegerHashException {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hincrby(key, field, increment);
+                }
+            });
+    }
+
+    @Override public  String hincrbyfloat(final String key, final String field, final double increment) throws WrongTypeException, NotFloatHashException {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hincrbyfloat(key, field, increment);
+                }
+            });
+    }
+
+    @Override public  Set<String> hkeys(final String key) throws WrongTypeException {
+        return (Set<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hkeys(key);
+                }
+            });
+    }
+
+    @Override public  Long hlen(final String key) throws WrongTypeException {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hlen(key);
+                }
+            });
+    }
+
+    @Override public  List<String> hmget(final String key, final String field, final String ... fields) throws WrongTypeException {
+        return (List<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hmget(key, field, fields);
+                }
+            });
+    }
+
+    @Override public  String hmset(final String key, final String field, final String value, final String ... fieldsvalues) throws WrongTypeException, ArgException {
+        return (String)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hmset(key, field, value, fieldsvalues);
+                }
+            });
+    }
+
+    @Override public  Boolean hset(final String key, final String field, final String value) throws WrongTypeException {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hset(key, field, value);
+                }
+            });
+    }
+
+    @Override public  Boolean hsetnx(final String key, final String field, final String value) throws WrongTypeException {
+        return (Boolean)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hsetnx(key, field, value);
+                }
+            });
+    }
+
+    @Override public  Long hstrlen(final String key, final String field) throws WrongTypeException {
+        return (Long)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hstrlen(key, field);
+                }
+            });
+    }
+
+    @Override public  List<String> hvals(final String key) throws WrongTypeException {
+        return (List<String>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hvals(key);
+                }
+            });
+    }
+
+    @Override public  ScanResult<Map<String, String>> hscan(final String key, final long cursor, final String ... options) {
+        return (ScanResult<Map<String, String>>)command(new QueuedCommand() {
+                @Override public Object exec(AbstractRedisMock redisMock) throws Exception {
+                    return redisMock.hscan(key, cursor, options);
+                }
+            });
+    }
+
+}
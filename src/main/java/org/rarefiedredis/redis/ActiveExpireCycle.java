@@ -0,0 +1,113 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Removes expired keys from a keyspace the way redis does in the
+ * background: by sampling keys that have an expiration at random and
+ * deleting the ones that are past it.
+ *
+ * Each run of the cycle samples a batch of keys, and samples another
+ * batch as long as more than an acceptable fraction of the last batch
+ * had expired. A run never spends more than its time budget, so the
+ * deletions are spread out over many runs instead of happening in
+ * bursts. Keys that are not sampled in time are still removed lazily
+ * when they are looked up.
+ */
+public final class ActiveExpireCycle {
+
+    /** The default number of runs per second. */
+    public static final int DEFAULT_HZ = 10;
+    /** The default number of keys sampled per batch. */
+    public static final int DEFAULT_KEYS_PER_LOOP = 20;
+    /** The default percentage of expired keys in a batch that ends the run. */
+    public static final int DEFAULT_ACCEPTABLE_STALE_PERCENT = 10;
+    /** The default share of each period a run may take, in percent. */
+    public static final int DEFAULT_TIME_PERCENT = 25;
+
+    private final int hz;
+    private final int keysPerLoop;
+    private final int acceptableStalePercent;
+    private final long timeBudgetNanos;
+    private final Random random;
+
+    /**
+     * Constructor. Makes a cycle with the same defaults as redis: ten runs
+     * a second, batches of 20 keys, repeating while more than 10% of a
+     * batch expired, and taking at most 25% of the time.
+     */
+    public ActiveExpireCycle() {
+        this(DEFAULT_HZ, DEFAULT_KEYS_PER_LOOP, DEFAULT_ACCEPTABLE_STALE_PERCENT,
+             1000L * DEFAULT_TIME_PERCENT / DEFAULT_HZ / 100L);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param hz The number of runs per second.
+     * @param keysPerLoop The number of keys sampled per batch.
+     * @param acceptableStalePercent Keep sampling while more than this
+     * percentage of a batch had expired.
+     * @param timeBudgetMillis The longest a single run may take, in milliseconds.
+     */
+    public ActiveExpireCycle(int hz, int keysPerLoop, int acceptableStalePercent, long timeBudgetMillis) {
+        if (hz <= 0 || keysPerLoop <= 0 || acceptableStalePercent < 0 || timeBudgetMillis <= 0L) {
+            throw new IllegalArgumentException("hz, keysPerLoop and timeBudgetMillis must be greater than 0");
+        }
+        this.hz = hz;
+        this.keysPerLoop = keysPerLoop;
+        this.acceptableStalePercent = acceptableStalePercent;
+        this.timeBudgetNanos = timeBudgetMillis * 1000000L;
+        this.random = new Random();
+    }
+
+    /**
+     * Get the time between two runs.
+     *
+     * @return The period in milliseconds.
+     */
+    public long periodMillis() {
+        return Math.max(1000L / hz, 1L);
+    }
+
+    /**
+     * Run the cycle once over the keyspace. The caller must hold
+     * whatever lock guards the keyspace.
+     *
+     * @param keyspace The keyspace to remove expired keys from.
+     *
+     * @return The keys that were removed.
+     */
+    public List<String> run(RedisKeyspace keyspace) {
+        List<String> expired = new ArrayList<String>();
+        long start = System.nanoTime();
+        int sampled;
+        int stale;
+        do {
+            int num = Math.min(keysPerLoop, keyspace.volatileSize());
+            if (num == 0) {
+                break;
+            }
+            sampled = 0;
+            stale = 0;
+            for (int idx = 0; idx < num; ++idx) {
+                String key = keyspace.randomVolatileKey(random);
+                if (key == null) {
+                    break;
+                }
+                sampled += 1;
+                if (keyspace.expire(key)) {
+                    expired.add(key);
+                    stale += 1;
+                }
+            }
+            if (System.nanoTime() - start >= timeBudgetNanos) {
+                break;
+            }
+        } while (stale * 100 > sampled * acceptableStalePercent);
+        return expired;
+    }
+
+}
@@ -0,0 +1,308 @@
+package org.rarefiedredis.redis;
+
+import java.util.Arrays;
+
+/**
+ * A string value packed into 64 bit words, for strings used as
+ * bitmaps. Counting, searching and combining bits work a whole word at
+ * a time instead of a bit or a byte at a time.
+ *
+ * The bytes of the string are packed big-endian, eight to a word, so
+ * that bit offset b, numbered from the most significant bit of the
+ * first byte as in redis, is bit 63 - b % 64 of word b / 64. The first
+ * set bit of a word is then found by Long.numberOfLeadingZeros. Bits
+ * past the end of the string are always zero.
+ */
+public final class Bitmap {
+
+    /** The words. */
+    private long[] words;
+    /** The length of the string in bytes. */
+    private int length;
+
+    /**
+     * Constructor. Initializes an empty bitmap.
+     */
+    public Bitmap() {
+        this.words = new long[0];
+        this.length = 0;
+    }
+
+    /**
+     * Constructor. Initializes a bitmap holding the bytes.
+     *
+     * @param bytes The bytes.
+     * @param length The number of bytes to take.
+     */
+    public Bitmap(final byte[] bytes, final int length) {
+        this.words = new long[wordsFor(length)];
+        this.length = length;
+        for (int idx = 0; idx < length; ++idx) {
+            words[idx >> 3] |= (bytes[idx] & 0xFFL) << shift(idx);
+        }
+    }
+
+    private static int wordsFor(final int bytes) {
+        return (bytes + 7) >> 3;
+    }
+
+    /**
+     * @return How far byte idx is shifted up in its word.
+     */
+    private static int shift(final int idx) {
+        return 56 - ((idx & 7) << 3);
+    }
+
+    /**
+     * @return The bits lo up to but not including hi of a word,
+     * numbered from the most significant bit.
+     */
+    private static long mask(final int lo, final int hi) {
+        long upper = -1L >>> lo;
+        return hi == 64 ? upper : upper & ~(-1L >>> hi);
+    }
+
+    /**
+     * @return The number of bytes in the string.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Grow the string to at least the given number of bytes, padding
+     * it with zero bytes. The words grow by doubling, so a run of
+     * writes past the end costs amortized O(1) per write.
+     */
+    private void grow(final int newLength) {
+        if (newLength <= length) {
+            return;
+        }
+        int need = wordsFor(newLength);
+        if (need > words.length) {
+            words = Arrays.copyOf(words, Math.max(need, 2 * words.length));
+        }
+        length = newLength;
+    }
+
+    /**
+     * Get the byte at an index.
+     *
+     * @param index The index.
+     *
+     * @return The byte.
+     */
+    public byte byteAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+        return (byte)(words[index >> 3] >>> shift(index));
+    }
+
+    /**
+     * Copy a range of the string.
+     *
+     * @param from The index of the first byte to copy.
+     * @param to The index after the last byte to copy.
+     *
+     * @return The bytes in the range.
+     */
+    public byte[] range(final int from, final int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", Length: " + length);
+        }
+        byte[] bytes = new byte[to - from];
+        for (int idx = from; idx < to; ++idx) {
+            bytes[idx - from] = (byte)(words[idx >> 3] >>> shift(idx));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return A copy of the bytes in the string.
+     */
+    public byte[] toByteArray() {
+        return range(0, length);
+    }
+
+    /**
+     * Overwrite the string with bytes starting at offset, zero padding
+     * the string out to the offset if it is shorter.
+     *
+     * @param offset Where to start.
+     * @param bytes The bytes.
+     *
+     * @return The length of the string after the write.
+     */
+    public int setrange(final int offset, final byte[] bytes) {
+        if (offset < 0) {
+            throw new IndexOutOfBoundsException("offset: " + offset);
+        }
+        grow(offset + bytes.length);
+        for (int idx = 0; idx < bytes.length; ++idx) {
+            int at = offset + idx;
+            int s = shift(at);
+            words[at >> 3] = (words[at >> 3] & ~(0xFFL << s)) | ((bytes[idx] & 0xFFL) << s);
+        }
+        return length;
+    }
+
+    /**
+     * Get a bit.
+     *
+     * @param offset The bit offset.
+     *
+     * @return The bit, or false if the offset is past the end of the string.
+     */
+    public boolean getbit(final long offset) {
+        if ((offset >> 3) >= length) {
+            return false;
+        }
+        return (words[(int)(offset >> 6)] & (Long.MIN_VALUE >>> (offset & 63))) != 0L;
+    }
+
+    /**
+     * Set or clear a bit, zero padding the string out to the byte that
+     * holds it.
+     *
+     * @param offset The bit offset.
+     * @param value Whether to set or clear the bit.
+     *
+     * @return The previous bit.
+     */
+    public boolean setbit(final long offset, final boolean value) {
+        grow((int)(offset >> 3) + 1);
+        int idx = (int)(offset >> 6);
+        long bit = Long.MIN_VALUE >>> (offset & 63);
+        boolean old = (words[idx] & bit) != 0L;
+        if (value) {
+            words[idx] |= bit;
+        }
+        else {
+            words[idx] &= ~bit;
+        }
+        return old;
+    }
+
+    /**
+     * Count the set bits in a range of bytes.
+     *
+     * @param from The index of the first byte.
+     * @param to The index after the last byte.
+     *
+     * @return The number of set bits.
+     */
+    public long bitcount(final int from, final int to) {
+        if (from >= to) {
+            return 0L;
+        }
+        long lo = 8L * from;
+        long hi = 8L * to;
+        int first = (int)(lo >> 6);
+        int last = (int)((hi - 1) >> 6);
+        if (first == last) {
+            return Long.bitCount(words[first] & mask((int)(lo & 63), (int)(hi - 64L * last)));
+        }
+        long count = Long.bitCount(words[first] & mask((int)(lo & 63), 64));
+        for (int idx = first + 1; idx < last; ++idx) {
+            count += Long.bitCount(words[idx]);
+        }
+        count += Long.bitCount(words[last] & mask(0, (int)(hi - 64L * last)));
+        return count;
+    }
+
+    /**
+     * Find the first bit set to the given value in a range of bytes.
+     *
+     * @param bit Whether to look for a set or a clear bit.
+     * @param from The index of the first byte.
+     * @param to The index after the last byte.
+     *
+     * @return The bit offset, or -1 if there is no such bit in the range.
+     */
+    public long bitpos(final boolean bit, final int from, final int to) {
+        if (from >= to) {
+            return -1L;
+        }
+        long lo = 8L * from;
+        long hi = 8L * to;
+        int first = (int)(lo >> 6);
+        int last = (int)((hi - 1) >> 6);
+        for (int idx = first; idx <= last; ++idx) {
+            long word = bit ? words[idx] : ~words[idx];
+            int start = idx == first ? (int)(lo & 63) : 0;
+            int end = idx == last ? (int)(hi - 64L * last) : 64;
+            word &= mask(start, end);
+            if (word != 0L) {
+                return 64L * idx + Long.numberOfLeadingZeros(word);
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * Combine bitmaps with a bitwise operation, zero padding the
+     * shorter bitmaps out to the length of the longest.
+     *
+     * @param operation "and", "or", "xor" or "not". "not" uses only the first bitmap.
+     * @param bitmaps The bitmaps. Null bitmaps are treated as empty.
+     *
+     * @return The result.
+     */
+    public static Bitmap bitop(final String operation, final Bitmap ... bitmaps) {
+        int longest = 0;
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap != null && bitmap.length > longest) {
+                longest = bitmap.length;
+            }
+        }
+        Bitmap result = new Bitmap();
+        result.words = new long[wordsFor(longest)];
+        result.length = longest;
+        long[] words = result.words;
+        Bitmap first = bitmaps[0];
+        if (first != null) {
+            System.arraycopy(first.words, 0, words, 0, wordsFor(first.length));
+        }
+        if (operation.equals("not")) {
+            for (int idx = 0; idx < words.length; ++idx) {
+                words[idx] = ~words[idx];
+            }
+            result.clearTail();
+            return result;
+        }
+        for (int bdx = 1; bdx < bitmaps.length; ++bdx) {
+            Bitmap bitmap = bitmaps[bdx];
+            int len = bitmap == null ? 0 : wordsFor(bitmap.length);
+            if (operation.equals("and")) {
+                for (int idx = 0; idx < len; ++idx) {
+                    words[idx] &= bitmap.words[idx];
+                }
+                // Words past the end of the bitmap are and'ed with zero.
+                Arrays.fill(words, len, words.length, 0L);
+            }
+            else if (operation.equals("or")) {
+                for (int idx = 0; idx < len; ++idx) {
+                    words[idx] |= bitmap.words[idx];
+                }
+            }
+            else if (operation.equals("xor")) {
+                for (int idx = 0; idx < len; ++idx) {
+                    words[idx] ^= bitmap.words[idx];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clear the bits past the end of the string in the last word.
+     */
+    private void clearTail() {
+        int used = length & 7;
+        if (used != 0) {
+            words[length >> 3] &= mask(0, used << 3);
+        }
+    }
+
+}
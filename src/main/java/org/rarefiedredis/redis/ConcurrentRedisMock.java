@@ -0,0 +1,1152 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Arrays;
+import java.util.Random;
+import java.nio.charset.Charset;
+
+/**
+ * An in-memory redis-compatible database whose keys are split over
+ * a number of lock stripes, so that commands on different keys can
+ * run at the same time on different threads.
+ *
+ * A key belongs to the stripe picked by its redis cluster hash slot,
+ * so keys that share a {hash tag} always share a stripe. Each stripe
+ * is a {@link RedisMock} and its monitor is the lock of the stripe.
+ * Commands on a single key take the lock of that key's stripe only.
+ * Commands on several keys take the locks of all their stripes, always
+ * in ascending order, so two of them can never deadlock. Transactions
+ * take the lock of every stripe.
+ */
+public final class ConcurrentRedisMock extends AbstractRedisMock {
+
+    /** The number of redis cluster hash slots. */
+    public static final int SLOTS = 16384;
+    /** The largest number of stripes. */
+    public static final int MAX_STRIPES = 1024;
+
+    /**
+     * A command on the keys of a single stripe.
+     */
+    private interface KeyCommand<T> {
+        T run(RedisMock stripe) throws Exception;
+    }
+
+    /** The CRC16 table used by redis cluster (XMODEM). */
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int idx = 0; idx < 256; ++idx) {
+            int crc = idx << 8;
+            for (int bit = 0; bit < 8; ++bit) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[idx] = crc & 0xffff;
+        }
+    }
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The stripes. */
+    private final RedisMock[] stripes;
+    /** The wheel every stripe schedules its key expirations on. */
+    private final ExpiryWheel expiryWheel;
+    /** Picks the stripe of RANDOMKEY. */
+    private final Random random;
+    /**
+     * The scratch database of each thread, for the commands that build
+     * a value out of keys on several stripes.
+     */
+    private final ThreadLocal<RedisMock> scratches;
+
+    /**
+     * Default constructor. Initializes an empty database with four
+     * stripes per available processor.
+     */
+    public ConcurrentRedisMock() {
+        this(Math.min(4 * Runtime.getRuntime().availableProcessors(), MAX_STRIPES));
+    }
+
+    /**
+     * Constructor. Initializes an empty database.
+     *
+     * @param stripes The number of stripes. Rounded up to a power of two.
+     */
+    public ConcurrentRedisMock(int stripes) {
+        this(stripes, new ExpiryWheel());
+    }
+
+    /**
+     * Constructor. Initializes an empty database whose keys expire on
+     * the given wheel.
+     *
+     * @param stripes The number of stripes. Rounded up to a power of two.
+     * @param expiryWheel The wheel to schedule key expirations on.
+     */
+    public ConcurrentRedisMock(int stripes, ExpiryWheel expiryWheel) {
+        if (stripes <= 0 || stripes > MAX_STRIPES) {
+            throw new IllegalArgumentException("stripes must be between 1 and " + MAX_STRIPES);
+        }
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.expiryWheel = expiryWheel;
+        this.random = new Random();
+        this.scratches = new ThreadLocal<RedisMock>() {
+            @Override protected RedisMock initialValue() {
+                return new RedisMock(ConcurrentRedisMock.this.expiryWheel);
+            }
+        };
+        this.stripes = new RedisMock[size];
+        for (int idx = 0; idx < size; ++idx) {
+            this.stripes[idx] = new RedisMock(expiryWheel);
+        }
+    }
+
+    /**
+     * Always throws a CloneNotSupportedException. Cloning ConcurrentRedisMock
+     * instances is not supported.
+     *
+     * @throws CloneNotSupportedException Always
+     *
+     * @return Nothing, since this function always throws an exception.
+     */
+    @Override public final Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException();
+    }
+
+    @Override public IRedisClient createClient() {
+        return new RedisMockClient(this);
+    }
+
+    /**
+     * Get the redis cluster hash slot of a key. Only the part of the key
+     * between the first { and the next } is hashed, if that part is not
+     * empty.
+     *
+     * @param key The key.
+     *
+     * @return The hash slot, between 0 and 16383.
+     */
+    public static int slot(String key) {
+        int start = key.indexOf('{');
+        int end = key.length();
+        if (start != -1) {
+            int close = key.indexOf('}', start + 1);
+            if (close != -1 && close != start + 1) {
+                end = close;
+                start += 1;
+            }
+            else {
+                start = 0;
+            }
+        }
+        else {
+            start = 0;
+        }
+        byte[] bytes = key.substring(start, end).getBytes(UTF8);
+        int crc = 0;
+        for (byte b : bytes) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ b) & 0xff]) & 0xffff;
+        }
+        return crc & (SLOTS - 1);
+    }
+
+    /**
+     * Keep the keys of every stripe in a sorted index, or stop. See
+     * {@link RedisMock#setKeyIndex}.
+     *
+     * @param indexed Whether to keep the keys in a sorted index.
+     */
+    public void setKeyIndex(boolean indexed) {
+        for (RedisMock stripe : stripes) {
+            stripe.setKeyIndex(indexed);
+        }
+    }
+
+    /**
+     * Get the number of stripes.
+     *
+     * @return The number of stripes.
+     */
+    public int stripes() {
+        return stripes.length;
+    }
+
+    private int index(String key) {
+        return slot(key) & (stripes.length - 1);
+    }
+
+    private RedisMock stripe(String key) {
+        return stripes[index(key)];
+    }
+
+    private RedisMock stripe(byte[] key) {
+        return stripe(new String(key, Sds.UTF8));
+    }
+
+    private static String[] join(String[] keys, String ... first) {
+        String[] joined = new String[first.length + keys.length];
+        System.arraycopy(first, 0, joined, 0, first.length);
+        System.arraycopy(keys, 0, joined, first.length, keys.length);
+        return joined;
+    }
+
+    private static String[] everyOther(String[] keyvalues) {
+        String[] keys = new String[(keyvalues.length + 1) / 2];
+        for (int idx = 0; idx < keyvalues.length; idx += 2) {
+            keys[idx / 2] = keyvalues[idx];
+        }
+        return keys;
+    }
+
+    private static String[] zsetKeys(String destination, int numkeys, String[] options) {
+        String[] keys = new String[Math.max(Math.min(numkeys, options.length), 0)];
+        System.arraycopy(options, 0, keys, 0, keys.length);
+        return join(keys, destination);
+    }
+
+    /**
+     * Get the stripes of some keys, in ascending order, the order their
+     * locks are taken in.
+     */
+    private int[] order(final String[] keys) {
+        boolean[] involved = new boolean[stripes.length];
+        int count = 0;
+        for (String key : keys) {
+            int idx = index(key);
+            if (!involved[idx]) {
+                involved[idx] = true;
+                count += 1;
+            }
+        }
+        int[] order = new int[count];
+        for (int idx = 0, pos = 0; idx < involved.length; ++idx) {
+            if (involved[idx]) {
+                order[pos++] = idx;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Run a command that builds a value out of several keys. If the keys
+     * all belong to one stripe the command runs on that stripe.
+     * Otherwise the locks of their stripes are taken, the keys are moved
+     * to the scratch database of the thread for the command to run on,
+     * and moved back afterwards.
+     *
+     * @param keys The keys the command reads or writes.
+     * @param command The command.
+     *
+     * @return The result of the command.
+     *
+     * @throws Exception Whatever the command throws.
+     */
+    private <T> T run(final String[] keys, final KeyCommand<T> command) throws Exception {
+        int[] order = order(keys);
+        if (order.length <= 1) {
+            return command.run(stripes[order.length == 0 ? 0 : order[0]]);
+        }
+        final Set<String> distinct = new LinkedHashSet<String>(Arrays.asList(keys));
+        return locked(order, 0, new Block<T>() {
+                @Override public T run() throws Exception {
+                    RedisMock scratch = scratches.get();
+                    for (String key : distinct) {
+                        scratch.give(key, stripe(key).take(key), false);
+                        scratch.watch(key, 0);
+                    }
+                    try {
+                        return command.run(scratch);
+                    }
+                    finally {
+                        for (String key : distinct) {
+                            // Ask before the key is taken, taking it
+                            // looks like a removal.
+                            boolean touched = scratch.touched(key);
+                            stripe(key).give(key, scratch.take(key), touched);
+                        }
+                        scratch.unwatch(0);
+                    }
+                }
+            });
+    }
+
+    /**
+     * Run a command on several keys that reads or writes each key on
+     * its own stripe, holding the locks of all their stripes so that
+     * the keys change together. No key is moved.
+     *
+     * @param keys The keys the command reads or writes.
+     * @param block The command.
+     *
+     * @return The result of the command.
+     *
+     * @throws Exception Whatever the command throws.
+     */
+    private <T> T each(final String[] keys, final Block<T> block) throws Exception {
+        return locked(order(keys), 0, block);
+    }
+
+    /**
+     * Get the sets at some keys, for a command that holds the locks of
+     * their stripes and only reads them.
+     */
+    private List<Set<String>> sets(final String key, final String[] keys) throws WrongTypeException {
+        List<Set<String>> sets = new ArrayList<Set<String>>(keys.length + 1);
+        sets.add(stripe(key).members(key));
+        for (String k : keys) {
+            sets.add(stripe(k).members(k));
+        }
+        return sets;
+    }
+
+    /**
+     * Run a block while holding the locks of the given stripes, taken in
+     * the order given.
+     */
+    private <T> T locked(int[] order, int pos, Block<T> block) throws Exception {
+        if (pos == order.length) {
+            return block.run();
+        }
+        synchronized (stripes[order[pos]]) {
+            return locked(order, pos + 1, block);
+        }
+    }
+
+    @Override public <T> T atomically(Block<T> block) throws Exception {
+        int[] order = new int[stripes.length];
+        for (int idx = 0; idx < order.length; ++idx) {
+            order[idx] = idx;
+        }
+        return locked(order, 0, block);
+    }
+
+    @Override public boolean modified(Integer hashCode) {
+        for (RedisMock stripe : stripes) {
+            if (stripe.modified(hashCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* IRedisKeys implementations */
+
+    @Override public Long del(final String ... keys) {
+        try {
+            return each(keys, new Block<Long>() {
+                    @Override public Long run() {
+                        long deleted = 0L;
+                        for (String key : keys) {
+                            deleted += stripe(key).del(key);
+                        }
+                        return deleted;
+                    }
+                });
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Boolean exists(final String key) {
+        return stripe(key).exists(key);
+    }
+
+    @Override public Boolean expire(final String key, final int seconds) {
+        return stripe(key).expire(key, seconds);
+    }
+
+    @Override public Boolean expireat(final String key, final long timestamp) {
+        return stripe(key).expireat(key, timestamp);
+    }
+
+    @Override public Boolean persist(final String key) {
+        return stripe(key).persist(key);
+    }
+
+    @Override public Boolean pexpire(final String key, final long milliseconds) {
+        return stripe(key).pexpire(key, milliseconds);
+    }
+
+    @Override public Boolean pexpireat(final String key, final long timestamp) {
+        return stripe(key).pexpireat(key, timestamp);
+    }
+
+    @Override public Long ttl(final String key) {
+        return stripe(key).ttl(key);
+    }
+
+    @Override public Long pttl(final String key) {
+        return stripe(key).pttl(key);
+    }
+
+    /**
+     * Pick a stripe with a chance in proportion to its number of keys,
+     * then a key of that stripe, so every key is as likely to be picked
+     * as in a single database.
+     */
+    @Override public String randomkey() {
+        int[] sizes = new int[stripes.length];
+        long total = 0L;
+        for (int idx = 0; idx < stripes.length; ++idx) {
+            sizes[idx] = stripes[idx].size();
+            total += sizes[idx];
+        }
+        while (total > 0L) {
+            long pick = (long)(random.nextDouble() * total);
+            int idx = 0;
+            while (idx < stripes.length - 1 && pick >= sizes[idx]) {
+                pick -= sizes[idx];
+                ++idx;
+            }
+            String key = stripes[idx].randomkey();
+            if (key != null) {
+                return key;
+            }
+            // The stripe emptied since its size was taken.
+            total -= sizes[idx];
+            sizes[idx] = 0;
+        }
+        return null;
+    }
+
+    @Override public String type(final String key) {
+        return stripe(key).type(key);
+    }
+
+    /**
+     * Get the keys matching a pattern. Each stripe is searched under its
+     * own lock, so the keys are not a snapshot of the whole database.
+     */
+    @Override public String[] keys(final String pattern) {
+        List<String> keys = new ArrayList<String>();
+        for (RedisMock stripe : stripes) {
+            keys.addAll(Arrays.asList(stripe.keys(pattern)));
+        }
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * Scan the stripes one after the other. The low bits of the cursor
+     * pick the stripe, and the rest is the cursor within that stripe.
+     */
+    @Override public ScanResult<Set<String>> scan(final long cursor, final String ... options) {
+        int bits = Integer.numberOfTrailingZeros(stripes.length);
+        int idx = (int)(cursor & (stripes.length - 1));
+        ScanResult<Set<String>> scan = stripes[idx].scan(cursor >>> bits, options);
+        if (scan.cursor != 0L) {
+            scan.cursor = (scan.cursor << bits) | idx;
+        }
+        else if (idx + 1 < stripes.length) {
+            scan.cursor = (long)(idx + 1);
+        }
+        return scan;
+    }
+
+    /* IRedisString implementations */
+
+    @Override public Long append(final String key, final String value) throws WrongTypeException {
+        return stripe(key).append(key, value);
+    }
+
+    @Override public Long append(final byte[] key, final byte[] value) throws WrongTypeException {
+        return stripe(key).append(key, value);
+    }
+
+    @Override public Long bitcount(final String key, long ... options) throws WrongTypeException {
+        return stripe(key).bitcount(key, options);
+    }
+
+    @Override public Long bitop(final String operation, final String destkey, final String ... keys) throws WrongTypeException {
+        try {
+            return run(join(keys, destkey), new KeyCommand<Long>() {
+                    @Override public Long run(RedisMock stripe) throws Exception {
+                        return stripe.bitop(operation, destkey, keys);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Long bitpos(String key, long bit, long ... options) throws WrongTypeException, BitArgException {
+        return stripe(key).bitpos(key, bit, options);
+    }
+
+    @Override public Long decr(String key) throws WrongTypeException, NotIntegerException {
+        return stripe(key).decr(key);
+    }
+
+    @Override public Long decrby(String key, long decrement) throws WrongTypeException, NotIntegerException {
+        return stripe(key).decrby(key, decrement);
+    }
+
+    @Override public String get(final String key) throws WrongTypeException {
+        return stripe(key).get(key);
+    }
+
+    @Override public byte[] get(final byte[] key) throws WrongTypeException {
+        return stripe(key).get(key);
+    }
+
+    @Override public Boolean getbit(final String key, final long offset) throws WrongTypeException {
+        return stripe(key).getbit(key, offset);
+    }
+
+    @Override public String getrange(final String key, long start, long end) throws WrongTypeException {
+        return stripe(key).getrange(key, start, end);
+    }
+
+    @Override public byte[] getrange(final byte[] key, final long start, final long end) throws WrongTypeException {
+        return stripe(key).getrange(key, start, end);
+    }
+
+    @Override public String getset(final String key, final String value) throws WrongTypeException {
+        return stripe(key).getset(key, value);
+    }
+
+    @Override public byte[] getset(final byte[] key, final byte[] value) throws WrongTypeException {
+        return stripe(key).getset(key, value);
+    }
+
+    @Override public Long incr(final String key) throws WrongTypeException, NotIntegerException {
+        return stripe(key).incr(key);
+    }
+
+    @Override public Long incrby(final String key, final long increment) throws WrongTypeException, NotIntegerException {
+        return stripe(key).incrby(key, increment);
+    }
+
+    @Override public String incrbyfloat(final String key, final double increment) throws WrongTypeException, NotFloatException {
+        return stripe(key).incrbyfloat(key, increment);
+    }
+
+    @Override public String[] mget(final String ... keys) {
+        try {
+            return each(keys, new Block<String[]>() {
+                    @Override public String[] run() {
+                        String[] values = new String[keys.length];
+                        for (int idx = 0; idx < keys.length; ++idx) {
+                            values[idx] = stripe(keys[idx]).mget(keys[idx])[0];
+                        }
+                        return values;
+                    }
+                });
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public String mset(final String ... keyvalues) throws ArgException {
+        if (keyvalues.length == 0 || keyvalues.length % 2 != 0) {
+            throw new ArgException("mset");
+        }
+        try {
+            return each(everyOther(keyvalues), new Block<String>() {
+                    @Override public String run() throws Exception {
+                        for (int idx = 0; idx < keyvalues.length; idx += 2) {
+                            stripe(keyvalues[idx]).mset(keyvalues[idx], keyvalues[idx + 1]);
+                        }
+                        return "OK";
+                    }
+                });
+        }
+        catch (ArgException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Boolean msetnx(final String ... keyvalues) throws ArgException {
+        if (keyvalues.length == 0 || keyvalues.length % 2 != 0) {
+            throw new ArgException("msetnx");
+        }
+        try {
+            return each(everyOther(keyvalues), new Block<Boolean>() {
+                    @Override public Boolean run() throws Exception {
+                        for (int idx = 0; idx < keyvalues.length; idx += 2) {
+                            if (stripe(keyvalues[idx]).exists(keyvalues[idx])) {
+                                return false;
+                            }
+                        }
+                        for (int idx = 0; idx < keyvalues.length; idx += 2) {
+                            stripe(keyvalues[idx]).mset(keyvalues[idx], keyvalues[idx + 1]);
+                        }
+                        return true;
+                    }
+                });
+        }
+        catch (ArgException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public String psetex(String key, long milliseconds, String value) {
+        return stripe(key).psetex(key, milliseconds, value);
+    }
+
+    @Override public String set(final String key, final String value, String ... options) throws SyntaxErrorException {
+        return stripe(key).set(key, value, options);
+    }
+
+    @Override public String set(final byte[] key, final byte[] value, final String ... options) throws SyntaxErrorException {
+        return stripe(key).set(key, value, options);
+    }
+
+    @Override public Long setbit(final String key, final long offset, final boolean value) throws WrongTypeException {
+        return stripe(key).setbit(key, offset, value);
+    }
+
+    @Override public String setex(final String key, final int seconds, final String value) {
+        return stripe(key).setex(key, seconds, value);
+    }
+
+    @Override public Long setnx(final String key, final String value) {
+        return stripe(key).setnx(key, value);
+    }
+
+    @Override public Long setrange(final String key, final long offset, final String value) throws WrongTypeException {
+        return stripe(key).setrange(key, offset, value);
+    }
+
+    @Override public Long setrange(final byte[] key, final long offset, final byte[] value) throws WrongTypeException {
+        return stripe(key).setrange(key, offset, value);
+    }
+
+    @Override public Long strlen(final String key) throws WrongTypeException {
+        return stripe(key).strlen(key);
+    }
+
+    /* IRedisList implementations */
+
+    @Override public String lindex(final String key, long index) throws WrongTypeException {
+        return stripe(key).lindex(key, index);
+    }
+
+    @Override public Long linsert(final String key, String before_after, final String pivot, final String value) throws WrongTypeException {
+        return stripe(key).linsert(key, before_after, pivot, value);
+    }
+
+    @Override public Long llen(final String key) throws WrongTypeException {
+        return stripe(key).llen(key);
+    }
+
+    @Override public String lpop(final String key) throws WrongTypeException {
+        return stripe(key).lpop(key);
+    }
+
+    @Override public Long lpush(final String key, final String element, final String ... elements) throws WrongTypeException {
+        return stripe(key).lpush(key, element, elements);
+    }
+
+    @Override public Long lpushx(final String key, final String element) throws WrongTypeException {
+        return stripe(key).lpushx(key, element);
+    }
+
+    @Override public List<String> lrange(final String key, long start, long end) throws WrongTypeException {
+        return stripe(key).lrange(key, start, end);
+    }
+
+    @Override public Long lrem(final String key, final long count, final String element) throws WrongTypeException {
+        return stripe(key).lrem(key, count, element);
+    }
+
+    @Override public String lset(final String key, final long index, final String element) throws WrongTypeException, NoKeyException, IndexOutOfRangeException {
+        return stripe(key).lset(key, index, element);
+    }
+
+    @Override public String ltrim(final String key, long start, long end) throws WrongTypeException {
+        return stripe(key).ltrim(key, start, end);
+    }
+
+    @Override public String rpop(final String key) throws WrongTypeException {
+        return stripe(key).rpop(key);
+    }
+
+    @Override public String rpoplpush(final String source, final String dest) throws WrongTypeException {
+        try {
+            return run(new String[] { source, dest }, new KeyCommand<String>() {
+                    @Override public String run(RedisMock stripe) throws Exception {
+                        return stripe.rpoplpush(source, dest);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Long rpush(final String key, final String element, final String ... elements) throws WrongTypeException {
+        return stripe(key).rpush(key, element, elements);
+    }
+
+    @Override public Long rpushx(final String key, final String element) throws WrongTypeException {
+        return stripe(key).rpushx(key, element);
+    }
+
+    /* IRedisSet implementations */
+
+    @Override public Long sadd(final String key, final String member, final String ... members) throws WrongTypeException {
+        return stripe(key).sadd(key, member, members);
+    }
+
+    @Override public Long scard(String key) throws WrongTypeException {
+        return stripe(key).scard(key);
+    }
+
+    @Override public Set<String> sdiff(final String key, final String ... keys) throws WrongTypeException {
+        try {
+            return each(join(keys, key), new Block<Set<String>>() {
+                    @Override public Set<String> run() throws Exception {
+                        Set<String> diff = new HashSet<String>();
+                        SetAlgebra.difference(sets(key, keys), diff);
+                        return diff;
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Long sdiffstore(final String destination, final String key, final String ... keys) throws WrongTypeException {
+        try {
+            return run(join(keys, destination, key), new KeyCommand<Long>() {
+                    @Override public Long run(RedisMock stripe) throws Exception {
+                        return stripe.sdiffstore(destination, key, keys);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Set<String> sinter(final String key, final String ... keys) throws WrongTypeException {
+        try {
+            return each(join(keys, key), new Block<Set<String>>() {
+                    @Override public Set<String> run() throws Exception {
+                        Set<String> inter = new HashSet<String>();
+                        SetAlgebra.intersect(sets(key, keys), inter);
+                        return inter;
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Long sinterstore(final String destination, final String key, final String ... keys) throws WrongTypeException {
+        try {
+            return run(join(keys, destination, key), new KeyCommand<Long>() {
+                    @Override public Long run(RedisMock stripe) throws Exception {
+                        return stripe.sinterstore(destination, key, keys);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Boolean sismember(String key, String member) throws WrongTypeException {
+        return stripe(key).sismember(key, member);
+    }
+
+    @Override public Set<String> smembers(String key) throws WrongTypeException {
+        return stripe(key).smembers(key);
+    }
+
+    @Override public Boolean smove(final String source, final String dest, final String member) throws WrongTypeException {
+        try {
+            return run(new String[] { source, dest }, new KeyCommand<Boolean>() {
+                    @Override public Boolean run(RedisMock stripe) throws Exception {
+                        return stripe.smove(source, dest, member);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public String spop(String key) throws WrongTypeException {
+        return stripe(key).spop(key);
+    }
+
+    @Override public Set<String> spop(String key, long count) throws WrongTypeException, NotIntegerException {
+        return stripe(key).spop(key, count);
+    }
+
+    @Override public String srandmember(String key) throws WrongTypeException {
+        return stripe(key).srandmember(key);
+    }
+
+    @Override public List<String> srandmember(String key, long count) throws WrongTypeException {
+        return stripe(key).srandmember(key, count);
+    }
+
+    @Override public Long srem(String key, String member, String ... members) throws WrongTypeException {
+        return stripe(key).srem(key, member, members);
+    }
+
+    @Override public Set<String> sunion(final String key, final String ... keys) throws WrongTypeException {
+        try {
+            return each(join(keys, key), new Block<Set<String>>() {
+                    @Override public Set<String> run() throws Exception {
+                        Set<String> union = new HashSet<String>();
+                        SetAlgebra.union(sets(key, keys), union);
+                        return union;
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Long sunionstore(final String destination, final String key, final String ... keys) throws WrongTypeException {
+        try {
+            return run(join(keys, destination, key), new KeyCommand<Long>() {
+                    @Override public Long run(RedisMock stripe) throws Exception {
+                        return stripe.sunionstore(destination, key, keys);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public ScanResult<Set<String>> sscan(String key, long cursor, String ... options) throws WrongTypeException {
+        return stripe(key).sscan(key, cursor, options);
+    }
+
+    /* IRedisHash implementations */
+
+    @Override public Long hdel(String key, String field, String ... fields) throws WrongTypeException {
+        return stripe(key).hdel(key, field, fields);
+    }
+
+    @Override public Boolean hexists(String key, String field) throws WrongTypeException {
+        return stripe(key).hexists(key, field);
+    }
+
+    @Override public String hget(String key, String field) throws WrongTypeException {
+        return stripe(key).hget(key, field);
+    }
+
+    @Override public Map<String, String> hgetall(String key) throws WrongTypeException {
+        return stripe(key).hgetall(key);
+    }
+
+    @Override public Long hincrby(String key, String field, long increment) throws WrongTypeException, NotIntegerHashException {
+        return stripe(key).hincrby(key, field, increment);
+    }
+
+    @Override public String hincrbyfloat(String key, String field, double increment) throws WrongTypeException, NotFloatHashException {
+        return stripe(key).hincrbyfloat(key, field, increment);
+    }
+
+    @Override public Set<String> hkeys(String key) throws WrongTypeException {
+        return stripe(key).hkeys(key);
+    }
+
+    @Override public Long hlen(String key) throws WrongTypeException {
+        return stripe(key).hlen(key);
+    }
+
+    @Override public List<String> hmget(String key, String field, String ... fields) throws WrongTypeException {
+        return stripe(key).hmget(key, field, fields);
+    }
+
+    @Override public String hmset(String key, String field, String value, String ... fieldsvalues) throws WrongTypeException, ArgException {
+        return stripe(key).hmset(key, field, value, fieldsvalues);
+    }
+
+    @Override public Boolean hset(String key, String field, String value) throws WrongTypeException {
+        return stripe(key).hset(key, field, value);
+    }
+
+    @Override public Boolean hsetnx(String key, String field, String value) throws WrongTypeException {
+        return stripe(key).hsetnx(key, field, value);
+    }
+
+    @Override public Long hstrlen(String key, String field) throws WrongTypeException {
+        return stripe(key).hstrlen(key, field);
+    }
+
+    @Override public List<String> hvals(String key) throws WrongTypeException {
+        return stripe(key).hvals(key);
+    }
+
+    @Override public ScanResult<Map<String, String>> hscan(String key, long cursor, String ... options) throws WrongTypeException {
+        return stripe(key).hscan(key, cursor, options);
+    }
+
+    /* IRedisSortedSet implementations */
+
+    @Override public Long zadd(final String key, final ZsetPair scoremember, final ZsetPair ... scoresmembers) throws WrongTypeException {
+        return stripe(key).zadd(key, scoremember, scoresmembers);
+    }
+
+    @Override public Long zadd(final String key, final double score, final String member, final Object ... scoresmembers) throws WrongTypeException, SyntaxErrorException, NotFloatException {
+        return stripe(key).zadd(key, score, member, scoresmembers);
+    }
+
+    @Override public Long zcard(final String key) throws WrongTypeException {
+        return stripe(key).zcard(key);
+    }
+
+    @Override public Long zcount(final String key, final double min, final double max) throws WrongTypeException {
+        return stripe(key).zcount(key, min, max);
+    }
+
+    @Override public String zincrby(final String key, final double increment, final String member) throws WrongTypeException {
+        return stripe(key).zincrby(key, increment, member);
+    }
+
+    @Override public Long zinterstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException {
+        try {
+            return run(zsetKeys(destination, numkeys, options), new KeyCommand<Long>() {
+                    @Override public Long run(RedisMock stripe) throws Exception {
+                        return stripe.zinterstore(destination, numkeys, options);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (SyntaxErrorException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public Long zlexcount(final String key, String min, String max) throws WrongTypeException, NotValidStringRangeItemException {
+        return stripe(key).zlexcount(key, min, max);
+    }
+
+    @Override public Set<ZsetPair> zrange(final String key, long start, long stop, final String ... options) throws WrongTypeException {
+        return stripe(key).zrange(key, start, stop, options);
+    }
+
+    @Override public Set<ZsetPair> zrangebylex(final String key, String min, String max, String ... options) throws WrongTypeException, NotValidStringRangeItemException {
+        return stripe(key).zrangebylex(key, min, max, options);
+    }
+
+    @Override public Set<ZsetPair> zrevrangebylex(final String key, final String max, final String min, final String ... options) throws WrongTypeException, NotValidStringRangeItemException {
+        return stripe(key).zrevrangebylex(key, max, min, options);
+    }
+
+    @Override public Set<ZsetPair> zrangebyscore(final String key, String min, String max, String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException {
+        return stripe(key).zrangebyscore(key, min, max, options);
+    }
+
+    @Override public Long zrank(final String key, final String member) throws WrongTypeException {
+        return stripe(key).zrank(key, member);
+    }
+
+    @Override public Long zrem(final String key, final String member, final String ... members) throws WrongTypeException {
+        return stripe(key).zrem(key, member, members);
+    }
+
+    @Override public Long zremrangebylex(final String key, final String min, final String max) throws WrongTypeException, NotValidStringRangeItemException {
+        return stripe(key).zremrangebylex(key, min, max);
+    }
+
+    @Override public Long zremrangebyrank(final String key, long min, long max) throws WrongTypeException {
+        return stripe(key).zremrangebyrank(key, min, max);
+    }
+
+    @Override public Long zremrangebyscore(final String key, final String min, final String max) throws WrongTypeException, NotFloatMinMaxException {
+        return stripe(key).zremrangebyscore(key, min, max);
+    }
+
+    @Override public Set<ZsetPair> zrevrange(final String key, final long start, final long stop, final String ... options) throws WrongTypeException {
+        return stripe(key).zrevrange(key, start, stop, options);
+    }
+
+    @Override public Set<ZsetPair> zrevrangebyscore(final String key, final String max, final String min, final String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException {
+        return stripe(key).zrevrangebyscore(key, max, min, options);
+    }
+
+    @Override public Long zrevrank(final String key, final String member) throws WrongTypeException {
+        return stripe(key).zrevrank(key, member);
+    }
+
+    @Override public Double zscore(final String key, final String member) throws WrongTypeException {
+        return stripe(key).zscore(key, member);
+    }
+
+    @Override public Long zunionstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException {
+        try {
+            return run(zsetKeys(destination, numkeys, options), new KeyCommand<Long>() {
+                    @Override public Long run(RedisMock stripe) throws Exception {
+                        return stripe.zunionstore(destination, numkeys, options);
+                    }
+                });
+        }
+        catch (WrongTypeException e) {
+            throw e;
+        }
+        catch (SyntaxErrorException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public ScanResult<Set<ZsetPair>> zscan(String key, long cursor, String ... options) throws WrongTypeException {
+        return stripe(key).zscan(key, cursor, options);
+    }
+
+
+    /* IRedisTransaction commands */
+
+    @Override public String discard() throws DiscardWithoutMultiException {
+        throw new DiscardWithoutMultiException();
+    }
+
+    @Override public List<Object> exec() throws ExecWithoutMultiException {
+        throw new ExecWithoutMultiException();
+    }
+
+    @Override public IRedisClient multi() {
+        return new RedisMockMulti(this);
+    }
+
+    @Override public IRedisClient pipelined() {
+        return new RedisMockPipeline(this);
+    }
+
+    @Override public List<Object> sync() {
+        return new ArrayList<Object>();
+    }
+
+    @Override public String unwatch() {
+        return unwatch(this.hashCode());
+    }
+
+    @Override public String unwatch(Integer hashCode) {
+        for (RedisMock stripe : stripes) {
+            stripe.unwatch(hashCode);
+        }
+        return "OK";
+    }
+
+    @Override public String watch(String key) {
+        return watch(key, this.hashCode());
+    }
+
+    @Override public String watch(String key, Integer hashCode) {
+        return stripe(key).watch(key, hashCode);
+    }
+
+}
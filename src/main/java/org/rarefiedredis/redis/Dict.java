@@ -0,0 +1,444 @@
+package org.rarefiedredis.redis;
+
+import java.util.Map;
+import java.util.AbstractMap;
+import java.util.Set;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A hash table in the spirit of the redis dict. It is a power of two
+ * array of chained buckets that is resized incrementally: when it has
+ * to grow or shrink, a second table is allocated, and every change
+ * moves one bucket of the old table into the new one, so no single
+ * command pays for copying the whole table.
+ *
+ * The table can be scanned with a cursor, the way redis SCAN does. The
+ * cursor counts through the buckets with its bits reversed, so buckets
+ * that split or merge when the table is resized are visited next to
+ * each other. A scan from cursor 0 until the cursor comes back to 0
+ * returns every entry that was in the table the whole time at least
+ * once, even if the table is resized or rehashing between calls.
+ */
+public final class Dict<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Receives the entries of a scanned bucket.
+     */
+    public interface Visitor<K, V> {
+        void visit(K key, V value);
+    }
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        private final K key;
+        private final int hash;
+        private V value;
+        private Node<K, V> next;
+
+        private Node(K key, int hash, V value, Node<K, V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override public K getKey() {
+            return key;
+        }
+
+        @Override public V getValue() {
+            return value;
+        }
+
+        @Override public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            return key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override public int hashCode() {
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /** The size of a new table. */
+    private static final int INITIAL_SIZE = 4;
+    /** The table shrinks when less than one bucket in this many is used. */
+    private static final int MIN_FILL = 10;
+    /** The most empty buckets a single rehash step skips over. */
+    private static final int EMPTY_VISITS = 10;
+
+    /** The table, or the old table while rehashing. */
+    private Node<K, V>[] table;
+    /** The new table while rehashing, or null. */
+    private Node<K, V>[] rehashTable;
+    /** The next bucket of the old table to move, or -1 if not rehashing. */
+    private int rehashIdx;
+    private int size;
+    private int modCount;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * Constructor. Initializes an empty table.
+     */
+    public Dict() {
+        table = newTable(INITIAL_SIZE);
+        rehashTable = null;
+        rehashIdx = -1;
+        size = 0;
+    }
+
+    /**
+     * Constructor. Initializes a table with the entries of a map.
+     *
+     * @param map The map to copy.
+     */
+    public Dict(Map<? extends K, ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V>[] newTable(int length) {
+        return (Node<K, V>[])new Node[length];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return Whether the table is being rehashed.
+     */
+    public boolean isRehashing() {
+        return rehashIdx != -1;
+    }
+
+    private Node<K, V> find(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        Node<K, V> node = findIn(table, key, hash);
+        if (node == null && rehashTable != null) {
+            node = findIn(rehashTable, key, hash);
+        }
+        return node;
+    }
+
+    private static <K, V> Node<K, V> findIn(Node<K, V>[] table, Object key, int hash) {
+        for (Node<K, V> node = table[hash & (table.length - 1)]; node != null; node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    @Override public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override public V get(Object key) {
+        Node<K, V> node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override public V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        rehashStep();
+        Node<K, V> node = find(key);
+        if (node != null) {
+            return node.setValue(value);
+        }
+        int hash = hash(key);
+        // New entries go to the new table while rehashing, so the old
+        // table only ever empties.
+        Node<K, V>[] target = rehashTable != null ? rehashTable : table;
+        int idx = hash & (target.length - 1);
+        target[idx] = new Node<K, V>(key, hash, value, target[idx]);
+        ++size;
+        ++modCount;
+        resizeIfNeeded();
+        return null;
+    }
+
+    @Override public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        rehashStep();
+        int hash = hash(key);
+        Node<K, V> node = removeFrom(table, key, hash);
+        if (node == null && rehashTable != null) {
+            node = removeFrom(rehashTable, key, hash);
+        }
+        if (node == null) {
+            return null;
+        }
+        --size;
+        ++modCount;
+        resizeIfNeeded();
+        return node.value;
+    }
+
+    private static <K, V> Node<K, V> removeFrom(Node<K, V>[] table, Object key, int hash) {
+        int idx = hash & (table.length - 1);
+        Node<K, V> prev = null;
+        for (Node<K, V> node = table[idx]; node != null; prev = node, node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) {
+                if (prev == null) {
+                    table[idx] = node.next;
+                }
+                else {
+                    prev.next = node.next;
+                }
+                return node;
+            }
+        }
+        return null;
+    }
+
+    @Override public void clear() {
+        table = newTable(INITIAL_SIZE);
+        rehashTable = null;
+        rehashIdx = -1;
+        size = 0;
+        ++modCount;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    /**
+     * Start a rehash if the table is too full or too empty: it doubles
+     * once it has as many entries as buckets, and halves once less than
+     * a tenth of them are used.
+     */
+    private void resizeIfNeeded() {
+        if (rehashTable != null) {
+            return;
+        }
+        int length = table.length;
+        if (size >= length && length < (1 << 30)) {
+            startRehash(length << 1);
+        }
+        else if (length > INITIAL_SIZE && size * MIN_FILL < length) {
+            int target = INITIAL_SIZE;
+            while (target < size) {
+                target <<= 1;
+            }
+            startRehash(target);
+        }
+    }
+
+    private void startRehash(int length) {
+        rehashTable = newTable(length);
+        rehashIdx = 0;
+        rehashStep();
+    }
+
+    /**
+     * Move one bucket of the old table into the new one, skipping over
+     * a few empty buckets at most.
+     */
+    private void rehashStep() {
+        if (rehashTable == null) {
+            return;
+        }
+        int emptyVisits = EMPTY_VISITS;
+        while (rehashIdx < table.length && table[rehashIdx] == null) {
+            ++rehashIdx;
+            if (--emptyVisits == 0) {
+                break;
+            }
+        }
+        if (rehashIdx < table.length && table[rehashIdx] != null) {
+            int mask = rehashTable.length - 1;
+            Node<K, V> node = table[rehashIdx];
+            while (node != null) {
+                Node<K, V> next = node.next;
+                int idx = node.hash & mask;
+                node.next = rehashTable[idx];
+                rehashTable[idx] = node;
+                node = next;
+            }
+            table[rehashIdx] = null;
+            ++rehashIdx;
+        }
+        if (rehashIdx >= table.length) {
+            table = rehashTable;
+            rehashTable = null;
+            rehashIdx = -1;
+        }
+    }
+
+    /**
+     * Visit the next buckets of a scan.
+     *
+     * @param cursor The cursor, 0 to start a scan.
+     * @param visitor Receives the entries of the visited buckets.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(long cursor, Visitor<? super K, ? super V> visitor) {
+        if (size == 0) {
+            return 0L;
+        }
+        long v = cursor;
+        if (rehashTable == null) {
+            long mask = table.length - 1;
+            visit(table[(int)(v & mask)], visitor);
+            v = next(v, mask);
+        }
+        else {
+            Node<K, V>[] small = table;
+            Node<K, V>[] large = rehashTable;
+            if (small.length > large.length) {
+                small = rehashTable;
+                large = table;
+            }
+            long smallMask = small.length - 1;
+            long largeMask = large.length - 1;
+            visit(small[(int)(v & smallMask)], visitor);
+            // Visit every bucket of the larger table that the bucket of
+            // the smaller one expands to.
+            do {
+                visit(large[(int)(v & largeMask)], visitor);
+                v = next(v, largeMask);
+            } while ((v & (smallMask ^ largeMask)) != 0L);
+        }
+        return v;
+    }
+
+    /**
+     * Increment the reversed bits of a cursor under a mask.
+     */
+    private static long next(long v, long mask) {
+        v |= ~mask;
+        v = Long.reverse(v);
+        ++v;
+        return Long.reverse(v);
+    }
+
+    private void visit(Node<K, V> node, Visitor<? super K, ? super V> visitor) {
+        for (; node != null; node = node.next) {
+            visitor.visit(node.key, node.value);
+        }
+    }
+
+    /**
+     * Iterates the old table then the new one. Rehashing only happens
+     * when the dict is changed, and changing it other than through the
+     * iterator ends the iteration.
+     */
+    private final class NodeIterator implements Iterator<Map.Entry<K, V>> {
+        private Node<K, V>[] current;
+        private int idx;
+        private Node<K, V> next;
+        private Node<K, V> last;
+        private int expectedModCount;
+
+        private NodeIterator() {
+            current = table;
+            idx = 0;
+            expectedModCount = modCount;
+            advance(null);
+        }
+
+        private void advance(Node<K, V> from) {
+            next = from == null ? null : from.next;
+            while (next == null) {
+                if (idx < current.length) {
+                    next = current[idx++];
+                }
+                else if (current == table && rehashTable != null) {
+                    current = rehashTable;
+                    idx = 0;
+                }
+                else {
+                    return;
+                }
+            }
+        }
+
+        @Override public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance(next);
+            return last;
+        }
+
+        @Override public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            int hash = last.hash;
+            // Unlink without a rehash step, so the iteration stays valid.
+            if (removeFrom(table, last.key, hash) == null && rehashTable != null) {
+                removeFrom(rehashTable, last.key, hash);
+            }
+            --size;
+            last = null;
+        }
+    }
+
+    @Override public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<K, V>>() {
+                    @Override public Iterator<Map.Entry<K, V>> iterator() {
+                        return new NodeIterator();
+                    }
+
+                    @Override public int size() {
+                        return size;
+                    }
+
+                    @Override public boolean contains(Object o) {
+                        if (!(o instanceof Map.Entry)) {
+                            return false;
+                        }
+                        Node<K, V> node = find(((Map.Entry<?, ?>)o).getKey());
+                        return node != null && node.equals(o);
+                    }
+
+                    @Override public void clear() {
+                        Dict.this.clear();
+                    }
+                };
+        }
+        return entrySet;
+    }
+
+}
@@ -0,0 +1,152 @@
+package org.rarefiedredis.redis;
+
+import java.util.Collection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.NoSuchElementException;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A set backed by a {@link Dict}, the encoding of large sets. Like
+ * the dict, it rehashes incrementally and can be scanned with a cursor.
+ *
+ * The members are also kept in a dense array, and the dict maps each
+ * member to its position in the array, so a member can be picked
+ * uniformly at random in O(1). A removed member's hole is filled with
+ * the last member, so the array stays dense.
+ */
+public final class DictSet<E> extends AbstractSet<E> {
+
+    /** The position of each member in the array. */
+    private final Dict<E, Integer> dict;
+    /** The members, in no particular order. */
+    private final ArrayList<E> members;
+
+    /**
+     * Constructor. Initializes an empty set.
+     */
+    public DictSet() {
+        dict = new Dict<E, Integer>();
+        members = new ArrayList<E>();
+    }
+
+    /**
+     * Constructor. Initializes a set with the members of a collection.
+     *
+     * @param members The members.
+     */
+    public DictSet(Collection<? extends E> members) {
+        this();
+        addAll(members);
+    }
+
+    @Override public boolean add(E member) {
+        if (dict.containsKey(member)) {
+            return false;
+        }
+        dict.put(member, members.size());
+        members.add(member);
+        return true;
+    }
+
+    @Override public boolean remove(Object member) {
+        Integer idx = dict.remove(member);
+        if (idx == null) {
+            return false;
+        }
+        removeAt(idx);
+        return true;
+    }
+
+    /**
+     * Fill the hole at idx with the last member.
+     */
+    private void removeAt(int idx) {
+        E last = members.remove(members.size() - 1);
+        if (idx < members.size()) {
+            members.set(idx, last);
+            dict.put(last, idx);
+        }
+    }
+
+    @Override public boolean contains(Object member) {
+        return dict.containsKey(member);
+    }
+
+    @Override public void clear() {
+        dict.clear();
+        members.clear();
+    }
+
+    /**
+     * Iterates the array from the end, so that removing a member, which
+     * moves the last member into its place, only moves a member that
+     * was already visited.
+     */
+    @Override public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next = members.size() - 1;
+            private int last = -1;
+            private int expectedSize = members.size();
+
+            @Override public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override public E next() {
+                if (members.size() != expectedSize) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next--;
+                return members.get(last);
+            }
+
+            @Override public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                dict.remove(members.get(last));
+                removeAt(last);
+                --expectedSize;
+                last = -1;
+            }
+        };
+    }
+
+    @Override public int size() {
+        return members.size();
+    }
+
+    /**
+     * Pick a member uniformly at random.
+     *
+     * @param random The source of randomness.
+     *
+     * @return A member, or null if the set is empty.
+     */
+    public E random(Random random) {
+        if (members.isEmpty()) {
+            return null;
+        }
+        return members.get(random.nextInt(members.size()));
+    }
+
+    /**
+     * Visit the next buckets of a scan. See {@link Dict#scan}.
+     *
+     * @param cursor The cursor, 0 to start a scan.
+     * @param visitor Receives the members of the visited buckets.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(long cursor, Dict.Visitor<? super E, Object> visitor) {
+        return dict.scan(cursor, visitor);
+    }
+
+}
@@ -0,0 +1,42 @@
+package org.rarefiedredis.redis;
+
+/**
+ * The thresholds that decide when a small hash, set or sorted set
+ * stops using its compact encoding and is converted to a hash table,
+ * named after the redis configuration directives they mirror.
+ *
+ * The fields may be changed at any time, like CONFIG SET in redis.
+ * A change applies the next time a value is written; values that were
+ * already converted are never converted back.
+ */
+public final class EncodingConfig {
+
+    /** hash-max-listpack-entries */
+    public int hashMaxListpackEntries;
+    /** hash-max-listpack-value */
+    public int hashMaxListpackValue;
+    /** set-max-intset-entries */
+    public int setMaxIntsetEntries;
+    /** set-max-listpack-entries */
+    public int setMaxListpackEntries;
+    /** set-max-listpack-value */
+    public int setMaxListpackValue;
+    /** zset-max-listpack-entries */
+    public int zsetMaxListpackEntries;
+    /** zset-max-listpack-value */
+    public int zsetMaxListpackValue;
+
+    /**
+     * Constructor. Uses the same defaults as redis.
+     */
+    public EncodingConfig() {
+        this.hashMaxListpackEntries = 128;
+        this.hashMaxListpackValue = 64;
+        this.setMaxIntsetEntries = 512;
+        this.setMaxListpackEntries = 128;
+        this.setMaxListpackValue = 64;
+        this.zsetMaxListpackEntries = 128;
+        this.zsetMaxListpackValue = 64;
+    }
+
+}
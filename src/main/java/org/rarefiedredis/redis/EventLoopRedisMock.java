@@ -0,0 +1,1248 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory redis-compatible database that runs every command on
+ * a single thread, the way redis does.
+ *
+ * Commands are put on a queue and the calling thread waits for their
+ * result. One event loop thread takes the commands off the queue, in
+ * batches, and runs them one after the other, so callers never contend
+ * for a lock and a transaction is atomic simply by running as a single
+ * task. Commands issued from the event loop thread itself, for instance
+ * by a block passed to {@link #submit}, run right away.
+ *
+ * The event loop thread is started by the first command and stops
+ * again once no command has come in for a while.
+ */
+public final class EventLoopRedisMock extends AbstractRedisMock {
+
+    /** How long an idle event loop thread waits for commands before it stops, in milliseconds. */
+    public static final long KEEP_ALIVE_MILLIS = 1000L;
+
+    /**
+     * Runs the commands on the queue.
+     */
+    private final class EventLoop implements Runnable {
+        @Override public void run() {
+            List<FutureTask<?>> batch = new ArrayList<FutureTask<?>>();
+            while (true) {
+                FutureTask<?> task;
+                try {
+                    task = queue.poll(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e) {
+                    task = null;
+                }
+                if (task == null) {
+                    synchronized (EventLoopRedisMock.this) {
+                        if (queue.isEmpty()) {
+                            loop = null;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                // Drain whatever else is queued, so a burst of commands
+                // is run in one pass.
+                batch.add(task);
+                queue.drainTo(batch);
+                for (FutureTask<?> command : batch) {
+                    command.run();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /** The database the commands run on. */
+    private final RedisMock redisMock;
+    /** The commands waiting to run. */
+    private final BlockingQueue<FutureTask<?>> queue;
+    /** The event loop thread, or null if it is not running. */
+    private volatile Thread loop;
+
+    /**
+     * Default constructor. Initializes an empty redis database.
+     */
+    public EventLoopRedisMock() {
+        this(new RedisMock());
+    }
+
+    /**
+     * Constructor. Runs commands on the given database. The database
+     * should not be used directly while it is wrapped. Its key
+     * expirations run on the event loop thread too, so the database is
+     * only ever used by one thread and its locks are never contended.
+     *
+     * @param redisMock The database to run the commands on.
+     */
+    public EventLoopRedisMock(RedisMock redisMock) {
+        this.redisMock = redisMock;
+        this.queue = new LinkedBlockingQueue<FutureTask<?>>();
+        redisMock.setExpiryExecutor(new Executor() {
+                @Override public void execute(final Runnable expiration) {
+                    submit(new Block<Object>() {
+                            @Override public Object run() {
+                                expiration.run();
+                                return null;
+                            }
+                        });
+                }
+            });
+    }
+
+    /**
+     * Always throws a CloneNotSupportedException. Cloning EventLoopRedisMock
+     * instances is not supported.
+     *
+     * @throws CloneNotSupportedException Always
+     *
+     * @return Nothing, since this function always throws an exception.
+     */
+    @Override public final Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException();
+    }
+
+    @Override public IRedisClient createClient() {
+        return new RedisMockClient(this);
+    }
+
+    /**
+     * Queue a block of commands to run on the event loop thread, without
+     * waiting for it. No other command runs while the block does.
+     *
+     * @param block The block to run.
+     *
+     * @return The future result of the block.
+     */
+    public <T> Future<T> submit(final Block<T> block) {
+        FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+                @Override public T call() throws Exception {
+                    return block.run();
+                }
+            });
+        if (Thread.currentThread() == loop) {
+            task.run();
+            return task;
+        }
+        queue.add(task);
+        synchronized (this) {
+            if (loop == null) {
+                loop = new Thread(new EventLoop(), "redis-mock-event-loop");
+                loop.setDaemon(true);
+                loop.start();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Run a block of commands on the event loop thread and wait for
+     * its result.
+     *
+     * @param block The block to run.
+     *
+     * @return The result of the block.
+     *
+     * @throws Exception Whatever the block throws.
+     */
+    private <T> T call(Block<T> block) throws Exception {
+        if (Thread.currentThread() == loop) {
+            return block.run();
+        }
+        Future<T> future = submit(block);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                }
+                catch (InterruptedException e) {
+                    // The command is already queued, so see it through.
+                    interrupted = true;
+                }
+                catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception)cause;
+                    }
+                    throw (Error)cause;
+                }
+            }
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override public <T> T atomically(Block<T> block) throws Exception {
+        return call(block);
+    }
+
+    /**
+     * Run a command that declares no checked exception on the event
+     * loop thread and wait for its result.
+     */
+    private <T> T command(Block<T> block) {
+        try {
+            return call(block);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    /**
+     * Run a command on the event loop thread and wait for its result,
+     * rethrowing the checked exception the command declares.
+     */
+    private <T, A extends Exception> T command(Class<A> a, Block<T> block) throws A {
+        try {
+            return call(block);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            rethrow(e, a);
+            // Should never get here.
+            return null;
+        }
+    }
+
+    /**
+     * Run a command on the event loop thread and wait for its result,
+     * rethrowing the checked exceptions the command declares.
+     */
+    private <T, A extends Exception, B extends Exception> T command(Class<A> a, Class<B> b, Block<T> block) throws A, B {
+        try {
+            return call(block);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            rethrow(e, a);
+            rethrow(e, b);
+            // Should never get here.
+            return null;
+        }
+    }
+
+    /**
+     * Run a command on the event loop thread and wait for its result,
+     * rethrowing the checked exceptions the command declares.
+     */
+    private <T, A extends Exception, B extends Exception, C extends Exception> T command(Class<A> a, Class<B> b, Class<C> c, Block<T> block) throws A, B, C {
+        try {
+            return call(block);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            rethrow(e, a);
+            rethrow(e, b);
+            rethrow(e, c);
+            // Should never get here.
+            return null;
+        }
+    }
+
+    /**
+     * Run a command on the event loop thread and wait for its result,
+     * rethrowing the checked exceptions the command declares.
+     */
+    private <T, A extends Exception, B extends Exception, C extends Exception, D extends Exception> T command(Class<A> a, Class<B> b, Class<C> c, Class<D> d, Block<T> block) throws A, B, C, D {
+        try {
+            return call(block);
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            rethrow(e, a);
+            rethrow(e, b);
+            rethrow(e, c);
+            rethrow(e, d);
+            // Should never get here.
+            return null;
+        }
+    }
+
+    /**
+     * Throw an exception as the given type, if it is one.
+     */
+    private static <A extends Exception> void rethrow(Exception e, Class<A> type) throws A {
+        if (type.isInstance(e)) {
+            throw type.cast(e);
+        }
+    }
+
+    @Override public boolean modified(final Integer hashCode) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() {
+                    return redisMock.modified(hashCode);
+                }
+            });
+    }
+
+    /* IRedisKeys implementations */
+
+    @Override public Long del(final String ... keys) {
+        return command(new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.del(keys);
+                }
+            });
+    }
+
+    @Override public Boolean exists(final String key) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.exists(key);
+                }
+            });
+    }
+
+    @Override public Boolean expire(final String key, final int seconds) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.expire(key, seconds);
+                }
+            });
+    }
+
+    @Override public Boolean expireat(final String key, final long timestamp) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.expireat(key, timestamp);
+                }
+            });
+    }
+
+    @Override public Boolean persist(final String key) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.persist(key);
+                }
+            });
+    }
+
+    @Override public Boolean pexpire(final String key, final long milliseconds) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.pexpire(key, milliseconds);
+                }
+            });
+    }
+
+    @Override public Boolean pexpireat(final String key, final long timestamp) {
+        return command(new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.pexpireat(key, timestamp);
+                }
+            });
+    }
+
+    @Override public Long ttl(final String key) {
+        return command(new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.ttl(key);
+                }
+            });
+    }
+
+    @Override public Long pttl(final String key) {
+        return command(new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.pttl(key);
+                }
+            });
+    }
+
+    @Override public String randomkey() {
+        return command(new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.randomkey();
+                }
+            });
+    }
+
+    @Override public String type(final String key) {
+        return command(new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.type(key);
+                }
+            });
+    }
+
+    @Override public String[] keys(final String pattern) {
+        return command(new Block<String[]>() {
+                @Override public String[] run() throws Exception {
+                    return redisMock.keys(pattern);
+                }
+            });
+    }
+
+    @Override public ScanResult<Set<String>> scan(final long cursor, final String ... options) {
+        return command(new Block<ScanResult<Set<String>>>() {
+                @Override public ScanResult<Set<String>> run() throws Exception {
+                    return redisMock.scan(cursor, options);
+                }
+            });
+    }
+
+    /* IRedisString implementations */
+
+    @Override public Long append(final String key, final String value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.append(key, value);
+                }
+            });
+    }
+
+    @Override public Long append(final byte[] key, final byte[] value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.append(key, value);
+                }
+            });
+    }
+
+    @Override public Long bitcount(final String key, final long ... options) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.bitcount(key, options);
+                }
+            });
+    }
+
+    @Override public Long bitop(final String operation, final String destkey, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.bitop(operation, destkey, keys);
+                }
+            });
+    }
+
+    @Override public Long bitpos(final String key, final long bit, final long ... options) throws WrongTypeException, BitArgException {
+        return command(WrongTypeException.class, BitArgException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.bitpos(key, bit, options);
+                }
+            });
+    }
+
+    @Override public Long decr(final String key) throws WrongTypeException, NotIntegerException {
+        return command(WrongTypeException.class, NotIntegerException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.decr(key);
+                }
+            });
+    }
+
+    @Override public Long decrby(final String key, final long decrement) throws WrongTypeException, NotIntegerException {
+        return command(WrongTypeException.class, NotIntegerException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.decrby(key, decrement);
+                }
+            });
+    }
+
+    @Override public String get(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.get(key);
+                }
+            });
+    }
+
+    @Override public byte[] get(final byte[] key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<byte[]>() {
+                @Override public byte[] run() throws Exception {
+                    return redisMock.get(key);
+                }
+            });
+    }
+
+    @Override public Boolean getbit(final String key, final long offset) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.getbit(key, offset);
+                }
+            });
+    }
+
+    @Override public String getrange(final String key, final long start, final long end) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.getrange(key, start, end);
+                }
+            });
+    }
+
+    @Override public byte[] getrange(final byte[] key, final long start, final long end) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<byte[]>() {
+                @Override public byte[] run() throws Exception {
+                    return redisMock.getrange(key, start, end);
+                }
+            });
+    }
+
+    @Override public String getset(final String key, final String value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.getset(key, value);
+                }
+            });
+    }
+
+    @Override public byte[] getset(final byte[] key, final byte[] value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<byte[]>() {
+                @Override public byte[] run() throws Exception {
+                    return redisMock.getset(key, value);
+                }
+            });
+    }
+
+    @Override public Long incr(final String key) throws WrongTypeException, NotIntegerException {
+        return command(WrongTypeException.class, NotIntegerException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.incr(key);
+                }
+            });
+    }
+
+    @Override public Long incrby(final String key, final long increment) throws WrongTypeException, NotIntegerException {
+        return command(WrongTypeException.class, NotIntegerException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.incrby(key, increment);
+                }
+            });
+    }
+
+    @Override public String incrbyfloat(final String key, final double increment) throws WrongTypeException, NotFloatException {
+        return command(WrongTypeException.class, NotFloatException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.incrbyfloat(key, increment);
+                }
+            });
+    }
+
+    @Override public String[] mget(final String ... keys) {
+        return command(new Block<String[]>() {
+                @Override public String[] run() throws Exception {
+                    return redisMock.mget(keys);
+                }
+            });
+    }
+
+    @Override public String mset(final String ... keyvalues) throws ArgException {
+        return command(ArgException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.mset(keyvalues);
+                }
+            });
+    }
+
+    @Override public Boolean msetnx(final String ... keyvalues) throws ArgException {
+        return command(ArgException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.msetnx(keyvalues);
+                }
+            });
+    }
+
+    @Override public String psetex(final String key, final long milliseconds, final String value) {
+        return command(new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.psetex(key, milliseconds, value);
+                }
+            });
+    }
+
+    @Override public String set(final String key, final String value, final String ... options) throws SyntaxErrorException {
+        return command(SyntaxErrorException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.set(key, value, options);
+                }
+            });
+    }
+
+    @Override public String set(final byte[] key, final byte[] value, final String ... options) throws SyntaxErrorException {
+        return command(SyntaxErrorException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.set(key, value, options);
+                }
+            });
+    }
+
+    @Override public Long setbit(final String key, final long offset, final boolean value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.setbit(key, offset, value);
+                }
+            });
+    }
+
+    @Override public String setex(final String key, final int seconds, final String value) {
+        return command(new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.setex(key, seconds, value);
+                }
+            });
+    }
+
+    @Override public Long setnx(final String key, final String value) {
+        return command(new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.setnx(key, value);
+                }
+            });
+    }
+
+    @Override public Long setrange(final String key, final long offset, final String value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.setrange(key, offset, value);
+                }
+            });
+    }
+
+    @Override public Long setrange(final byte[] key, final long offset, final byte[] value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.setrange(key, offset, value);
+                }
+            });
+    }
+
+    @Override public Long strlen(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.strlen(key);
+                }
+            });
+    }
+
+    /* IRedisList implementations */
+
+    @Override public String lindex(final String key, final long index) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.lindex(key, index);
+                }
+            });
+    }
+
+    @Override public Long linsert(final String key, final String before_after, final String pivot, final String value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.linsert(key, before_after, pivot, value);
+                }
+            });
+    }
+
+    @Override public Long llen(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.llen(key);
+                }
+            });
+    }
+
+    @Override public String lpop(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.lpop(key);
+                }
+            });
+    }
+
+    @Override public Long lpush(final String key, final String element, final String ... elements) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.lpush(key, element, elements);
+                }
+            });
+    }
+
+    @Override public Long lpushx(final String key, final String element) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.lpushx(key, element);
+                }
+            });
+    }
+
+    @Override public List<String> lrange(final String key, final long start, final long end) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<List<String>>() {
+                @Override public List<String> run() throws Exception {
+                    return redisMock.lrange(key, start, end);
+                }
+            });
+    }
+
+    @Override public Long lrem(final String key, final long count, final String element) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.lrem(key, count, element);
+                }
+            });
+    }
+
+    @Override public String lset(final String key, final long index, final String element) throws WrongTypeException, NoKeyException, IndexOutOfRangeException {
+        return command(WrongTypeException.class, NoKeyException.class, IndexOutOfRangeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.lset(key, index, element);
+                }
+            });
+    }
+
+    @Override public String ltrim(final String key, final long start, final long end) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.ltrim(key, start, end);
+                }
+            });
+    }
+
+    @Override public String rpop(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.rpop(key);
+                }
+            });
+    }
+
+    @Override public String rpoplpush(final String source, final String dest) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.rpoplpush(source, dest);
+                }
+            });
+    }
+
+    @Override public Long rpush(final String key, final String element, final String ... elements) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.rpush(key, element, elements);
+                }
+            });
+    }
+
+    @Override public Long rpushx(final String key, final String element) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.rpushx(key, element);
+                }
+            });
+    }
+
+    /* IRedisSet implementations */
+
+    @Override public Long sadd(final String key, final String member, final String ... members) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.sadd(key, member, members);
+                }
+            });
+    }
+
+    @Override public Long scard(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.scard(key);
+                }
+            });
+    }
+
+    @Override public Set<String> sdiff(final String key, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<String>>() {
+                @Override public Set<String> run() throws Exception {
+                    return redisMock.sdiff(key, keys);
+                }
+            });
+    }
+
+    @Override public Long sdiffstore(final String destination, final String key, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.sdiffstore(destination, key, keys);
+                }
+            });
+    }
+
+    @Override public Set<String> sinter(final String key, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<String>>() {
+                @Override public Set<String> run() throws Exception {
+                    return redisMock.sinter(key, keys);
+                }
+            });
+    }
+
+    @Override public Long sinterstore(final String destination, final String key, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.sinterstore(destination, key, keys);
+                }
+            });
+    }
+
+    @Override public Boolean sismember(final String key, final String member) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.sismember(key, member);
+                }
+            });
+    }
+
+    @Override public Set<String> smembers(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<String>>() {
+                @Override public Set<String> run() throws Exception {
+                    return redisMock.smembers(key);
+                }
+            });
+    }
+
+    @Override public Boolean smove(final String source, final String dest, final String member) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.smove(source, dest, member);
+                }
+            });
+    }
+
+    @Override public String spop(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.spop(key);
+                }
+            });
+    }
+
+    @Override public Set<String> spop(final String key, final long count) throws WrongTypeException, NotIntegerException {
+        return command(WrongTypeException.class, NotIntegerException.class, new Block<Set<String>>() {
+                @Override public Set<String> run() throws Exception {
+                    return redisMock.spop(key, count);
+                }
+            });
+    }
+
+    @Override public String srandmember(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.srandmember(key);
+                }
+            });
+    }
+
+    @Override public List<String> srandmember(final String key, final long count) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<List<String>>() {
+                @Override public List<String> run() throws Exception {
+                    return redisMock.srandmember(key, count);
+                }
+            });
+    }
+
+    @Override public Long srem(final String key, final String member, final String ... members) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.srem(key, member, members);
+                }
+            });
+    }
+
+    @Override public Set<String> sunion(final String key, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<String>>() {
+                @Override public Set<String> run() throws Exception {
+                    return redisMock.sunion(key, keys);
+                }
+            });
+    }
+
+    @Override public Long sunionstore(final String destination, final String key, final String ... keys) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.sunionstore(destination, key, keys);
+                }
+            });
+    }
+
+    @Override public ScanResult<Set<String>> sscan(final String key, final long cursor, final String ... options) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<ScanResult<Set<String>>>() {
+                @Override public ScanResult<Set<String>> run() throws Exception {
+                    return redisMock.sscan(key, cursor, options);
+                }
+            });
+    }
+
+    /* IRedisHash implementations */
+
+    @Override public Long hdel(final String key, final String field, final String ... fields) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.hdel(key, field, fields);
+                }
+            });
+    }
+
+    @Override public Boolean hexists(final String key, final String field) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.hexists(key, field);
+                }
+            });
+    }
+
+    @Override public String hget(final String key, final String field) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.hget(key, field);
+                }
+            });
+    }
+
+    @Override public Map<String, String> hgetall(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Map<String, String>>() {
+                @Override public Map<String, String> run() throws Exception {
+                    return redisMock.hgetall(key);
+                }
+            });
+    }
+
+    @Override public Long hincrby(final String key, final String field, final long increment) throws WrongTypeException, NotIntegerHashException {
+        return command(WrongTypeException.class, NotIntegerHashException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.hincrby(key, field, increment);
+                }
+            });
+    }
+
+    @Override public String hincrbyfloat(final String key, final String field, final double increment) throws WrongTypeException, NotFloatHashException {
+        return command(WrongTypeException.class, NotFloatHashException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.hincrbyfloat(key, field, increment);
+                }
+            });
+    }
+
+    @Override public Set<String> hkeys(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<String>>() {
+                @Override public Set<String> run() throws Exception {
+                    return redisMock.hkeys(key);
+                }
+            });
+    }
+
+    @Override public Long hlen(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.hlen(key);
+                }
+            });
+    }
+
+    @Override public List<String> hmget(final String key, final String field, final String ... fields) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<List<String>>() {
+                @Override public List<String> run() throws Exception {
+                    return redisMock.hmget(key, field, fields);
+                }
+            });
+    }
+
+    @Override public String hmset(final String key, final String field, final String value, final String ... fieldsvalues) throws WrongTypeException, ArgException {
+        return command(WrongTypeException.class, ArgException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.hmset(key, field, value, fieldsvalues);
+                }
+            });
+    }
+
+    @Override public Boolean hset(final String key, final String field, final String value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.hset(key, field, value);
+                }
+            });
+    }
+
+    @Override public Boolean hsetnx(final String key, final String field, final String value) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Boolean>() {
+                @Override public Boolean run() throws Exception {
+                    return redisMock.hsetnx(key, field, value);
+                }
+            });
+    }
+
+    @Override public Long hstrlen(final String key, final String field) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.hstrlen(key, field);
+                }
+            });
+    }
+
+    @Override public List<String> hvals(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<List<String>>() {
+                @Override public List<String> run() throws Exception {
+                    return redisMock.hvals(key);
+                }
+            });
+    }
+
+    @Override public ScanResult<Map<String, String>> hscan(final String key, final long cursor, final String ... options) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<ScanResult<Map<String, String>>>() {
+                @Override public ScanResult<Map<String, String>> run() throws Exception {
+                    return redisMock.hscan(key, cursor, options);
+                }
+            });
+    }
+
+    /* IRedisSortedSet implementations */
+
+    @Override public Long zadd(final String key, final ZsetPair scoremember, final ZsetPair ... scoresmembers) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zadd(key, scoremember, scoresmembers);
+                }
+            });
+    }
+
+    @Override public Long zadd(final String key, final double score, final String member, final Object ... scoresmembers) throws WrongTypeException, SyntaxErrorException, NotFloatException {
+        return command(WrongTypeException.class, SyntaxErrorException.class, NotFloatException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zadd(key, score, member, scoresmembers);
+                }
+            });
+    }
+
+    @Override public Long zcard(final String key) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zcard(key);
+                }
+            });
+    }
+
+    @Override public Long zcount(final String key, final double min, final double max) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zcount(key, min, max);
+                }
+            });
+    }
+
+    @Override public String zincrby(final String key, final double increment, final String member) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.zincrby(key, increment, member);
+                }
+            });
+    }
+
+    @Override public Long zinterstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException {
+        return command(WrongTypeException.class, SyntaxErrorException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zinterstore(destination, numkeys, options);
+                }
+            });
+    }
+
+    @Override public Long zlexcount(final String key, final String min, final String max) throws WrongTypeException, NotValidStringRangeItemException {
+        return command(WrongTypeException.class, NotValidStringRangeItemException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zlexcount(key, min, max);
+                }
+            });
+    }
+
+    @Override public Set<ZsetPair> zrange(final String key, final long start, final long stop, final String ... options) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<ZsetPair>>() {
+                @Override public Set<ZsetPair> run() throws Exception {
+                    return redisMock.zrange(key, start, stop, options);
+                }
+            });
+    }
+
+    @Override public Set<ZsetPair> zrangebylex(final String key, final String min, final String max, final String ... options) throws WrongTypeException, NotValidStringRangeItemException {
+        return command(WrongTypeException.class, NotValidStringRangeItemException.class, new Block<Set<ZsetPair>>() {
+                @Override public Set<ZsetPair> run() throws Exception {
+                    return redisMock.zrangebylex(key, min, max, options);
+                }
+            });
+    }
+
+    @Override public Set<ZsetPair> zrevrangebylex(final String key, final String max, final String min, final String ... options) throws WrongTypeException, NotValidStringRangeItemException {
+        return command(WrongTypeException.class, NotValidStringRangeItemException.class, new Block<Set<ZsetPair>>() {
+                @Override public Set<ZsetPair> run() throws Exception {
+                    return redisMock.zrevrangebylex(key, max, min, options);
+                }
+            });
+    }
+
+    @Override public Set<ZsetPair> zrangebyscore(final String key, final String min, final String max, final String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException {
+        return command(WrongTypeException.class, NotFloatMinMaxException.class, NotIntegerException.class, SyntaxErrorException.class, new Block<Set<ZsetPair>>() {
+                @Override public Set<ZsetPair> run() throws Exception {
+                    return redisMock.zrangebyscore(key, min, max, options);
+                }
+            });
+    }
+
+    @Override public Long zrank(final String key, final String member) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zrank(key, member);
+                }
+            });
+    }
+
+    @Override public Long zrem(final String key, final String member, final String ... members) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zrem(key, member, members);
+                }
+            });
+    }
+
+    @Override public Long zremrangebylex(final String key, final String min, final String max) throws WrongTypeException, NotValidStringRangeItemException {
+        return command(WrongTypeException.class, NotValidStringRangeItemException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zremrangebylex(key, min, max);
+                }
+            });
+    }
+
+    @Override public Long zremrangebyrank(final String key, final long min, final long max) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zremrangebyrank(key, min, max);
+                }
+            });
+    }
+
+    @Override public Long zremrangebyscore(final String key, final String min, final String max) throws WrongTypeException, NotFloatMinMaxException {
+        return command(WrongTypeException.class, NotFloatMinMaxException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zremrangebyscore(key, min, max);
+                }
+            });
+    }
+
+    @Override public Set<ZsetPair> zrevrange(final String key, final long start, final long stop, final String ... options) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Set<ZsetPair>>() {
+                @Override public Set<ZsetPair> run() throws Exception {
+                    return redisMock.zrevrange(key, start, stop, options);
+                }
+            });
+    }
+
+    @Override public Set<ZsetPair> zrevrangebyscore(final String key, final String max, final String min, final String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException {
+        return command(WrongTypeException.class, NotFloatMinMaxException.class, NotIntegerException.class, SyntaxErrorException.class, new Block<Set<ZsetPair>>() {
+                @Override public Set<ZsetPair> run() throws Exception {
+                    return redisMock.zrevrangebyscore(key, max, min, options);
+                }
+            });
+    }
+
+    @Override public Long zrevrank(final String key, final String member) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zrevrank(key, member);
+                }
+            });
+    }
+
+    @Override public Double zscore(final String key, final String member) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<Double>() {
+                @Override public Double run() throws Exception {
+                    return redisMock.zscore(key, member);
+                }
+            });
+    }
+
+    @Override public Long zunionstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException {
+        return command(WrongTypeException.class, SyntaxErrorException.class, new Block<Long>() {
+                @Override public Long run() throws Exception {
+                    return redisMock.zunionstore(destination, numkeys, options);
+                }
+            });
+    }
+
+    @Override public ScanResult<Set<ZsetPair>> zscan(final String key, final long cursor, final String ... options) throws WrongTypeException {
+        return command(WrongTypeException.class, new Block<ScanResult<Set<ZsetPair>>>() {
+                @Override public ScanResult<Set<ZsetPair>> run() throws Exception {
+                    return redisMock.zscan(key, cursor, options);
+                }
+            });
+    }
+
+
+    /* IRedisTransaction commands */
+
+    @Override public String discard() throws DiscardWithoutMultiException {
+        throw new DiscardWithoutMultiException();
+    }
+
+    @Override public List<Object> exec() throws ExecWithoutMultiException {
+        throw new ExecWithoutMultiException();
+    }
+
+    @Override public IRedisClient multi() {
+        return new RedisMockMulti(this);
+    }
+
+    @Override public IRedisClient pipelined() {
+        return new RedisMockPipeline(this);
+    }
+
+    @Override public List<Object> sync() {
+        return new ArrayList<Object>();
+    }
+
+    @Override public String unwatch() {
+        return unwatch(this.hashCode());
+    }
+
+    @Override public String watch(String key) {
+        return watch(key, this.hashCode());
+    }
+
+    @Override public String unwatch(final Integer hashCode) {
+        return command(new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.unwatch(hashCode);
+                }
+            });
+    }
+
+    @Override public String watch(final String key, final Integer hashCode) {
+        return command(new Block<String>() {
+                @Override public String run() throws Exception {
+                    return redisMock.watch(key, hashCode);
+                }
+            });
+    }
+
+}
@@ -0,0 +1,236 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * A hashed timing wheel that runs tasks after a delay. All tasks share
+ * one worker thread, and scheduling or cancelling a task is O(1).
+ *
+ * The wheel is an array of buckets. Each tick of the worker visits
+ * one bucket and runs the tasks in it whose deadline falls in the
+ * current revolution of the wheel. Tasks are run at most one tick
+ * late, and never early.
+ *
+ * The worker thread is started when the first task is scheduled and
+ * stops again once no tasks are pending, so an idle wheel holds no
+ * thread.
+ */
+public final class ExpiryWheel {
+
+    /** The default duration of a tick, in milliseconds. */
+    public static final long DEFAULT_TICK_MILLIS = 10L;
+    /** The default number of buckets in the wheel. */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * A task scheduled on the wheel.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private long rounds;
+        private int bucket;
+        private Timeout prev;
+        private Timeout next;
+        private boolean linked;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Cancel the task, if it has not run yet.
+         *
+         * @return true if the task was cancelled, or false if it already ran
+         * or was already cancelled.
+         */
+        public boolean cancel() {
+            synchronized (ExpiryWheel.this) {
+                if (!linked) {
+                    return false;
+                }
+                unlink(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Runs the ticks of the wheel.
+     */
+    private final class Worker implements Runnable {
+        @Override public void run() {
+            List<Timeout> due = new ArrayList<Timeout>();
+            while (true) {
+                synchronized (ExpiryWheel.this) {
+                    if (pending == 0) {
+                        worker = null;
+                        return;
+                    }
+                    long deadline = startTime + (tick + 1L) * tickMillis;
+                    long sleep = deadline - now();
+                    try {
+                        while (sleep > 0L) {
+                            ExpiryWheel.this.wait(sleep);
+                            sleep = deadline - now();
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        worker = null;
+                        return;
+                    }
+                    int idx = (int)(tick & mask);
+                    Timeout timeout = buckets[idx];
+                    while (timeout != null) {
+                        Timeout next = timeout.next;
+                        if (timeout.rounds <= 0L) {
+                            unlink(timeout);
+                            due.add(timeout);
+                        }
+                        else {
+                            timeout.rounds -= 1L;
+                        }
+                        timeout = next;
+                    }
+                    tick += 1L;
+                }
+                // Run the tasks without holding the wheel, so they are free
+                // to schedule or cancel other tasks.
+                for (Timeout timeout : due) {
+                    try {
+                        timeout.task.run();
+                    }
+                    catch (RuntimeException e) {
+                    }
+                }
+                due.clear();
+            }
+        }
+    }
+
+    /** The duration of a tick, in milliseconds. */
+    private final long tickMillis;
+    /** The buckets of the wheel. */
+    private final Timeout[] buckets;
+    /** Mask to turn a tick into a bucket index. */
+    private final long mask;
+    /** When the worker started, in milliseconds. */
+    private long startTime;
+    /** The next tick the worker will process. */
+    private long tick;
+    /** The number of tasks waiting to run. */
+    private int pending;
+    /** The worker thread, or null if the wheel is idle. */
+    private Thread worker;
+
+    /**
+     * Constructor. Makes a wheel with the default tick duration
+     * and number of buckets.
+     */
+    public ExpiryWheel() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tickMillis The duration of a tick, in milliseconds. Tasks run
+     * at most this late.
+     * @param wheelSize The number of buckets in the wheel. Rounded up to
+     * a power of two.
+     */
+    public ExpiryWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0L) {
+            throw new IllegalArgumentException("tickMillis must be greater than 0");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 2^30");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000L;
+    }
+
+    /**
+     * Schedule a task to run after a delay.
+     *
+     * @param task The task to run.
+     * @param delayMillis The delay in milliseconds.
+     *
+     * @return A handle that can cancel the task.
+     */
+    public synchronized Timeout schedule(Runnable task, long delayMillis) {
+        if (worker == null) {
+            startTime = now();
+            tick = 0L;
+            worker = new Thread(new Worker(), "redis-mock-expiry");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        long deadline = now() - startTime + Math.max(delayMillis, 0L);
+        long ticks = Math.max(deadline / tickMillis, tick);
+        Timeout timeout = new Timeout(task);
+        timeout.rounds = (ticks - tick) / buckets.length;
+        timeout.bucket = (int)(ticks & mask);
+        timeout.next = buckets[timeout.bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[timeout.bucket] = timeout;
+        timeout.linked = true;
+        pending += 1;
+        return timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        }
+        else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.linked = false;
+        pending -= 1;
+    }
+
+    /**
+     * Get the number of tasks waiting to run.
+     *
+     * @return The number of pending tasks.
+     */
+    public synchronized int pending() {
+        return pending;
+    }
+
+    /**
+     * Get the duration of a tick.
+     *
+     * @return The tick duration in milliseconds.
+     */
+    public long tickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Get the number of buckets in the wheel.
+     *
+     * @return The wheel size.
+     */
+    public int wheelSize() {
+        return buckets.length;
+    }
+
+}
@@ -0,0 +1,238 @@
+package org.rarefiedredis.redis;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * A compiled glob pattern, matched the way redis matches the patterns
+ * of KEYS and the MATCH option of the SCAN family: * matches any run
+ * of characters, ? matches one character, [abc], [a-z] and [^abc]
+ * match one character of a class, and \ escapes the next character.
+ *
+ * A pattern is compiled once into tokens that each match exactly one
+ * character, except for *. Matching walks the string once, and on a
+ * mismatch only goes back to just after the last *, so it never
+ * backtracks the way a regular expression can. Compiled patterns are
+ * kept in a small LRU cache, since clients scan with the same pattern
+ * again and again.
+ */
+public final class GlobMatcher {
+
+    /** The number of compiled patterns to keep. */
+    public static final int CACHE_SIZE = 256;
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY = 1;
+    private static final byte STAR = 2;
+    private static final byte CLASS = 3;
+
+    private static final Map<String, GlobMatcher> cache = new LinkedHashMap<String, GlobMatcher>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, GlobMatcher> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String pattern;
+    /** The kind of each token. */
+    private final byte[] kinds;
+    /** The character of each literal token. */
+    private final char[] chars;
+    /** The ranges of each class token, as pairs of first and last character. */
+    private final char[][] ranges;
+    /** Whether each class token is negated. */
+    private final boolean[] negated;
+    /** The literal characters every match starts with. */
+    private final String prefix;
+    /** Whether the pattern is only literal characters. */
+    private final boolean literal;
+
+    private GlobMatcher(final String pattern) {
+        this.pattern = pattern;
+        int length = pattern.length();
+        byte[] kinds = new byte[length];
+        char[] chars = new char[length];
+        char[][] ranges = new char[length][];
+        boolean[] negated = new boolean[length];
+        int count = 0;
+        for (int idx = 0; idx < length; ++idx) {
+            char c = pattern.charAt(idx);
+            if (c == '*') {
+                // Consecutive stars match the same as one.
+                if (count == 0 || kinds[count - 1] != STAR) {
+                    kinds[count++] = STAR;
+                }
+            }
+            else if (c == '?') {
+                kinds[count++] = ANY;
+            }
+            else if (c == '[') {
+                idx = compileClass(pattern, idx + 1, count, ranges, negated);
+                kinds[count++] = CLASS;
+            }
+            else {
+                if (c == '\\' && idx + 1 < length) {
+                    c = pattern.charAt(++idx);
+                }
+                kinds[count] = LITERAL;
+                chars[count++] = c;
+            }
+        }
+        this.kinds = Arrays.copyOf(kinds, count);
+        this.chars = Arrays.copyOf(chars, count);
+        this.ranges = Arrays.copyOf(ranges, count);
+        this.negated = Arrays.copyOf(negated, count);
+        int literals = 0;
+        while (literals < count && kinds[literals] == LITERAL) {
+            ++literals;
+        }
+        this.prefix = new String(chars, 0, literals);
+        this.literal = literals == count;
+    }
+
+    /**
+     * Compile a class, from just after its [ to its ]. As in redis, a
+     * class left open runs to the end of the pattern, and a reversed
+     * range such as [z-a] is the same as [a-z].
+     *
+     * @return The index of the ] that ends the class.
+     */
+    private static int compileClass(final String pattern, int idx, final int token, final char[][] ranges, final boolean[] negated) {
+        int length = pattern.length();
+        if (idx < length && pattern.charAt(idx) == '^') {
+            negated[token] = true;
+            ++idx;
+        }
+        StringBuilder pairs = new StringBuilder();
+        while (idx < length && pattern.charAt(idx) != ']') {
+            char c = pattern.charAt(idx);
+            if (c == '\\' && idx + 1 < length) {
+                c = pattern.charAt(++idx);
+                pairs.append(c).append(c);
+            }
+            else if (idx + 2 < length && pattern.charAt(idx + 1) == '-') {
+                char end = pattern.charAt(idx + 2);
+                pairs.append(c < end ? c : end).append(c < end ? end : c);
+                idx += 2;
+            }
+            else {
+                pairs.append(c).append(c);
+            }
+            ++idx;
+        }
+        ranges[token] = pairs.toString().toCharArray();
+        return idx;
+    }
+
+    /**
+     * Get the compiled form of a pattern, from the cache if it is there.
+     *
+     * @param pattern The glob pattern.
+     *
+     * @return The compiled pattern.
+     */
+    public static GlobMatcher compile(final String pattern) {
+        synchronized (cache) {
+            GlobMatcher matcher = cache.get(pattern);
+            if (matcher == null) {
+                matcher = new GlobMatcher(pattern);
+                cache.put(pattern, matcher);
+            }
+            return matcher;
+        }
+    }
+
+    /**
+     * @return The pattern.
+     */
+    public String pattern() {
+        return pattern;
+    }
+
+    /**
+     * Get the literal characters at the start of the pattern. Every
+     * string the pattern matches starts with them, so an index sorted
+     * by key can skip straight to them.
+     *
+     * @return The literal prefix, maybe empty.
+     */
+    public String prefix() {
+        return prefix;
+    }
+
+    /**
+     * @return Whether the pattern has no wildcards, so it only matches
+     * its prefix.
+     */
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    /**
+     * @return Whether the pattern matches every string.
+     */
+    public boolean matchesAll() {
+        return kinds.length == 1 && kinds[0] == STAR;
+    }
+
+    /**
+     * Match a whole string against the pattern.
+     *
+     * @param string The string.
+     *
+     * @return Whether the pattern matches the string.
+     */
+    public boolean matches(final String string) {
+        int length = string.length();
+        int token = 0;
+        int idx = 0;
+        // Where to resume after a mismatch: the token after the last
+        // star, and the character that star is to swallow next.
+        int starToken = -1;
+        int starIdx = 0;
+        while (idx < length) {
+            if (token < kinds.length && kinds[token] == STAR) {
+                starToken = ++token;
+                starIdx = idx;
+            }
+            else if (token < kinds.length && matches(token, string.charAt(idx))) {
+                ++token;
+                ++idx;
+            }
+            else if (starToken != -1) {
+                token = starToken;
+                idx = ++starIdx;
+            }
+            else {
+                return false;
+            }
+        }
+        while (token < kinds.length && kinds[token] == STAR) {
+            ++token;
+        }
+        return token == kinds.length;
+    }
+
+    private boolean matches(final int token, final char c) {
+        switch (kinds[token]) {
+        case LITERAL:
+            return chars[token] == c;
+        case ANY:
+            return true;
+        case CLASS:
+            char[] pairs = ranges[token];
+            boolean in = false;
+            for (int idx = 0; idx < pairs.length && !in; idx += 2) {
+                in = pairs[idx] <= c && c <= pairs[idx + 1];
+            }
+            return in != negated[token];
+        default:
+            return false;
+        }
+    }
+
+    @Override public String toString() {
+        return pattern;
+    }
+
+}
@@ -1,5 +1,12 @@
 package org.rarefiedredis.redis;
 
+/**
+ * Converts a glob pattern to a regular expression.
+ *
+ * @deprecated Use {@link GlobMatcher}, which matches globs the way redis
+ * does without compiling a regular expression.
+ */
+@Deprecated
 public final class GlobToRegEx {
 
     // From http://stackoverflow.com/questions/1247772/is-there-an-equivalent-of-java-util-regex-for-glob-type-patterns
@@ -7,17 +14,8 @@ public final class GlobToRegEx {
         line = line.trim();
         int strLen = line.length();
         StringBuilder sb = new StringBuilder(strLen);
-        // Remove beginning and ending * globs because they're useless
-        if (line.startsWith("*"))
-        {
-            line = line.substring(1);
-            strLen--;
-        }
-        if (line.endsWith("*"))
-        {
-            line = line.substring(0, strLen-1);
-            strLen--;
-        }
+        // Keep beginning and ending * globs, the pattern has to match
+        // the whole string.
         boolean escaping = false;
         int inCurlies = 0;
         for (char currentChar : line.toCharArray())
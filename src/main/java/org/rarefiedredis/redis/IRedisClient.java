@@ -1,6 +1,6 @@
 package org.rarefiedredis.redis;
 
-public interface IRedisClient extends IRedisKeys, IRedisString, IRedisList, IRedisSet, IRedisSortedSet, IRedisHash, IRedisTransaction {
+public interface IRedisClient extends IRedisKeys, IRedisString, IRedisList, IRedisSet, IRedisSortedSet, IRedisHash, IRedisTransaction, IRedisPipeline {
     /**
      * Create a client. May return null.
      *
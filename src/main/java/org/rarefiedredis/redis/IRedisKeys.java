@@ -1,5 +1,7 @@
 package org.rarefiedredis.redis;
 
+import java.util.Set;
+
 public interface IRedisKeys {
 
     public Long del(String ... keys) throws NotImplementedException;
@@ -43,5 +45,7 @@ public interface IRedisKeys {
     public String type(String key) throws NotImplementedException;
 
     public String[] scan(int cursor) throws NotImplementedException;
+
+    public ScanResult<Set<String>> scan(long cursor, String ... options) throws NotImplementedException;
     
 }
@@ -0,0 +1,25 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+
+public interface IRedisPipeline {
+
+    /**
+     * Start a pipeline. The returned client buffers its commands, which
+     * return null, until sync() sends them all at once.
+     *
+     * @return The pipelined client.
+     */
+    IRedisClient pipelined() throws NotImplementedException;
+
+    /**
+     * Send the buffered commands of a pipeline and wait for their
+     * replies. The pipeline can be used again afterwards.
+     *
+     * @return The replies, in the order the commands were buffered. A
+     * command that failed has its exception as its reply. Empty if the
+     * client is not a pipeline.
+     */
+    List<Object> sync() throws NotImplementedException;
+
+}
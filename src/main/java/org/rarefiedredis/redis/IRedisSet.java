@@ -25,6 +25,8 @@ public interface IRedisSet {
 
     String spop(String key) throws WrongTypeException, NotImplementedException;
 
+    Set<String> spop(String key, long count) throws WrongTypeException, NotIntegerException, NotImplementedException;
+
     String srandmember(String key) throws WrongTypeException, NotImplementedException;
 
     List<String> srandmember(String key, long count) throws WrongTypeException, NotImplementedException;
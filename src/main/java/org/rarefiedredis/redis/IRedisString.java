@@ -16,6 +16,18 @@ public interface IRedisString {
      * @return The length of the key after the append operation.
      */
     Long append(String key, String value) throws WrongTypeException, NotImplementedException;
+    /**
+     * Append value onto key. Binary-safe version of {@link #append(String, String)}.
+     *
+     * @param key The key
+     * @param value The value
+     *
+     * @throws WrongTypeException If key is not a string
+     * @throws NotImplementedException If the command is unimplemented.
+     *
+     * @return The length of the key after the append operation.
+     */
+    Long append(byte[] key, byte[] value) throws WrongTypeException, NotImplementedException;
     /**
      * Count the number of set bits in a string.
      *
@@ -91,6 +103,17 @@ public interface IRedisString {
      * @return The value of key
      */
     String get(String key) throws WrongTypeException, NotImplementedException;
+    /**
+     * Get the value of a key. Binary-safe version of {@link #get(String)}.
+     *
+     * @param key The key
+     *
+     * @throws WrongTypeException If key is not a string
+     * @throws NotImplementedException If the command is unimplemented.
+     *
+     * @return The value of key
+     */
+    byte[] get(byte[] key) throws WrongTypeException, NotImplementedException;
     /**
      * Returns the bit value at offset in the string value stored at key.
      *
@@ -117,6 +140,20 @@ public interface IRedisString {
      * @return The range
      */
     String getrange(String key, long start, long end) throws WrongTypeException, NotImplementedException;
+    /**
+     * Returns the bytes of the string value stored at key, determined by the inclusive offsets
+     * start and end. Binary-safe version of {@link #getrange(String, long, long)}.
+     *
+     * @param key The key
+     * @param start The start index of the range
+     * @param end The end index of the range
+     *
+     * @throws WrongTypeException If key is not a string
+     * @throws NotImplementedException If the command is unimplemented.
+     *
+     * @return The range
+     */
+    byte[] getrange(byte[] key, long start, long end) throws WrongTypeException, NotImplementedException;
     /**
      * Atomically set a key and return its previous value.
      *
@@ -129,6 +166,19 @@ public interface IRedisString {
      * @return The previous value
      */
     String getset(String key, String value) throws WrongTypeException, NotImplementedException;
+    /**
+     * Atomically set a key and return its previous value. Binary-safe version of
+     * {@link #getset(String, String)}.
+     *
+     * @param key The key
+     * @param value The new value
+     *
+     * @throws WrongTypeException If key is not a string
+     * @throws NotImplementedException If the command is unimplemented.
+     *
+     * @return The previous value
+     */
+    byte[] getset(byte[] key, byte[] value) throws WrongTypeException, NotImplementedException;
     /**
      * Increment the number stored at key by one.
      *
@@ -227,6 +277,20 @@ public interface IRedisString {
      * @return "OK" if the key was set, or null if the operation failed.
      */
     String set(String key, String value, String ... options) throws NotImplementedException, SyntaxErrorException;
+    /**
+     * Set key to hold the string value. Binary-safe version of
+     * {@link #set(String, String, String...)}.
+     *
+     * @param key The key
+     * @param value The value
+     * @param options nx|xx, ex|px timeout.
+     *
+     * @throws NotImplementedException If the command is unimplemented.
+     * @throws SyntaxErrorException If the given options were not valid.
+     *
+     * @return "OK" if the key was set, or null if the operation failed.
+     */
+    String set(byte[] key, byte[] value, String ... options) throws NotImplementedException, SyntaxErrorException;
     /**
      * Sets or clears the bit at offset in the string value stored at key.
      *
@@ -277,6 +341,21 @@ public interface IRedisString {
      * @return The length of the string after this operation
      */
     Long setrange(String key, long offset, String value) throws WrongTypeException, NotImplementedException;
+    /**
+     * Ovewrite part of the string starting at offset with value. Binary-safe version of
+     * {@link #setrange(String, long, String)}.
+     *
+     * @param key The key
+     * @param offset Where to start. If greater than the length of the string,
+     *               the string is padded out to the offset.
+     * @param value The value
+     *
+     * @throws WrongTypeException If key is not a string
+     * @throws NotImplementedException If the command is unimplemented.
+     *
+     * @return The length of the string after this operation
+     */
+    Long setrange(byte[] key, long offset, byte[] value) throws WrongTypeException, NotImplementedException;
     /**
      * Return the length of the string at key.
      *
@@ -0,0 +1,173 @@
+package org.rarefiedredis.redis;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact set for sets whose members are all integers, like the
+ * redis intset encoding. The members are kept as a sorted array of
+ * longs and looked up by binary search, so no string or entry object
+ * is kept per member.
+ *
+ * Only strings that are the canonical decimal form of a long, as
+ * checked by {@link #isInteger}, can be added.
+ */
+public final class IntSet extends AbstractSet<String> {
+
+    /** The members, sorted. */
+    private long[] values;
+    /** The number of members. */
+    private int size;
+
+    /**
+     * Constructor. Initializes an empty set.
+     */
+    public IntSet() {
+        values = new long[4];
+        size = 0;
+    }
+
+    /**
+     * Constructor. Initializes a copy of another intset.
+     *
+     * @param other The intset to copy.
+     */
+    public IntSet(final IntSet other) {
+        values = Arrays.copyOf(other.values, other.values.length);
+        size = other.size;
+    }
+
+    /**
+     * Can the string be stored in an intset?
+     *
+     * @param value The string.
+     *
+     * @return true if the string is the canonical form of a long, or false.
+     */
+    public static boolean isInteger(final String value) {
+        int len = value.length();
+        if (len == 0 || len > 20) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (start == len || (value.charAt(start) == '0' && len > 1)) {
+            return false;
+        }
+        for (int idx = start; idx < len; ++idx) {
+            char c = value.charAt(idx);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        try {
+            Long.parseLong(value);
+            return true;
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private int search(Object o) {
+        if (!(o instanceof String) || !isInteger((String)o)) {
+            return -1;
+        }
+        int idx = Arrays.binarySearch(values, 0, size, Long.parseLong((String)o));
+        return idx < 0 ? -1 : idx;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    @Override public boolean contains(Object o) {
+        return search(o) != -1;
+    }
+
+    @Override public boolean add(String value) {
+        if (!isInteger(value)) {
+            throw new IllegalArgumentException("not an integer: " + value);
+        }
+        long v = Long.parseLong(value);
+        int idx = Arrays.binarySearch(values, 0, size, v);
+        if (idx >= 0) {
+            return false;
+        }
+        idx = -idx - 1;
+        if (size == values.length) {
+            long[] grown = new long[2 * values.length];
+            System.arraycopy(values, 0, grown, 0, size);
+            values = grown;
+        }
+        System.arraycopy(values, idx, values, idx + 1, size - idx);
+        values[idx] = v;
+        size += 1;
+        return true;
+    }
+
+    private void removeAt(int idx) {
+        System.arraycopy(values, idx + 1, values, idx, size - idx - 1);
+        size -= 1;
+    }
+
+    @Override public boolean remove(Object o) {
+        int idx = search(o);
+        if (idx == -1) {
+            return false;
+        }
+        removeAt(idx);
+        return true;
+    }
+
+    @Override public void clear() {
+        values = new long[4];
+        size = 0;
+    }
+
+    @Override public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = 0;
+            private int last = -1;
+
+            @Override public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next += 1;
+                return String.valueOf(values[last]);
+            }
+
+            @Override public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * Pick a member uniformly at random.
+     *
+     * @param random The source of randomness.
+     *
+     * @return A member, or null if the set is empty.
+     */
+    public String random(final Random random) {
+        if (size == 0) {
+            return null;
+        }
+        return String.valueOf(values[random.nextInt(size)]);
+    }
+
+}
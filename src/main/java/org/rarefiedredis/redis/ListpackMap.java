@@ -0,0 +1,189 @@
+package org.rarefiedredis.redis;
+
+import java.util.Map;
+import java.util.AbstractMap;
+import java.util.Set;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact map for small hashes, in the spirit of the redis listpack
+ * encoding. The fields and values are packed one after the other in a
+ * single array, so a hash costs one array instead of a table and an
+ * entry object per field. Lookups scan the array, which is cheap for
+ * the few fields a small hash has.
+ */
+public final class ListpackMap extends AbstractMap<String, String> {
+
+    /**
+     * An entry that reads and writes its value in the packed array.
+     */
+    private final class PackedEntry implements Map.Entry<String, String> {
+        private final int idx;
+        private final String field;
+
+        private PackedEntry(int idx) {
+            this.idx = idx;
+            this.field = entries[idx];
+        }
+
+        @Override public String getKey() {
+            return field;
+        }
+
+        @Override public String getValue() {
+            return entries[idx + 1];
+        }
+
+        @Override public String setValue(String value) {
+            String old = entries[idx + 1];
+            entries[idx + 1] = value;
+            return old;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+            return field.equals(e.getKey()) && (getValue() == null ? e.getValue() == null : getValue().equals(e.getValue()));
+        }
+
+        @Override public int hashCode() {
+            return field.hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override public String toString() {
+            return field + "=" + getValue();
+        }
+    }
+
+    /** Fields at even indexes, each followed by its value. */
+    private String[] entries;
+    /** The number of fields. */
+    private int size;
+
+    /**
+     * Constructor. Initializes an empty map.
+     */
+    public ListpackMap() {
+        entries = new String[4];
+        size = 0;
+    }
+
+    /**
+     * Constructor. Initializes a copy of another listpack map.
+     *
+     * @param other The map to copy.
+     */
+    public ListpackMap(final ListpackMap other) {
+        entries = Arrays.copyOf(other.entries, other.entries.length);
+        size = other.size;
+    }
+
+    private int indexOf(Object field) {
+        for (int idx = 0; idx < 2 * size; idx += 2) {
+            if (entries[idx].equals(field)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int idx) {
+        int last = 2 * (size - 1);
+        // Keep the entries packed by moving the last one into the hole.
+        entries[idx] = entries[last];
+        entries[idx + 1] = entries[last + 1];
+        entries[last] = null;
+        entries[last + 1] = null;
+        size -= 1;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    @Override public boolean containsKey(Object field) {
+        return indexOf(field) != -1;
+    }
+
+    @Override public String get(Object field) {
+        int idx = indexOf(field);
+        return idx == -1 ? null : entries[idx + 1];
+    }
+
+    @Override public String put(String field, String value) {
+        int idx = indexOf(field);
+        if (idx != -1) {
+            String old = entries[idx + 1];
+            entries[idx + 1] = value;
+            return old;
+        }
+        if (2 * size == entries.length) {
+            String[] grown = new String[2 * entries.length];
+            System.arraycopy(entries, 0, grown, 0, entries.length);
+            entries = grown;
+        }
+        entries[2 * size] = field;
+        entries[2 * size + 1] = value;
+        size += 1;
+        return null;
+    }
+
+    @Override public String remove(Object field) {
+        int idx = indexOf(field);
+        if (idx == -1) {
+            return null;
+        }
+        String old = entries[idx + 1];
+        removeAt(idx);
+        return old;
+    }
+
+    @Override public void clear() {
+        entries = new String[4];
+        size = 0;
+    }
+
+    @Override public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<Map.Entry<String, String>>() {
+                    private int next = 0;
+                    private int last = -1;
+
+                    @Override public boolean hasNext() {
+                        return next < 2 * size;
+                    }
+
+                    @Override public Map.Entry<String, String> next() {
+                        if (next >= 2 * size) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next += 2;
+                        return new PackedEntry(last);
+                    }
+
+                    @Override public void remove() {
+                        if (last == -1) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        // The last entry moved into the hole, so visit it next.
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override public int size() {
+                return size;
+            }
+        };
+    }
+
+}
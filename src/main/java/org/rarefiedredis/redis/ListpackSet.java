@@ -0,0 +1,135 @@
+package org.rarefiedredis.redis;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact set for small sets, in the spirit of the redis listpack
+ * encoding. The members are packed in a single array and found by
+ * scanning it, which is cheap for the few members a small set has.
+ */
+public final class ListpackSet extends AbstractSet<String> {
+
+    /** The members. */
+    private String[] members;
+    /** The number of members. */
+    private int size;
+
+    /**
+     * Constructor. Initializes an empty set.
+     */
+    public ListpackSet() {
+        members = new String[4];
+        size = 0;
+    }
+
+    /**
+     * Constructor. Initializes a copy of another listpack set.
+     *
+     * @param other The set to copy.
+     */
+    public ListpackSet(final ListpackSet other) {
+        members = Arrays.copyOf(other.members, other.members.length);
+        size = other.size;
+    }
+
+    private int indexOf(Object member) {
+        for (int idx = 0; idx < size; ++idx) {
+            if (members[idx].equals(member)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int idx) {
+        // Keep the members packed by moving the last one into the hole.
+        members[idx] = members[size - 1];
+        members[size - 1] = null;
+        size -= 1;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    @Override public boolean contains(Object member) {
+        return indexOf(member) != -1;
+    }
+
+    @Override public boolean add(String member) {
+        if (indexOf(member) != -1) {
+            return false;
+        }
+        if (size == members.length) {
+            String[] grown = new String[2 * members.length];
+            System.arraycopy(members, 0, grown, 0, size);
+            members = grown;
+        }
+        members[size] = member;
+        size += 1;
+        return true;
+    }
+
+    @Override public boolean remove(Object member) {
+        int idx = indexOf(member);
+        if (idx == -1) {
+            return false;
+        }
+        removeAt(idx);
+        return true;
+    }
+
+    @Override public void clear() {
+        members = new String[4];
+        size = 0;
+    }
+
+    @Override public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = 0;
+            private int last = -1;
+
+            @Override public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next += 1;
+                return members[last];
+            }
+
+            @Override public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                // The last member moved into the hole, so visit it next.
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * Pick a member uniformly at random.
+     *
+     * @param random The source of randomness.
+     *
+     * @return A member, or null if the set is empty.
+     */
+    public String random(final Random random) {
+        if (size == 0) {
+            return null;
+        }
+        return members[random.nextInt(size)];
+    }
+
+}
@@ -0,0 +1,240 @@
+package org.rarefiedredis.redis;
+
+import java.util.Arrays;
+
+/**
+ * A compact sorted set for small sorted sets, in the spirit of the
+ * redis listpack encoding. The members and their scores are kept in
+ * two parallel arrays in score order, ties broken by member, so the
+ * index of a member is its rank. A sorted set costs two arrays instead
+ * of a skip list node and a table entry per member. Lookups scan the
+ * arrays, which is cheap for the few members a small sorted set has.
+ */
+public final class ListpackZset {
+
+    /** The members, in order. */
+    private String[] members;
+    /** The score of each member. */
+    private double[] scores;
+    /** The number of members. */
+    private int size;
+
+    /**
+     * Constructor. Initializes an empty sorted set.
+     */
+    public ListpackZset() {
+        members = new String[4];
+        scores = new double[4];
+        size = 0;
+    }
+
+    private int indexOf(Object member) {
+        for (int idx = 0; idx < size; ++idx) {
+            if (members[idx].equals(member)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int idx) {
+        // Keep the members in order by closing the hole.
+        System.arraycopy(members, idx + 1, members, idx, size - idx - 1);
+        System.arraycopy(scores, idx + 1, scores, idx, size - idx - 1);
+        size -= 1;
+        members[size] = null;
+    }
+
+    private void insert(String member, double score) {
+        if (size == members.length) {
+            members = Arrays.copyOf(members, 2 * size);
+            scores = Arrays.copyOf(scores, 2 * size);
+        }
+        int idx = size;
+        while (idx > 0 && (scores[idx - 1] > score || (scores[idx - 1] == score && members[idx - 1].compareTo(member) > 0))) {
+            idx -= 1;
+        }
+        System.arraycopy(members, idx, members, idx + 1, size - idx);
+        System.arraycopy(scores, idx, scores, idx + 1, size - idx);
+        members[idx] = member;
+        scores[idx] = score;
+        size += 1;
+    }
+
+    /**
+     * Get the number of members.
+     *
+     * @return The number of members.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the score of a member.
+     *
+     * @param member The member.
+     *
+     * @return The score, or null if the member is not in the set.
+     */
+    public Double score(Object member) {
+        int idx = indexOf(member);
+        return idx == -1 ? null : scores[idx];
+    }
+
+    /**
+     * Get the rank of a member.
+     *
+     * @param member The member.
+     *
+     * @return The rank of the member, starting at 0, or -1 if it is not
+     * in the set.
+     */
+    public int rank(Object member) {
+        return indexOf(member);
+    }
+
+    /**
+     * Get the member at a rank.
+     *
+     * @param rank The rank, starting at 0.
+     *
+     * @return The member.
+     */
+    public String memberAt(int rank) {
+        return members[rank];
+    }
+
+    /**
+     * Get the score of the member at a rank.
+     *
+     * @param rank The rank, starting at 0.
+     *
+     * @return The score.
+     */
+    public double scoreAt(int rank) {
+        return scores[rank];
+    }
+
+    /**
+     * Add a member, or change its score.
+     *
+     * @param member The member.
+     * @param score The score of the member.
+     *
+     * @return The old score of the member, or null if it was not in the set.
+     */
+    public Double put(String member, double score) {
+        int idx = indexOf(member);
+        if (idx == -1) {
+            insert(member, score);
+            return null;
+        }
+        double old = scores[idx];
+        if (old != score) {
+            removeAt(idx);
+            insert(member, score);
+        }
+        return old;
+    }
+
+    /**
+     * Remove a member.
+     *
+     * @param member The member.
+     *
+     * @return The score of the member, or null if it was not in the set.
+     */
+    public Double remove(Object member) {
+        int idx = indexOf(member);
+        if (idx == -1) {
+            return null;
+        }
+        double old = scores[idx];
+        removeAt(idx);
+        return old;
+    }
+
+    /**
+     * Remove the member at a rank.
+     *
+     * @param rank The rank, starting at 0.
+     */
+    public void removeRank(int rank) {
+        removeAt(rank);
+    }
+
+    private static boolean aboveMin(double score, double min, boolean minExclusive) {
+        return minExclusive ? score > min : score >= min;
+    }
+
+    private static boolean belowMax(double score, double max, boolean maxExclusive) {
+        return maxExclusive ? score < max : score <= max;
+    }
+
+    /**
+     * Get the rank of the first member whose score is in a range.
+     *
+     * @param min The low end of the range.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The rank, starting at 0, or -1 if the range is empty.
+     */
+    public int firstInRange(final double min, final boolean minExclusive, final double max, final boolean maxExclusive) {
+        int idx = 0;
+        while (idx < size && !aboveMin(scores[idx], min, minExclusive)) {
+            idx += 1;
+        }
+        if (idx == size || !belowMax(scores[idx], max, maxExclusive)) {
+            return -1;
+        }
+        return idx;
+    }
+
+    /**
+     * Get the rank of the last member whose score is in a range.
+     *
+     * @param min The low end of the range.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The rank, starting at 0, or -1 if the range is empty.
+     */
+    public int lastInRange(final double min, final boolean minExclusive, final double max, final boolean maxExclusive) {
+        int idx = size - 1;
+        while (idx >= 0 && !belowMax(scores[idx], max, maxExclusive)) {
+            idx -= 1;
+        }
+        if (idx == -1 || !aboveMin(scores[idx], min, minExclusive)) {
+            return -1;
+        }
+        return idx;
+    }
+
+    /**
+     * Get the rank of the first member in a lexicographical range. Like
+     * in redis, the result is only meaningful if all the members have
+     * the same score.
+     *
+     * @param min The low end of the range, or null for no low end.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range, or null for no high end.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The rank, starting at 0, or -1 if the range is empty.
+     */
+    public int firstInLexRange(final String min, final boolean minExclusive, final String max, final boolean maxExclusive) {
+        int idx = 0;
+        while (idx < size && !ZsetSkipList.inLexRange(members[idx], min, minExclusive, null, false)) {
+            idx += 1;
+        }
+        if (idx == size || !ZsetSkipList.inLexRange(members[idx], null, false, max, maxExclusive)) {
+            return -1;
+        }
+        return idx;
+    }
+
+}
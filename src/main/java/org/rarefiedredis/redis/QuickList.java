@@ -0,0 +1,398 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A list stored the way redis stores lists in a quicklist: a doubly
+ * linked list of chunks, each of which packs up to a fixed number of
+ * elements in an array.
+ *
+ * Pushing and popping at either end is O(1). Positional access walks
+ * from the nearer end one whole chunk at a time, and iterating touches
+ * one array per chunk instead of one node per element.
+ */
+public final class QuickList extends AbstractList<String> {
+
+    /** The default number of elements per chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 128;
+
+    /**
+     * A chunk of the list. Its elements are items[offset] up to but not
+     * including items[offset + count].
+     */
+    private static final class Chunk {
+        private final String[] items;
+        private int offset;
+        private int count;
+        private Chunk prev;
+        private Chunk next;
+
+        private Chunk(int capacity, int offset) {
+            this.items = new String[capacity];
+            this.offset = offset;
+            this.count = 0;
+        }
+
+        /**
+         * Move the elements to start at the given offset.
+         */
+        private void moveTo(int to) {
+            System.arraycopy(items, offset, items, to, count);
+            if (to > offset) {
+                for (int idx = offset; idx < Math.min(to, offset + count); ++idx) {
+                    items[idx] = null;
+                }
+            }
+            else {
+                for (int idx = Math.max(to + count, offset); idx < offset + count; ++idx) {
+                    items[idx] = null;
+                }
+            }
+            offset = to;
+        }
+    }
+
+    private final int chunkSize;
+    private Chunk head;
+    private Chunk tail;
+    private int size;
+
+    /**
+     * Constructor. Initializes an empty list with the default chunk size.
+     */
+    public QuickList() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor. Initializes an empty list.
+     *
+     * @param chunkSize The number of elements per chunk.
+     */
+    public QuickList(int chunkSize) {
+        if (chunkSize < 2) {
+            throw new IllegalArgumentException("chunkSize must be at least 2");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override public int size() {
+        return size;
+    }
+
+    /**
+     * Insert an element at the head of the list.
+     *
+     * @param element The element.
+     */
+    public void addFirst(String element) {
+        if (head == null || head.count == chunkSize) {
+            Chunk chunk = new Chunk(chunkSize, chunkSize);
+            link(null, chunk, head);
+        }
+        else if (head.offset == 0) {
+            head.moveTo(chunkSize - head.count);
+        }
+        head.offset -= 1;
+        head.items[head.offset] = element;
+        head.count += 1;
+        size += 1;
+        modCount += 1;
+    }
+
+    /**
+     * Insert an element at the tail of the list.
+     *
+     * @param element The element.
+     */
+    public void addLast(String element) {
+        if (tail == null || tail.count == chunkSize) {
+            Chunk chunk = new Chunk(chunkSize, 0);
+            link(tail, chunk, null);
+        }
+        else if (tail.offset + tail.count == chunkSize) {
+            tail.moveTo(0);
+        }
+        tail.items[tail.offset + tail.count] = element;
+        tail.count += 1;
+        size += 1;
+        modCount += 1;
+    }
+
+    /**
+     * Remove the element at the head of the list.
+     *
+     * @return The removed element.
+     */
+    public String removeFirst() {
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        return removeAt(head, 0);
+    }
+
+    /**
+     * Remove the element at the tail of the list.
+     *
+     * @return The removed element.
+     */
+    public String removeLast() {
+        if (tail == null) {
+            throw new NoSuchElementException();
+        }
+        return removeAt(tail, tail.count - 1);
+    }
+
+    private void link(Chunk prev, Chunk chunk, Chunk next) {
+        chunk.prev = prev;
+        chunk.next = next;
+        if (prev == null) {
+            head = chunk;
+        }
+        else {
+            prev.next = chunk;
+        }
+        if (next == null) {
+            tail = chunk;
+        }
+        else {
+            next.prev = chunk;
+        }
+    }
+
+    private void unlink(Chunk chunk) {
+        if (chunk.prev == null) {
+            head = chunk.next;
+        }
+        else {
+            chunk.prev.next = chunk.next;
+        }
+        if (chunk.next == null) {
+            tail = chunk.prev;
+        }
+        else {
+            chunk.next.prev = chunk.prev;
+        }
+    }
+
+    /** The chunk found by {@link #find}. */
+    private Chunk found;
+
+    /**
+     * Find the chunk holding the element at index, walking from the
+     * nearer end of the list. Sets {@link #found} to the chunk.
+     *
+     * @return The position of the element in the chunk.
+     */
+    private int find(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index < size / 2) {
+            Chunk chunk = head;
+            while (index >= chunk.count) {
+                index -= chunk.count;
+                chunk = chunk.next;
+            }
+            found = chunk;
+            return index;
+        }
+        int fromEnd = size - 1 - index;
+        Chunk chunk = tail;
+        while (fromEnd >= chunk.count) {
+            fromEnd -= chunk.count;
+            chunk = chunk.prev;
+        }
+        found = chunk;
+        return chunk.count - 1 - fromEnd;
+    }
+
+    @Override public String get(int index) {
+        int pos = find(index);
+        return found.items[found.offset + pos];
+    }
+
+    @Override public String set(int index, String element) {
+        int pos = find(index);
+        String old = found.items[found.offset + pos];
+        found.items[found.offset + pos] = element;
+        return old;
+    }
+
+    @Override public boolean add(String element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override public void add(int index, String element) {
+        if (index == 0) {
+            addFirst(element);
+            return;
+        }
+        if (index == size) {
+            addLast(element);
+            return;
+        }
+        int pos = find(index);
+        Chunk chunk = found;
+        if (chunk.count == chunkSize) {
+            // Split the full chunk in two, and insert into the half that
+            // holds the position.
+            int half = chunkSize / 2;
+            Chunk right = new Chunk(chunkSize, 0);
+            System.arraycopy(chunk.items, chunk.offset + half, right.items, 0, chunk.count - half);
+            for (int idx = chunk.offset + half; idx < chunk.offset + chunk.count; ++idx) {
+                chunk.items[idx] = null;
+            }
+            right.count = chunk.count - half;
+            chunk.count = half;
+            link(chunk, right, chunk.next);
+            if (pos > half) {
+                chunk = right;
+                pos -= half;
+            }
+        }
+        if (chunk.offset + chunk.count == chunkSize) {
+            chunk.moveTo(0);
+        }
+        int at = chunk.offset + pos;
+        System.arraycopy(chunk.items, at, chunk.items, at + 1, chunk.count - pos);
+        chunk.items[at] = element;
+        chunk.count += 1;
+        size += 1;
+        modCount += 1;
+    }
+
+    private String removeAt(Chunk chunk, int pos) {
+        int at = chunk.offset + pos;
+        String old = chunk.items[at];
+        if (pos == 0) {
+            chunk.items[at] = null;
+            chunk.offset += 1;
+        }
+        else {
+            System.arraycopy(chunk.items, at + 1, chunk.items, at, chunk.count - pos - 1);
+            chunk.items[chunk.offset + chunk.count - 1] = null;
+        }
+        chunk.count -= 1;
+        if (chunk.count == 0) {
+            unlink(chunk);
+        }
+        size -= 1;
+        modCount += 1;
+        return old;
+    }
+
+    @Override public String remove(int index) {
+        int pos = find(index);
+        return removeAt(found, pos);
+    }
+
+    @Override public void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+        modCount += 1;
+    }
+
+    @Override public int indexOf(Object o) {
+        int index = 0;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+            for (int idx = chunk.offset; idx < chunk.offset + chunk.count; ++idx) {
+                if (o == null ? chunk.items[idx] == null : o.equals(chunk.items[idx])) {
+                    return index;
+                }
+                index += 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy a range of the list.
+     *
+     * @param fromIndex The index of the first element to copy.
+     * @param toIndex The index after the last element to copy.
+     *
+     * @return A new list with the elements in the range.
+     */
+    public List<String> range(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+        List<String> range = new ArrayList<String>(toIndex - fromIndex);
+        if (fromIndex == toIndex) {
+            return range;
+        }
+        int pos = find(fromIndex);
+        Chunk chunk = found;
+        int remaining = toIndex - fromIndex;
+        while (remaining > 0) {
+            int n = Math.min(chunk.count - pos, remaining);
+            for (int idx = chunk.offset + pos; idx < chunk.offset + pos + n; ++idx) {
+                range.add(chunk.items[idx]);
+            }
+            remaining -= n;
+            chunk = chunk.next;
+            pos = 0;
+        }
+        return range;
+    }
+
+    @Override public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private Chunk chunk = head;
+            private int pos = 0;
+            private Chunk lastChunk = null;
+            private int lastPos = -1;
+            private int expectedModCount = modCount;
+
+            @Override public boolean hasNext() {
+                while (chunk != null && pos >= chunk.count) {
+                    chunk = chunk.next;
+                    pos = 0;
+                }
+                return chunk != null;
+            }
+
+            @Override public String next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastChunk = chunk;
+                lastPos = pos;
+                pos += 1;
+                return chunk.items[chunk.offset + lastPos];
+            }
+
+            @Override public void remove() {
+                if (lastChunk == null) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                Chunk next = lastChunk.next;
+                removeAt(lastChunk, lastPos);
+                if (lastChunk.count == 0) {
+                    chunk = next;
+                    pos = 0;
+                }
+                else {
+                    pos = lastPos;
+                }
+                lastChunk = null;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+}
@@ -1,45 +1,125 @@
 package org.rarefiedredis.redis;
 
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Collections;
 
 public final class RedisHashCache implements IRedisCache<String, Map<String, String>> {
 
-    private Map<String, Map<String, String>> cache;
+    private RedisKeyspace keyspace;
+    private EncodingConfig config;
 
     public RedisHashCache() {
-        cache = new HashMap<String, Map<String, String>>();
+        this(new RedisKeyspace());
+    }
+
+    public RedisHashCache(RedisKeyspace keyspace) {
+        this(keyspace, new EncodingConfig());
+    }
+
+    public RedisHashCache(RedisKeyspace keyspace, EncodingConfig config) {
+        this.keyspace = keyspace;
+        this.config = config;
     }
 
     @Override public Boolean exists(String key) {
-        return cache.containsKey(key);
+        return keyspace.get(key, type()) != null;
     }
 
     @Override public void remove(String key) {
-        cache.remove(key);
+        if (exists(key)) {
+            keyspace.remove(key);
+        }
     }
 
     @Override public void set(String key, String field, Object ... arguments) {
         String value = (String)arguments[0];
-        if (!cache.containsKey(key)) {
-            cache.put(key, new HashMap<String, String>());
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null || !entry.type.equals(type())) {
+            entry = keyspace.put(key, type(), new ListpackMap());
         }
-        cache.get(key).put(field, value);
+        Map<String, String> hash = writable(entry);
+        // Small hashes stay packed until they outgrow the listpack limits.
+        if (hash instanceof ListpackMap
+            && (field.length() > config.hashMaxListpackValue
+                || value.length() > config.hashMaxListpackValue
+                || (hash.size() >= config.hashMaxListpackEntries && !hash.containsKey(field)))) {
+            hash = new Dict<String, String>(hash);
+            entry.value = hash;
+        }
+        hash.put(field, value);
     }
 
     @Override public Map<String, String> get(String key) {
-        return cache.get(key);
+        return (Map<String, String>)keyspace.get(key, type());
+    }
+
+    /**
+     * Get a read only snapshot of the hash at key, in O(1). The snapshot
+     * never changes, even after the hash does, so it can be read outside
+     * the lock of the database. See {@link RedisKeyspace#share}.
+     *
+     * @param key The key of the hash.
+     *
+     * @return The snapshot, or null if the key does not exist.
+     */
+    public Map<String, String> snapshot(String key) {
+        Map<String, String> hash = (Map<String, String>)keyspace.share(key, type());
+        if (hash == null) {
+            return null;
+        }
+        return Collections.unmodifiableMap(hash);
+    }
+
+    /**
+     * Get the hash of an entry to change it, copying it first if it has
+     * been handed out as a snapshot.
+     */
+    private Map<String, String> writable(RedisKeyspace.Entry entry) {
+        if (entry.shared) {
+            Map<String, String> hash = (Map<String, String>)entry.value;
+            if (hash instanceof ListpackMap) {
+                entry.value = new ListpackMap((ListpackMap)hash);
+            }
+            else {
+                entry.value = new Dict<String, String>(hash);
+            }
+            entry.shared = false;
+        }
+        return (Map<String, String>)entry.value;
+    }
+
+    /**
+     * Visit the next fields of a scan of the hash at key. A small hash
+     * is visited whole in one call.
+     *
+     * @param key The key of the hash.
+     * @param cursor The cursor, 0 to start a scan.
+     * @param visitor Receives the fields and their values.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(String key, long cursor, Dict.Visitor<String, String> visitor) {
+        Map<String, String> hash = get(key);
+        if (hash == null) {
+            return 0L;
+        }
+        if (hash instanceof Dict) {
+            return ((Dict<String, String>)hash).scan(cursor, visitor);
+        }
+        for (Map.Entry<String, String> entry : hash.entrySet()) {
+            visitor.visit(entry.getKey(), entry.getValue());
+        }
+        return 0L;
     }
 
     @Override public Boolean removeValue(String key, String field) {
-        if (!exists(key)) {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null || !entry.type.equals(type()) || !((Map<String, String>)entry.value).containsKey(field)) {
             return false;
         }
-        if (cache.get(key).containsKey(field)) {
-            cache.get(key).remove(field);
-            return true;
-        }
-        return false;
+        writable(entry).remove(field);
+        return true;
     }
 
     @Override public String type() {
@@ -0,0 +1,537 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The keyspace of a redis database. Every key maps to a single
+ * entry that carries the value, its type, and its expiration, so
+ * finding a key or checking its type costs one hash probe no matter
+ * what kind of value the key holds.
+ *
+ * Keys past their expiration time are removed lazily, the next time
+ * they are looked up. All the keys, and separately the keys that have
+ * an expiration, are also kept in dense arrays, so that RANDOMKEY and
+ * an active expire cycle can sample them uniformly at random.
+ *
+ * Optionally, the keys are also kept in a sorted index, so that the
+ * keys with a given prefix can be found without looking at the others.
+ *
+ * Every entry carries a version, drawn from a clock that only moves
+ * forward, and a new one each time the entry is stored or touched, so
+ * a WATCH can tell whether a key changed by comparing two numbers.
+ */
+public final class RedisKeyspace {
+
+    /**
+     * A value stored in the keyspace.
+     */
+    public static final class Entry {
+        /** The type of the value, as reported by the TYPE command. */
+        public final String type;
+        /** The value itself. */
+        public Object value;
+        /**
+         * The absolute expiration time in milliseconds, or -1 if the key
+         * does not expire. Change it through {@link RedisKeyspace#setExpiration}.
+         */
+        public long expiration;
+        /** The pending expiration of the key, or null. */
+        public ExpiryWheel.Timeout timeout;
+        /**
+         * Whether the value has been handed out as a snapshot, so that
+         * it must be copied before it is next changed.
+         */
+        public boolean shared;
+        /**
+         * The version of the value, different after every change. Change
+         * it through {@link RedisKeyspace#touch}.
+         */
+        public long version;
+        /** The position of the key among all the keys. */
+        private int keyIndex;
+        /** The position of the key among the keys with an expiration, or -1. */
+        private int volatileIndex;
+
+        /**
+         * Constructor. Makes an entry that does not expire.
+         *
+         * @param type The type of the value.
+         * @param value The value.
+         */
+        public Entry(String type, Object value) {
+            this.type = type;
+            this.value = value;
+            this.expiration = -1L;
+            this.keyIndex = -1;
+            this.volatileIndex = -1;
+        }
+    }
+
+    /**
+     * All the entries in the keyspace.
+     */
+    private Dict<String, Entry> entries;
+    /**
+     * All the keys, in no particular order.
+     */
+    private List<String> keys;
+    /**
+     * The keys that have an expiration, in no particular order.
+     */
+    private List<String> volatileKeys;
+    /**
+     * The keys in order, or null if the keyspace is not indexed.
+     */
+    private NavigableSet<String> index;
+    /**
+     * Where the prefix scans in progress stopped, by cursor, the most
+     * recent last.
+     */
+    private Map<Long, String> prefixCursors;
+    private long nextPrefixCursor;
+    /**
+     * The last version handed out.
+     */
+    private long clock;
+
+    /** The most prefix scans to remember where they stopped. */
+    private static final int MAX_PREFIX_CURSORS = 1024;
+
+    /**
+     * Constructor. Initializes an empty keyspace.
+     */
+    public RedisKeyspace() {
+        entries = new Dict<String, Entry>();
+        keys = new ArrayList<String>();
+        volatileKeys = new ArrayList<String>();
+    }
+
+    /**
+     * Get the entry stored at key.
+     *
+     * @param key The key to look up.
+     *
+     * @return The entry, or null if the key does not exist.
+     */
+    public Entry get(final String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiration != -1L && entry.expiration <= System.currentTimeMillis()) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Get the value stored at key, provided it has the given type.
+     *
+     * @param key The key to look up.
+     * @param type The type the value must have.
+     *
+     * @return The value, or null if the key does not exist or holds another type.
+     */
+    public Object get(final String key, final String type) {
+        Entry entry = get(key);
+        if (entry == null || !entry.type.equals(type)) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Get the value stored at key to hand out as a snapshot. Handing
+     * it out costs nothing: the entry is only marked shared, and the
+     * caches copy a shared value the next time they change it, so the
+     * value handed out never changes again. A value that is read many
+     * times between writes is copied at most once per write.
+     *
+     * @param key The key to look up.
+     * @param type The type the value must have.
+     *
+     * @return The value, or null if the key does not exist or holds another type.
+     */
+    public Object share(final String key, final String type) {
+        Entry entry = get(key);
+        if (entry == null || !entry.type.equals(type)) {
+            return null;
+        }
+        entry.shared = true;
+        return entry.value;
+    }
+
+    /**
+     * Store a value at key, replacing whatever the key held before.
+     *
+     * @param key The key to store.
+     * @param type The type of the value.
+     * @param value The value to store.
+     *
+     * @return The new entry.
+     */
+    public Entry put(final String key, final String type, final Object value) {
+        Entry entry = new Entry(type, value);
+        entry.version = ++clock;
+        attach(key, entry);
+        return entry;
+    }
+
+    /**
+     * Store an entry taken from another keyspace with {@link #detach}
+     * at key, replacing whatever the key held before. The entry keeps
+     * its version, its expiration and its pending timeout, so moving it
+     * there and back does not look like a change. The clock is moved
+     * past its version, so the versions drawn after it are still new.
+     *
+     * @param key The key to store.
+     * @param entry The entry.
+     */
+    public void attach(final String key, final Entry entry) {
+        if (clock < entry.version) {
+            clock = entry.version;
+        }
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            entry.keyIndex = old.keyIndex;
+        }
+        else {
+            entry.keyIndex = keys.size();
+            keys.add(key);
+            if (index != null) {
+                index.add(key);
+            }
+        }
+        forget(old);
+        if (entry.expiration != -1L) {
+            entry.volatileIndex = volatileKeys.size();
+            volatileKeys.add(key);
+        }
+    }
+
+    /**
+     * Give the entry at key a new version, after its value changed.
+     *
+     * @param key The key that changed.
+     *
+     * @return The new version. A version is drawn even if the key does
+     * not exist, to stamp its removal with.
+     */
+    public long touch(final String key) {
+        long version = ++clock;
+        Entry entry = get(key);
+        if (entry != null) {
+            entry.version = version;
+        }
+        return version;
+    }
+
+    /**
+     * Remove the key from the keyspace.
+     *
+     * @param key The key to remove.
+     *
+     * @return The removed entry, or null if the key did not exist.
+     */
+    public Entry remove(final String key) {
+        Entry entry = unlink(key);
+        forget(entry);
+        return entry;
+    }
+
+    /**
+     * Remove the key from the keyspace, to store its entry in another
+     * one with {@link #attach}. Unlike {@link #remove}, the pending
+     * timeout of the entry is left as it is.
+     *
+     * @param key The key to remove.
+     *
+     * @return The removed entry, or null if the key did not exist.
+     */
+    public Entry detach(final String key) {
+        Entry entry = unlink(key);
+        if (entry != null) {
+            unindex(entry);
+        }
+        return entry;
+    }
+
+    private Entry unlink(final String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            // Fill the hole with the last key, so the array stays dense.
+            String last = keys.remove(keys.size() - 1);
+            if (entry.keyIndex < keys.size()) {
+                keys.set(entry.keyIndex, last);
+                entries.get(last).keyIndex = entry.keyIndex;
+            }
+            if (index != null) {
+                index.remove(key);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Remove the key if its expiration time has passed.
+     *
+     * @param key The key to expire.
+     *
+     * @return true if the key was removed, or false.
+     */
+    public Boolean expire(final String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiration == -1L || entry.expiration > System.currentTimeMillis()) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    /**
+     * Set or clear the expiration of the entry at key.
+     *
+     * @param key The key of the entry.
+     * @param entry The entry.
+     * @param expiration The absolute expiration time in milliseconds, or -1
+     * to make the key persistent.
+     */
+    public void setExpiration(final String key, final Entry entry, final long expiration) {
+        if (entry.timeout != null) {
+            entry.timeout.cancel();
+            entry.timeout = null;
+        }
+        entry.expiration = expiration;
+        if (expiration == -1L) {
+            unindex(entry);
+        }
+        else if (entry.volatileIndex == -1) {
+            entry.volatileIndex = volatileKeys.size();
+            volatileKeys.add(key);
+        }
+    }
+
+    /**
+     * Pick a key uniformly at random. A key past its expiration time
+     * that is picked is removed, and another key is picked instead.
+     *
+     * @param random The source of randomness.
+     *
+     * @return A key, or null if the keyspace is empty.
+     */
+    public String randomKey(final Random random) {
+        while (!keys.isEmpty()) {
+            String key = keys.get(random.nextInt(keys.size()));
+            if (get(key) != null) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pick a random key among the keys that have an expiration.
+     *
+     * @param random The source of randomness.
+     *
+     * @return A key, or null if no key has an expiration.
+     */
+    public String randomVolatileKey(final Random random) {
+        if (volatileKeys.isEmpty()) {
+            return null;
+        }
+        return volatileKeys.get(random.nextInt(volatileKeys.size()));
+    }
+
+    /**
+     * Get the number of keys that have an expiration.
+     *
+     * @return The number of keys with an expiration.
+     */
+    public int volatileSize() {
+        return volatileKeys.size();
+    }
+
+    private void forget(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        if (entry.timeout != null) {
+            entry.timeout.cancel();
+            entry.timeout = null;
+        }
+        unindex(entry);
+    }
+
+    private void unindex(Entry entry) {
+        int idx = entry.volatileIndex;
+        if (idx == -1) {
+            return;
+        }
+        // Fill the hole with the last key, so the array stays dense.
+        String last = volatileKeys.remove(volatileKeys.size() - 1);
+        if (idx < volatileKeys.size()) {
+            volatileKeys.set(idx, last);
+            entries.get(last).volatileIndex = idx;
+        }
+        entry.volatileIndex = -1;
+    }
+
+    /**
+     * Visit the next keys of a scan of the keyspace. Keys past their
+     * expiration time are skipped.
+     *
+     * @param cursor The cursor, 0 to start a scan.
+     * @param visitor Receives the keys and their entries.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(final long cursor, final Dict.Visitor<String, Entry> visitor) {
+        final long now = System.currentTimeMillis();
+        return entries.scan(cursor, new Dict.Visitor<String, Entry>() {
+                @Override public void visit(String key, Entry entry) {
+                    if (entry.expiration == -1L || entry.expiration > now) {
+                        visitor.visit(key, entry);
+                    }
+                }
+            });
+    }
+
+    /**
+     * Turn the sorted key index on or off. Turning it on indexes the
+     * keys already there.
+     *
+     * @param indexed Whether to keep the keys in a sorted index.
+     */
+    public void setIndexed(final boolean indexed) {
+        if (!indexed) {
+            index = null;
+            prefixCursors = null;
+        }
+        else if (index == null) {
+            index = new ConcurrentSkipListSet<String>(entries.keySet());
+            prefixCursors = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+                @Override protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > MAX_PREFIX_CURSORS;
+                }
+            };
+        }
+    }
+
+    /**
+     * @return Whether the keys are kept in a sorted index.
+     */
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    /**
+     * Visit the keys that start with a prefix, in order, walking only
+     * that part of the sorted index. The keyspace must be indexed.
+     *
+     * @param prefix The prefix.
+     * @param visitor Receives the keys and their entries.
+     */
+    public void keys(final String prefix, final Dict.Visitor<String, Entry> visitor) {
+        scan(index.tailSet(prefix, true), prefix, Integer.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Visit the next keys that start with a prefix, in order, walking
+     * only that part of the sorted index. The keyspace must be indexed.
+     *
+     * Unlike a hash table cursor, the position in the index does not
+     * fit in a cursor, so the keyspace remembers where each scan
+     * stopped, for the last 1024 scans. A cursor it no longer remembers
+     * starts the scan over from the prefix: the keys already returned
+     * are returned again, but no key is skipped.
+     *
+     * @param prefix The prefix.
+     * @param cursor The cursor, 0 to start a scan.
+     * @param count The most keys to look at, at least 1.
+     * @param visitor Receives the keys and their entries.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(final String prefix, final long cursor, final int count, final Dict.Visitor<String, Entry> visitor) {
+        String from = cursor == 0L ? null : prefixCursors.remove(cursor);
+        NavigableSet<String> keys = from == null ? index.tailSet(prefix, true) : index.tailSet(from, false);
+        String last = scan(keys, prefix, Math.max(1, count), visitor);
+        if (last == null) {
+            return 0L;
+        }
+        if (++nextPrefixCursor == 0L) {
+            ++nextPrefixCursor;
+        }
+        prefixCursors.put(nextPrefixCursor, last);
+        return nextPrefixCursor;
+    }
+
+    /**
+     * Visit keys of the index that start with a prefix, until one does
+     * not or count keys have been looked at.
+     *
+     * @return The last key looked at if there may be more, or null.
+     */
+    private String scan(final NavigableSet<String> keys, final String prefix, int count, final Dict.Visitor<String, Entry> visitor) {
+        long now = System.currentTimeMillis();
+        String last = null;
+        for (String key : keys) {
+            if (!key.startsWith(prefix)) {
+                return null;
+            }
+            if (count-- == 0) {
+                return last;
+            }
+            Entry entry = entries.get(key);
+            if (entry != null && (entry.expiration == -1L || entry.expiration > now)) {
+                visitor.visit(key, entry);
+            }
+            last = key;
+        }
+        return null;
+    }
+
+    /**
+     * Does the key exist?
+     *
+     * @param key The key to check.
+     *
+     * @return true if the key exists, or false.
+     */
+    public Boolean exists(final String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Get the type of the value stored at key.
+     *
+     * @param key The key to check.
+     *
+     * @return The type of the value, or "none" if the key does not exist.
+     */
+    public String type(final String key) {
+        Entry entry = get(key);
+        if (entry == null) {
+            return "none";
+        }
+        return entry.type;
+    }
+
+    /**
+     * Get the number of keys in the keyspace, including expired keys
+     * that have not been removed yet.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+}
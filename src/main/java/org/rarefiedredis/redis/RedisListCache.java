@@ -1,47 +1,52 @@
 package org.rarefiedredis.redis;
 
-import java.util.Map;
-import java.util.HashMap;
 import java.util.List;
-import java.util.LinkedList;
 
 public final class RedisListCache implements IRedisCache<String, List<String>> {
 
-    private Map<String, List<String>> cache;
+    private RedisKeyspace keyspace;
 
     public RedisListCache() {
-        cache = new HashMap<String, List<String>>();
+        this(new RedisKeyspace());
+    }
+
+    public RedisListCache(RedisKeyspace keyspace) {
+        this.keyspace = keyspace;
     }
 
     @Override public Boolean exists(String key) {
-        return cache.containsKey(key);
+        return keyspace.get(key, type()) != null;
     }
 
     @Override public void remove(String key) {
-        cache.remove(key);
+        if (exists(key)) {
+            keyspace.remove(key);
+        }
     }
 
     @Override public void set(String key, String value, Object ... arguments) {
-        if (!cache.containsKey(key)) {
-            cache.put(key, new LinkedList<String>());
+        List<String> list = get(key);
+        if (list == null) {
+            list = new QuickList();
+            keyspace.put(key, type(), list);
         }
         if (arguments.length == 1) {
-            cache.get(key).add((Integer)arguments[0], value);
+            list.add((Integer)arguments[0], value);
         }
         else {
-            cache.get(key).add(value);
+            list.add(value);
         }
     }
 
     @Override public List<String> get(String key) {
-        return cache.get(key);
+        return (List<String>)keyspace.get(key, type());
     }
 
     @Override public Boolean removeValue(String key, String value) {
         if (!exists(key)) {
             return false;
         }
-        return cache.get(key).remove(value);
+        return get(key).remove(value);
     }
 
     @Override public String type() {
@@ -4,16 +4,15 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.TreeSet;
 import java.util.Date;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Comparator;
 import java.util.Collections;
-import java.util.regex.Pattern;
+import java.util.Random;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 /**
  * An in-memory redis-compatible key-value cache and store written
@@ -21,16 +20,8 @@ import java.util.regex.Pattern;
  */
 public final class RedisMock extends AbstractRedisMock {
 
-    private final class WatchKey {
-        public Boolean modified;
-        public List<Integer> watchers;
-
-        public WatchKey() {
-            this.modified = false;
-            this.watchers = new ArrayList<Integer>();
-        }
-    }
-
+    /** The keyspace holding every key. */
+    private RedisKeyspace keyspace;
     /** Cache to hold strings. */
     private RedisStringCache stringCache;
     /** Cache to hold lists. */
@@ -41,34 +32,69 @@ public final class RedisMock extends AbstractRedisMock {
     private RedisHashCache hashCache;
     /** Cache to hold sorted sets. */
     private RedisSortedSetCache zsetCache;
-    /** List of all our caches. */
-    private List<IRedisCache> caches;
-    /** Expiration timers. */
-    private Map<String, Timer> timers;
-    /** Expirations. */
-    private Map<String, Long> expirations;
-    /** Watchers. */
-    private Map<String, WatchKey> watchers;
+    /** The limits of the compact encodings of small values. */
+    private EncodingConfig encodingConfig;
+    /** Runs key expirations. */
+    private ExpiryWheel expiryWheel;
+    /** Runs the expirations the wheel fires, or null to run them on the wheel thread. */
+    private volatile Executor expiryExecutor;
+    /** Samples keys for expiration, or null to expire every key on time. */
+    private ActiveExpireCycle activeExpireCycle;
+    /** Is a run of the active expire cycle scheduled? */
+    private boolean activeExpireScheduled;
+    /** The keys each client watches, with their versions when watched. */
+    private Map<Integer, Map<String, Long>> watches;
+    /** The number of clients watching each key. */
+    private Map<String, Integer> watched;
+    /** The versions watched keys were removed at. */
+    private Map<String, Long> removals;
+    /** The source of randomness of SRANDMEMBER, SPOP and RANDOMKEY. */
+    private Random random;
 
     /**
      * Default constructor. Initializes an empty redis
      * database.
      */
     public RedisMock() {
-        stringCache = new RedisStringCache();
-        listCache = new RedisListCache();
-        setCache = new RedisSetCache();
-        hashCache = new RedisHashCache();
-        zsetCache = new RedisSortedSetCache();
-        caches = new ArrayList<IRedisCache>();
-        caches.add(stringCache);
-        caches.add(listCache);
-        caches.add(setCache);
-        caches.add(hashCache);
-        caches.add(zsetCache);
-        timers = new HashMap<String, Timer>();
-        expirations = new HashMap<String, Long>();
-        watchers = new HashMap<String, WatchKey>();
+        this(new ExpiryWheel());
+    }
+
+    /**
+     * Constructor. Initializes an empty redis database whose keys
+     * expire on the given wheel. A wheel may be shared between
+     * databases.
+     *
+     * @param expiryWheel The wheel to schedule key expirations on.
+     */
+    public RedisMock(ExpiryWheel expiryWheel) {
+        this(expiryWheel, null);
+    }
+
+    /**
+     * Constructor. Initializes an empty redis database whose keys
+     * expire the way they do in redis: lazily when they are looked up,
+     * and by an active expire cycle that runs on the given wheel. Keys
+     * are not scheduled for expiration one by one.
+     *
+     * @param expiryWheel The wheel to run the active expire cycle on.
+     * @param activeExpireCycle The active expire cycle, or null to expire
+     * every key at its exact time instead.
+     */
+    public RedisMock(ExpiryWheel expiryWheel, ActiveExpireCycle activeExpireCycle) {
+        this.expiryWheel = expiryWheel;
+        this.activeExpireCycle = activeExpireCycle;
+        this.activeExpireScheduled = false;
+        keyspace = new RedisKeyspace();
+        encodingConfig = new EncodingConfig();
+        stringCache = new RedisStringCache(keyspace);
+        listCache = new RedisListCache(keyspace);
+        setCache = new RedisSetCache(keyspace, encodingConfig);
+        hashCache = new RedisHashCache(keyspace, encodingConfig);
+        zsetCache = new RedisSortedSetCache(keyspace, encodingConfig);
+        watches = new HashMap<Integer, Map<String, Long>>();
+        watched = new HashMap<String, Integer>();
+        removals = new HashMap<String, Long>();
+        random = new Random();
     }
 
     /**
@@ -87,18 +113,181 @@ public final class RedisMock extends AbstractRedisMock {
         return new RedisMockClient(this);
     }
 
+    /**
+     * Get the limits of the compact encodings of small hashes, sets and
+     * sorted sets. Changing the limits is like CONFIG SET in redis.
+     *
+     * @return The encoding limits of this database.
+     */
+    public EncodingConfig encodingConfig() {
+        return encodingConfig;
+    }
+
+    /**
+     * Keep the keys in a sorted index, or stop. With the index, KEYS
+     * and SCAN with a pattern that starts with literal characters, such
+     * as tenant:123:*, only look at the keys with that prefix. The
+     * index costs a skip list insert and delete per key.
+     *
+     * @param indexed Whether to keep the keys in a sorted index.
+     */
+    public synchronized void setKeyIndex(boolean indexed) {
+        keyspace.setIndexed(indexed);
+    }
+
+    /**
+     * Run the expirations the expiry wheel fires through an executor,
+     * rather than on the wheel thread, for instance to run them on the
+     * thread that runs the commands.
+     *
+     * @param executor The executor to run expirations with, or null to
+     * run them on the wheel thread.
+     */
+    public void setExpiryExecutor(Executor executor) {
+        expiryExecutor = executor;
+    }
+
+    /**
+     * Wrap an expiration so the wheel runs it through the expiry
+     * executor, if there is one.
+     */
+    private Runnable expiry(final Runnable task) {
+        return new Runnable() {
+            @Override public void run() {
+                Executor executor = expiryExecutor;
+                if (executor == null) {
+                    task.run();
+                }
+                else {
+                    executor.execute(task);
+                }
+            }
+        };
+    }
+
     private void checkType(String key, String type) throws WrongTypeException {
-        if (exists(key) && !type(key).equals(type)) {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry != null && !entry.type.equals(type)) {
             throw new WrongTypeException();
         }
     }
 
+    /**
+     * Look up the value at key with a single probe of the keyspace.
+     *
+     * @param key The key to look up.
+     * @param type The type the key must hold.
+     *
+     * @return The value at key, or null if the key does not exist.
+     *
+     * @throws WrongTypeException If the key holds a different type.
+     */
+    private Object lookup(String key, String type) throws WrongTypeException {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.type.equals(type)) {
+            throw new WrongTypeException();
+        }
+        return entry.value;
+    }
+
+    /**
+     * Decode a binary key. Keys are held as strings, so binary keys
+     * are decoded as UTF-8 like the string API encodes them.
+     */
+    private static String decode(final byte[] key) {
+        return new String(key, Sds.UTF8);
+    }
+
     private void keyModified(String key) {
-        if (watchers.containsKey(key)) {
-            watchers.get(key).modified = true;
+        long version = keyspace.touch(key);
+        // A removed key has no entry to carry its version, so remember
+        // it as long as someone watches the key.
+        if (watched.containsKey(key) && keyspace.get(key) == null) {
+            removals.put(key, version);
         }
     }
 
+    /**
+     * Get the version of a key, to compare with the version it had when
+     * it was watched.
+     */
+    private long version(String key) {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry != null) {
+            return entry.version;
+        }
+        Long removed = removals.get(key);
+        return removed == null ? 0L : removed;
+    }
+
+    /**
+     * Get the number of keys, including the expired keys that have not
+     * been removed yet.
+     *
+     * @return The number of keys.
+     */
+    synchronized int size() {
+        return keyspace.size();
+    }
+
+    /**
+     * Remove the entry at key so that it can be moved to another
+     * database. The entry keeps its expiration time and its pending
+     * expiration, which still expires it here once it is given back.
+     *
+     * @param key The key to take.
+     *
+     * @return The entry, or null if the key does not exist.
+     */
+    synchronized RedisKeyspace.Entry take(final String key) {
+        if (keyspace.get(key) == null) {
+            return null;
+        }
+        return keyspace.detach(key);
+    }
+
+    /**
+     * Store an entry taken from another database at key.
+     *
+     * @param key The key to store.
+     * @param entry The entry, or null to leave the key empty.
+     * @param modified Should watchers of the key see it as modified?
+     */
+    synchronized void give(final String key, final RedisKeyspace.Entry entry, final boolean modified) {
+        keyspace.remove(key);
+        if (entry != null) {
+            keyspace.attach(key, entry);
+            // An entry that did not change keeps the expiration pending
+            // here; one that did may have lost it where it was changed.
+            if (modified && entry.expiration != -1L) {
+                if (activeExpireCycle == null) {
+                    scheduleExpiration(key, entry);
+                }
+                else {
+                    scheduleActiveExpireCycle();
+                }
+            }
+        }
+        if (modified) {
+            keyModified(key);
+        }
+    }
+
+    /**
+     * Has the watched key been modified?
+     *
+     * @param key The key.
+     *
+     * @return true if the key is watched and was modified, or false.
+     */
+    synchronized boolean touched(final String key) {
+        Map<String, Long> keys = watches.get(0);
+        return keys != null && keys.containsKey(key) && keys.get(key) != version(key);
+    }
+
     /* IRedisKeys implementations */
 
     @Override public synchronized Long del(final String ... keys) {
@@ -106,27 +295,16 @@ public final class RedisMock extends AbstractRedisMock {
         String key;
         for (int idx = 0; idx < keys.length; idx += 1) {
             key = keys[idx];
-            timers.remove(key);
-            expirations.remove(key);
-            for (IRedisCache cache : caches) {
-                if (cache.exists(key)) {
-                    cache.remove(key);
-                    keyModified(key);
-                    deleted += 1L;
-                    break;
-                }
+            if (keyspace.remove(key) != null) {
+                keyModified(key);
+                deleted += 1L;
             }
         }
         return deleted;
     }
 
     @Override public synchronized Boolean exists(final String key) {
-        for (IRedisCache cache : caches) {
-            if (cache.exists(key)) {
-                return true;
-            }
-        }
-        return false;
+        return keyspace.exists(key);
     }
 
     @Override public synchronized Boolean expire(final String key, final int seconds) {
@@ -139,27 +317,94 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Boolean persist(final String key) {
-        if (exists(key) && timers.containsKey(key)) {
-            timers.get(key).cancel();
-            timers.remove(key);
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry != null && entry.expiration != -1L) {
+            keyspace.setExpiration(key, entry, -1L);
+            keyModified(key);
             return true;
         }
         return false;
     }
 
     @Override public synchronized Boolean pexpire(final String key, final long milliseconds) {
-        if (exists(key)) {
-            Timer timer = new Timer();
-            timers.put(key, timer);
-            expirations.put(key, System.currentTimeMillis() + milliseconds);
-            timer.schedule(new TimerTask() {
-                    @Override public void run() {
-                        del(key);
-                    }
-                }, milliseconds);
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (milliseconds <= 0L) {
+            del(key);
             return true;
         }
-        return false;
+        keyspace.setExpiration(key, entry, System.currentTimeMillis() + milliseconds);
+        if (activeExpireCycle == null) {
+            scheduleExpiration(key, entry);
+        }
+        else {
+            scheduleActiveExpireCycle();
+        }
+        keyModified(key);
+        return true;
+    }
+
+    /**
+     * Schedule the expiration of the entry at key on the expiry wheel,
+     * replacing any expiration already scheduled for it.
+     *
+     * @param key The key of the entry.
+     * @param entry The entry to expire.
+     */
+    private void scheduleExpiration(final String key, final RedisKeyspace.Entry entry) {
+        if (entry.timeout != null) {
+            entry.timeout.cancel();
+        }
+        entry.timeout = expiryWheel.schedule(expiry(new Runnable() {
+                @Override public void run() {
+                    expired(key, entry);
+                }
+            }), entry.expiration - System.currentTimeMillis());
+    }
+
+    /**
+     * Called by the expiry wheel when the time of the entry at key is up.
+     *
+     * @param key The key that expired.
+     * @param entry The entry the expiration was scheduled for.
+     */
+    private synchronized void expired(final String key, final RedisKeyspace.Entry entry) {
+        if (keyspace.expire(key)) {
+            keyModified(key);
+        }
+        else if (entry.expiration != -1L && keyspace.get(key) == entry) {
+            // The wheel keeps its own clock, which can run a hair ahead
+            // of the wall clock the expiration was set with.
+            scheduleExpiration(key, entry);
+        }
+    }
+
+    private void scheduleActiveExpireCycle() {
+        if (activeExpireScheduled) {
+            return;
+        }
+        activeExpireScheduled = true;
+        expiryWheel.schedule(expiry(new Runnable() {
+                @Override public void run() {
+                    activeExpire();
+                }
+            }), activeExpireCycle.periodMillis());
+    }
+
+    /**
+     * Called by the expiry wheel to run the active expire cycle. Keeps
+     * running it periodically for as long as some keys have an expiration.
+     */
+    private synchronized void activeExpire() {
+        activeExpireScheduled = false;
+        for (String key : activeExpireCycle.run(keyspace)) {
+            keyModified(key);
+        }
+        if (keyspace.volatileSize() > 0) {
+            scheduleActiveExpireCycle();
+        }
     }
 
     @Override public synchronized Boolean pexpireat(final String key, final long timestamp) {
@@ -176,146 +421,214 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Long pttl(final String key) {
-        if (!exists(key)) {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null) {
             return -2L;
         }
-        if (!timers.containsKey(key)) {
+        if (entry.expiration == -1L) {
             return -1L;
         }
-        return expirations.get(key) - System.currentTimeMillis();
+        return entry.expiration - System.currentTimeMillis();
+    }
+
+    @Override public synchronized String randomkey() {
+        return keyspace.randomKey(random);
     }
 
     @Override public synchronized String type(final String key) {
-        for (IRedisCache cache : caches) {
-            if (cache.exists(key)) {
-                return cache.type();
+        return keyspace.type(key);
+    }
+
+    @Override public synchronized String[] keys(final String pattern) {
+        final GlobMatcher match = GlobMatcher.compile(pattern);
+        final List<String> keys = new ArrayList<String>();
+        Dict.Visitor<String, RedisKeyspace.Entry> visitor = new Dict.Visitor<String, RedisKeyspace.Entry>() {
+            @Override public void visit(String key, RedisKeyspace.Entry entry) {
+                if (match.matches(key)) {
+                    keys.add(key);
+                }
             }
+        };
+        if (keyspace.isIndexed() && match.prefix().length() > 0) {
+            keyspace.keys(match.prefix(), visitor);
+            return keys.toArray(new String[keys.size()]);
+        }
+        // Nothing changes the keyspace between the calls, so the scan
+        // visits every key exactly once.
+        long cursor = 0L;
+        do {
+            cursor = keyspace.scan(cursor, visitor);
+        } while (cursor != 0L);
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    @Override public synchronized ScanResult<Set<String>> scan(final long cursor, final String ... options) {
+        final Set<String> scanned = new HashSet<String>();
+        final GlobMatcher match = scanMatch(options);
+        if (keyspace.isIndexed() && match != null && match.prefix().length() > 0) {
+            // Walk only the keys with the prefix of the pattern.
+            long count = Math.max(1L, Math.min(scanCount(options), (long)Integer.MAX_VALUE));
+            long next = keyspace.scan(match.prefix(), cursor, (int)count, new Dict.Visitor<String, RedisKeyspace.Entry>() {
+                    @Override public void visit(String key, RedisKeyspace.Entry entry) {
+                        if (match.matches(key)) {
+                            scanned.add(key);
+                        }
+                    }
+                });
+            return new ScanResult<Set<String>>(next, scanned);
         }
-        return "none";
+        long next = scan(cursor, options, new Scanner<RedisKeyspace.Entry>() {
+                @Override public long scan(long cursor, Dict.Visitor<String, RedisKeyspace.Entry> visitor) {
+                    return keyspace.scan(cursor, visitor);
+                }
+            }, new Dict.Visitor<String, RedisKeyspace.Entry>() {
+                @Override public void visit(String key, RedisKeyspace.Entry entry) {
+                    scanned.add(key);
+                }
+            });
+        return new ScanResult<Set<String>>(next, scanned);
     }
 
-    /* IRedisString implementations */
-
-    @Override public synchronized Long append(final String key, final String value) throws WrongTypeException {
-        checkType(key, "string");
-        if (!exists(key)) {
-            try {
-                set(key, value);
+    /**
+     * @return The COUNT option of a SCAN family command, 10 by default.
+     */
+    private static long scanCount(final String[] options) {
+        long count = 10L;
+        for (int idx = 0; idx < options.length - 1; ++idx) {
+            if (options[idx].equalsIgnoreCase("count")) {
+                count = Long.valueOf(options[idx + 1]);
             }
-            catch (Exception e) {
+        }
+        return count;
+    }
+
+    /**
+     * @return The MATCH option of a SCAN family command, or null if
+     * everything matches.
+     */
+    private static GlobMatcher scanMatch(final String[] options) {
+        GlobMatcher match = null;
+        for (int idx = 0; idx < options.length - 1; ++idx) {
+            if (options[idx].equalsIgnoreCase("match")) {
+                match = GlobMatcher.compile(options[idx + 1]);
             }
         }
-        else {
-            stringCache.set(key, stringCache.get(key) + value);
+        return match == null || match.matchesAll() ? null : match;
+    }
+
+    /**
+     * Something scanned a few hash table buckets at a time.
+     */
+    private interface Scanner<V> {
+        long scan(long cursor, Dict.Visitor<String, V> visitor);
+    }
+
+    /**
+     * Run one call of a SCAN family command. Like redis, it visits
+     * buckets until it has seen at least COUNT elements, 10 by default,
+     * or the scan is over, and gives up after ten times COUNT buckets
+     * so a sparse table cannot make one call slow. Elements that do not
+     * MATCH the pattern count as seen, but are not handed on.
+     *
+     * @param cursor The cursor given to the command.
+     * @param options The options given to the command.
+     * @param scanner What to scan.
+     * @param visitor Receives the matching elements.
+     *
+     * @return The cursor to reply with.
+     */
+    private static <V> long scan(long cursor, final String[] options, final Scanner<V> scanner, final Dict.Visitor<String, V> visitor) {
+        long count = scanCount(options);
+        final GlobMatcher match = scanMatch(options);
+        final long[] seen = new long[] { 0L };
+        Dict.Visitor<String, V> filter = new Dict.Visitor<String, V>() {
+            @Override public void visit(String element, V value) {
+                ++seen[0];
+                if (match == null || match.matches(element)) {
+                    visitor.visit(element, value);
+                }
+            }
+        };
+        long buckets = 10L * Math.max(1L, count);
+        do {
+            cursor = scanner.scan(cursor, filter);
+        } while (cursor != 0L && seen[0] < count && --buckets > 0L);
+        return cursor;
+    }
+
+    /* IRedisString implementations */
+
+    @Override public synchronized Long append(final String key, final String value) throws WrongTypeException {
+        return append(key, value.getBytes(Sds.UTF8));
+    }
+
+    private Long append(final String key, final byte[] value) throws WrongTypeException {
+        Sds str = (Sds)lookup(key, "string");
+        if (str == null) {
+            stringCache.setSds(key, new Sds(value));
+            keyModified(key);
+            return (long)value.length;
         }
-        return strlen(key);
+        str.append(value);
+        keyModified(key);
+        return (long)str.length();
+    }
+
+    @Override public synchronized Long append(final byte[] key, final byte[] value) throws WrongTypeException {
+        return append(decode(key), value);
     }
 
     @Override public synchronized Long bitcount(final String key, long ... options) throws WrongTypeException {
-        if (!exists(key)) {
+        Sds str = (Sds)lookup(key, "string");
+        if (str == null) {
             return 0L;
         }
-        checkType(key, "string");
-        String str = stringCache.get(key);
         long len = str.length();
         long start = options.length > 0 ? options[0] : 0L;
         long end = options.length > 1 ? options[1] : len - 1;
-        if (end >= len) {
-            end = len - 1;
-        }
         if (start < 0) {
             start = len + start;
         }
         if (end < 0) {
             end = len + end;
         }
+        if (start < 0) {
+            start = 0;
+        }
+        if (end >= len) {
+            end = len - 1;
+        }
         if (start > end) {
             return 0L;
         }
-        long count = 0;
-        // TODO: Slow bit-counting, do map to do fast bit counting;
-        for (long idx = start; idx <= end; ++idx) {
-            int n = Character.codePointAt(str, (int)idx);
-            while (n != 0) {
-                count += (n & 1);
-                n >>= 1;
-            }
-        }
-        return count;
+        return str.bitcount((int)start, (int)end + 1);
     }
 
     @Override public synchronized Long bitop(String operation, final String destkey, String ... keys) throws WrongTypeException {
-        String[] strs = new String[keys.length];
-        int longest = 0;
+        Sds[] values = new Sds[keys.length];
         for (int idx = 0; idx < keys.length; ++idx) {
-            String key = keys[idx];
-            if (!exists(key)) {
-                strs[idx] = "";
-                continue;
-            }
-            checkType(key, "string");
-            strs[idx] = stringCache.get(key);
-            if (longest < strs[idx].length()) {
-                longest = strs[idx].length();
-            }
-        }
-        for (int idx = 0; idx < strs.length; ++idx) {
-            while (strs[idx].length() < longest) {
-                strs[idx] += "\0";
-            }
-        }
-        operation = operation.toLowerCase();
-        String s = strs[0];
-        for (int idx = 0; idx < strs.length; ++idx) {
-            String str = strs[idx];
-            StringBuffer cur = new StringBuffer();
-            for (int jdx = 0; jdx < longest; ++jdx) {
-                int n = 0;
-                if (operation.equals("and")) {
-                    n = Character.codePointAt(s, jdx) & Character.codePointAt(str, jdx);
-                }
-                else if (operation.equals("or")) {
-                    n = Character.codePointAt(s, jdx) | Character.codePointAt(str, jdx);
-                }
-                else if (operation.equals("xor")) {
-                    // a XOR a = 0, so avoid XOR'ing the first string with itself.
-                    if (idx > 0) {
-                        n = Character.codePointAt(s, jdx) ^ Character.codePointAt(str, jdx);
-                    }
-                    else {
-                        n = Character.codePointAt(s, jdx);
-                    }
-                }
-                else if (operation.equals("not")) {
-                    n = ~Character.codePointAt(s, jdx);
-                }
-                cur.append((char)n);
-            }
-            s = cur.toString();
-            if (operation.equals("not")) {
-                break;
-            }
+            values[idx] = (Sds)lookup(keys[idx], "string");
         }
+        Sds result = Sds.bitop(operation.toLowerCase(), values);
         try {
-            set(destkey, s);
+            setSds(destkey, result);
         }
         catch (SyntaxErrorException e) {
         }
-        return (long)s.length();
+        return (long)result.length();
     }
 
     @Override public synchronized Long bitpos(String key, long bit, long ... options) throws WrongTypeException, BitArgException {
         if (bit != 0L && bit != 1L) {
             throw new BitArgException();
         }
-        checkType(key, "string");
-        if (!exists(key)) {
+        Sds value = (Sds)lookup(key, "string");
+        if (value == null) {
             if (bit == 0L) {
                 return 0L;
             }
             return -1L;
         }
-        String value = stringCache.get(key);
         long len = (long)value.length();
         long start = options.length > 0 ? options[0] : 0;
         long end = options.length > 1 ? options[1] : len - 1;
@@ -324,33 +637,23 @@ public final class RedisMock extends AbstractRedisMock {
             start = len + start;
         }
         if (end < 0) {
-            end = len + start;
+            end = len + end;
         }
-        if (start > end) {
-            return -1L;
+        if (start < 0) {
+            start = 0;
         }
-        long idx;
-        for (idx = start; idx <= end; ++idx) {
-            int ch = Character.codePointAt(value, (int)idx);
-            int cnt = 0;
-            while (cnt < 8) {
-                if (bit == 0L && (ch & 0x80) != 0x80) {
-                    return (long)(idx)*8L + (long)cnt;
-                }
-                if (bit == 1L && (ch & 0x80) == 0x80) {
-                    return (long)(idx)*8L + (long)cnt;
-                }
-                ch <<= 1;
-                cnt += 1;
-            }
+        if (end >= len) {
+            end = len - 1;
         }
-        if (bit == 1) {
+        if (start > end) {
             return -1L;
         }
-        if (bit == 0 && noend) {
-            return (long)(idx)*8L;
+        long pos = value.bitpos(bit == 1L, (int)start, (int)end + 1);
+        if (pos == -1L && bit == 0L && noend) {
+            // The string is padded with zeros past its end.
+            return (end + 1L)*8L;
         }
-        return -1L;
+        return pos;
     }
 
     @Override public synchronized Long decr(String key) throws WrongTypeException, NotIntegerException {
@@ -377,46 +680,47 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized String get(final String key) throws WrongTypeException {
-        if (!exists(key)) {
-            return null;
-        }
-        checkType(key, "string");
-        return stringCache.get(key);
+        Sds value = (Sds)lookup(key, "string");
+        return value == null ? null : value.toString();
+    }
+
+    @Override public synchronized byte[] get(final byte[] key) throws WrongTypeException {
+        Sds value = (Sds)lookup(decode(key), "string");
+        return value == null ? null : value.toByteArray();
     }
 
     @Override public synchronized Boolean getbit(final String key, final long offset) throws WrongTypeException {
-        if (!exists(key)) {
-            return false;
-        }
-        checkType(key, "string");
-        String value = stringCache.get(key);
-        if (offset >= value.length() * 8L) {
+        Sds value = (Sds)lookup(key, "string");
+        if (value == null) {
             return false;
         }
-        int n = value.codePointAt((int)Math.floor(offset/8L));
-        long pos = offset % 8;
-        return ((n >> pos) & 0x01) == 1;
+        return value.getbit(offset);
     }
 
     @Override public synchronized String getrange(final String key, long start, long end) throws WrongTypeException {
-        if (!exists(key)) {
-            return "";
+        return new String(range(key, start, end), Sds.UTF8);
+    }
+
+    @Override public synchronized byte[] getrange(final byte[] key, long start, long end) throws WrongTypeException {
+        return range(decode(key), start, end);
+    }
+
+    private byte[] range(final String key, long start, long end) throws WrongTypeException {
+        Sds value = (Sds)lookup(key, "string");
+        if (value == null) {
+            return new byte[0];
         }
-        checkType(key, "string");
-        String value = stringCache.get(key);
-        long len = 0L;
+        long len = value.length();
         if (end < 0) {
-            end = value.length() + end;
+            end = len + end;
         }
         if (start < 0) {
-            start = value.length() + start;
-        }
-        try {
-            return value.substring((int)start, (int)(end + 1L));
+            start = len + start;
         }
-        catch (IndexOutOfBoundsException e) {
-            return "";
+        if (start < 0 || end >= len || start > end + 1) {
+            return new byte[0];
         }
+        return value.range((int)start, (int)(end + 1L));
     }
 
     @Override public synchronized String getset(final String key, final String value) throws WrongTypeException {
@@ -433,6 +737,20 @@ public final class RedisMock extends AbstractRedisMock {
         return prev;
     }
 
+    @Override public synchronized byte[] getset(final byte[] key, final byte[] value) throws WrongTypeException {
+        byte[] prev = null;
+        try {
+            prev = get(key);
+            set(key, value);
+        }
+        catch (WrongTypeException wte) {
+            throw wte;
+        }
+        catch (SyntaxErrorException see) {
+        }
+        return prev;
+    }
+
     @Override public synchronized Long incr(final String key) throws WrongTypeException, NotIntegerException {
         return decrby(key, -1);
     }
@@ -525,6 +843,14 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized String set(final String key, final String value, String ... options) throws SyntaxErrorException {
+        return setSds(key, new Sds(value), options);
+    }
+
+    @Override public synchronized String set(final byte[] key, final byte[] value, String ... options) throws SyntaxErrorException {
+        return setSds(decode(key), new Sds(value), options);
+    }
+
+    private String setSds(final String key, final Sds value, String ... options) throws SyntaxErrorException {
         boolean nx = false, xx = false;
         int ex = -1;
         long px = -1;
@@ -533,19 +859,19 @@ public final class RedisMock extends AbstractRedisMock {
         }
         for (int idx = 0; idx < options.length; ++idx) {
             String option = options[idx];
-            if (option == "nx") {
+            if (option.equals("nx")) {
                 nx = true;
             }
-            else if (option == "xx") {
+            else if (option.equals("xx")) {
                 xx = true;
             }
-            else if (option == "ex") {
+            else if (option.equals("ex")) {
                 if (idx + 1 >= options.length) {
                     throw new SyntaxErrorException();
                 }
                 ex = Integer.parseInt(options[idx + 1]);
             }
-            else if (option == "px") {
+            else if (option.equals("px")) {
                 if (idx + 1 >= options.length) {
                     throw new SyntaxErrorException();
                 }
@@ -568,7 +894,7 @@ public final class RedisMock extends AbstractRedisMock {
                 del(key);
             }
         }
-        stringCache.set(key, value);
+        stringCache.setSds(key, value);
         keyModified(key);
         if (ex != -1) {
             expire(key, ex);
@@ -580,44 +906,14 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Long setbit(final String key, final long offset, final boolean value) throws WrongTypeException {
-        checkType(key, "string");
-        if (!exists(key)) {
-            try {
-                set(key, "");
-            }
-            catch (SyntaxErrorException e) {
-            }
-        }
-        int byteIdx = (int)Math.floor(offset/8L);
-        int bitIdx = (int)(offset % 8L);
-        String val = get(key);
-        while (val.length() < byteIdx + 1) {
-            val += "\0";
-        }
-        int code = val.codePointAt(byteIdx);
-        int idx = 0;
-        int mask = 0x80;
-        while (idx < bitIdx) {
-            mask >>= 1;
-            idx += 1;
+        Sds str = (Sds)lookup(key, "string");
+        if (str == null) {
+            str = new Sds();
+            stringCache.setSds(key, str);
         }
-        int bit = (code & mask) == 0 ? 0 : 1;
-        if (!value) {
-            code = code & (~mask);
-        }
-        else {
-            code = code | mask;
-        }
-        String newVal = "";
-        newVal += val.substring(0, byteIdx);
-        newVal += (char)(code);
-        newVal += val.substring(byteIdx + 1);
-        try {
-            set(key, newVal);
-        }
-        catch (SyntaxErrorException e) {
-        }
-        return (long)bit;
+        boolean bit = str.setbit(offset, value);
+        keyModified(key);
+        return bit ? 1L : 0L;
     }
 
     @Override public synchronized String setex(final String key, final int seconds, final String value) {
@@ -642,52 +938,44 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Long setrange(final String key, final long offset, final String value) throws WrongTypeException {
-        checkType(key, "string");
-        if (!exists(key)) {
-            try {
-                set(key, "");
-            }
-            catch (SyntaxErrorException e) {
-            }
-        }
-        String val = get(key);
-        int idx;
-        for (idx = val.length(); idx < (int)(offset + value.length()); ++idx) {
-            val += "\0";
-        }
-        String newValue = val.substring(0, (int)offset);
-        for (idx = (int)offset; idx < (int)(offset + value.length()); ++idx) {
-            newValue += value.charAt(idx - (int)offset);
-        }
-        newValue += val.substring((int)(offset + value.length()));
-        try {
-            set(key, newValue);
-        }
-        catch (SyntaxErrorException e) {
+        return setrange(key, offset, value.getBytes(Sds.UTF8));
+    }
+
+    private Long setrange(final String key, final long offset, final byte[] value) throws WrongTypeException {
+        Sds str = (Sds)lookup(key, "string");
+        if (str == null) {
+            str = new Sds();
+            stringCache.setSds(key, str);
         }
-        return (long)newValue.length();
+        str.setrange((int)offset, value);
+        keyModified(key);
+        return (long)str.length();
+    }
+
+    @Override public synchronized Long setrange(final byte[] key, final long offset, final byte[] value) throws WrongTypeException {
+        return setrange(decode(key), offset, value);
     }
 
     @Override public synchronized Long strlen(final String key) throws WrongTypeException {
-        if (!exists(key)) {
+        Sds value = (Sds)lookup(key, "string");
+        if (value == null) {
             return 0L;
         }
-        checkType(key, "string");
-        return (long)stringCache.get(key).length();
+        return (long)value.length();
     }
 
     /* IRedisList implementations */
 
     @Override public synchronized String lindex(final String key, long index) throws WrongTypeException {
-        if (!exists(key)) {
+        List<String> lst = (List<String>)lookup(key, "list");
+        if (lst == null) {
             return null;
         }
-        checkType(key, "list");
         if (index < 0) {
-            index = listCache.get(key).size() + index;
+            index = lst.size() + index;
         }
         try {
-            return listCache.get(key).get((int)index);
+            return lst.get((int)index);
         }
         catch (IndexOutOfBoundsException e) {
             return null;
@@ -716,11 +1004,10 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Long llen(final String key) throws WrongTypeException {
-        if (!exists(key)) {
+        List<String> lst = (List<String>)lookup(key, "list");
+        if (lst == null) {
             return 0L;
         }
-        checkType(key, "list");
-        List<String> lst = listCache.get(key);
         Long len = 0L;
         int size = lst.size();
         len += (long)size;
@@ -770,11 +1057,10 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized List<String> lrange(final String key, long start, long end) throws WrongTypeException {
-        if (!exists(key)) {
+        List<String> lst = (List<String>)lookup(key, "list");
+        if (lst == null) {
             return new ArrayList<String>();
         }
-        checkType(key, "list");
-        List<String> lst = listCache.get(key);
         int len = lst.size();
         if (start < 0) {
             start = len + start;
@@ -794,7 +1080,8 @@ public final class RedisMock extends AbstractRedisMock {
         if (start < 0 || end < 0) {
             return new ArrayList<String>();
         }
-        return lst.subList((int)start, (int)(end + 1L));
+        // Hand out a copy, not a view the next write would change.
+        return ((QuickList)lst).range((int)start, (int)(end + 1L));
     }
 
     @Override public synchronized Long lrem(final String key, final long count, final String element) throws WrongTypeException {
@@ -836,30 +1123,28 @@ public final class RedisMock extends AbstractRedisMock {
             return "OK";
         }
         checkType(key, "list");
-        int len = listCache.get(key).size();
-        if (start > len || start > end) {
-            del(key);
-            return "OK";
-        }
+        QuickList lst = (QuickList)listCache.get(key);
+        int len = lst.size();
         if (start < 0) {
-            start = len + start;
+            start = Math.max(len + start, 0);
         }
         if (end < 0) {
-            end = len + start;
+            end = len + end;
+        }
+        if (start > end || start >= len) {
+            del(key);
+            return "OK";
         }
         if (end > len - 1) {
             end = len - 1;
         }
-        if (start < 0 || end < 0) {
-            return "OK";
+        // Drop the elements outside the range from both ends.
+        for (long idx = 0; idx < start; ++idx) {
+            lst.removeFirst();
         }
-        List<String> subl = listCache.get(key).subList((int)start, (int)(end + 1L));
-        // Avoid a ConcurrentModificationException on the subList view by copying it into a new list.
-        List<String> trimmed = new LinkedList<String>();
-        for (String sub : subl) {
-            trimmed.add(sub);
+        for (long idx = end + 1; idx < len; ++idx) {
+            lst.removeLast();
         }
-        listCache.get(key).retainAll(trimmed);
         keyModified(key);
         return "OK";
     }
@@ -933,75 +1218,85 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Long scard(String key) throws WrongTypeException {
-        checkType(key, "set");
-        if (!setCache.exists(key)) {
+        Set<String> set = (Set<String>)lookup(key, "set");
+        if (set == null) {
             return 0L;
         }
-        return (long)setCache.get(key).size();
+        return (long)set.size();
     }
 
-    @Override public synchronized Set<String> sdiff(String key, String ... keys) throws WrongTypeException {
-        checkType(key, "set");
-        for (String k : keys) {
-            checkType(k, "set");
-        }
-        Set<String> diff = new HashSet<String>(smembers(key));
+    /**
+     * Look up the sets at keys for the set algebra commands, checking
+     * every key holds a set before any of them is computed.
+     *
+     * @return The sets, with null for the missing ones.
+     */
+    /**
+     * Get the set at key itself, not a snapshot, for a caller that holds
+     * the lock of this database and only reads the set.
+     *
+     * @param key The key of the set.
+     *
+     * @return The set, or null if the key does not exist.
+     *
+     * @throws WrongTypeException If the key holds another type.
+     */
+    synchronized Set<String> members(final String key) throws WrongTypeException {
+        return (Set<String>)lookup(key, "set");
+    }
+
+    private List<Set<String>> sets(String key, String ... keys) throws WrongTypeException {
+        List<Set<String>> sets = new ArrayList<Set<String>>(keys.length + 1);
+        sets.add((Set<String>)lookup(key, "set"));
         for (String k : keys) {
-            diff.removeAll(smembers(k));
+            sets.add((Set<String>)lookup(k, "set"));
         }
+        return sets;
+    }
+
+    @Override public synchronized Set<String> sdiff(String key, String ... keys) throws WrongTypeException {
+        Set<String> diff = new HashSet<String>();
+        SetAlgebra.difference(sets(key, keys), diff);
         return diff;
     }
 
     @Override public synchronized Long sdiffstore(String destination, String key, String ... keys) throws WrongTypeException {
-        Set<String> diff = sdiff(key, keys);
-        if (exists(destination)) {
-            del(destination);
-        }
-        for (String d : diff) {
-            sadd(destination, d);
-        }
+        List<String> diff = new ArrayList<String>();
+        SetAlgebra.difference(sets(key, keys), diff);
+        setCache.store(destination, diff);
         keyModified(destination);
         return (long)diff.size();
-    }
-
-    @Override public synchronized Set<String> sinter(String key, String ... keys) throws WrongTypeException {
-        checkType(key, "set");
-        for (String k : keys) {
-            checkType(k, "set");
-        }
-        Set<String> inter = new HashSet<String>(smembers(key));
-        for (String k : keys) {
-            inter.retainAll(smembers(k));
-        }
+    }
+
+    @Override public synchronized Set<String> sinter(String key, String ... keys) throws WrongTypeException {
+        Set<String> inter = new HashSet<String>();
+        SetAlgebra.intersect(sets(key, keys), inter);
         return inter;
     }
 
     @Override public synchronized Long sinterstore(String destination, String key, String ... keys) throws WrongTypeException {
-        Set<String> inter = sinter(key, keys);
-        if (exists(destination)) {
-            del(destination);
-        }
-        for (String i : inter) {
-            sadd(destination, i);
-        }
+        List<String> inter = new ArrayList<String>();
+        SetAlgebra.intersect(sets(key, keys), inter);
+        setCache.store(destination, inter);
         keyModified(destination);
         return (long)inter.size();
     }
 
     @Override public synchronized Boolean sismember(String key, String member) throws WrongTypeException {
-        checkType(key, "set");
-        if (!setCache.exists(key)) {
+        Set<String> set = (Set<String>)lookup(key, "set");
+        if (set == null) {
             return false;
         }
-        return setCache.get(key).contains(member);
+        return set.contains(member);
     }
 
     @Override public synchronized Set<String> smembers(String key) throws WrongTypeException {
         checkType(key, "set");
-        if (!exists(key)) {
-            return Collections.unmodifiableSet(new HashSet<String>());
+        Set<String> set = setCache.snapshot(key);
+        if (set == null) {
+            return Collections.<String>emptySet();
         }
-        return Collections.unmodifiableSet(setCache.get(key));
+        return set;
     }
 
     @Override public synchronized Boolean smove(String source, String dest, String member) throws WrongTypeException {
@@ -1025,32 +1320,67 @@ public final class RedisMock extends AbstractRedisMock {
         return member;
     }
 
+    @Override public synchronized Set<String> spop(String key, long count) throws WrongTypeException, NotIntegerException {
+        if (count < 0L) {
+            throw new NotIntegerException();
+        }
+        Set<String> set = (Set<String>)lookup(key, "set");
+        Set<String> popped = new HashSet<String>();
+        if (set == null || count == 0L) {
+            return popped;
+        }
+        if (count >= set.size()) {
+            popped.addAll(set);
+            del(key);
+            return popped;
+        }
+        for (long idx = 0L; idx < count; ++idx) {
+            String member = setCache.random(key, random);
+            setCache.removeValue(key, member);
+            popped.add(member);
+        }
+        keyModified(key);
+        return popped;
+    }
+
     @Override public synchronized String srandmember(String key) throws WrongTypeException {
         checkType(key, "set");
-        if (exists(key)) {
-            for (String member : setCache.get(key)) {
-                return member;
-            }
-        }
-        return null;
+        return setCache.random(key, random);
     }
 
     @Override public synchronized List<String> srandmember(String key, long count) throws WrongTypeException {
-        boolean negative = (count < 0);
-        count = Math.abs(count);
-        List<String> lst = new ArrayList<String>((int)count);
-        while (lst.size() < (int)count) {
-            for (String member : setCache.get(key)) {
-                lst.add(member);
-                if (lst.size() == (int)count) {
-                    break;
-                }
+        Set<String> set = (Set<String>)lookup(key, "set");
+        List<String> lst = new ArrayList<String>();
+        if (set == null || count == 0L) {
+            return lst;
+        }
+        if (count < 0L) {
+            // Members may repeat, so every pick is on its own.
+            for (long idx = 0L; idx > count; --idx) {
+                lst.add(setCache.random(key, random));
             }
-            if (!negative) {
-                break;
+            return lst;
+        }
+        if (count >= set.size()) {
+            lst.addAll(set);
+            return lst;
+        }
+        if (count * 3L <= set.size()) {
+            // Few members are wanted, so a pick is rarely a repeat.
+            Set<String> picked = new HashSet<String>();
+            while (picked.size() < count) {
+                picked.add(setCache.random(key, random));
             }
+            lst.addAll(picked);
+            return lst;
         }
-        return lst;
+        // Most of the set is wanted: shuffle the first count positions
+        // of a copy.
+        lst.addAll(set);
+        for (int idx = 0; idx < count; ++idx) {
+            Collections.swap(lst, idx, idx + random.nextInt(lst.size() - idx));
+        }
+        return new ArrayList<String>(lst.subList(0, (int)count));
     }
 
     @Override public synchronized Long srem(String key, String member, String ... members) throws WrongTypeException {
@@ -1074,62 +1404,32 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Set<String> sunion(String key, String ... keys) throws WrongTypeException {
-        checkType(key, "set");
-        for (String k : keys) {
-            checkType(k, "set");
-        }
-        Set<String> union = new HashSet<String>(smembers(key));
-        for (String k : keys) {
-            union.addAll(smembers(k));
-        }
+        Set<String> union = new HashSet<String>();
+        SetAlgebra.union(sets(key, keys), union);
         return union;
     }
 
     @Override public synchronized Long sunionstore(String destination, String key, String ... keys) throws WrongTypeException {
-        Set<String> union = sunion(key, keys);
-        if (exists(destination)) {
-            del(destination);
-        }
-        for (String u : union) {
-            sadd(destination, u);
-        }
+        Set<String> union = new DictSet<String>();
+        SetAlgebra.union(sets(key, keys), union);
+        setCache.store(destination, union);
         keyModified(destination);
         return (long)union.size();
     }
 
-    @Override public synchronized ScanResult<Set<String>> sscan(String key, long cursor, String ... options) throws WrongTypeException {
+    @Override public synchronized ScanResult<Set<String>> sscan(final String key, final long cursor, final String ... options) throws WrongTypeException {
         checkType(key, "set");
-        Long count = null;
-        Pattern match = null;
-        for (int idx = 0; idx < options.length; ++idx) {
-            if (options[idx].equals("count")) {
-                count = Long.valueOf(options[idx + 1]);
-            }
-            else if (options[idx].equals("match")) {
-                match = Pattern.compile(GlobToRegEx.convertGlobToRegEx(options[idx + 1]));
-            }
-        }
-        if (count == null) {
-            count = 10L;
-        }
-        Set<String> scanned = new HashSet<String>();
-        Set<String> members = smembers(key);
-        Long idx = 0L;
-        for (String member : members) {
-            idx += 1;
-            if (idx > cursor) {
-                if (match == null || match.matcher(member).matches()) {
-                    scanned.add(member);
+        final Set<String> scanned = new HashSet<String>();
+        long next = scan(cursor, options, new Scanner<Object>() {
+                @Override public long scan(long cursor, Dict.Visitor<String, Object> visitor) {
+                    return setCache.scan(key, cursor, visitor);
                 }
-                if ((long)scanned.size() >= count) {
-                    break;
+            }, new Dict.Visitor<String, Object>() {
+                @Override public void visit(String member, Object value) {
+                    scanned.add(member);
                 }
-            }
-        }
-        if (idx >= scard(key)) {
-            idx = 0L;
-        }
-        return new ScanResult<Set<String>>(idx, scanned);
+            });
+        return new ScanResult<Set<String>>(next, scanned);
     }
 
     /* IRedisHash implementations */
@@ -1155,27 +1455,28 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Boolean hexists(String key, String field) throws WrongTypeException {
-        checkType(key, "hash");
-        if (!exists(key)) {
+        Map<String, String> hash = (Map<String, String>)lookup(key, "hash");
+        if (hash == null) {
             return false;
         }
-        return hashCache.get(key).containsKey(field);
+        return hash.containsKey(field);
     }
 
     @Override public synchronized String hget(String key, String field) throws WrongTypeException {
-        checkType(key, "hash");
-        if (!exists(key)) {
+        Map<String, String> hash = (Map<String, String>)lookup(key, "hash");
+        if (hash == null) {
             return null;
         }
-        return hashCache.get(key).get(field);
+        return hash.get(field);
     }
 
     @Override public synchronized Map<String, String> hgetall(String key) throws WrongTypeException {
         checkType(key, "hash");
-        if (!exists(key)) {
-            return new HashMap<String, String>();
+        Map<String, String> hash = hashCache.snapshot(key);
+        if (hash == null) {
+            return Collections.<String, String>emptyMap();
         }
-        return Collections.unmodifiableMap(hashCache.get(key));
+        return hash;
     }
 
     @Override public synchronized Long hincrby(String key, String field, long increment) throws WrongTypeException, NotIntegerHashException {
@@ -1216,18 +1517,19 @@ public final class RedisMock extends AbstractRedisMock {
 
     @Override public synchronized Set<String> hkeys(String key) throws WrongTypeException {
         checkType(key, "hash");
-        if (!exists(key)) {
-            return new HashSet<String>();
+        Map<String, String> hash = hashCache.snapshot(key);
+        if (hash == null) {
+            return Collections.<String>emptySet();
         }
-        return hashCache.get(key).keySet();
+        return hash.keySet();
     }
 
     @Override public synchronized Long hlen(String key) throws WrongTypeException {
-        checkType(key, "hash");
-        if (!exists(key)) {
+        Map<String, String> hash = (Map<String, String>)lookup(key, "hash");
+        if (hash == null) {
             return 0L;
         }
-        return (long)hashCache.get(key).size();
+        return (long)hash.size();
     }
 
     @Override public synchronized List<String> hmget(String key, String field, String ... fields) throws WrongTypeException {
@@ -1292,42 +1594,28 @@ public final class RedisMock extends AbstractRedisMock {
 
     @Override public synchronized List<String> hvals(String key) throws WrongTypeException {
         checkType(key, "hash");
-        if (!exists(key)) {
-            return new ArrayList<String>();
+        Map<String, String> hash = hashCache.snapshot(key);
+        if (hash == null) {
+            return Collections.<String>emptyList();
         }
-        return Collections.unmodifiableList(new ArrayList<String>(hashCache.get(key).values()));
+        // A list has to be indexed, so the values are copied, but from
+        // the snapshot rather than the live hash.
+        return Collections.unmodifiableList(new ArrayList<String>(hash.values()));
     }
 
-    @Override public synchronized ScanResult<Map<String, String>> hscan(String key, long cursor, String ... options) throws WrongTypeException {
+    @Override public synchronized ScanResult<Map<String, String>> hscan(final String key, final long cursor, final String ... options) throws WrongTypeException {
         checkType(key, "hash");
-        Long count = null;
-        Pattern match = null;
-        for (int idx = 0; idx < options.length; ++idx) {
-            if (options[idx].equals("count")) {
-                count = Long.valueOf(options[idx + 1]);
-            }
-            else if (options[idx].equals("match")) {
-                match = Pattern.compile(GlobToRegEx.convertGlobToRegEx(options[idx + 1]));
-            }
-        }
-        if (count == null) {
-            count = 10L;
-        }
-        Map<String, String> scanned = new HashMap<String, String>();
-        Map<String, String> all = hgetall(key);
-        Long idx = 0L;
-        for (String k : all.keySet()) {
-            idx += 1;
-            if (idx > cursor) {
-                if (match == null || match.matcher(k).matches()) {
-                    scanned.put(k, all.get(k));
+        final Map<String, String> scanned = new HashMap<String, String>();
+        long next = scan(cursor, options, new Scanner<String>() {
+                @Override public long scan(long cursor, Dict.Visitor<String, String> visitor) {
+                    return hashCache.scan(key, cursor, visitor);
                 }
-                if ((long)scanned.size() >= count) {
-                    break;
+            }, new Dict.Visitor<String, String>() {
+                @Override public void visit(String field, String value) {
+                    scanned.put(field, value);
                 }
-            }
-        }
-        return new ScanResult<Map<String, String>>(idx, scanned);
+            });
+        return new ScanResult<Map<String, String>>(next, scanned);
     }
 
     /* IRedisTransaction commands */
@@ -1344,20 +1632,32 @@ public final class RedisMock extends AbstractRedisMock {
         return new RedisMockMulti(this);
     }
 
+    @Override public IRedisClient pipelined() {
+        return new RedisMockPipeline(this);
+    }
+
+    @Override public List<Object> sync() {
+        return new ArrayList<Object>();
+    }
+
     @Override public synchronized String unwatch() {
         return unwatch(this.hashCode());
     }
 
-    public synchronized String unwatch(Integer hashCode) {
-        List<String> keysToRemove = new LinkedList<String>();
-        for (String key : watchers.keySet()) {
-            watchers.get(key).watchers.remove(hashCode);
-            if (watchers.get(key).watchers.size() == 0) {
-                keysToRemove.add(key);
-            }
+    @Override public synchronized String unwatch(Integer hashCode) {
+        Map<String, Long> keys = watches.remove(hashCode);
+        if (keys == null) {
+            return "OK";
         }
-        for (String key : keysToRemove) {
-            watchers.remove(key);
+        for (String key : keys.keySet()) {
+            int count = watched.get(key) - 1;
+            if (count == 0) {
+                watched.remove(key);
+                removals.remove(key);
+            }
+            else {
+                watched.put(key, count);
+            }
         }
         return "OK";
     }
@@ -1366,62 +1666,37 @@ public final class RedisMock extends AbstractRedisMock {
         return watch(key, this.hashCode());
     }
 
-    public synchronized String watch(String key, Integer hashCode) {
-        if (!watchers.containsKey(key)) {
-            watchers.put(key, new WatchKey());
+    @Override public synchronized String watch(String key, Integer hashCode) {
+        Map<String, Long> keys = watches.get(hashCode);
+        if (keys == null) {
+            keys = new HashMap<String, Long>();
+            watches.put(hashCode, keys);
+        }
+        // Watching a key again keeps the version it was first watched at.
+        if (!keys.containsKey(key)) {
+            keys.put(key, version(key));
+            Integer count = watched.get(key);
+            watched.put(key, count == null ? 1 : count + 1);
         }
-        watchers.get(key).watchers.add(hashCode);
         return "OK";
     }
 
-    @Override public synchronized boolean modified(Integer hashCode, String command, List<Object> args) {
-        List<String> keys = new LinkedList<String>();
-        if (args.get(0) instanceof String[]) {
-            if (command.equals("mset") || command.equals("msetnx")) {
-                String[] keysvalues = (String[])args.get(0);
-                for (int idx = 0; idx < keysvalues.length; ++idx) {
-                    if (idx % 2 == 0) {
-                        keys.add(keysvalues[idx]);
-                    }
-                }
-            }
-            else {
-                for (String key : (String[])args.get(0)) {
-                    keys.add((String)key);
-                }
-            }
-        }
-        else {
-            if (command.equals("bitop")) {
-                keys.add((String)args.get(1));
-            }
-            else {
-                keys.add((String)args.get(0));
-            }
-        }
-        if (command.equals("rpoplpush")) {
-            keys.add((String)args.get(1));
-        }
-        if (command.equals("sdiff") || command.equals("sinter") || command.equals("sunion")) {
-            for (String k : (String[])args.get(1)) {
-                keys.add(k);
-            }
-        }
-        if (command.equals("sdiffstore") || command.equals("sinterstore") || command.equals("sunionstore")) {
-            keys.add((String)args.get(1));
-            for (String k : (String[])args.get(2)) {
-                keys.add(k);
-            }
+    @Override public <T> T atomically(Block<T> block) throws Exception {
+        synchronized (this) {
+            return block.run();
         }
-        if (command.equals("smove")) {
-            keys.add((String)args.get(1));
+    }
+
+    @Override public synchronized boolean modified(Integer hashCode) {
+        Map<String, Long> keys = watches.get(hashCode);
+        if (keys == null) {
+            return false;
         }
-        for (String key : keys) {
-            if (watchers.containsKey(key) && watchers.get(key).modified && watchers.get(key).watchers.contains(hashCode)) {
+        for (Map.Entry<String, Long> key : keys.entrySet()) {
+            if (key.getValue() != version(key.getKey())) {
                 return true;
             }
         }
-        // TODO: Multi-key commands.
         return false;
     }
 
@@ -1443,6 +1718,7 @@ public final class RedisMock extends AbstractRedisMock {
             }
             zsetCache.set(key, sms.member, sms.score);
         }
+        keyModified(key);
         return count;
     }
 
@@ -1473,25 +1749,20 @@ public final class RedisMock extends AbstractRedisMock {
 
     @Override public synchronized Long zcard(final String key) throws WrongTypeException {
         checkType(key, "zset");
-        if (!zsetCache.exists(key)) {
+        Set<String> members = zsetCache.get(key);
+        if (members == null) {
             return 0L;
         }
-        return (long)zsetCache.get(key).size();
+        return (long)members.size();
     }
 
     @Override public synchronized Long zcount(final String key, final double min, final double max) throws WrongTypeException {
         checkType(key, "zset");
-        if (!zsetCache.exists(key)) {
+        long first = zsetCache.firstInRange(key, min, false, max, false);
+        if (first == -1L) {
             return 0L;
         }
-        Long count = 0L;
-        for (String member : zsetCache.get(key)) {
-            Double score = zsetCache.getScore(key, member);
-            if (min <= score && score <= max) {
-                ++count;
-            }
-        }
-        return count;
+        return zsetCache.lastInRange(key, min, false, max, false) - first + 1L;
     }
 
     @Override public synchronized String zincrby(final String key, final double increment, final String member) throws WrongTypeException {
@@ -1502,88 +1773,12 @@ public final class RedisMock extends AbstractRedisMock {
         Double score = zsetCache.getScore(key, member);
         Double newScore = score + increment;
         zsetCache.set(key, member, newScore);
+        keyModified(key);
         return String.valueOf(newScore);
     }
 
     @Override public synchronized Long zinterstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException {
-        if (exists(destination)) {
-            del(destination);
-        }
-        List<String> keys = new ArrayList<String>(numkeys);
-        Map<String, Double> weights = new HashMap<String, Double>();
-        String aggregate = "sum";
-        if (options.length < numkeys) {
-            throw new SyntaxErrorException();
-        }
-        int i;
-        for (i = 0; i < numkeys; ++i) {
-            checkType(options[i], "zset");
-            keys.add(options[i]);
-        }
-        i = numkeys;
-        while (i < options.length) {
-            if (options[i] == null) {
-                continue;
-            }
-            if ("weights".equals(options[i].toLowerCase())) {
-                if (i + 1 >= options.length) {
-                    throw new SyntaxErrorException();
-                }
-                int ki = 0;
-                ++i;
-                while (i < options.length && !("aggregate".equals(options[i]))) {
-                    weights.put(keys.get(ki), Double.valueOf(options[i]));
-                    ++ki;
-                    ++i;
-                }
-            }
-            else if ("aggregate".equals(options[i].toLowerCase())) {
-                if (i + 1 >= options.length) {
-                    throw new SyntaxErrorException();
-                }
-                aggregate = options[i + 1];
-                i += 2;
-            }
-            else {
-                throw new SyntaxErrorException();
-            }
-        }
-        String key = keys.get(0);
-        Set<ZsetPair> range = zrange(key, 0, -1, "withscores");
-        for (ZsetPair pair : range) {
-            if (weights.containsKey(key)) {
-                pair.score *= weights.get(key);
-            }
-        }
-        for (String k : keys.subList(1, numkeys)) {
-            Set<ZsetPair> inter = new HashSet<ZsetPair>();
-            for (ZsetPair pair : range) {
-                if (!zsetCache.existsValue(k, pair.member)) {
-                    continue;
-                }
-                Double score = zsetCache.getScore(k, pair.member);
-                if (weights.containsKey(k)) {
-                    score *= weights.get(k);
-                }
-                if ("min".equals(aggregate)) {
-                    pair.score = Math.min(pair.score, score);
-                }
-                else if ("max".equals(aggregate)) {
-                    pair.score = Math.max(pair.score, score);
-                }
-                else { // == sum
-                    pair.score += score;
-                }
-                inter.add(pair);
-            }
-            range = inter;
-        }
-        Long count = 0L;
-        for (ZsetPair pair : range) {
-            zadd(destination, pair);
-            ++count;
-        }
-        return count;
+        return zstore(destination, numkeys, options, false);
     }
 
     @Override public synchronized Long zlexcount(final String key, String min, String max) throws WrongTypeException, NotValidStringRangeItemException {
@@ -1593,35 +1788,31 @@ public final class RedisMock extends AbstractRedisMock {
     @Override public synchronized Set<ZsetPair> zrange(final String key, long start, long stop, final String ... options) throws WrongTypeException {
         checkType(key, "zset");
         boolean withscores = false;
-        long card = zcard(key);
+        Set<ZsetPair> range = new TreeSet<ZsetPair>(ZsetPair.comparator());
+        long card = zsetCache.getLength(key);
+        if (card == 0L) {
+            return range;
+        }
         if (start < 0) {
             start = Math.max(card + start, 0);
         }
         if (stop < 0) {
             stop = card + stop;
         }
-        Set<ZsetPair> range = new TreeSet<ZsetPair>(ZsetPair.comparator());
-        if (!zsetCache.exists(key)) {
-            return range;
+        if (stop >= card) {
+            stop = card - 1;
         }
         if (options.length > 0 && options[0] != null && "withscores".equals(options[0].toLowerCase())) {
             withscores = true;
         }
-        int count = 0;
-        for (String member : zsetCache.get(key)) {
-            if (start > count) {
-                ++count;
-                continue;
-            }
-            if (stop < count) {
-                break;
-            }
-            ZsetPair pair = new ZsetPair(member);
+        // Seek straight to the start of the range.
+        RedisSortedSetCache.Cursor cursor = zsetCache.getRange(key, start);
+        for (long idx = start; idx <= stop && cursor.next(); ++idx) {
+            ZsetPair pair = new ZsetPair(cursor.member);
             if (withscores) {
-                pair.score = zsetCache.getScore(key, member);
+                pair.score = cursor.score;
             }
             range.add(pair);
-            ++count;
         }
         return range;
     }
@@ -1635,36 +1826,24 @@ public final class RedisMock extends AbstractRedisMock {
             throw new NotValidStringRangeItemException();
         }
         Set<ZsetPair> range = new TreeSet<ZsetPair>(ZsetPair.comparator());
-        if (!zsetCache.exists(key)) {
-            return range;
-        }
-        String minStr = min.substring(1);
-        String maxStr = max.substring(1);
-        boolean minInclusive = min.charAt(0) == '[';
-        boolean maxInclusive = max.charAt(0) == '[';
-        boolean maxAll = max.charAt(0) == '+';
         if (min.charAt(0) == '+') {
             return range;
         }
         if (max.charAt(0) == '-') {
             return range;
         }
-        Set<String> members = zsetCache.get(key);
-        for (String member : members) {
-            if (member == null) {
-                continue;
-            }
-            int minc = member.compareTo(minStr);
-            int maxc = member.compareTo(maxStr);
-            if (minc > 0 && (maxc < 0 || maxAll)) {
-                range.add(new ZsetPair(member));
-            }
-            else if (minc == 0 && minInclusive) {
-                range.add(new ZsetPair(member));
-            }
-            else if (maxc == 0 && maxInclusive) {
-                range.add(new ZsetPair(member));
-            }
+        // A null end of the range is unbounded.
+        String minStr = min.charAt(0) == '-' ? null : min.substring(1);
+        String maxStr = max.charAt(0) == '+' ? null : max.substring(1);
+        boolean minExclusive = min.charAt(0) == '(';
+        boolean maxExclusive = max.charAt(0) == '(';
+        long first = zsetCache.firstInLexRange(key, minStr, minExclusive, maxStr, maxExclusive);
+        if (first == -1L) {
+            return range;
+        }
+        RedisSortedSetCache.Cursor cursor = zsetCache.getRange(key, first);
+        while (cursor.next() && ZsetSkipList.inLexRange(cursor.member, minStr, minExclusive, maxStr, maxExclusive)) {
+            range.add(new ZsetPair(cursor.member));
         }
         return range;
     }
@@ -1677,47 +1856,21 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Set<ZsetPair> zrangebyscore(final String key, String min, String max, String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException {
-        Double minf = null, maxf = null;
-        boolean minInclusive = true, maxInclusive = true;
+        boolean minExclusive = false, maxExclusive = false;
         checkType(key, "zset");
-        if ("-inf".equals(min)) {
-            minf = Double.MIN_VALUE;
-        }
-        if ("+inf".equals(min)) {
-            minf = Double.MAX_VALUE;
-        }
-        if ("-inf".equals(max)) {
-            maxf = Double.MIN_VALUE;
-        }
-        if ("+inf".equals(max)) {
-            maxf = Double.MAX_VALUE;
-        }
         if (min.charAt(0) == '(') {
-            minInclusive = false;
+            minExclusive = true;
             min = min.substring(1);
         }
         if (max.charAt(0) == '(') {
-            maxInclusive = false;
+            maxExclusive = true;
             max = max.substring(1);
         }
-        if (minf == null) {
-            try {
-                minf = Double.parseDouble(min);
-            }
-            catch (NumberFormatException e) {
-                throw new NotFloatMinMaxException();
-            }
-        }
-        if (maxf == null) {
-            try {
-                maxf = Double.parseDouble(max);
-            }
-            catch (NumberFormatException e) {
-                throw new NotFloatMinMaxException();
-            }
-        }
+        double minf = parseScoreBound(min);
+        double maxf = parseScoreBound(max);
         boolean withscores = false;
-        long limitOffset = -1, limitCount = -1;
+        boolean limit = false;
+        long limitOffset = 0, limitCount = -1;
         for (int idx = 0; idx < options.length; ++idx) {
             String option = options[idx];
             if (option == null) {
@@ -1737,66 +1890,61 @@ public final class RedisMock extends AbstractRedisMock {
                 catch (NumberFormatException e) {
                     throw new NotIntegerException();
                 }
+                limit = true;
             }
         }
         Set<ZsetPair> range = new TreeSet<ZsetPair>(ZsetPair.comparator());
-        if (!zsetCache.exists(key)) {
+        if (limit && limitOffset < 0) {
             return range;
         }
-        Set<String> members = zsetCache.get(key);
-        long offset = 0;
-        for (String member : members) {
-            if (member == null) {
-                continue;
+        // Seek straight to the start of the range, and from there
+        // straight to the offset, by rank.
+        long first = zsetCache.firstInRange(key, minf, minExclusive, maxf, maxExclusive);
+        if (first == -1L) {
+            return range;
+        }
+        RedisSortedSetCache.Cursor cursor = zsetCache.getRange(key, first + limitOffset);
+        while (cursor.next() && (maxExclusive ? cursor.score < maxf : cursor.score <= maxf)) {
+            if (limitCount >= 0 && range.size() >= limitCount) {
+                break;
             }
-            Double score = zsetCache.getScore(key, member);
-            if (((minInclusive && minf <= score) || (!minInclusive && minf < score)) && ((maxInclusive && score <= maxf) || (!maxInclusive && score < maxf))) {
-                if (limitOffset != -1 && offset >= limitOffset) {
-                    if (limitCount != -1) {
-                        if (range.size() < limitCount) {
-                            if (withscores) {
-                                range.add(new ZsetPair(member, score));
-                            }
-                            else {
-                                range.add(new ZsetPair(member));
-                            }
-                        }
-                        else {
-                            break;
-                        }
-                    }
-                }
-                else if (limitOffset == -1) {
-                    if (withscores) {
-                        range.add(new ZsetPair(member, score));
-                    }
-                    else {
-                        range.add(new ZsetPair(member));
-                    }
-                }
+            if (withscores) {
+                range.add(new ZsetPair(cursor.member, cursor.score));
+            }
+            else {
+                range.add(new ZsetPair(cursor.member));
             }
-            ++offset;
         }
         return range;
     }
 
-    @Override public synchronized Long zrank(final String key, final String member) throws WrongTypeException {
-        checkType(key, "zset");
-        if (!zsetCache.exists(key)) {
-            return null;
+    /**
+     * Parse one end of a score range.
+     *
+     * @param bound The end of the range, without a leading (.
+     *
+     * @return The score.
+     *
+     * @throws NotFloatMinMaxException If the bound is not a number.
+     */
+    private static double parseScoreBound(final String bound) throws NotFloatMinMaxException {
+        if ("-inf".equals(bound)) {
+            return Double.NEGATIVE_INFINITY;
         }
-        if (zsetCache.getScore(key, member) == null) {
-            return null;
+        if ("+inf".equals(bound) || "inf".equals(bound)) {
+            return Double.POSITIVE_INFINITY;
         }
-        Set<String> members = zsetCache.get(key);
-        long rank = 0L;
-        for (String m : members) {
-            if (m.equals(member)) {
-                break;
-            }
-            ++rank;
+        try {
+            return Double.parseDouble(bound);
+        }
+        catch (NumberFormatException e) {
+            throw new NotFloatMinMaxException();
         }
-        return rank;
+    }
+
+    @Override public synchronized Long zrank(final String key, final String member) throws WrongTypeException {
+        checkType(key, "zset");
+        return zsetCache.getRank(key, member);
     }
 
     @Override public synchronized Long zrem(final String key, final String member, final String ... members) throws WrongTypeException {
@@ -1809,6 +1957,9 @@ public final class RedisMock extends AbstractRedisMock {
         if (zcard(key) == 0L) {
             del(key);
         }
+        else if (count > 0L) {
+            keyModified(key);
+        }
         return count;
     }
 
@@ -1822,24 +1973,23 @@ public final class RedisMock extends AbstractRedisMock {
 
     @Override public synchronized Long zremrangebyrank(final String key, long min, long max) throws WrongTypeException {
         checkType(key, "zset");
-        Set<String> members = zsetCache.get(key);
-        Set<String> toRem = new HashSet<String>();
-        long card = zcard(key);
+        long card = zsetCache.getLength(key);
+        if (card == 0L) {
+            return 0L;
+        }
         if (min < 0) {
-            min = card + min;
+            min = Math.max(card + min, 0);
         }
         if (max < 0) {
             max = card + max;
         }
-        long count = 0L;
-        for (String member : members) {
-            if (min <= count && count <= max) {
-                toRem.add(member);
-            }
-            if (count > max) {
-                break;
-            }
-            ++count;
+        if (max >= card) {
+            max = card - 1;
+        }
+        List<String> toRem = new ArrayList<String>();
+        RedisSortedSetCache.Cursor cursor = zsetCache.getRange(key, min);
+        for (long idx = min; idx <= max && cursor.next(); ++idx) {
+            toRem.add(cursor.member);
         }
         for (String rem : toRem) {
             zrem(key, rem);
@@ -1895,123 +2045,85 @@ public final class RedisMock extends AbstractRedisMock {
     }
 
     @Override public synchronized Long zunionstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException {
-        if (exists(destination)) {
-            del(destination);
-        }
-        List<String> keys = new ArrayList<String>(numkeys);
-        Map<String, Double> weights = new HashMap<String, Double>();
-        String aggregate = "sum";
-        if (options.length < numkeys) {
+        return zstore(destination, numkeys, options, true);
+    }
+
+    /**
+     * Parse the arguments of ZUNIONSTORE or ZINTERSTORE, compute the
+     * union or intersection with a {@link ZsetAlgebra}, and store it at
+     * destination. Fewer weights than keys leave the rest at 1.
+     */
+    private Long zstore(final String destination, final int numkeys, final String[] options, final boolean union) throws WrongTypeException, SyntaxErrorException {
+        if (numkeys < 1 || options.length < numkeys) {
             throw new SyntaxErrorException();
         }
-        int i;
-        for (i = 0; i < numkeys; ++i) {
+        List<ZsetSkipList> lists = new ArrayList<ZsetSkipList>(numkeys);
+        for (int i = 0; i < numkeys; ++i) {
             checkType(options[i], "zset");
-            keys.add(options[i]);
+            lists.add(zsetCache.getSkipList(options[i]));
         }
-        i = numkeys;
+        double[] weights = new double[numkeys];
+        Arrays.fill(weights, 1.0);
+        int aggregate = ZsetAlgebra.SUM;
+        int i = numkeys;
         while (i < options.length) {
-            if (options[i] == null) {
-                continue;
-            }
-            if ("weights".equals(options[i].toLowerCase())) {
+            if ("weights".equalsIgnoreCase(options[i])) {
                 if (i + 1 >= options.length) {
                     throw new SyntaxErrorException();
                 }
-                int ki = 0;
                 ++i;
-                while (i < options.length && !("aggregate".equals(options[i]))) {
-                    weights.put(keys.get(ki), Double.valueOf(options[i]));
-                    ++ki;
-                    ++i;
+                for (int ki = 0; i < options.length && !"aggregate".equalsIgnoreCase(options[i]); ++ki, ++i) {
+                    if (ki >= numkeys) {
+                        throw new SyntaxErrorException();
+                    }
+                    try {
+                        weights[ki] = Double.parseDouble(options[i]);
+                    }
+                    catch (NumberFormatException e) {
+                        throw new SyntaxErrorException();
+                    }
                 }
             }
-            else if ("aggregate".equals(options[i].toLowerCase())) {
+            else if ("aggregate".equalsIgnoreCase(options[i])) {
                 if (i + 1 >= options.length) {
                     throw new SyntaxErrorException();
                 }
-                aggregate = options[i + 1];
+                aggregate = ZsetAlgebra.aggregate(options[i + 1]);
                 i += 2;
             }
             else {
                 throw new SyntaxErrorException();
             }
         }
-        String key = keys.get(0);
-        Set<ZsetPair> range = zrange(key, 0, -1, "withscores");
-        Map<String, Double> rangeMap = new HashMap<String, Double>();
-        for (ZsetPair pair : range) {
-            if (weights.containsKey(key)) {
-                pair.score *= weights.get(key);
-            }
-            rangeMap.put(pair.member, pair.score);
+        ZsetSkipList result;
+        if (union) {
+            result = ZsetAlgebra.union(lists, weights, aggregate);
         }
-        for (String k : keys.subList(1, numkeys)) {
-            for (String m : zsetCache.get(k)) {
-                ZsetPair pair = new ZsetPair(m, zsetCache.getScore(k, m));
-                Double score = rangeMap.get(m);
-                if (weights.containsKey(k)) {
-                    pair.score *= weights.get(k);
-                }
-                if ("min".equals(aggregate)) {
-                    if (score != null) {
-                        pair.score = Math.min(pair.score, score);
-                    }
-                }
-                else if ("max".equals(aggregate)) {
-                    if (score != null) {
-                        pair.score = Math.max(pair.score, score);
-                    }
-                }
-                else { // == sum
-                    if (score != null) {
-                        pair.score += score;
-                    }
-                }
-                rangeMap.put(pair.member, pair.score);
+        else {
+            List<Map<String, Double>> scores = new ArrayList<Map<String, Double>>(numkeys);
+            for (int k = 0; k < numkeys; ++k) {
+                scores.add(zsetCache.getScores(options[k]));
             }
+            result = ZsetAlgebra.intersect(lists, scores, weights, aggregate);
         }
-        Long count = 0L;
-        for (String member : rangeMap.keySet()) {
-            zadd(destination, new ZsetPair(member, rangeMap.get(member)));
-            ++count;
-        }
-        return count;
+        zsetCache.store(destination, result);
+        keyModified(destination);
+        return result.length();
     }
 
-    @Override public synchronized ScanResult<Set<ZsetPair>> zscan(String key, long cursor, String ... options) throws WrongTypeException {
+    @Override public synchronized ScanResult<Set<ZsetPair>> zscan(final String key, final long cursor, final String ... options) throws WrongTypeException {
         checkType(key, "zset");
-        Long count = null;
-        Pattern match = null;
-        for (int idx = 0; idx < options.length; ++idx) {
-            if (options[idx].equals("count")) {
-                count = Long.valueOf(options[idx + 1]);
-            }
-            else if (options[idx].equals("match")) {
-                match = Pattern.compile(GlobToRegEx.convertGlobToRegEx(options[idx + 1]));
-            }
-        }
-        if (count == null) {
-            count = 10L;
-        }
-        Set<ZsetPair> scanned = new TreeSet<ZsetPair>(ZsetPair.comparator());
-        Set<ZsetPair> members = zrange(key, 0, -1, "withscores");
-        Long idx = 0L;
-        for (ZsetPair pair : members) {
-            idx += 1;
-            if (idx > cursor) {
-                if (match == null || match.matcher(pair.member).matches()) {
-                    scanned.add(pair);
+        final Set<ZsetPair> scanned = new TreeSet<ZsetPair>(ZsetPair.comparator());
+        long next = scan(cursor, options, new Scanner<Double>() {
+                @Override public long scan(long cursor, Dict.Visitor<String, Double> visitor) {
+                    return zsetCache.scan(key, cursor, visitor);
                 }
-                if ((long)scanned.size() >= count) {
-                    break;
+            }, new Dict.Visitor<String, Double>() {
+                @Override public void visit(String member, Double score) {
+                    scanned.add(new ZsetPair(member, score));
                 }
-            }
-        }
-        if (idx >= zcard(key)) {
-            idx = 0L;
-        }
-        return new ScanResult<Set<ZsetPair>>(idx, scanned);
+            });
+        return new ScanResult<Set<ZsetPair>>(next, scanned);
     }
 
 }
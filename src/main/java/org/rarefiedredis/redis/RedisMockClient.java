@@ -7,9 +7,9 @@ import java.util.Map;
 
 public final class RedisMockClient extends AbstractRedisMock {
 
-    private RedisMock redisMock;
+    private AbstractRedisMock redisMock;
 
-    public RedisMockClient(RedisMock redisMock) {
+    public RedisMockClient(AbstractRedisMock redisMock) {
         this.redisMock = redisMock;
     }
 
@@ -17,343 +17,501 @@ public final class RedisMockClient extends AbstractRedisMock {
         return new RedisMockClient(redisMock);
     }
 
-    @Override public boolean modified(Integer hashCode, String command, List<Object> args) {
-        return redisMock.modified(hashCode, command, args);
+    @Override public boolean modified(Integer hashCode) {
+        return redisMock.modified(hashCode);
+    }
+
+    @Override public String watch(String key, Integer hashCode) {
+        return redisMock.watch(key, hashCode);
+    }
+
+    @Override public String unwatch(Integer hashCode) {
+        return redisMock.unwatch(hashCode);
+    }
+
+    @Override public <T> T atomically(Block<T> block) throws Exception {
+        return redisMock.atomically(block);
     }
 
     /* IRedisKeys implementations */
 
-    @Override public Long del(final String ... keys) {
+    @Override public Long del(final String ... keys) throws NotImplementedException {
         return redisMock.del(keys);
     }
 
-    @Override public Boolean exists(final String key) {
+    @Override public Boolean exists(final String key) throws NotImplementedException {
         return redisMock.exists(key);
     }
 
-    @Override public Boolean expire(final String key, final int seconds) {
+    @Override public Boolean expire(final String key, final int seconds) throws NotImplementedException {
         return redisMock.expire(key, seconds);
     }
 
-    @Override public Boolean expireat(final String key, final long timestamp) {
+    @Override public Boolean expireat(final String key, final long timestamp) throws NotImplementedException {
         return redisMock.expireat(key, timestamp);
     }
 
-    @Override public Boolean persist(final String key) {
+    @Override public Boolean persist(final String key) throws NotImplementedException {
         return redisMock.persist(key);
     }
 
-    @Override public Boolean pexpire(final String key, final long milliseconds) {
+    @Override public Boolean pexpire(final String key, final long milliseconds) throws NotImplementedException {
         return redisMock.pexpire(key, milliseconds);
     }
 
-    @Override public Boolean pexpireat(final String key, final long timestamp) {
+    @Override public Boolean pexpireat(final String key, final long timestamp) throws NotImplementedException {
         return redisMock.pexpireat(key, timestamp);
     }
 
-    @Override public String type(final String key) {
+    @Override public String type(final String key) throws NotImplementedException {
         return redisMock.type(key);
     }
 
+    @Override public String[] keys(final String pattern) throws NotImplementedException {
+        return redisMock.keys(pattern);
+    }
+
+    @Override public ScanResult<Set<String>> scan(final long cursor, final String ... options) throws NotImplementedException {
+        return redisMock.scan(cursor, options);
+    }
+
+    @Override public Long ttl(final String key) throws NotImplementedException {
+        return redisMock.ttl(key);
+    }
+
+    @Override public Long pttl(final String key) throws NotImplementedException {
+        return redisMock.pttl(key);
+    }
+
+    @Override public String randomkey() throws NotImplementedException {
+        return redisMock.randomkey();
+    }
+
     /* IRedisString implementations */
 
-    @Override public Long append(final String key, final String value) throws WrongTypeException {
+    @Override public Long append(final String key, final String value) throws WrongTypeException, NotImplementedException {
         return redisMock.append(key, value);
     }
 
-    @Override public Long bitcount(final String key, long ... options) throws WrongTypeException {
+    @Override public Long append(final byte[] key, final byte[] value) throws WrongTypeException, NotImplementedException {
+        return redisMock.append(key, value);
+    }
+
+    @Override public Long bitcount(final String key, long ... options) throws WrongTypeException, NotImplementedException {
         return redisMock.bitcount(key, options);
     }
 
-    @Override public Long bitop(String operation, final String destkey, String ... keys) throws WrongTypeException {
+    @Override public Long bitop(String operation, final String destkey, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.bitop(operation, destkey, keys);
     }
 
-    @Override public Long bitpos(String key, long bit, long ... options) throws WrongTypeException, BitArgException {
+    @Override public Long bitpos(String key, long bit, long ... options) throws WrongTypeException, BitArgException, NotImplementedException {
         return redisMock.bitpos(key, bit, options);
     }
 
-    @Override public Long decr(String key) throws WrongTypeException, NotIntegerException {
+    @Override public Long decr(String key) throws WrongTypeException, NotIntegerException, NotImplementedException {
         return redisMock.decr(key);
     }
 
-    @Override public Long decrby(String key, long decrement) throws WrongTypeException, NotIntegerException {
+    @Override public Long decrby(String key, long decrement) throws WrongTypeException, NotIntegerException, NotImplementedException {
         return redisMock.decrby(key, decrement);
     }
 
-    @Override public String get(final String key) throws WrongTypeException {
+    @Override public String get(final String key) throws WrongTypeException, NotImplementedException {
+        return redisMock.get(key);
+    }
+
+    @Override public byte[] get(final byte[] key) throws WrongTypeException, NotImplementedException {
         return redisMock.get(key);
     }
 
-    @Override public Boolean getbit(final String key, final long offset) throws WrongTypeException {
+    @Override public Boolean getbit(final String key, final long offset) throws WrongTypeException, NotImplementedException {
         return redisMock.getbit(key, offset);
     }
 
-    @Override public String getrange(final String key, long start, long end) throws WrongTypeException {
+    @Override public String getrange(final String key, long start, long end) throws WrongTypeException, NotImplementedException {
         return redisMock.getrange(key, start, end);
     }
 
-    @Override public String getset(final String key, final String value) throws WrongTypeException {
+    @Override public byte[] getrange(final byte[] key, final long start, final long end) throws WrongTypeException, NotImplementedException {
+        return redisMock.getrange(key, start, end);
+    }
+
+    @Override public String getset(final String key, final String value) throws WrongTypeException, NotImplementedException {
+        return redisMock.getset(key, value);
+    }
+
+    @Override public byte[] getset(final byte[] key, final byte[] value) throws WrongTypeException, NotImplementedException {
         return redisMock.getset(key, value);
     }
 
-    @Override public Long incr(final String key) throws WrongTypeException, NotIntegerException {
+    @Override public Long incr(final String key) throws WrongTypeException, NotIntegerException, NotImplementedException {
         return redisMock.incr(key);
     }
 
-    @Override public Long incrby(final String key, final long increment) throws WrongTypeException, NotIntegerException {
+    @Override public Long incrby(final String key, final long increment) throws WrongTypeException, NotIntegerException, NotImplementedException {
         return redisMock.incrby(key, increment);
     }
 
-    @Override public String incrbyfloat(final String key, final double increment) throws WrongTypeException, NotFloatException {
+    @Override public String incrbyfloat(final String key, final double increment) throws WrongTypeException, NotFloatException, NotImplementedException {
         return redisMock.incrbyfloat(key, increment);
     }
 
-    @Override public synchronized String[] mget(final String ... keys) {
+    @Override public String[] mget(final String ... keys) throws NotImplementedException {
         return redisMock.mget(keys);
     }
 
-    @Override public String mset(final String ... keyvalues) throws ArgException {
+    @Override public String mset(final String ... keyvalues) throws ArgException, NotImplementedException {
         return redisMock.mset(keyvalues);
     }
 
-    @Override public Boolean msetnx(final String ... keyvalues) throws ArgException {
+    @Override public Boolean msetnx(final String ... keyvalues) throws ArgException, NotImplementedException {
         return redisMock.msetnx(keyvalues);
     }
 
-    @Override public String psetex(String key, long milliseconds, String value) {
+    @Override public String psetex(String key, long milliseconds, String value) throws NotImplementedException {
         return redisMock.psetex(key, milliseconds, value);
     }
 
-    @Override public String set(final String key, final String value, String ... options) throws SyntaxErrorException {
+    @Override public String set(final String key, final String value, String ... options) throws SyntaxErrorException, NotImplementedException {
         return redisMock.set(key, value, options);
     }
 
-    @Override public Long setbit(final String key, final long offset, final boolean value) throws WrongTypeException {
+    @Override public String set(final byte[] key, final byte[] value, final String ... options) throws SyntaxErrorException, NotImplementedException {
+        return redisMock.set(key, value, options);
+    }
+
+    @Override public Long setbit(final String key, final long offset, final boolean value) throws WrongTypeException, NotImplementedException {
         return redisMock.setbit(key, offset, value);
     }
 
-    @Override public String setex(final String key, final int seconds, final String value) {
+    @Override public String setex(final String key, final int seconds, final String value) throws NotImplementedException {
         return redisMock.setex(key, seconds, value);
     }
 
-    @Override public Long setnx(final String key, final String value) {
+    @Override public Long setnx(final String key, final String value) throws NotImplementedException {
         return redisMock.setnx(key, value);
     }
 
-    @Override public Long setrange(final String key, final long offset, final String value) throws WrongTypeException {
+    @Override public Long setrange(final String key, final long offset, final String value) throws WrongTypeException, NotImplementedException {
         return redisMock.setrange(key, offset, value);
     }
 
-    @Override public Long strlen(final String key) throws WrongTypeException {
+    @Override public Long setrange(final byte[] key, final long offset, final byte[] value) throws WrongTypeException, NotImplementedException {
+        return redisMock.setrange(key, offset, value);
+    }
+
+    @Override public Long strlen(final String key) throws WrongTypeException, NotImplementedException {
         return redisMock.strlen(key);
     }
 
     /* IRedisList implementations */
 
-    @Override public String lindex(final String key, long index) throws WrongTypeException {
+    @Override public String lindex(final String key, long index) throws WrongTypeException, NotImplementedException {
         return redisMock.lindex(key, index);
     }
 
-    @Override public Long linsert(final String key, String before_after, final String pivot, final String value) throws WrongTypeException {
+    @Override public Long linsert(final String key, String before_after, final String pivot, final String value) throws WrongTypeException, NotImplementedException {
         return redisMock.linsert(key, before_after, pivot, value);
     }
 
-    @Override public Long llen(final String key) throws WrongTypeException {
+    @Override public Long llen(final String key) throws WrongTypeException, NotImplementedException {
         return redisMock.llen(key);
     }
 
-    @Override public String lpop(final String key) throws WrongTypeException {
+    @Override public String lpop(final String key) throws WrongTypeException, NotImplementedException {
         return redisMock.lpop(key);
     }
 
-    @Override public Long lpush(final String key, final String element, final String ... elements) throws WrongTypeException {
+    @Override public Long lpush(final String key, final String element, final String ... elements) throws WrongTypeException, NotImplementedException {
         return redisMock.lpush(key, element, elements);
     }
 
-    @Override public Long lpushx(final String key, final String element) throws WrongTypeException {
+    @Override public Long lpushx(final String key, final String element) throws WrongTypeException, NotImplementedException {
         return redisMock.lpushx(key, element);
     }
 
-    @Override public List<String> lrange(final String key, long start, long end) throws WrongTypeException {
+    @Override public List<String> lrange(final String key, long start, long end) throws WrongTypeException, NotImplementedException {
         return redisMock.lrange(key, start, end);
     }
 
-    @Override public Long lrem(final String key, final long count, final String element) throws WrongTypeException {
+    @Override public Long lrem(final String key, final long count, final String element) throws WrongTypeException, NotImplementedException {
         return redisMock.lrem(key, count, element);
     }
 
-    @Override public String lset(final String key, final long index, final String element) throws WrongTypeException, NoKeyException, IndexOutOfRangeException {
+    @Override public String lset(final String key, final long index, final String element) throws WrongTypeException, NoKeyException, IndexOutOfRangeException, NotImplementedException {
         return redisMock.lset(key, index, element);
     }
 
-    @Override public String ltrim(final String key, long start, long end) throws WrongTypeException {
+    @Override public String ltrim(final String key, long start, long end) throws WrongTypeException, NotImplementedException {
         return redisMock.ltrim(key, start, end);
     }
 
-    @Override public String rpop(final String key) throws WrongTypeException {
+    @Override public String rpop(final String key) throws WrongTypeException, NotImplementedException {
         return redisMock.rpop(key);
     }
 
-    @Override public String rpoplpush(final String source, final String dest) throws WrongTypeException {
+    @Override public String rpoplpush(final String source, final String dest) throws WrongTypeException, NotImplementedException {
         return redisMock.rpoplpush(source, dest);
     }
 
-    @Override public Long rpush(final String key, final String element, final String ... elements) throws WrongTypeException {
+    @Override public Long rpush(final String key, final String element, final String ... elements) throws WrongTypeException, NotImplementedException {
         return redisMock.rpush(key, element, elements);
     }
 
-    @Override public Long rpushx(final String key, final String element) throws WrongTypeException {
+    @Override public Long rpushx(final String key, final String element) throws WrongTypeException, NotImplementedException {
         return redisMock.rpushx(key, element);
     }
 
     /* IRedisSet implementations */
 
-    @Override public Long sadd(final String key, final String member, final String ... members) throws WrongTypeException {
+    @Override public Long sadd(final String key, final String member, final String ... members) throws WrongTypeException, NotImplementedException {
         return redisMock.sadd(key, member, members);
     }
 
-    @Override public Long scard(String key) throws WrongTypeException {
+    @Override public Long scard(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.scard(key);
     }
 
-    @Override public Set<String> sdiff(String key, String ... keys) throws WrongTypeException {
+    @Override public Set<String> sdiff(String key, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.sdiff(key, keys);
     }
 
-    @Override public Long sdiffstore(String destination, String key, String ... keys) throws WrongTypeException {
+    @Override public Long sdiffstore(String destination, String key, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.sdiffstore(destination, key, keys);
     }
 
-    @Override public Set<String> sinter(String key, String ... keys) throws WrongTypeException {
+    @Override public Set<String> sinter(String key, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.sinter(key, keys);
     }
 
-    @Override public Long sinterstore(String destination, String key, String ... keys) throws WrongTypeException {
+    @Override public Long sinterstore(String destination, String key, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.sinterstore(destination, key, keys);
     }
 
-    @Override public Boolean sismember(String key, String member) throws WrongTypeException {
+    @Override public Boolean sismember(String key, String member) throws WrongTypeException, NotImplementedException {
         return redisMock.sismember(key, member);
     }
 
-    @Override public Set<String> smembers(String key) throws WrongTypeException {
+    @Override public Set<String> smembers(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.smembers(key);
     }
 
-    @Override public Boolean smove(String source, String dest, String member) throws WrongTypeException {
+    @Override public Boolean smove(String source, String dest, String member) throws WrongTypeException, NotImplementedException {
         return redisMock.smove(source, dest, member);
     }
 
-    @Override public String spop(String key) throws WrongTypeException {
+    @Override public String spop(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.spop(key);
     }
 
-    @Override public String srandmember(String key) throws WrongTypeException {
+    @Override public Set<String> spop(String key, long count) throws WrongTypeException, NotIntegerException, NotImplementedException {
+        return redisMock.spop(key, count);
+    }
+
+    @Override public String srandmember(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.srandmember(key);
     }
 
-    @Override public List<String> srandmember(String key, long count) throws WrongTypeException {
+    @Override public List<String> srandmember(String key, long count) throws WrongTypeException, NotImplementedException {
         return redisMock.srandmember(key, count);
     }
 
-    @Override public Long srem(String key, String member, String ... members) throws WrongTypeException {
+    @Override public Long srem(String key, String member, String ... members) throws WrongTypeException, NotImplementedException {
         return redisMock.srem(key, member, members);
     }
 
-    @Override public Set<String> sunion(String key, String ... keys) throws WrongTypeException {
+    @Override public Set<String> sunion(String key, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.sunion(key, keys);
     }
 
-    @Override public Long sunionstore(String destination, String key, String ... keys) throws WrongTypeException {
+    @Override public Long sunionstore(String destination, String key, String ... keys) throws WrongTypeException, NotImplementedException {
         return redisMock.sunionstore(destination, key, keys);
     }
 
-    @Override public ScanResult<Set<String>> sscan(String key, long cursor, String ... options) throws WrongTypeException {
+    @Override public ScanResult<Set<String>> sscan(String key, long cursor, String ... options) throws WrongTypeException, NotImplementedException {
         return redisMock.sscan(key, cursor, options);
     }
 
     /* IRedisHash implementations */
 
-    @Override public Long hdel(String key, String field, String ... fields) throws WrongTypeException {
+    @Override public Long hdel(String key, String field, String ... fields) throws WrongTypeException, NotImplementedException {
         return redisMock.hdel(key, field, fields);
     }
 
-    @Override public Boolean hexists(String key, String field) throws WrongTypeException {
+    @Override public Boolean hexists(String key, String field) throws WrongTypeException, NotImplementedException {
         return redisMock.hexists(key, field);
     }
 
-    @Override public String hget(String key, String field) throws WrongTypeException {
+    @Override public String hget(String key, String field) throws WrongTypeException, NotImplementedException {
         return redisMock.hget(key, field);
     }
 
-    @Override public Map<String, String> hgetall(String key) throws WrongTypeException {
+    @Override public Map<String, String> hgetall(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.hgetall(key);
     }
 
-    @Override public Long hincrby(String key, String field, long increment) throws WrongTypeException, NotIntegerHashException {
+    @Override public Long hincrby(String key, String field, long increment) throws WrongTypeException, NotIntegerHashException, NotImplementedException {
         return redisMock.hincrby(key, field, increment);
     }
 
-    @Override public String hincrbyfloat(String key, String field, double increment) throws WrongTypeException, NotFloatHashException {
+    @Override public String hincrbyfloat(String key, String field, double increment) throws WrongTypeException, NotFloatHashException, NotImplementedException {
         return redisMock.hincrbyfloat(key, field, increment);
     }
 
-    @Override public Set<String> hkeys(String key) throws WrongTypeException {
+    @Override public Set<String> hkeys(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.hkeys(key);
     }
 
-    @Override public Long hlen(String key) throws WrongTypeException {
+    @Override public Long hlen(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.hlen(key);
     }
 
-    @Override public List<String> hmget(String key, String field, String ... fields) throws WrongTypeException {
+    @Override public List<String> hmget(String key, String field, String ... fields) throws WrongTypeException, NotImplementedException {
         return redisMock.hmget(key, field, fields);
     }
 
-    @Override public String hmset(String key, String field, String value, String ... fieldsvalues) throws WrongTypeException, ArgException {
+    @Override public String hmset(String key, String field, String value, String ... fieldsvalues) throws WrongTypeException, ArgException, NotImplementedException {
         return redisMock.hmset(key, field, value, fieldsvalues);
     }
 
-    @Override public Boolean hset(String key, String field, String value) throws WrongTypeException {
+    @Override public Boolean hset(String key, String field, String value) throws WrongTypeException, NotImplementedException {
         return redisMock.hset(key, field, value);
     }
 
-    @Override public Boolean hsetnx(String key, String field, String value) throws WrongTypeException {
+    @Override public Boolean hsetnx(String key, String field, String value) throws WrongTypeException, NotImplementedException {
         return redisMock.hsetnx(key, field, value);
     }
 
-    @Override public Long hstrlen(String key, String field) throws WrongTypeException {
+    @Override public Long hstrlen(String key, String field) throws WrongTypeException, NotImplementedException {
         return redisMock.hstrlen(key, field);
     }
 
-    @Override public List<String> hvals(String key) throws WrongTypeException {
+    @Override public List<String> hvals(String key) throws WrongTypeException, NotImplementedException {
         return redisMock.hvals(key);
     }
 
-    @Override public ScanResult<Map<String, String>> hscan(String key, long cursor, String ... options) throws WrongTypeException {
+    @Override public ScanResult<Map<String, String>> hscan(String key, long cursor, String ... options) throws WrongTypeException, NotImplementedException {
         return redisMock.hscan(key, cursor, options);
     }
 
+    /* IRedisSortedSet implementations */
+
+    @Override public Long zadd(final String key, final ZsetPair scoremember, final ZsetPair ... scoresmembers) throws WrongTypeException, NotImplementedException {
+        return redisMock.zadd(key, scoremember, scoresmembers);
+    }
+
+    @Override public Long zadd(final String key, final double score, final String member, final Object ... scoresmembers) throws WrongTypeException, SyntaxErrorException, NotFloatException, NotImplementedException {
+        return redisMock.zadd(key, score, member, scoresmembers);
+    }
+
+    @Override public Long zcard(final String key) throws WrongTypeException, NotImplementedException {
+        return redisMock.zcard(key);
+    }
+
+    @Override public Long zcount(final String key, final double min, final double max) throws WrongTypeException, NotImplementedException {
+        return redisMock.zcount(key, min, max);
+    }
+
+    @Override public String zincrby(final String key, final double increment, final String member) throws WrongTypeException, NotImplementedException {
+        return redisMock.zincrby(key, increment, member);
+    }
+
+    @Override public Long zinterstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException, NotImplementedException {
+        return redisMock.zinterstore(destination, numkeys, options);
+    }
+
+    @Override public Long zlexcount(final String key, String min, String max) throws WrongTypeException, NotValidStringRangeItemException, NotImplementedException {
+        return redisMock.zlexcount(key, min, max);
+    }
+
+    @Override public Set<ZsetPair> zrange(final String key, long start, long stop, final String ... options) throws WrongTypeException, NotImplementedException {
+        return redisMock.zrange(key, start, stop, options);
+    }
+
+    @Override public Set<ZsetPair> zrangebylex(final String key, String min, String max, String ... options) throws WrongTypeException, NotValidStringRangeItemException, NotImplementedException {
+        return redisMock.zrangebylex(key, min, max, options);
+    }
+
+    @Override public Set<ZsetPair> zrevrangebylex(final String key, final String max, final String min, final String ... options) throws WrongTypeException, NotValidStringRangeItemException, NotImplementedException {
+        return redisMock.zrevrangebylex(key, max, min, options);
+    }
+
+    @Override public Set<ZsetPair> zrangebyscore(final String key, String min, String max, String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException, NotImplementedException {
+        return redisMock.zrangebyscore(key, min, max, options);
+    }
+
+    @Override public Long zrank(final String key, final String member) throws WrongTypeException, NotImplementedException {
+        return redisMock.zrank(key, member);
+    }
+
+    @Override public Long zrem(final String key, final String member, final String ... members) throws WrongTypeException, NotImplementedException {
+        return redisMock.zrem(key, member, members);
+    }
+
+    @Override public Long zremrangebylex(final String key, final String min, final String max) throws WrongTypeException, NotValidStringRangeItemException, NotImplementedException {
+        return redisMock.zremrangebylex(key, min, max);
+    }
+
+    @Override public Long zremrangebyrank(final String key, long min, long max) throws WrongTypeException, NotImplementedException {
+        return redisMock.zremrangebyrank(key, min, max);
+    }
+
+    @Override public Long zremrangebyscore(final String key, final String min, final String max) throws WrongTypeException, NotFloatMinMaxException, NotImplementedException {
+        return redisMock.zremrangebyscore(key, min, max);
+    }
+
+    @Override public Set<ZsetPair> zrevrange(final String key, final long start, final long stop, final String ... options) throws WrongTypeException, NotImplementedException {
+        return redisMock.zrevrange(key, start, stop, options);
+    }
+
+    @Override public Set<ZsetPair> zrevrangebyscore(final String key, final String max, final String min, final String ... options) throws WrongTypeException, NotFloatMinMaxException, NotIntegerException, SyntaxErrorException, NotImplementedException {
+        return redisMock.zrevrangebyscore(key, max, min, options);
+    }
+
+    @Override public Long zrevrank(final String key, final String member) throws WrongTypeException, NotImplementedException {
+        return redisMock.zrevrank(key, member);
+    }
+
+    @Override public Double zscore(final String key, final String member) throws WrongTypeException, NotImplementedException {
+        return redisMock.zscore(key, member);
+    }
+
+    @Override public Long zunionstore(final String destination, final int numkeys, final String ... options) throws WrongTypeException, SyntaxErrorException, NotImplementedException {
+        return redisMock.zunionstore(destination, numkeys, options);
+    }
+
+    @Override public ScanResult<Set<ZsetPair>> zscan(String key, long cursor, String ... options) throws WrongTypeException, NotImplementedException {
+        return redisMock.zscan(key, cursor, options);
+    }
+
     /* IRedisTransaction commands */
 
-    @Override public String discard() throws DiscardWithoutMultiException {
+    @Override public String discard() throws DiscardWithoutMultiException, NotImplementedException {
         return redisMock.discard();
     }
 
-    @Override public List<Object> exec() throws ExecWithoutMultiException {
+    @Override public List<Object> exec() throws ExecWithoutMultiException, NotImplementedException {
         return redisMock.exec();
     }
 
-    @Override public IRedisClient multi() {
+    @Override public IRedisClient multi() throws NotImplementedException {
         return new RedisMockMulti(this);
     }
 
-    @Override public String unwatch() {
+    @Override public IRedisClient pipelined() throws NotImplementedException {
+        return new RedisMockPipeline(this);
+    }
+
+    @Override public List<Object> sync() throws NotImplementedException {
+        return new ArrayList<Object>();
+    }
+
+    @Override public String unwatch() throws NotImplementedException {
         return redisMock.unwatch(this.hashCode());
     }
 
-    @Override public String watch(String key) {
+    @Override public String watch(String key) throws NotImplementedException {
         return redisMock.watch(key, this.hashCode());
     }
 
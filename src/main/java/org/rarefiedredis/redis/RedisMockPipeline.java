@@ -0,0 +1,46 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+
+/**
+ * A pipelined client. Its commands are buffered, and sync() runs the
+ * whole batch in one block against the client it wraps, so the batch
+ * takes the lock once instead of once per command.
+ */
+public final class RedisMockPipeline extends AbstractRedisMockBatch {
+
+    public RedisMockPipeline(AbstractRedisMock redisMock) {
+        super(redisMock);
+    }
+
+    @Override public synchronized List<Object> sync() {
+        try {
+            return redisMock.atomically(new Block<List<Object>>() {
+                    @Override public List<Object> run() {
+                        return runCommands();
+                    }
+                });
+        }
+        catch (Exception e) {
+            // Should never get here.
+            return null;
+        }
+    }
+
+    @Override public IRedisClient pipelined() {
+        return this;
+    }
+
+    @Override public IRedisClient multi() {
+        return new RedisMockMulti(this.redisMock);
+    }
+
+    @Override public String discard() throws DiscardWithoutMultiException, NotImplementedException {
+        return redisMock.discard();
+    }
+
+    @Override public List<Object> exec() throws ExecWithoutMultiException, NotImplementedException {
+        return redisMock.exec();
+    }
+
+}
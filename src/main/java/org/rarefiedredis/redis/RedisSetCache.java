@@ -1,51 +1,234 @@
 package org.rarefiedredis.redis;
 
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Random;
+import java.util.Collections;
 
 /**
- * Cache key-value pairs as a set.
+ * Cache key-value pairs as a set. A view over the sets
+ * in a keyspace.
  */
 public final class RedisSetCache implements IRedisCache<String, Set<String>> {
 
     /**
-     * Holds the actual cache.
+     * The keyspace this cache is a view over.
      */
-    private Map<String, Set<String>> cache;
+    private RedisKeyspace keyspace;
+    /**
+     * The limits of the compact encodings.
+     */
+    private EncodingConfig config;
 
     /**
      * Constructor. Initializes an empty cache.
      */
     public RedisSetCache() {
-        cache = new HashMap<String, Set<String>>();
+        this(new RedisKeyspace());
+    }
+
+    /**
+     * Constructor. Initializes a cache over the sets in the keyspace.
+     *
+     * @param keyspace The keyspace to view.
+     */
+    public RedisSetCache(RedisKeyspace keyspace) {
+        this(keyspace, new EncodingConfig());
+    }
+
+    /**
+     * Constructor. Initializes a cache over the sets in the keyspace.
+     *
+     * @param keyspace The keyspace to view.
+     * @param config The limits of the compact encodings.
+     */
+    public RedisSetCache(RedisKeyspace keyspace, EncodingConfig config) {
+        this.keyspace = keyspace;
+        this.config = config;
     }
 
     @Override public Boolean exists(final String key) {
-        return cache.containsKey(key);
+        return keyspace.get(key, type()) != null;
     }
 
     @Override public void remove(final String key) {
-        cache.remove(key);
+        if (exists(key)) {
+            keyspace.remove(key);
+        }
     }
 
     @Override public void set(final String key, final String value, final Object ... arguments) {
-        if (!cache.containsKey(key)) {
-            cache.put(key, new HashSet<String>());
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null || !entry.type.equals(type())) {
+            entry = keyspace.put(key, type(), IntSet.isInteger(value) ? new IntSet() : new ListpackSet());
         }
-        cache.get(key).add(value);
+        Set<String> set = writable(entry);
+        if (!(set instanceof DictSet) && !set.contains(value)) {
+            set = encode(set, value);
+            entry.value = set;
+        }
+        set.add(value);
+    }
+
+    /**
+     * Pick the encoding a set needs to take one more member, converting
+     * it from an intset to a listpack to a hash table as it grows.
+     */
+    private Set<String> encode(Set<String> set, String value) {
+        int size = set.size() + 1;
+        if (set instanceof IntSet) {
+            if (IntSet.isInteger(value) && size <= config.setMaxIntsetEntries) {
+                return set;
+            }
+        }
+        else if (size <= config.setMaxListpackEntries && value.length() <= config.setMaxListpackValue) {
+            return set;
+        }
+        if (size <= config.setMaxListpackEntries && value.length() <= config.setMaxListpackValue) {
+            Set<String> packed = new ListpackSet();
+            packed.addAll(set);
+            return packed;
+        }
+        return new DictSet<String>(set);
+    }
+
+    /**
+     * Replace whatever is at key with a set of the given members, in
+     * the encoding their number and lengths call for. The set is built
+     * in one pass, without the per member encoding checks of set(). A
+     * DictSet is stored as is when it needs no compact encoding.
+     *
+     * @param key The key.
+     * @param members The members, each one once. If there are none,
+     * the key is removed.
+     */
+    public void store(final String key, final Collection<String> members) {
+        if (members.isEmpty()) {
+            keyspace.remove(key);
+            return;
+        }
+        int size = members.size();
+        boolean integers = size <= config.setMaxIntsetEntries;
+        boolean packable = size <= config.setMaxListpackEntries;
+        if (integers || packable) {
+            for (String member : members) {
+                integers = integers && IntSet.isInteger(member);
+                packable = packable && member.length() <= config.setMaxListpackValue;
+            }
+        }
+        Set<String> set;
+        if (integers) {
+            set = new IntSet();
+        }
+        else if (packable) {
+            set = new ListpackSet();
+        }
+        else if (members instanceof DictSet) {
+            keyspace.put(key, type(), members);
+            return;
+        }
+        else {
+            set = new DictSet<String>();
+        }
+        set.addAll(members);
+        keyspace.put(key, type(), set);
     }
 
     @Override public Set<String> get(final String key) {
-        return cache.get(key);
+        return (Set<String>)keyspace.get(key, type());
+    }
+
+    /**
+     * Get a read only snapshot of the set at key, in O(1). The snapshot
+     * never changes, even after the set does, so it can be read outside
+     * the lock of the database. See {@link RedisKeyspace#share}.
+     *
+     * @param key The key of the set.
+     *
+     * @return The snapshot, or null if the key does not exist.
+     */
+    public Set<String> snapshot(final String key) {
+        Set<String> set = (Set<String>)keyspace.share(key, type());
+        if (set == null) {
+            return null;
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Get the set of an entry to change it, copying it first if it has
+     * been handed out as a snapshot.
+     */
+    private Set<String> writable(final RedisKeyspace.Entry entry) {
+        if (entry.shared) {
+            Set<String> set = (Set<String>)entry.value;
+            if (set instanceof IntSet) {
+                entry.value = new IntSet((IntSet)set);
+            }
+            else if (set instanceof ListpackSet) {
+                entry.value = new ListpackSet((ListpackSet)set);
+            }
+            else {
+                entry.value = new DictSet<String>(set);
+            }
+            entry.shared = false;
+        }
+        return (Set<String>)entry.value;
+    }
+
+    /**
+     * Visit the next members of a scan of the set at key. A small set
+     * is visited whole in one call.
+     *
+     * @param key The key of the set.
+     * @param cursor The cursor, 0 to start a scan.
+     * @param visitor Receives the members.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(final String key, final long cursor, final Dict.Visitor<String, Object> visitor) {
+        Set<String> set = get(key);
+        if (set == null) {
+            return 0L;
+        }
+        if (set instanceof DictSet) {
+            return ((DictSet<String>)set).scan(cursor, visitor);
+        }
+        for (String member : set) {
+            visitor.visit(member, null);
+        }
+        return 0L;
+    }
+
+    /**
+     * Pick a member of the set at key uniformly at random, in O(1).
+     *
+     * @param key The key of the set.
+     * @param random The source of randomness.
+     *
+     * @return A member, or null if the set does not exist or is empty.
+     */
+    public String random(final String key, final Random random) {
+        Set<String> set = get(key);
+        if (set instanceof DictSet) {
+            return ((DictSet<String>)set).random(random);
+        }
+        if (set instanceof IntSet) {
+            return ((IntSet)set).random(random);
+        }
+        if (set instanceof ListpackSet) {
+            return ((ListpackSet)set).random(random);
+        }
+        return null;
     }
 
     @Override public Boolean removeValue(final String key, final String value) {
-        if (!exists(key)) {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null || !entry.type.equals(type()) || !((Set<String>)entry.value).contains(value)) {
             return false;
         }
-        return cache.get(key).remove(value);
+        return writable(entry).remove(value);
     }
 
     @Override public String type() {
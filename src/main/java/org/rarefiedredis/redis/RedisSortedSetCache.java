@@ -1,98 +1,578 @@
 package org.rarefiedredis.redis;
 
+import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.Comparator;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * Cache key-value-score triples as a sorted set.
+ * Cache key-value-score triples as a sorted set. A view over
+ * the sorted sets in a keyspace.
  */
 public final class RedisSortedSetCache implements IRedisCache<String, Set<String>> {
 
     /**
-     * The sorted set of members.
+     * Walks the members of a sorted set in order, from some rank on.
+     */
+    public abstract static class Cursor {
+        /** The member the cursor is at. */
+        public String member;
+        /** The score of the member. */
+        public double score;
+
+        /**
+         * Move to the next member.
+         *
+         * @return true if there is a next member, or false if the
+         * cursor is past the last member.
+         */
+        public abstract boolean next();
+    }
+
+    /**
+     * The value stored in the keyspace for a sorted set. Like in redis,
+     * a small sorted set is a listpack, and a large one is a skip list
+     * that orders the members plus a map of members to their scores.
+     */
+    private static final class Zset {
+        /**
+         * The members and their scores while the set is small, or null.
+         */
+        public ListpackZset packed;
+        /**
+         * The members ordered by score, or null while the set is small.
+         */
+        public ZsetSkipList list;
+        /**
+         * The map of members to their scores, or null while the set is small.
+         */
+        public Dict<String, Double> scores;
+        /**
+         * The members as a set, in order.
+         */
+        public Set<String> members;
+
+        public Zset() {
+            packed = new ListpackZset();
+            list = null;
+            scores = null;
+            members = new AbstractSet<String>() {
+                    @Override public Iterator<String> iterator() {
+                        if (packed != null) {
+                            return packedIterator();
+                        }
+                        return listIterator();
+                    }
+
+                    @Override public int size() {
+                        return packed != null ? packed.size() : (int)list.length();
+                    }
+
+                    @Override public boolean contains(Object member) {
+                        return score(member) != null;
+                    }
+                };
+        }
+
+        private Iterator<String> packedIterator() {
+            return new Iterator<String>() {
+                private int next = 0;
+                private int last = -1;
+
+                @Override public boolean hasNext() {
+                    return next < packed.size();
+                }
+
+                @Override public String next() {
+                    if (next >= packed.size()) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next += 1;
+                    return packed.memberAt(last);
+                }
+
+                @Override public void remove() {
+                    if (last == -1) {
+                        throw new IllegalStateException();
+                    }
+                    packed.removeRank(last);
+                    // The members after it moved down into the hole.
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+
+        private Iterator<String> listIterator() {
+            return new Iterator<String>() {
+                private ZsetSkipList.Node next = list.first();
+                private ZsetSkipList.Node last = null;
+
+                @Override public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override public String next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = next.next();
+                    return last.member;
+                }
+
+                @Override public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    list.delete(last.member, last.score);
+                    scores.remove(last.member);
+                    last = null;
+                }
+            };
+        }
+
+        /**
+         * Convert the listpack to a skip list and a map, once the set is
+         * too large for it.
+         */
+        private void unpack() {
+            ZsetSkipList.Builder builder = new ZsetSkipList.Builder();
+            scores = new Dict<String, Double>();
+            for (int idx = 0; idx < packed.size(); ++idx) {
+                builder.append(packed.memberAt(idx), packed.scoreAt(idx));
+                scores.put(packed.memberAt(idx), packed.scoreAt(idx));
+            }
+            list = builder.build();
+            packed = null;
+        }
+
+        public long length() {
+            return packed != null ? packed.size() : list.length();
+        }
+
+        public Double score(Object member) {
+            if (packed != null) {
+                return packed.score(member);
+            }
+            return scores.get(member);
+        }
+
+        public void put(String member, Double score, EncodingConfig config) {
+            if (packed != null) {
+                if (member.length() <= config.zsetMaxListpackValue
+                    && (packed.size() < config.zsetMaxListpackEntries || packed.score(member) != null)) {
+                    packed.put(member, score);
+                    return;
+                }
+                unpack();
+            }
+            Double old = scores.put(member, score);
+            if (old != null) {
+                if (old.doubleValue() == score.doubleValue()) {
+                    return;
+                }
+                list.delete(member, old);
+            }
+            list.insert(member, score);
+        }
+
+        public boolean remove(String member) {
+            if (packed != null) {
+                return packed.remove(member) != null;
+            }
+            Double score = scores.remove(member);
+            if (score == null) {
+                return false;
+            }
+            list.delete(member, score);
+            return true;
+        }
+
+        /**
+         * Get the rank of a member, starting at 0, or -1.
+         */
+        public long rank(String member) {
+            if (packed != null) {
+                return packed.rank(member);
+            }
+            Double score = scores.get(member);
+            if (score == null) {
+                return -1L;
+            }
+            return list.rank(member, score) - 1L;
+        }
+
+        /**
+         * Get the rank of a node of the skip list, starting at 0, or -1
+         * for no node.
+         */
+        private long rank(ZsetSkipList.Node node) {
+            return node == null ? -1L : list.rank(node.member, node.score) - 1L;
+        }
+
+        public long firstInRange(double min, boolean minExclusive, double max, boolean maxExclusive) {
+            if (packed != null) {
+                return packed.firstInRange(min, minExclusive, max, maxExclusive);
+            }
+            return rank(list.firstInRange(min, minExclusive, max, maxExclusive));
+        }
+
+        public long lastInRange(double min, boolean minExclusive, double max, boolean maxExclusive) {
+            if (packed != null) {
+                return packed.lastInRange(min, minExclusive, max, maxExclusive);
+            }
+            return rank(list.lastInRange(min, minExclusive, max, maxExclusive));
+        }
+
+        public long firstInLexRange(String min, boolean minExclusive, String max, boolean maxExclusive) {
+            if (packed != null) {
+                return packed.firstInLexRange(min, minExclusive, max, maxExclusive);
+            }
+            return rank(list.firstInLexRange(min, minExclusive, max, maxExclusive));
+        }
+
+        public Cursor cursor(final long rank) {
+            if (packed != null) {
+                final ListpackZset pack = packed;
+                return new Cursor() {
+                    private long next = rank;
+
+                    @Override public boolean next() {
+                        if (next < 0L || next >= pack.size()) {
+                            return false;
+                        }
+                        member = pack.memberAt((int)next);
+                        score = pack.scoreAt((int)next);
+                        next += 1L;
+                        return true;
+                    }
+                };
+            }
+            return new Cursor() {
+                private ZsetSkipList.Node next = list.byRank(rank + 1L);
+
+                @Override public boolean next() {
+                    if (next == null) {
+                        return false;
+                    }
+                    member = next.member;
+                    score = next.score;
+                    next = next.next();
+                    return true;
+                }
+            };
+        }
+    }
+
+    /**
+     * The keyspace this cache is a view over.
      */
-    private Map<String, SortedSet<String>> cache;
+    private RedisKeyspace keyspace;
     /**
-     * The map of members to their scores.
+     * The limits of the compact encoding.
      */
-    private Map<String, Map<String, Double>> scores;
+    private EncodingConfig config;
 
     /**
      * Constructor. Initializes an empty cache.
      */
     public RedisSortedSetCache() {
-        cache = new HashMap<String, SortedSet<String>>();
-        scores = new HashMap<String, Map<String, Double>>();
+        this(new RedisKeyspace());
+    }
+
+    /**
+     * Constructor. Initializes a cache over the sorted sets in the keyspace.
+     *
+     * @param keyspace The keyspace to view.
+     */
+    public RedisSortedSetCache(RedisKeyspace keyspace) {
+        this(keyspace, new EncodingConfig());
+    }
+
+    /**
+     * Constructor. Initializes a cache over the sorted sets in the keyspace.
+     *
+     * @param keyspace The keyspace to view.
+     * @param config The limits of the compact encoding.
+     */
+    public RedisSortedSetCache(RedisKeyspace keyspace, EncodingConfig config) {
+        this.keyspace = keyspace;
+        this.config = config;
+    }
+
+    private Zset zset(final String key) {
+        return (Zset)keyspace.get(key, type());
     }
 
     @Override public Boolean exists(final String key) {
-        return cache.containsKey(key);
+        return zset(key) != null;
     }
 
     public Boolean existsValue(final String key, final String value) {
-        return exists(key) && cache.get(key).contains(value);
+        Zset zset = zset(key);
+        return zset != null && zset.score(value) != null;
     }
 
     @Override public void remove(final String key) {
-        cache.remove(key);
-        scores.remove(key);
+        if (exists(key)) {
+            keyspace.remove(key);
+        }
     }
 
     @Override public void set(final String key, final String value, final Object ... arguments) {
-        if (!cache.containsKey(key)) {
-            cache.put(key, new TreeSet<String>(new Comparator<String>() {
-                        @Override public int compare(String a, String b) {
-                            Double aScore = scores.get(key).get(a);
-                            Double bScore = scores.get(key).get(b);
-                            if (aScore == null && bScore == null) {
-                                return 0;
-                            }
-                            if (aScore == null && bScore != null) {
-                                return 1;
-                            }
-                            if (aScore != null && bScore == null) {
-                                return -1;
-                            }
-                            if (aScore < bScore) {
-                                return -1;
-                            }
-                            if (aScore > bScore) {
-                                return 1;
-                            }
-                            return a.compareTo(b);
-                        }
-                    }));
-            scores.put(key, new HashMap<String, Double>());
+        Zset zset = zset(key);
+        if (zset == null) {
+            zset = new Zset();
+            keyspace.put(key, type(), zset);
+        }
+        zset.put(value, (Double)arguments[0], config);
+    }
+
+    /**
+     * Replace whatever is at key with a sorted set made of a skip list,
+     * such as one built in order by a {@link ZsetSkipList.Builder}. If
+     * the set is too large for the compact encoding, the list is used
+     * as is and only the member to score map is built.
+     *
+     * @param key The key.
+     * @param list The members and their scores, each member once. If
+     * the list is empty, the key is removed.
+     */
+    public void store(final String key, final ZsetSkipList list) {
+        if (list.length() == 0L) {
+            keyspace.remove(key);
+            return;
+        }
+        boolean packed = list.length() <= config.zsetMaxListpackEntries;
+        for (ZsetSkipList.Node node = list.first(); node != null && packed; node = node.next()) {
+            packed = node.member.length() <= config.zsetMaxListpackValue;
+        }
+        Zset zset = new Zset();
+        if (packed) {
+            for (ZsetSkipList.Node node = list.first(); node != null; node = node.next()) {
+                zset.packed.put(node.member, node.score);
+            }
         }
-        Double score = (Double)arguments[0];
-        // The order of operations is important here.
-        scores.get(key).put(value, score);
-        cache.get(key).add(value);
+        else {
+            zset.packed = null;
+            zset.list = list;
+            zset.scores = new Dict<String, Double>();
+            for (ZsetSkipList.Node node = list.first(); node != null; node = node.next()) {
+                zset.scores.put(node.member, node.score);
+            }
+        }
+        keyspace.put(key, type(), zset);
     }
 
     @Override public Set<String> get(final String key) {
-        return cache.get(key);
+        Zset zset = zset(key);
+        if (zset == null) {
+            return null;
+        }
+        return zset.members;
     }
 
     public Double getScore(final String key, final String value) {
-        if (!scores.containsKey(key)) {
+        Zset zset = zset(key);
+        if (zset == null) {
             return null;
         }
-        return scores.get(key).get(value);
+        return zset.score(value);
+    }
+
+    /**
+     * Get the scores of the sorted set at key as a map, to look up many
+     * members without going through the keyspace each time. The map
+     * must not be modified.
+     *
+     * @param key The key of the sorted set.
+     *
+     * @return The map of members to scores, or null if the key does
+     * not exist.
+     */
+    public Map<String, Double> getScores(final String key) {
+        Zset zset = zset(key);
+        if (zset == null) {
+            return null;
+        }
+        if (zset.packed == null) {
+            return zset.scores;
+        }
+        // A compact set is small enough to copy rather than scan for
+        // every lookup.
+        Map<String, Double> scores = new HashMap<String, Double>();
+        for (int idx = 0; idx < zset.packed.size(); ++idx) {
+            scores.put(zset.packed.memberAt(idx), zset.packed.scoreAt(idx));
+        }
+        return scores;
+    }
+
+    /**
+     * Get the rank of a member, in O(log n), or by a scan of a small
+     * sorted set.
+     *
+     * @param key The key of the sorted set.
+     * @param value The member.
+     *
+     * @return The rank of the member starting at 0, or null if the key
+     * or the member does not exist.
+     */
+    public Long getRank(final String key, final String value) {
+        Zset zset = zset(key);
+        if (zset == null) {
+            return null;
+        }
+        long rank = zset.rank(value);
+        return rank == -1L ? null : rank;
+    }
+
+    /**
+     * Get the number of members of the sorted set at key.
+     *
+     * @param key The key of the sorted set.
+     *
+     * @return The number of members, or 0 if the key does not exist.
+     */
+    public long getLength(final String key) {
+        Zset zset = zset(key);
+        return zset == null ? 0L : zset.length();
+    }
+
+    /**
+     * Get the rank of the first member of the sorted set at key whose
+     * score is in a range.
+     *
+     * @param key The key of the sorted set.
+     * @param min The low end of the range.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The rank, starting at 0, or -1 if the range is empty or
+     * the key does not exist.
+     */
+    public long firstInRange(final String key, final double min, final boolean minExclusive, final double max, final boolean maxExclusive) {
+        Zset zset = zset(key);
+        return zset == null ? -1L : zset.firstInRange(min, minExclusive, max, maxExclusive);
+    }
+
+    /**
+     * Get the rank of the last member of the sorted set at key whose
+     * score is in a range.
+     *
+     * @param key The key of the sorted set.
+     * @param min The low end of the range.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The rank, starting at 0, or -1 if the range is empty or
+     * the key does not exist.
+     */
+    public long lastInRange(final String key, final double min, final boolean minExclusive, final double max, final boolean maxExclusive) {
+        Zset zset = zset(key);
+        return zset == null ? -1L : zset.lastInRange(min, minExclusive, max, maxExclusive);
+    }
+
+    /**
+     * Get the rank of the first member of the sorted set at key in a
+     * lexicographical range.
+     *
+     * @param key The key of the sorted set.
+     * @param min The low end of the range, or null for no low end.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range, or null for no high end.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The rank, starting at 0, or -1 if the range is empty or
+     * the key does not exist.
+     */
+    public long firstInLexRange(final String key, final String min, final boolean minExclusive, final String max, final boolean maxExclusive) {
+        Zset zset = zset(key);
+        return zset == null ? -1L : zset.firstInLexRange(min, minExclusive, max, maxExclusive);
+    }
+
+    /**
+     * Walk the members of the sorted set at key in order, for range
+     * queries. The set must not be modified while it is walked.
+     *
+     * @param key The key of the sorted set.
+     * @param rank The rank to start at, starting at 0.
+     *
+     * @return A cursor before the member at rank. It has no members if
+     * the key does not exist.
+     */
+    public Cursor getRange(final String key, final long rank) {
+        Zset zset = zset(key);
+        if (zset == null) {
+            return new Cursor() {
+                @Override public boolean next() {
+                    return false;
+                }
+            };
+        }
+        return zset.cursor(rank);
+    }
+
+    /**
+     * Get the skip list that orders the members of the sorted set at
+     * key, to union or intersect it. The list must not be modified. A
+     * small sorted set has no list, so one is built from the listpack.
+     *
+     * @param key The key of the sorted set.
+     *
+     * @return The skip list, or null if the key does not exist.
+     */
+    public ZsetSkipList getSkipList(final String key) {
+        Zset zset = zset(key);
+        if (zset == null) {
+            return null;
+        }
+        if (zset.packed == null) {
+            return zset.list;
+        }
+        ZsetSkipList.Builder builder = new ZsetSkipList.Builder();
+        for (int idx = 0; idx < zset.packed.size(); ++idx) {
+            builder.append(zset.packed.memberAt(idx), zset.packed.scoreAt(idx));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Visit the next members of a scan of the sorted set at key. A
+     * small sorted set is visited whole in one call.
+     *
+     * @param key The key of the sorted set.
+     * @param cursor The cursor, 0 to start a scan.
+     * @param visitor Receives the members and their scores.
+     *
+     * @return The cursor to continue the scan with, or 0 once the scan
+     * is over.
+     */
+    public long scan(final String key, final long cursor, final Dict.Visitor<String, Double> visitor) {
+        Zset zset = zset(key);
+        if (zset == null) {
+            return 0L;
+        }
+        if (zset.packed == null) {
+            return zset.scores.scan(cursor, visitor);
+        }
+        for (int idx = 0; idx < zset.packed.size(); ++idx) {
+            visitor.visit(zset.packed.memberAt(idx), zset.packed.scoreAt(idx));
+        }
+        return 0L;
     }
 
     @Override public Boolean removeValue(final String key, final String value) {
-        if (!cache.containsKey(key)) {
+        Zset zset = zset(key);
+        if (zset == null) {
             return false;
         }
-        // The order of operations is important here.
-        boolean rem = cache.get(key).remove(value);
-        scores.get(key).remove(value);
-        return rem;
+        return zset.remove(value);
     }
 
     @Override public String type() {
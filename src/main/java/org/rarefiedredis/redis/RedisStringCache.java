@@ -1,46 +1,86 @@
 package org.rarefiedredis.redis;
 
-import java.util.Map;
-import java.util.HashMap;
-
 /**
- * Cache key-value pairs as strings.
+ * Cache key-value pairs as strings. A view over the strings
+ * in a keyspace.
+ *
+ * The values are stored as {@link Sds}, so they are binary safe. The
+ * String methods convert to and from UTF-8.
  */
 public final class RedisStringCache implements IRedisCache<String, String> {
 
     /**
-     * Holds the actual cache.
+     * The keyspace this cache is a view over.
      */
-    private Map<String, String> cache;
+    private RedisKeyspace keyspace;
 
     /**
      * Constructor. Initializes an empty cache.
      */
     public RedisStringCache() {
-        cache = new HashMap<String, String>();
+        this(new RedisKeyspace());
+    }
+
+    /**
+     * Constructor. Initializes a cache over the strings in the keyspace.
+     *
+     * @param keyspace The keyspace to view.
+     */
+    public RedisStringCache(RedisKeyspace keyspace) {
+        this.keyspace = keyspace;
     }
 
     @Override public Boolean exists(final String key) {
-        return cache.containsKey(key);
+        return keyspace.get(key, type()) != null;
     }
 
     @Override public void remove(final String key) {
-        cache.remove(key);
+        if (exists(key)) {
+            keyspace.remove(key);
+        }
     }
 
     @Override public void set(final String key, final String value, final Object ... arguments) {
-        cache.put(key, value);
+        setSds(key, new Sds(value));
     }
 
     @Override public String get(final String key) {
-        return cache.get(key);
+        Sds value = getSds(key);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Set the value at key.
+     *
+     * @param key The key.
+     * @param value The value. The cache keeps it, so it must not be shared.
+     */
+    public void setSds(final String key, final Sds value) {
+        RedisKeyspace.Entry entry = keyspace.get(key);
+        if (entry == null || !entry.type.equals(type())) {
+            keyspace.put(key, type(), value);
+        }
+        else {
+            entry.value = value;
+        }
+    }
+
+    /**
+     * Get the value at key. The value may be changed in place.
+     *
+     * @param key The key.
+     *
+     * @return The value, or null if there is no string at key.
+     */
+    public Sds getSds(final String key) {
+        return (Sds)keyspace.get(key, type());
     }
 
     @Override public Boolean removeValue(final String key, final String value) {
         if (!exists(key)) {
             return false;
         }
-        if (cache.get(key).equals(value)) {
+        if (get(key).equals(value)) {
             remove(key);
             return true;
         }
@@ -0,0 +1,311 @@
+package org.rarefiedredis.redis;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A binary-safe string value, like the redis simple dynamic string.
+ * The bytes are kept in a growable array with spare capacity at the
+ * end, so appending, overwriting a range and setting a bit change the
+ * array in place instead of building a new string every time.
+ *
+ * Strings are converted to and from bytes as UTF-8, the same as the
+ * redis clients do, so a value written through the string API is
+ * stored and measured as the bytes redis would store.
+ *
+ * The first bit command that counts, searches, combines or sets bits
+ * converts the value to a {@link Bitmap}, which works a word at a time.
+ * A value is never converted back; byte commands work on either
+ * encoding.
+ */
+public final class Sds {
+
+    /** The charset strings are encoded with. */
+    public static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The bytes, or null if the value is a bitmap. Only the first length of them are in the value. */
+    private byte[] buf;
+    /** The number of bytes in the value, if it is not a bitmap. */
+    private int length;
+    /** The value as a bitmap, or null if it is still a byte array. */
+    private Bitmap bits;
+    /** The value decoded as a string, or null if it changed since. */
+    private String string;
+
+    /**
+     * Constructor. Initializes an empty value.
+     */
+    public Sds() {
+        this.buf = new byte[0];
+        this.length = 0;
+        this.string = "";
+    }
+
+    /**
+     * Constructor. Initializes a value holding a copy of the bytes.
+     *
+     * @param bytes The bytes.
+     */
+    public Sds(final byte[] bytes) {
+        this.buf = Arrays.copyOf(bytes, bytes.length);
+        this.length = bytes.length;
+        this.string = null;
+    }
+
+    /**
+     * Constructor. Initializes a value that owns the bitmap.
+     */
+    private Sds(final Bitmap bits) {
+        this.bits = bits;
+        this.string = null;
+    }
+
+    /**
+     * Constructor. Initializes a value holding the UTF-8 bytes of the
+     * string.
+     *
+     * @param string The string.
+     */
+    public Sds(final String string) {
+        this.buf = string.getBytes(UTF8);
+        this.length = buf.length;
+        this.string = string;
+    }
+
+    /**
+     * @return The value as a bitmap, converting it if it is not one yet.
+     */
+    private Bitmap bitmap() {
+        if (bits == null) {
+            bits = new Bitmap(buf, length);
+            buf = null;
+            length = 0;
+        }
+        return bits;
+    }
+
+    /**
+     * @return true if the value is stored as a bitmap.
+     */
+    public boolean isBitmap() {
+        return bits != null;
+    }
+
+    /**
+     * @return The number of bytes in the value.
+     */
+    public int length() {
+        return bits != null ? bits.length() : length;
+    }
+
+    /**
+     * Get the byte at an index.
+     *
+     * @param index The index.
+     *
+     * @return The byte.
+     */
+    public byte byteAt(final int index) {
+        if (bits != null) {
+            return bits.byteAt(index);
+        }
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+        return buf[index];
+    }
+
+    /**
+     * @return A copy of the bytes in the value.
+     */
+    public byte[] toByteArray() {
+        if (bits != null) {
+            return bits.toByteArray();
+        }
+        return Arrays.copyOf(buf, length);
+    }
+
+    /**
+     * Copy a range of the value.
+     *
+     * @param from The index of the first byte to copy.
+     * @param to The index after the last byte to copy.
+     *
+     * @return The bytes in the range.
+     */
+    public byte[] range(final int from, final int to) {
+        if (bits != null) {
+            return bits.range(from, to);
+        }
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", Length: " + length);
+        }
+        return Arrays.copyOfRange(buf, from, to);
+    }
+
+    /**
+     * Make room for at least the given number of bytes, zero padding
+     * the value out to that length.
+     */
+    private void grow(final int newLength) {
+        if (newLength <= length) {
+            return;
+        }
+        if (newLength > buf.length) {
+            // Double the capacity, so that n appends cost O(n) copies
+            // in total, like sdsMakeRoomFor.
+            buf = Arrays.copyOf(buf, Math.max(newLength, 2 * buf.length));
+        }
+        else {
+            Arrays.fill(buf, length, newLength, (byte)0);
+        }
+        length = newLength;
+    }
+
+    /**
+     * Append bytes onto the end of the value.
+     *
+     * @param bytes The bytes.
+     *
+     * @return The length of the value after the append.
+     */
+    public int append(final byte[] bytes) {
+        return setrange(length(), bytes);
+    }
+
+    /**
+     * Overwrite the value with bytes starting at offset, zero padding
+     * the value out to the offset if it is shorter.
+     *
+     * @param offset Where to start.
+     * @param bytes The bytes.
+     *
+     * @return The length of the value after the write.
+     */
+    public int setrange(final int offset, final byte[] bytes) {
+        string = null;
+        if (bits != null) {
+            return bits.setrange(offset, bytes);
+        }
+        if (offset < 0) {
+            throw new IndexOutOfBoundsException("offset: " + offset);
+        }
+        grow(offset + bytes.length);
+        System.arraycopy(bytes, 0, buf, offset, bytes.length);
+        return length;
+    }
+
+    /**
+     * Get a bit. Bits are numbered from the most significant bit of
+     * the first byte, as in redis.
+     *
+     * @param offset The bit offset.
+     *
+     * @return The bit, or false if the offset is past the end of the value.
+     */
+    public boolean getbit(final long offset) {
+        if (bits != null) {
+            return bits.getbit(offset);
+        }
+        long idx = offset >> 3;
+        if (idx >= length) {
+            return false;
+        }
+        return (buf[(int)idx] & (0x80 >> (int)(offset & 7))) != 0;
+    }
+
+    /**
+     * Set or clear a bit, zero padding the value out to the byte that
+     * holds it.
+     *
+     * @param offset The bit offset.
+     * @param value Whether to set or clear the bit.
+     *
+     * @return The previous bit.
+     */
+    public boolean setbit(final long offset, final boolean value) {
+        string = null;
+        return bitmap().setbit(offset, value);
+    }
+
+    /**
+     * Count the set bits in a range of bytes.
+     *
+     * @param from The index of the first byte.
+     * @param to The index after the last byte.
+     *
+     * @return The number of set bits.
+     */
+    public long bitcount(final int from, final int to) {
+        return bitmap().bitcount(from, to);
+    }
+
+    /**
+     * Find the first bit set to the given value in a range of bytes.
+     *
+     * @param bit Whether to look for a set or a clear bit.
+     * @param from The index of the first byte.
+     * @param to The index after the last byte.
+     *
+     * @return The bit offset, or -1 if there is no such bit in the range.
+     */
+    public long bitpos(final boolean bit, final int from, final int to) {
+        return bitmap().bitpos(bit, from, to);
+    }
+
+    /**
+     * Combine values with a bitwise operation, zero padding the shorter
+     * values out to the length of the longest.
+     *
+     * @param operation "and", "or", "xor" or "not". "not" uses only the first value.
+     * @param values The values. Null values are treated as empty.
+     *
+     * @return The result, as a bitmap.
+     */
+    public static Sds bitop(final String operation, final Sds ... values) {
+        Bitmap[] bitmaps = new Bitmap[values.length];
+        for (int idx = 0; idx < values.length; ++idx) {
+            bitmaps[idx] = values[idx] == null ? null : values[idx].bitmap();
+        }
+        return new Sds(Bitmap.bitop(operation, bitmaps));
+    }
+
+    @Override public String toString() {
+        if (string == null) {
+            if (bits != null) {
+                string = new String(bits.toByteArray(), UTF8);
+            }
+            else {
+                string = new String(buf, 0, length, UTF8);
+            }
+        }
+        return string;
+    }
+
+    @Override public boolean equals(Object o) {
+        if (!(o instanceof Sds)) {
+            return false;
+        }
+        Sds other = (Sds)o;
+        int len = length();
+        if (other.length() != len) {
+            return false;
+        }
+        for (int idx = 0; idx < len; ++idx) {
+            if (byteAt(idx) != other.byteAt(idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override public int hashCode() {
+        int hash = 1;
+        int len = length();
+        for (int idx = 0; idx < len; ++idx) {
+            hash = 31 * hash + byteAt(idx);
+        }
+        return hash;
+    }
+
+}
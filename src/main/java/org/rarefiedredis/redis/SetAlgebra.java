@@ -0,0 +1,155 @@
+package org.rarefiedredis.redis;
+
+import java.util.Set;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Intersection, union and difference of sets, the way redis computes
+ * SINTER, SUNION and SDIFF: the inputs are never copied, only walked
+ * and probed, and every result member is written once into whatever
+ * collection the caller wants the result in.
+ *
+ * An intersection walks the smallest set and probes the others from
+ * the smallest up, so a member is dropped after as few lookups as
+ * possible, and an empty input ends it before anything is walked.
+ * A difference picks between probing the other sets for each member
+ * of the first, and copying the first and removing the others from
+ * it, by which one touches fewer members.
+ */
+public final class SetAlgebra {
+
+    private static final Comparator<Set<String>> BY_SIZE = new Comparator<Set<String>>() {
+        @Override public int compare(Set<String> a, Set<String> b) {
+            return a.size() < b.size() ? -1 : (a.size() == b.size() ? 0 : 1);
+        }
+    };
+
+    private SetAlgebra() {
+    }
+
+    /**
+     * Intersect sets into a collection.
+     *
+     * @param sets The sets. A missing set is null, and makes the
+     * intersection empty.
+     * @param into Receives each member of the intersection once.
+     *
+     * @return The number of members of the intersection.
+     */
+    public static int intersect(final List<Set<String>> sets, final Collection<String> into) {
+        Set<String>[] sorted = toArray(sets);
+        for (Set<String> set : sorted) {
+            if (set == null || set.isEmpty()) {
+                return 0;
+            }
+        }
+        Arrays.sort(sorted, BY_SIZE);
+        int count = 0;
+        for (String member : sorted[0]) {
+            boolean in = true;
+            for (int idx = 1; idx < sorted.length && in; ++idx) {
+                // The same set given twice needs no probe.
+                in = sorted[idx] == sorted[0] || sorted[idx].contains(member);
+            }
+            if (in) {
+                into.add(member);
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Union sets into a set.
+     *
+     * @param sets The sets. A missing set is null.
+     * @param into Receives the members of every set. It has to be a set
+     * so that members in more than one set are only added once.
+     *
+     * @return The number of members of the union.
+     */
+    public static int union(final List<Set<String>> sets, final Set<String> into) {
+        for (Set<String> set : sets) {
+            if (set != null && set != into) {
+                into.addAll(set);
+            }
+        }
+        return into.size();
+    }
+
+    /**
+     * Subtract sets from the first one, into a collection.
+     *
+     * @param sets The sets, the first one being the one to subtract
+     * the others from. A missing set is null.
+     * @param into Receives each member of the difference once.
+     *
+     * @return The number of members of the difference.
+     */
+    public static int difference(final List<Set<String>> sets, final Collection<String> into) {
+        Set<String> first = sets.get(0);
+        if (first == null || first.isEmpty()) {
+            return 0;
+        }
+        Set<String>[] others = toArray(sets.subList(1, sets.size()));
+        long probes = 0L;
+        long removals = first.size();
+        for (Set<String> other : others) {
+            if (other == first) {
+                return 0;
+            }
+            if (other != null) {
+                probes += first.size();
+                removals += other.size();
+            }
+        }
+        // Probing stops at the first set a member is in, so it does
+        // about half the lookups it could, as redis reckons.
+        if (probes / 2 <= removals) {
+            // Look in the largest sets first, they are the likeliest to
+            // have the member.
+            Arrays.sort(others, Collections.reverseOrder(nullsFirst()));
+            int count = 0;
+            for (String member : first) {
+                boolean in = false;
+                for (int idx = 0; idx < others.length && !in && others[idx] != null; ++idx) {
+                    in = others[idx].contains(member);
+                }
+                if (!in) {
+                    into.add(member);
+                    ++count;
+                }
+            }
+            return count;
+        }
+        Set<String> diff = new DictSet<String>(first);
+        for (Set<String> other : others) {
+            if (other != null) {
+                diff.removeAll(other);
+            }
+        }
+        into.addAll(diff);
+        return diff.size();
+    }
+
+    private static Comparator<Set<String>> nullsFirst() {
+        return new Comparator<Set<String>>() {
+            @Override public int compare(Set<String> a, Set<String> b) {
+                if (a == null || b == null) {
+                    return a == b ? 0 : (a == null ? -1 : 1);
+                }
+                return BY_SIZE.compare(a, b);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] toArray(final List<Set<String>> sets) {
+        return sets.toArray((Set<String>[])new Set[sets.size()]);
+    }
+
+}
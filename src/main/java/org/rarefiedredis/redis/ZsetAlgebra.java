@@ -0,0 +1,207 @@
+package org.rarefiedredis.redis;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Union and intersection of sorted sets with weights and an aggregate,
+ * the way redis computes ZUNIONSTORE and ZINTERSTORE. The inputs are
+ * walked node by node along their skip lists and never copied; each
+ * member of the result gets one mutable score that every input adds
+ * to, and the result is sorted once and built into a new skip list in
+ * order, without a search per member.
+ *
+ * An intersection walks the smallest input and looks each member up in
+ * the others from the smallest up, so a member is dropped after as few
+ * lookups as possible, and an empty input ends it before anything is
+ * walked.
+ */
+public final class ZsetAlgebra {
+
+    /** Add the weighted scores of a member together. */
+    public static final int SUM = 0;
+    /** Keep the lowest weighted score of a member. */
+    public static final int MIN = 1;
+    /** Keep the highest weighted score of a member. */
+    public static final int MAX = 2;
+
+    /**
+     * A member of the result and its score so far.
+     */
+    private static final class Score {
+        private final String member;
+        private double score;
+
+        private Score(String member, double score) {
+            this.member = member;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Score> ORDER = new Comparator<Score>() {
+        @Override public int compare(Score a, Score b) {
+            if (a.score < b.score) {
+                return -1;
+            }
+            if (a.score > b.score) {
+                return 1;
+            }
+            return a.member.compareTo(b.member);
+        }
+    };
+
+    private ZsetAlgebra() {
+    }
+
+    /**
+     * Parse the argument of the AGGREGATE option.
+     *
+     * @param aggregate sum, min or max, in any case.
+     *
+     * @return SUM, MIN or MAX.
+     *
+     * @throws SyntaxErrorException If the aggregate is not one of them.
+     */
+    public static int aggregate(final String aggregate) throws SyntaxErrorException {
+        if ("sum".equalsIgnoreCase(aggregate)) {
+            return SUM;
+        }
+        if ("min".equalsIgnoreCase(aggregate)) {
+            return MIN;
+        }
+        if ("max".equalsIgnoreCase(aggregate)) {
+            return MAX;
+        }
+        throw new SyntaxErrorException();
+    }
+
+    /**
+     * Union sorted sets.
+     *
+     * @param lists The skip lists of the sorted sets. A missing set is null.
+     * @param weights The weight of each set.
+     * @param aggregate How the scores of a member in more than one set
+     * are combined: SUM, MIN or MAX.
+     *
+     * @return The skip list of the union.
+     */
+    public static ZsetSkipList union(final List<ZsetSkipList> lists, final double[] weights, final int aggregate) {
+        long total = 0L;
+        for (ZsetSkipList list : lists) {
+            if (list != null) {
+                total += list.length();
+            }
+        }
+        int capacity = (int)Math.min(total, 1 << 28);
+        Map<String, Score> index = new HashMap<String, Score>(capacity + capacity / 3 + 1);
+        List<Score> scores = new ArrayList<Score>(capacity);
+        for (int idx = 0; idx < lists.size(); ++idx) {
+            ZsetSkipList list = lists.get(idx);
+            if (list == null) {
+                continue;
+            }
+            for (ZsetSkipList.Node node = list.first(); node != null; node = node.next()) {
+                double score = weigh(node.score, weights[idx]);
+                Score result = index.get(node.member);
+                if (result == null) {
+                    result = new Score(node.member, score);
+                    index.put(node.member, result);
+                    scores.add(result);
+                }
+                else {
+                    result.score = combine(aggregate, result.score, score);
+                }
+            }
+        }
+        return build(scores);
+    }
+
+    /**
+     * Intersect sorted sets.
+     *
+     * @param lists The skip lists of the sorted sets. A missing set is
+     * null, and makes the intersection empty.
+     * @param scores The member to score map of each set, to look up the
+     * members of the smallest set in.
+     * @param weights The weight of each set.
+     * @param aggregate How the scores of a member are combined: SUM,
+     * MIN or MAX.
+     *
+     * @return The skip list of the intersection.
+     */
+    public static ZsetSkipList intersect(final List<ZsetSkipList> lists, final List<Map<String, Double>> scores, final double[] weights, final int aggregate) {
+        Integer[] order = new Integer[lists.size()];
+        for (int idx = 0; idx < order.length; ++idx) {
+            ZsetSkipList list = lists.get(idx);
+            if (list == null || list.length() == 0L) {
+                return new ZsetSkipList();
+            }
+            order[idx] = idx;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+                @Override public int compare(Integer a, Integer b) {
+                    long x = lists.get(a).length();
+                    long y = lists.get(b).length();
+                    return x < y ? -1 : (x == y ? 0 : 1);
+                }
+            });
+        int smallest = order[0];
+        List<Score> results = new ArrayList<Score>((int)lists.get(smallest).length());
+        for (ZsetSkipList.Node node = lists.get(smallest).first(); node != null; node = node.next()) {
+            double score = weigh(node.score, weights[smallest]);
+            boolean in = true;
+            for (int idx = 1; idx < order.length && in; ++idx) {
+                Double other = scores.get(order[idx]).get(node.member);
+                if (other == null) {
+                    in = false;
+                }
+                else {
+                    score = combine(aggregate, score, weigh(other, weights[order[idx]]));
+                }
+            }
+            if (in) {
+                results.add(new Score(node.member, score));
+            }
+        }
+        return build(results);
+    }
+
+    /**
+     * Weigh a score. As in redis, 0 times infinity is 0 rather than NaN.
+     */
+    private static double weigh(final double score, final double weight) {
+        double weighed = score * weight;
+        return Double.isNaN(weighed) ? 0.0 : weighed;
+    }
+
+    /**
+     * Combine two scores. As in redis, the sum of the two infinities is
+     * 0 rather than NaN.
+     */
+    private static double combine(final int aggregate, final double a, final double b) {
+        switch (aggregate) {
+        case MIN:
+            return a < b ? a : b;
+        case MAX:
+            return a > b ? a : b;
+        default:
+            double sum = a + b;
+            return Double.isNaN(sum) ? 0.0 : sum;
+        }
+    }
+
+    private static ZsetSkipList build(final List<Score> scores) {
+        Collections.sort(scores, ORDER);
+        ZsetSkipList.Builder builder = new ZsetSkipList.Builder();
+        for (Score score : scores) {
+            builder.append(score.member, score.score);
+        }
+        return builder.build();
+    }
+
+}
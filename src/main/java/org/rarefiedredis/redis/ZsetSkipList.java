@@ -0,0 +1,451 @@
+package org.rarefiedredis.redis;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The ordered half of a sorted set: a skip list of (score, member)
+ * nodes, ordered by score and then by member, the way redis orders
+ * its zsets.
+ *
+ * Every link of the list records its span, the number of nodes it
+ * skips over, so the rank of a node and the node at a rank are found
+ * in O(log n) as well as the first node in a score or lex range. The
+ * list does not know about duplicate members; the owner of the list
+ * keeps a member to score map and removes a member before it inserts
+ * it again with another score.
+ */
+public final class ZsetSkipList {
+
+    /** The most levels a node can have. */
+    public static final int MAX_LEVEL = 32;
+    /** The chance a node gets one more level. */
+    private static final double P = 0.25;
+
+    /**
+     * A member of the skip list.
+     */
+    public static final class Node {
+        /** The member. */
+        public final String member;
+        /** The score of the member. */
+        public final double score;
+        /** The previous node, or null for the first node. */
+        private Node backward;
+        /** The next node on each level. */
+        private final Node[] forward;
+        /** The number of nodes each forward link skips over. */
+        private final long[] span;
+
+        private Node(int level, String member, double score) {
+            this.member = member;
+            this.score = score;
+            this.forward = new Node[level];
+            this.span = new long[level];
+        }
+
+        /**
+         * Get the next node in the list.
+         *
+         * @return The next node, or null if this is the last node.
+         */
+        public Node next() {
+            return forward[0];
+        }
+
+        /**
+         * Get the previous node in the list.
+         *
+         * @return The previous node, or null if this is the first node.
+         */
+        public Node previous() {
+            return backward;
+        }
+    }
+
+    private final Node header;
+    private Node tail;
+    private long length;
+    private int level;
+    private final Random random;
+
+    /**
+     * Constructor. Initializes an empty skip list.
+     */
+    public ZsetSkipList() {
+        header = new Node(MAX_LEVEL, null, 0.0);
+        tail = null;
+        length = 0L;
+        level = 1;
+        random = new Random();
+    }
+
+    private static int compare(double score, String member, Node node) {
+        if (score < node.score) {
+            return -1;
+        }
+        if (score > node.score) {
+            return 1;
+        }
+        return member.compareTo(node.member);
+    }
+
+    private int randomLevel() {
+        int lvl = 1;
+        while (lvl < MAX_LEVEL && random.nextDouble() < P) {
+            lvl += 1;
+        }
+        return lvl;
+    }
+
+    /**
+     * Insert a member. The member must not already be in the list.
+     *
+     * @param member The member.
+     * @param score The score of the member.
+     *
+     * @return The new node.
+     */
+    public Node insert(final String member, final double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        long[] rank = new long[MAX_LEVEL];
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            rank[i] = i == level - 1 ? 0L : rank[i + 1];
+            while (x.forward[i] != null && compare(score, member, x.forward[i]) > 0) {
+                rank[i] += x.span[i];
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        int lvl = randomLevel();
+        if (lvl > level) {
+            for (int i = level; i < lvl; ++i) {
+                rank[i] = 0L;
+                update[i] = header;
+                update[i].span[i] = length;
+            }
+            level = lvl;
+        }
+        x = new Node(lvl, member, score);
+        for (int i = 0; i < lvl; ++i) {
+            x.forward[i] = update[i].forward[i];
+            update[i].forward[i] = x;
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1L;
+        }
+        // The levels above the new node now skip over one more node.
+        for (int i = lvl; i < level; ++i) {
+            update[i].span[i] += 1L;
+        }
+        x.backward = update[0] == header ? null : update[0];
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x;
+        }
+        else {
+            tail = x;
+        }
+        length += 1L;
+        return x;
+    }
+
+    /**
+     * Remove a member.
+     *
+     * @param member The member.
+     * @param score The score the member was inserted with.
+     *
+     * @return true if the member was removed, or false if it was not found.
+     */
+    public boolean delete(final String member, final double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            while (x.forward[i] != null && compare(score, member, x.forward[i]) > 0) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        x = x.forward[0];
+        if (x == null || x.score != score || !x.member.equals(member)) {
+            return false;
+        }
+        for (int i = 0; i < level; ++i) {
+            if (update[i].forward[i] == x) {
+                update[i].span[i] += x.span[i] - 1L;
+                update[i].forward[i] = x.forward[i];
+            }
+            else {
+                update[i].span[i] -= 1L;
+            }
+        }
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x.backward;
+        }
+        else {
+            tail = x.backward;
+        }
+        while (level > 1 && header.forward[level - 1] == null) {
+            level -= 1;
+        }
+        length -= 1L;
+        return true;
+    }
+
+    /**
+     * Get the rank of a member.
+     *
+     * @param member The member.
+     * @param score The score of the member.
+     *
+     * @return The rank of the member, starting at 1, or 0 if it is not in the list.
+     */
+    public long rank(final String member, final double score) {
+        long rank = 0L;
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            while (x.forward[i] != null && compare(score, member, x.forward[i]) >= 0) {
+                rank += x.span[i];
+                x = x.forward[i];
+            }
+            if (x != header && x.member.equals(member)) {
+                return rank;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Get the node at a rank.
+     *
+     * @param rank The rank, starting at 1.
+     *
+     * @return The node, or null if the rank is out of range.
+     */
+    public Node byRank(final long rank) {
+        if (rank < 1L || rank > length) {
+            return null;
+        }
+        long traversed = 0L;
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            while (x.forward[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private static boolean aboveMin(double score, double min, boolean minExclusive) {
+        return minExclusive ? score > min : score >= min;
+    }
+
+    private static boolean belowMax(double score, double max, boolean maxExclusive) {
+        return maxExclusive ? score < max : score <= max;
+    }
+
+    /**
+     * Get the first node whose score is in a range.
+     *
+     * @param min The low end of the range.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The first node in the range, or null if the range is empty.
+     */
+    public Node firstInRange(final double min, final boolean minExclusive, final double max, final boolean maxExclusive) {
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            while (x.forward[i] != null && !aboveMin(x.forward[i].score, min, minExclusive)) {
+                x = x.forward[i];
+            }
+        }
+        x = x.forward[0];
+        if (x == null || !belowMax(x.score, max, maxExclusive)) {
+            return null;
+        }
+        return x;
+    }
+
+    /**
+     * Get the last node whose score is in a range.
+     *
+     * @param min The low end of the range.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The last node in the range, or null if the range is empty.
+     */
+    public Node lastInRange(final double min, final boolean minExclusive, final double max, final boolean maxExclusive) {
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            while (x.forward[i] != null && belowMax(x.forward[i].score, max, maxExclusive)) {
+                x = x.forward[i];
+            }
+        }
+        if (x == header || !aboveMin(x.score, min, minExclusive)) {
+            return null;
+        }
+        return x;
+    }
+
+    private static boolean aboveLexMin(String member, String min, boolean minExclusive) {
+        if (min == null) {
+            return true;
+        }
+        int cmp = member.compareTo(min);
+        return minExclusive ? cmp > 0 : cmp >= 0;
+    }
+
+    private static boolean belowLexMax(String member, String max, boolean maxExclusive) {
+        if (max == null) {
+            return true;
+        }
+        int cmp = member.compareTo(max);
+        return maxExclusive ? cmp < 0 : cmp <= 0;
+    }
+
+    /**
+     * Get the first node whose member is in a lexicographical range. Like
+     * in redis, the result is only meaningful if all the members have the
+     * same score.
+     *
+     * @param min The low end of the range, or null for no low end.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range, or null for no high end.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return The first node in the range, or null if the range is empty.
+     */
+    public Node firstInLexRange(final String min, final boolean minExclusive, final String max, final boolean maxExclusive) {
+        Node x = header;
+        for (int i = level - 1; i >= 0; --i) {
+            while (x.forward[i] != null && !aboveLexMin(x.forward[i].member, min, minExclusive)) {
+                x = x.forward[i];
+            }
+        }
+        x = x.forward[0];
+        if (x == null || !belowLexMax(x.member, max, maxExclusive)) {
+            return null;
+        }
+        return x;
+    }
+
+    /**
+     * Is the member inside a lexicographical range?
+     *
+     * @param member The member.
+     * @param min The low end of the range, or null for no low end.
+     * @param minExclusive Is the low end left out of the range?
+     * @param max The high end of the range, or null for no high end.
+     * @param maxExclusive Is the high end left out of the range?
+     *
+     * @return true if the member is in the range, or false.
+     */
+    public static boolean inLexRange(final String member, final String min, final boolean minExclusive, final String max, final boolean maxExclusive) {
+        return aboveLexMin(member, min, minExclusive) && belowLexMax(member, max, maxExclusive);
+    }
+
+    /**
+     * Get the first node of the list.
+     *
+     * @return The first node, or null if the list is empty.
+     */
+    public Node first() {
+        return header.forward[0];
+    }
+
+    /**
+     * Get the last node of the list.
+     *
+     * @return The last node, or null if the list is empty.
+     */
+    public Node last() {
+        return tail;
+    }
+
+    /**
+     * Get the number of nodes in the list.
+     *
+     * @return The number of nodes.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Builds a list from members given in order, in one pass. Each
+     * member is linked after the last one on each of its levels, with
+     * no search, so n members take O(n) rather than O(n log n).
+     */
+    public static final class Builder {
+        private final ZsetSkipList list;
+        /** The last node on each level. */
+        private final Node[] last;
+        /** The rank of the last node on each level. */
+        private final long[] rank;
+
+        /**
+         * Constructor. Starts an empty list.
+         */
+        public Builder() {
+            list = new ZsetSkipList();
+            last = new Node[MAX_LEVEL];
+            rank = new long[MAX_LEVEL];
+            Arrays.fill(last, list.header);
+        }
+
+        /**
+         * Add a member after the others.
+         *
+         * @param member The member.
+         * @param score The score of the member.
+         *
+         * @return This builder.
+         *
+         * @throws IllegalArgumentException If the member does not order
+         * after the last one added.
+         */
+        public Builder append(final String member, final double score) {
+            if (list.tail != null && compare(score, member, list.tail) <= 0) {
+                throw new IllegalArgumentException("Members must be appended in order");
+            }
+            int lvl = list.randomLevel();
+            if (lvl > list.level) {
+                list.level = lvl;
+            }
+            Node x = new Node(lvl, member, score);
+            long r = list.length + 1L;
+            for (int i = 0; i < lvl; ++i) {
+                last[i].forward[i] = x;
+                last[i].span[i] = r - rank[i];
+                last[i] = x;
+                rank[i] = r;
+            }
+            x.backward = list.tail;
+            list.tail = x;
+            list.length = r;
+            return this;
+        }
+
+        /**
+         * Finish the list. The builder must not be used afterwards.
+         *
+         * @return The list.
+         */
+        public ZsetSkipList build() {
+            // The last node on each level spans to the end of the list.
+            for (int i = 0; i < list.level; ++i) {
+                last[i].span[i] = list.length - rank[i];
+            }
+            return list;
+        }
+    }
+
+}
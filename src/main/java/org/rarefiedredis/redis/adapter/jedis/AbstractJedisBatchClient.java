@@ -0,0 +1,136 @@
+package org.rarefiedredis.redis.adapter.jedis;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Queable;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import org.rarefiedredis.redis.IRedisClient;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A jedis client that queues its commands in a batch on one connection
+ * instead of sending each one and waiting for its reply. The commands
+ * return null, and the replies come back all at once when the batch is
+ * sent.
+ *
+ * The batch is a jedis Transaction for a multi, or a jedis Pipeline
+ * for a pipeline; both queue their commands the same way.
+ */
+public abstract class AbstractJedisBatchClient extends AbstractJedisIRedisClient {
+
+    private final JedisPool pool;
+    private Jedis jedis;
+    private Queable batch;
+
+    protected AbstractJedisBatchClient(JedisPool pool) {
+        this.pool = pool;
+        this.jedis = null;
+    }
+
+    protected AbstractJedisBatchClient(Jedis jedis) {
+        this.pool = null;
+        this.jedis = jedis;
+    }
+
+    /**
+     * Start a batch on a connection.
+     *
+     * @param jedis The connection.
+     *
+     * @return The batch.
+     */
+    protected abstract Queable open(Jedis jedis);
+
+    /**
+     * Take a connection from the pool, if we are using one, and start
+     * a batch on it.
+     */
+    protected final synchronized void initialize() {
+        try {
+            if (pool != null) {
+                this.jedis = pool.getResource();
+            }
+            batch = open(jedis);
+        }
+        catch (Exception e) {
+            batch = null;
+            release();
+        }
+    }
+
+    /**
+     * @return The batch, or null if there is none.
+     */
+    protected final synchronized Queable batch() {
+        return batch;
+    }
+
+    /**
+     * Forget the batch, and give the connection back to the pool if we
+     * took it from one.
+     */
+    protected final synchronized void release() {
+        batch = null;
+        if (pool != null && jedis != null) {
+            jedis.close();
+            jedis = null;
+        }
+    }
+
+    /**
+     * Map the errors in a list of replies to exceptions.
+     *
+     * @param replies The replies.
+     *
+     * @return The replies, with each error replaced by its exception.
+     */
+    protected static List<Object> replies(List<Object> replies) {
+        if (replies == null) {
+            return null;
+        }
+        List<Object> mapped = new ArrayList<Object>(replies.size());
+        for (Object reply : replies) {
+            if (reply instanceof JedisDataException) {
+                Exception e = JedisDispatch.error((JedisDataException)reply);
+                mapped.add(e != null ? e : reply);
+            }
+            else {
+                mapped.add(reply);
+            }
+        }
+        return mapped;
+    }
+
+    @Override public IRedisClient createClient() {
+        return this;
+    }
+
+    @Override public void close() {
+        release();
+    }
+
+    @Override public Object command(String name, Object ... args) {
+        try {
+            synchronized (this) {
+                if (batch != null) {
+                    JedisDispatch
+                        .method(batch.getClass(), name, args)
+                        .invoke(batch, args);
+                }
+            }
+        }
+        catch (NoSuchMethodException e) {
+        }
+        catch (IllegalAccessException e) {
+        }
+        catch (InvocationTargetException e) {
+        }
+        return null;
+    }
+
+}
@@ -9,6 +9,7 @@ import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.Tuple;
 import redis.clients.jedis.ZParams;
 import redis.clients.jedis.BinaryClient.LIST_POSITION;
+import redis.clients.util.SafeEncoder;
 
 import org.rarefiedredis.redis.IRedisClient;
 import org.rarefiedredis.redis.AbstractRedisClient;
@@ -134,6 +135,26 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (String)command("type", key);
     }
 
+    @Override public String[] keys(final String pattern) {
+        Set<String> keys = (Set<String>)command("keys", pattern);
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    @Override public ScanResult<Set<String>> scan(final long cursor, final String ... options) {
+        ScanParams params = new ScanParams();
+        for (int idx = 0; idx < options.length; ++idx) {
+            if (options[idx].equals("count")) {
+                params.count(Integer.valueOf(options[idx + 1]));
+            }
+            else if (options[idx].equals("match")) {
+                params.match(options[idx + 1]);
+            }
+        }
+        redis.clients.jedis.ScanResult<String> scanResult = (redis.clients.jedis.ScanResult<String>)command("scan", String.valueOf(cursor), params);
+        Set<String> results = new HashSet<String>(scanResult.getResult());
+        return new ScanResult<Set<String>>(Long.valueOf(scanResult.getCursor()), results);
+    }
+
     @Override public Long append(final String key, final String value) throws WrongTypeException {
         Object ret = command("append", key, value);
         if (ret instanceof WrongTypeException) {
@@ -142,6 +163,14 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (Long)ret;
     }
 
+    @Override public Long append(final byte[] key, final byte[] value) throws WrongTypeException {
+        Object ret = command("append", key, value);
+        if (ret instanceof WrongTypeException) {
+            throw (WrongTypeException)ret;
+        }
+        return (Long)ret;
+    }
+
     @Override public Long bitcount(final String key, final long ... options) throws WrongTypeException {
         if (options.length > 0) {
             long start, end;
@@ -237,6 +266,14 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (String)ret;
     }
 
+    @Override public byte[] get(final byte[] key) throws WrongTypeException {
+        Object ret = command("get", key);
+        if (ret instanceof WrongTypeException) {
+            throw (WrongTypeException)ret;
+        }
+        return (byte[])ret;
+    }
+
     @Override public Boolean getbit(final String key, final long offset) throws WrongTypeException {
         Object ret = command("getbit", key, offset);
         if (ret instanceof WrongTypeException) {
@@ -253,6 +290,14 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (String)ret;
     }
 
+    @Override public byte[] getrange(final byte[] key, final long start, final long end) throws WrongTypeException {
+        Object ret = command("getrange", key, start, end);
+        if (ret instanceof WrongTypeException) {
+            throw (WrongTypeException)ret;
+        }
+        return (byte[])ret;
+    }
+
     @Override public String getset(final String key, final String value) throws WrongTypeException {
         Object ret = command("getSet", key, value);
         if (ret instanceof WrongTypeException) {
@@ -261,6 +306,14 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (String)ret;
     }
 
+    @Override public byte[] getset(final byte[] key, final byte[] value) throws WrongTypeException {
+        Object ret = command("getSet", key, value);
+        if (ret instanceof WrongTypeException) {
+            throw (WrongTypeException)ret;
+        }
+        return (byte[])ret;
+    }
+
     @Override public Long incr(final String key) throws WrongTypeException, NotIntegerException {
         Object ret = command("incr", key);
         if (ret instanceof WrongTypeException) {
@@ -356,6 +409,43 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (String)command("set", key, value, nxxx, expx, time);
     }
 
+    @Override public String set(final byte[] key, final byte[] value, final String ... options) {
+        if (options.length == 0) {
+            return (String)command("set", key, value);
+        }
+        String nxxx = null;
+        String expx = null;
+        long time = -1L;
+        for (int idx = 0; idx < options.length; ++idx) {
+            if (options[idx] == "nx") {
+                nxxx = "nx";
+            }
+            else if (options[idx] == "xx") {
+                nxxx = "xx";
+            }
+            else if (options[idx] == "ex") {
+                expx = "ex";
+                time = Long.valueOf(options[idx + 1]);
+            }
+            else if (options[idx] == "px") {
+                expx = "px";
+                time = Long.valueOf(options[idx + 1]);
+            }
+        }
+        if (nxxx != null && expx == null) {
+            return (String)command("set", key, value, SafeEncoder.encode(nxxx));
+        }
+        if (nxxx == null && expx != null) {
+            if (expx.equals("ex")) {
+                return (String)command("setex", key, (int)time, value);
+            }
+            else if (expx.equals("px")) {
+                return (String)command("psetex", key, (int)time, value);
+            }
+        }
+        return (String)command("set", key, value, SafeEncoder.encode(nxxx), SafeEncoder.encode(expx), time);
+    }
+
     @Override public String setex(final String key, final int seconds, final String value) {
         return (String)command("setex", key, seconds, value);
     }
@@ -372,6 +462,14 @@ public abstract class AbstractJedisIRedisClient extends AbstractRedisClient {
         return (Long)ret;
     }
 
+    @Override public Long setrange(final byte[] key, final long offset, final byte[] value) throws WrongTypeException {
+        Object ret = command("setrange", key, offset, value);
+        if (ret instanceof WrongTypeException) {
+            throw (WrongTypeException)ret;
+        }
+        return (Long)ret;
+    }
+
     @Override public Long strlen(final String key) throws WrongTypeException {
         Object ret = command("strlen", key);
         if (ret instanceof WrongTypeException) {
@@ -3,6 +3,7 @@ package org.rarefiedredis.redis.adapter.jedis;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Tuple;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.util.SafeEncoder;
 
 import org.rarefiedredis.redis.RedisMock;
 import org.rarefiedredis.redis.IRedisClient;
@@ -45,6 +46,15 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    @Override public String set(final byte[] key, final byte[] value) {
+        try {
+            return redis.set(key, value);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
 
     @Override public String set(final String key, final String value, final String nxxx, final String expx,
                                 final long time) {
@@ -56,6 +66,16 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    @Override public String set(final byte[] key, final byte[] value, final byte[] nxxx, final byte[] expx,
+                                final long time) {
+        try {
+            return redis.set(key, value, SafeEncoder.encode(nxxx), SafeEncoder.encode(expx), String.valueOf(time));
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
     @Override public String get(final String key) {
         try {
             return redis.get(key);
@@ -65,6 +85,15 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    @Override public byte[] get(final byte[] key) {
+        try {
+            return redis.get(key);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
     @Override public Boolean exists(final String key) {
         try {
             return redis.exists(key);
@@ -107,10 +136,13 @@ public class JedisAdapter extends Jedis {
         return BuilderFactory.STRING_SET.build(client.getBinaryMultiBulkReply());
     }
 
-    public String randomKey() {
-        checkIsInMulti();
-        client.randomKey();
-        return client.getBulkReply();
+    @Override public String randomKey() {
+        try {
+            return redis.randomkey();
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
     }
 
     public String rename(final String oldkey, final String newkey) {
@@ -170,6 +202,15 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    @Override public byte[] getSet(final byte[] key, final byte[] value) {
+        try {
+            return redis.getset(key, value);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
     @Override public List<String> mget(final String ... keys) {
         try {
             String[] mget = redis.mget(keys);
@@ -274,6 +315,15 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    @Override public Long append(final byte[] key, final byte[] value) {
+        try {
+            return redis.append(key, value);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
     @Override public String substr(final String key, final int start, final int end) {
         try {
             return redis.getrange(key, start, end);
@@ -283,6 +333,33 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    @Override public byte[] substr(final byte[] key, final int start, final int end) {
+        try {
+            return redis.getrange(key, start, end);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
+    @Override public byte[] getrange(final byte[] key, final long startOffset, final long endOffset) {
+        try {
+            return redis.getrange(key, startOffset, endOffset);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
+    @Override public Long setrange(final byte[] key, final long offset, final byte[] value) {
+        try {
+            return redis.setrange(key, offset, value);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
     @Override public Long hset(final String key, final String field, final String value) {
         try {
             return redis.hset(key, field, value) ? 1L : 0L;
@@ -578,6 +655,15 @@ public class JedisAdapter extends Jedis {
         }
     }
 
+    public Set<String> spop(final String key, final long count) {
+        try {
+            return redis.spop(key, count);
+        }
+        catch (Exception e) {
+            throw new JedisException(e);
+        }
+    }
+
     @Override public Long smove(final String srckey, final String dstkey, final String member) {
         try {
             return redis.smove(srckey, dstkey, member) ? 1L : 0L;
@@ -0,0 +1,244 @@
+package org.rarefiedredis.redis.adapter.jedis;
+
+import org.rarefiedredis.redis.ArgException;
+import org.rarefiedredis.redis.NoKeyException;
+import org.rarefiedredis.redis.NotFloatException;
+import org.rarefiedredis.redis.WrongTypeException;
+import org.rarefiedredis.redis.NotIntegerException;
+import org.rarefiedredis.redis.SyntaxErrorException;
+import org.rarefiedredis.redis.NotFloatHashException;
+import org.rarefiedredis.redis.NotIntegerHashException;
+import org.rarefiedredis.redis.NotFloatMinMaxException;
+import org.rarefiedredis.redis.IndexOutOfRangeException;
+import org.rarefiedredis.redis.NotValidStringRangeItemException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import java.lang.reflect.Method;
+
+/**
+ * Resolves the commands the jedis clients send to the jedis methods
+ * that run them, and maps the errors redis replies with to the
+ * exceptions of this library.
+ *
+ * A method is looked up once per receiver class, command name and
+ * argument shape, then reused, so a command costs a hash lookup
+ * instead of a search through the public methods of the receiver.
+ * Errors are matched against a fixed table, and the match for each
+ * distinct error message is remembered.
+ */
+final class JedisDispatch {
+
+    /**
+     * The shape of a call: the receiver class, the command name and
+     * the classes of the arguments.
+     */
+    private static final class Signature {
+        private final Class<?> type;
+        private final String name;
+        private final Class<?>[] parameterTypes;
+        private final int hash;
+
+        private Signature(Class<?> type, String name, Class<?>[] parameterTypes) {
+            this.type = type;
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+            this.hash = 31 * (31 * type.hashCode() + name.hashCode()) + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Signature)) {
+                return false;
+            }
+            Signature other = (Signature)o;
+            return type == other.type && name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** The resolved methods. */
+    private static final Map<Signature, Method> methods = new ConcurrentHashMap<Signature, Method>();
+
+    /**
+     * An error redis can reply with, and the exception it maps to.
+     */
+    private abstract static class ErrorReply {
+        private final String text;
+
+        private ErrorReply(String text) {
+            this.text = text;
+        }
+
+        abstract Exception create(Throwable cause);
+    }
+
+    /**
+     * The errors, in the order they are matched. A message that
+     * contains the text of an entry maps to its exception, so an entry
+     * has to come before any entry whose text it contains.
+     */
+    private static final ErrorReply[] errors = new ErrorReply[] {
+        new ErrorReply("WRONGTYPE") {
+            @Override Exception create(Throwable cause) {
+                return new WrongTypeException();
+            }
+        },
+        new ErrorReply("no such key") {
+            @Override Exception create(Throwable cause) {
+                return new NoKeyException();
+            }
+        },
+        new ErrorReply("index out of range") {
+            @Override Exception create(Throwable cause) {
+                return new IndexOutOfRangeException();
+            }
+        },
+        new ErrorReply("hash value is not an integer") {
+            @Override Exception create(Throwable cause) {
+                return new NotIntegerHashException();
+            }
+        },
+        new ErrorReply("value is not an integer") {
+            @Override Exception create(Throwable cause) {
+                return new NotIntegerException();
+            }
+        },
+        new ErrorReply("hash value is not a valid float") {
+            @Override Exception create(Throwable cause) {
+                return new NotFloatHashException();
+            }
+        },
+        new ErrorReply("value is not a valid float") {
+            @Override Exception create(Throwable cause) {
+                return new NotFloatException();
+            }
+        },
+        new ErrorReply("syntax error") {
+            @Override Exception create(Throwable cause) {
+                return new SyntaxErrorException();
+            }
+        },
+        new ErrorReply("wrong number of arguments") {
+            @Override Exception create(Throwable cause) {
+                return new ArgException(cause);
+            }
+        },
+        new ErrorReply("not valid string range item") {
+            @Override Exception create(Throwable cause) {
+                return new NotValidStringRangeItemException();
+            }
+        },
+        new ErrorReply("min or max is not a float") {
+            @Override Exception create(Throwable cause) {
+                return new NotFloatMinMaxException();
+            }
+        }
+    };
+
+    /** Stands for a message that matches no error. */
+    private static final ErrorReply UNKNOWN = new ErrorReply("") {
+            @Override Exception create(Throwable cause) {
+                return null;
+            }
+        };
+
+    /** The most messages to remember the match for. */
+    private static final int MATCHED_MAX = 1024;
+
+    /** The error each message seen so far matched. */
+    private static final Map<String, ErrorReply> matched = new ConcurrentHashMap<String, ErrorReply>();
+
+    private JedisDispatch() {
+    }
+
+    /**
+     * Map the classes of the arguments to the parameter types of the
+     * jedis methods: boxed numbers to primitives and maps to Map.
+     */
+    private static Class<?> parameterType(Object arg) {
+        if (arg == null) {
+            return null;
+        }
+        Class<?> type = arg.getClass();
+        if (type == Integer.class) {
+            return int.class;
+        }
+        if (type == Long.class) {
+            return long.class;
+        }
+        if (type == Double.class) {
+            return double.class;
+        }
+        if (type == HashMap.class) {
+            return Map.class;
+        }
+        return type;
+    }
+
+    /**
+     * Find the public method of a class that runs a command with the
+     * given arguments.
+     *
+     * @param type The class of the receiver.
+     * @param name The name of the command.
+     * @param args The arguments.
+     *
+     * @return The method.
+     *
+     * @throws NoSuchMethodException If the class has no such method.
+     */
+    public static Method method(Class<?> type, String name, Object ... args) throws NoSuchMethodException {
+        Class<?>[] parameterTypes = new Class<?>[args.length];
+        for (int idx = 0; idx < args.length; ++idx) {
+            parameterTypes[idx] = parameterType(args[idx]);
+        }
+        Signature signature = new Signature(type, name, parameterTypes);
+        Method method = methods.get(signature);
+        if (method == null) {
+            // Look up public methods, since the binary commands are
+            // declared on BinaryJedis.
+            method = type.getMethod(name, parameterTypes);
+            // Skip the access check on every invoke.
+            method.setAccessible(true);
+            methods.put(signature, method);
+        }
+        return method;
+    }
+
+    /**
+     * Map an error thrown by jedis to an exception.
+     *
+     * @param cause The error.
+     *
+     * @return The exception, or null if the error is not one we know.
+     */
+    public static Exception error(Throwable cause) {
+        String msg = cause.getMessage();
+        if (msg == null) {
+            return null;
+        }
+        ErrorReply error = matched.get(msg);
+        if (error == null) {
+            error = UNKNOWN;
+            for (ErrorReply candidate : errors) {
+                if (msg.contains(candidate.text)) {
+                    error = candidate;
+                    break;
+                }
+            }
+            // Some messages quote the command or the arguments, so
+            // stop remembering once there are too many.
+            if (matched.size() < MATCHED_MAX) {
+                matched.put(msg, error);
+            }
+        }
+        return error.create(cause);
+    }
+
+}
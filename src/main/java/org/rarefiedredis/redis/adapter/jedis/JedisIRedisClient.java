@@ -12,30 +12,16 @@ import org.rarefiedredis.redis.IRedisClient;
 import org.rarefiedredis.redis.AbstractRedisClient;
 import org.rarefiedredis.redis.ScanResult;
 import org.rarefiedredis.redis.IRedisSortedSet.ZsetPair;
-import org.rarefiedredis.redis.ArgException;
-import org.rarefiedredis.redis.NoKeyException;
 import org.rarefiedredis.redis.BitArgException;
-import org.rarefiedredis.redis.NotFloatException;
-import org.rarefiedredis.redis.WrongTypeException;
-import org.rarefiedredis.redis.NotIntegerException;
-import org.rarefiedredis.redis.SyntaxErrorException;
-import org.rarefiedredis.redis.NotFloatHashException;
-import org.rarefiedredis.redis.NotIntegerHashException;
 import org.rarefiedredis.redis.NotImplementedException;
-import org.rarefiedredis.redis.NotFloatMinMaxException;
-import org.rarefiedredis.redis.IndexOutOfRangeException;
 import org.rarefiedredis.redis.ExecWithoutMultiException;
 import org.rarefiedredis.redis.DiscardWithoutMultiException;
-import org.rarefiedredis.redis.NotValidStringRangeItemException;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
 
-import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 
 public final class JedisIRedisClient extends AbstractJedisIRedisClient {
@@ -88,30 +74,8 @@ public final class JedisIRedisClient extends AbstractJedisIRedisClient {
             if (jedis == null) {
                 return null;
             }
-            Class<?>[] parameterTypes = new Class<?>[args.length];
-            for (int idx = 0; idx < args.length; ++idx) {
-                if (args[idx] != null) {
-                    parameterTypes[idx] = args[idx].getClass();
-                    // Convert Object classes into primitive data type classes where appropriate.
-                    // TODO: This sucks, but I don't have a better way right now
-                    if (parameterTypes[idx].equals(Integer.class)) {
-                        parameterTypes[idx] = int.class;
-                    }
-                    if (parameterTypes[idx].equals(Long.class)) {
-                        parameterTypes[idx] = long.class;
-                    }
-                    if (parameterTypes[idx].equals(Double.class)) {
-                        parameterTypes[idx] = double.class;
-                    }
-                    // Convert implementations into their interfaces where appropriate.
-                    if (parameterTypes[idx].equals(HashMap.class)) {
-                        parameterTypes[idx] = Map.class;
-                    }
-                }
-            }
-            ret = jedis
-                .getClass()
-                .getDeclaredMethod(name, parameterTypes)
+            ret = JedisDispatch
+                .method(jedis.getClass(), name, args)
                 .invoke(jedis, args);
         }
         catch (NoSuchMethodException e) {
@@ -121,41 +85,7 @@ public final class JedisIRedisClient extends AbstractJedisIRedisClient {
             ret = null;
         }
         catch (InvocationTargetException e) {
-            ret = null;
-            String msg = e.getCause().getMessage();
-            if (msg.contains("WRONGTYPE")) {
-                ret = new WrongTypeException();
-            }
-            else if (msg.contains("no such key")) {
-                ret = new NoKeyException();
-            }
-            else if (msg.contains("index out of range")) {
-                ret = new IndexOutOfRangeException();
-            }
-            else if (msg.contains("hash value is not an integer")) {
-                ret = new NotIntegerHashException();
-            }
-            else if (msg.contains("value is not an integer")) {
-                ret = new NotIntegerException();
-            }
-            else if (msg.contains("hash value is not a valid float")) {
-                ret = new NotFloatHashException();
-            }
-            else if (msg.contains("value is not a valid float")) {
-                ret = new NotFloatException();
-            }
-            else if (msg.contains("syntax error")) {
-                ret = new SyntaxErrorException();
-            }
-            else if (msg.contains("wrong number of arguments")) {
-                ret = new ArgException(e.getCause());
-            }
-            else if (msg.contains("not valid string range item")) {
-                ret = new NotValidStringRangeItemException();
-            }
-            else if (msg.contains("min or max is not a float")) {
-                ret = new NotFloatMinMaxException();
-            }
+            ret = JedisDispatch.error(e.getCause());
         }
         finally {
             if (this.jedis == null && jedis != null) {
@@ -172,6 +102,23 @@ public final class JedisIRedisClient extends AbstractJedisIRedisClient {
         return new JedisIRedisClientMulti(pool);
     }
 
+    /**
+     * Start a pipeline on this client's connection, or on a connection
+     * from the pool.
+     *
+     * @return A client that buffers commands until its sync().
+     */
+    @Override public JedisIRedisClientPipeline pipelined() {
+        if (jedis != null) {
+            return new JedisIRedisClientPipeline(jedis);
+        }
+        return new JedisIRedisClientPipeline(pool);
+    }
+
+    @Override public List<Object> sync() {
+        return new ArrayList<Object>();
+    }
+
     @Override public String watch(String key) {
         String[] keys = new String[1];
         keys[0] = key;
@@ -0,0 +1,57 @@
+package org.rarefiedredis.redis.adapter.jedis;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Queable;
+
+import org.rarefiedredis.redis.IRedisClient;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * A jedis client that pipelines its commands. Each command is only
+ * buffered, and returns null; sync() writes the whole batch to the
+ * server at once and returns the replies in order, so a batch of n
+ * commands costs one round trip instead of n.
+ */
+public final class JedisIRedisClientPipeline extends AbstractJedisBatchClient {
+
+    public JedisIRedisClientPipeline(JedisPool pool) {
+        super(pool);
+        initialize();
+    }
+
+    public JedisIRedisClientPipeline(Jedis jedis) {
+        super(jedis);
+        initialize();
+    }
+
+    @Override public IRedisClient pipelined() {
+        return this;
+    }
+
+    @Override protected Queable open(Jedis jedis) {
+        return jedis.pipelined();
+    }
+
+    @Override public List<Object> sync() {
+        List<Object> ret = new ArrayList<Object>();
+        synchronized (this) {
+            Pipeline pipeline = (Pipeline)batch();
+            if (pipeline == null) {
+                return ret;
+            }
+            try {
+                ret = replies(pipeline.syncAndReturnAll());
+            }
+            finally {
+                release();
+                initialize();
+            }
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.rarefiedredis.redis.resp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of direct buffers of one size. Direct buffers are written to
+ * a socket without another copy, but are slow to allocate and free, so
+ * encoders take them from a pool and give them back once their bytes
+ * are written.
+ */
+public final class BufferPool {
+
+    /** The default size of a buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    /** The default number of free buffers to keep. */
+    public static final int DEFAULT_MAX_POOLED = 256;
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free;
+
+    /**
+     * Constructor. Initializes a pool with the default sizes.
+     */
+    public BufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize The size of a buffer.
+     * @param maxPooled The most free buffers to keep; more are left to the garbage collector.
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("bufferSize must be at least 16");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.free = new ArrayDeque<ByteBuffer>();
+    }
+
+    /**
+     * @return The size of a buffer.
+     */
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return A cleared buffer.
+     */
+    public synchronized ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back to the pool.
+     *
+     * @param buffer The buffer, which must not be used afterwards.
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || free.size() >= maxPooled) {
+            return;
+        }
+        buffer.clear();
+        free.addFirst(buffer);
+    }
+
+    /**
+     * @return The number of free buffers in the pool.
+     */
+    public synchronized int pooled() {
+        return free.size();
+    }
+
+}
@@ -0,0 +1,21 @@
+package org.rarefiedredis.redis.resp;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the bytes being decoded are not valid in the redis wire
+ * protocol. A server should reply with the error and close the
+ * connection, as redis does.
+ */
+public final class ProtocolException extends IOException {
+
+    /**
+     * Constructor.
+     *
+     * @param message What is wrong with the bytes.
+     */
+    public ProtocolException(String message) {
+        super("ERR Protocol error: " + message);
+    }
+
+}
@@ -0,0 +1,301 @@
+package org.rarefiedredis.redis.resp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The arguments of a request, as slices of one reusable byte array.
+ * The decoder fills the same instance for every request, so decoding
+ * allocates nothing once the array is big enough; an argument is only
+ * turned into a String or a byte[] of its own when a caller asks.
+ *
+ * Arguments filled by a decoder are only valid until its next call.
+ * Use {@link #copy} to keep them longer.
+ */
+public final class RespArgs {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The most data to reserve for an argument before its bytes arrive,
+     * and the most data to keep between requests. Like the query buffer
+     * of redis, the data only grows past it as a big argument is read,
+     * so a bulk length alone cannot make the server allocate, and the
+     * memory a big request took is given back after it.
+     */
+    static final int MAX_RESERVED = 64 * 1024;
+    private static final int ARGS = 8;
+
+    private byte[] data;
+    private int size;
+    private int[] offsets;
+    private int[] lengths;
+    private int count;
+
+    /**
+     * Constructor. Initializes an empty set of arguments.
+     */
+    public RespArgs() {
+        this.data = new byte[256];
+        this.offsets = new int[ARGS];
+        this.lengths = new int[ARGS];
+    }
+
+    /**
+     * Forget the arguments, keeping the storage.
+     */
+    void clear() {
+        size = 0;
+        count = 0;
+        if (data.length > MAX_RESERVED) {
+            data = new byte[MAX_RESERVED];
+        }
+        if (offsets.length > MAX_RESERVED / 4) {
+            offsets = new int[ARGS];
+            lengths = new int[ARGS];
+        }
+    }
+
+    /**
+     * Make room for at least the given number of bytes more.
+     */
+    void reserve(final int bytes) {
+        if (data.length - size < bytes) {
+            data = Arrays.copyOf(data, Math.max(2 * data.length, size + bytes));
+        }
+    }
+
+    /**
+     * Start an argument of the given length at the end of the data,
+     * for the decoder to fill in with {@link #fill}.
+     */
+    void begin(final int length) {
+        reserve(Math.min(length, MAX_RESERVED));
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * count);
+            lengths = Arrays.copyOf(lengths, 2 * count);
+        }
+        offsets[count] = size;
+        lengths[count] = length;
+        ++count;
+    }
+
+    /**
+     * Copy bytes from a buffer into the end of the data.
+     */
+    void fill(final ByteBuffer in, final int length) {
+        reserve(length);
+        in.get(data, size, length);
+        size += length;
+    }
+
+    /**
+     * Append one byte to the end of the data.
+     */
+    void append(final byte b) {
+        reserve(1);
+        data[size++] = b;
+    }
+
+    /**
+     * @return The number of bytes the data can hold without growing.
+     */
+    int capacity() {
+        return data.length;
+    }
+
+    /**
+     * @return The number of bytes of data.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The byte at a position in the data.
+     */
+    byte at(final int position) {
+        return data[position];
+    }
+
+    /**
+     * Add an argument that is a range of the data already there.
+     */
+    void slice(final int offset, final int length) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * count);
+            lengths = Arrays.copyOf(lengths, 2 * count);
+        }
+        offsets[count] = offset;
+        lengths[count] = length;
+        ++count;
+    }
+
+    /**
+     * @return The number of arguments.
+     */
+    public int count() {
+        return count;
+    }
+
+    private void check(final int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Count: " + count);
+        }
+    }
+
+    /**
+     * @return The length of an argument in bytes.
+     */
+    public int length(final int index) {
+        check(index);
+        return lengths[index];
+    }
+
+    /**
+     * @return A byte of an argument.
+     */
+    public byte byteAt(final int index, final int position) {
+        check(index);
+        if (position < 0 || position >= lengths[index]) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", Length: " + lengths[index]);
+        }
+        return data[offsets[index] + position];
+    }
+
+    /**
+     * @return A read only view of an argument, without copying it.
+     */
+    public ByteBuffer slice(final int index) {
+        check(index);
+        return ByteBuffer.wrap(data, offsets[index], lengths[index]).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return A copy of the bytes of an argument.
+     */
+    public byte[] bytes(final int index) {
+        check(index);
+        return Arrays.copyOfRange(data, offsets[index], offsets[index] + lengths[index]);
+    }
+
+    /**
+     * @return An argument decoded as UTF-8.
+     */
+    public String string(final int index) {
+        check(index);
+        return new String(data, offsets[index], lengths[index], UTF8);
+    }
+
+    /**
+     * Compare an argument to an ASCII string, ignoring case, without
+     * decoding the argument.
+     *
+     * @param index The index of the argument.
+     * @param ascii The string.
+     *
+     * @return Whether they are equal.
+     */
+    public boolean equalsIgnoreCase(final int index, final String ascii) {
+        check(index);
+        if (lengths[index] != ascii.length()) {
+            return false;
+        }
+        int offset = offsets[index];
+        for (int idx = 0; idx < ascii.length(); ++idx) {
+            if (lower(data[offset + idx]) != lower((byte)ascii.charAt(idx))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A hash of an argument that ignores the case of ASCII
+     * letters, the same as {@link #hashIgnoreCase(String)} gives for
+     * the string.
+     */
+    public int hashIgnoreCase(final int index) {
+        check(index);
+        int hash = 0;
+        int offset = offsets[index];
+        for (int idx = 0; idx < lengths[index]; ++idx) {
+            hash = 31 * hash + lower(data[offset + idx]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return A hash of an ASCII string that ignores the case of letters.
+     */
+    public static int hashIgnoreCase(final String ascii) {
+        int hash = 0;
+        for (int idx = 0; idx < ascii.length(); ++idx) {
+            hash = 31 * hash + lower((byte)ascii.charAt(idx));
+        }
+        return hash;
+    }
+
+    private static int lower(final byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    /**
+     * Parse an argument as a decimal integer, without decoding it.
+     *
+     * @param index The index of the argument.
+     *
+     * @return The integer.
+     *
+     * @throws NumberFormatException If the argument is not an integer
+     * in range.
+     */
+    public long integer(final int index) {
+        check(index);
+        int offset = offsets[index];
+        int length = lengths[index];
+        if (length == 0 || length > 20) {
+            throw new NumberFormatException();
+        }
+        boolean negative = data[offset] == '-';
+        int idx = negative ? 1 : 0;
+        if (idx == length) {
+            throw new NumberFormatException();
+        }
+        long value = 0L;
+        for (; idx < length; ++idx) {
+            int digit = data[offset + idx] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException();
+            }
+            // Accumulate negatively, so Long.MIN_VALUE parses too.
+            if (value < Long.MIN_VALUE / 10 || 10L * value < Long.MIN_VALUE + digit) {
+                throw new NumberFormatException();
+            }
+            value = 10L * value - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException();
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * @return A copy of the arguments that stays valid after the
+     * decoder moves on to the next request.
+     */
+    public RespArgs copy() {
+        RespArgs copy = new RespArgs();
+        copy.data = Arrays.copyOf(data, size);
+        copy.size = size;
+        copy.offsets = Arrays.copyOf(offsets, Math.max(1, count));
+        copy.lengths = Arrays.copyOf(lengths, Math.max(1, count));
+        copy.count = count;
+        return copy;
+    }
+
+}
@@ -0,0 +1,243 @@
+package org.rarefiedredis.redis.resp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes requests in the redis wire protocol: arrays of bulk strings,
+ * which is what clients send, and inline commands, lines of words
+ * separated by spaces, which is what people type into telnet.
+ *
+ * The decoder is resumable. It consumes whatever part of a request a
+ * buffer holds and remembers where it stopped, so the next read only
+ * has to supply the rest; nothing is parsed twice, and the read buffer
+ * can be cleared after every call. Argument bytes are copied straight
+ * from the buffer into one reusable {@link RespArgs}.
+ */
+public final class RespDecoder {
+
+    /** The most arguments in a request. */
+    public static final int MAX_ARGS = 1024 * 1024;
+    /** The most bytes in an argument. */
+    public static final int MAX_BULK = 512 * 1024 * 1024;
+    /** The most bytes in an inline command. */
+    public static final int MAX_INLINE = 64 * 1024;
+
+    /** Waiting for the first byte of a request. */
+    private static final int START = 0;
+    /** Reading the length of the array. */
+    private static final int ARRAY_LENGTH = 1;
+    /** Waiting for the '$' of the next bulk string. */
+    private static final int BULK = 2;
+    /** Reading the length of a bulk string. */
+    private static final int BULK_LENGTH = 3;
+    /** Reading the bytes of a bulk string. */
+    private static final int BULK_BODY = 4;
+    /** Reading the CRLF after a bulk string. */
+    private static final int BULK_END = 5;
+    /** Reading an inline command. */
+    private static final int INLINE = 6;
+
+    private final RespArgs args;
+    private int state;
+    /** The number of bulk strings still to read. */
+    private int pending;
+    /** The number of bytes of the current bulk string, and then of its CRLF, still to read. */
+    private int remaining;
+    /** The number being read, and how far into it we are. */
+    private long number;
+    private boolean negative;
+    private int digits;
+    private boolean sawCR;
+
+    /**
+     * Constructor.
+     */
+    public RespDecoder() {
+        this.args = new RespArgs();
+        this.state = START;
+    }
+
+    /**
+     * Decode as much of a request as a buffer holds.
+     *
+     * @param in The buffer, ready to be read from. The bytes decoded
+     * are consumed.
+     *
+     * @return The arguments of the request once it has all arrived, or
+     * null if more bytes are needed. The arguments are only valid until
+     * the next call. An empty inline line decodes as no arguments.
+     *
+     * @throws ProtocolException If the request is malformed. The
+     * decoder is reset, but the connection should be closed.
+     */
+    public RespArgs decode(final ByteBuffer in) throws ProtocolException {
+        try {
+            return decodeOrThrow(in);
+        }
+        catch (ProtocolException e) {
+            state = START;
+            throw e;
+        }
+    }
+
+    private RespArgs decodeOrThrow(final ByteBuffer in) throws ProtocolException {
+        while (in.hasRemaining()) {
+            switch (state) {
+            case START:
+                args.clear();
+                if (in.get(in.position()) == '*') {
+                    in.get();
+                    startNumber();
+                    state = ARRAY_LENGTH;
+                }
+                else {
+                    state = INLINE;
+                }
+                break;
+            case ARRAY_LENGTH:
+                if (!readNumber(in, "multibulk length")) {
+                    break;
+                }
+                if (number > MAX_ARGS) {
+                    throw new ProtocolException("invalid multibulk length");
+                }
+                state = START;
+                if (number <= 0) {
+                    return args;
+                }
+                pending = (int)number;
+                state = BULK;
+                break;
+            case BULK:
+                byte b = in.get();
+                if (b != '$') {
+                    throw new ProtocolException("expected '$', got '" + (char)b + "'");
+                }
+                startNumber();
+                state = BULK_LENGTH;
+                break;
+            case BULK_LENGTH:
+                if (!readNumber(in, "bulk length")) {
+                    break;
+                }
+                if (number < 0 || number > MAX_BULK) {
+                    throw new ProtocolException("invalid bulk length");
+                }
+                remaining = (int)number;
+                args.begin(remaining);
+                state = BULK_BODY;
+                break;
+            case BULK_BODY:
+                int n = Math.min(remaining, in.remaining());
+                args.fill(in, n);
+                remaining -= n;
+                if (remaining == 0) {
+                    remaining = 2;
+                    state = BULK_END;
+                }
+                break;
+            case BULK_END:
+                byte end = in.get();
+                if (end != (remaining == 2 ? '\r' : '\n')) {
+                    throw new ProtocolException("expected CRLF after bulk string");
+                }
+                if (--remaining == 0) {
+                    if (--pending == 0) {
+                        state = START;
+                        return args;
+                    }
+                    state = BULK;
+                }
+                break;
+            case INLINE:
+                if (readInline(in)) {
+                    state = START;
+                    return args;
+                }
+                break;
+            default:
+                throw new IllegalStateException();
+            }
+        }
+        return null;
+    }
+
+    private void startNumber() {
+        number = 0L;
+        negative = false;
+        digits = 0;
+        sawCR = false;
+    }
+
+    /**
+     * Read a decimal number up to the end of its line.
+     *
+     * @return true once the whole line has been read.
+     */
+    private boolean readNumber(final ByteBuffer in, final String what) throws ProtocolException {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (sawCR) {
+                if (b != '\n' || digits == 0) {
+                    throw new ProtocolException("invalid " + what);
+                }
+                if (negative) {
+                    number = -number;
+                }
+                return true;
+            }
+            if (b == '\r') {
+                sawCR = true;
+            }
+            else if (b == '-' && digits == 0 && !negative) {
+                negative = true;
+            }
+            else if (b >= '0' && b <= '9' && digits < 18) {
+                number = 10L * number + (b - '0');
+                ++digits;
+            }
+            else {
+                throw new ProtocolException("invalid " + what);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read an inline command into the data of the arguments, up to the
+     * end of its line, then split it into words.
+     *
+     * @return true once the whole line has been read.
+     */
+    private boolean readInline(final ByteBuffer in) throws ProtocolException {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (b == '\n') {
+                int end = args.size();
+                if (end > 0 && args.at(end - 1) == '\r') {
+                    --end;
+                }
+                int idx = 0;
+                while (idx < end) {
+                    while (idx < end && args.at(idx) == ' ') {
+                        ++idx;
+                    }
+                    int from = idx;
+                    while (idx < end && args.at(idx) != ' ') {
+                        ++idx;
+                    }
+                    if (idx > from) {
+                        args.slice(from, idx - from);
+                    }
+                }
+                return true;
+            }
+            if (args.size() >= MAX_INLINE) {
+                throw new ProtocolException("too big inline request");
+            }
+            args.append(b);
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,348 @@
+package org.rarefiedredis.redis.resp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes replies in the redis wire protocol, RESP2 or RESP3, into a
+ * chain of direct buffers taken from a {@link BufferPool}. The buffers
+ * are written to a channel with one gathering write and go back to the
+ * pool as soon as they are written, so a busy connection reuses the
+ * same few buffers instead of growing one.
+ *
+ * Numbers are written digit by digit, without going through a String.
+ */
+public final class RespEncoder {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] CRLF = new byte[] { '\r', '\n' };
+    private static final byte[] NIL2 = new byte[] { '$', '-', '1', '\r', '\n' };
+    private static final byte[] NIL_ARRAY2 = new byte[] { '*', '-', '1', '\r', '\n' };
+    private static final byte[] NIL3 = new byte[] { '_', '\r', '\n' };
+
+    private final BufferPool pool;
+    /** The filled buffers, ready to be written. */
+    private final ArrayDeque<ByteBuffer> filled;
+    /** The buffer being filled, or null. */
+    private ByteBuffer current;
+    /** Scratch space for the digits of a number. */
+    private final byte[] digits;
+    private int protocol;
+
+    /**
+     * Constructor. Initializes an encoder that speaks RESP2.
+     *
+     * @param pool The pool to take buffers from.
+     */
+    public RespEncoder(BufferPool pool) {
+        this.pool = pool;
+        this.filled = new ArrayDeque<ByteBuffer>();
+        this.digits = new byte[20];
+        this.protocol = 2;
+    }
+
+    /**
+     * @return The protocol version, 2 or 3.
+     */
+    public int protocol() {
+        return protocol;
+    }
+
+    /**
+     * Set the protocol version.
+     *
+     * @param protocol 2 or 3.
+     */
+    public void protocol(int protocol) {
+        if (protocol != 2 && protocol != 3) {
+            throw new IllegalArgumentException("protocol must be 2 or 3");
+        }
+        this.protocol = protocol;
+    }
+
+    /**
+     * @return Whether there are encoded bytes waiting to be written.
+     */
+    public boolean pending() {
+        return !filled.isEmpty() || (current != null && current.position() > 0);
+    }
+
+    private ByteBuffer room() {
+        if (current == null) {
+            current = pool.acquire();
+        }
+        else if (!current.hasRemaining()) {
+            current.flip();
+            filled.addLast(current);
+            current = pool.acquire();
+        }
+        return current;
+    }
+
+    private void put(final byte b) {
+        room().put(b);
+    }
+
+    private void put(final byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer buffer = room();
+            int n = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void put(final byte[] bytes) {
+        put(bytes, 0, bytes.length);
+    }
+
+    private void putLong(final long value) {
+        int idx = digits.length;
+        // Work with the negative, so Long.MIN_VALUE needs no special case.
+        long v = value < 0 ? value : -value;
+        do {
+            digits[--idx] = (byte)('0' - (v % 10));
+            v /= 10;
+        } while (v != 0);
+        if (value < 0) {
+            put((byte)'-');
+        }
+        put(digits, idx, digits.length - idx);
+    }
+
+    private void line(final byte type, final long value) {
+        put(type);
+        putLong(value);
+        put(CRLF);
+    }
+
+    /**
+     * Write as many of the encoded bytes as the channel takes, giving
+     * the written buffers back to the pool.
+     *
+     * @param channel The channel.
+     *
+     * @return true if every byte was written.
+     *
+     * @throws IOException If the write fails.
+     */
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        if (current != null && current.position() > 0) {
+            current.flip();
+            filled.addLast(current);
+            current = null;
+        }
+        if (filled.isEmpty()) {
+            return true;
+        }
+        if (channel instanceof GatheringByteChannel) {
+            ByteBuffer[] buffers = filled.toArray(new ByteBuffer[filled.size()]);
+            ((GatheringByteChannel)channel).write(buffers);
+        }
+        else {
+            for (ByteBuffer buffer : filled) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+            }
+        }
+        while (!filled.isEmpty() && !filled.peekFirst().hasRemaining()) {
+            pool.release(filled.pollFirst());
+        }
+        return filled.isEmpty();
+    }
+
+    /**
+     * Give every buffer back to the pool, dropping what was not written.
+     */
+    public void release() {
+        while (!filled.isEmpty()) {
+            pool.release(filled.pollFirst());
+        }
+        if (current != null) {
+            pool.release(current);
+            current = null;
+        }
+    }
+
+    public void status(String status) {
+        put((byte)'+');
+        put(status.getBytes(UTF8));
+        put(CRLF);
+    }
+
+    public void error(String message) {
+        put((byte)'-');
+        put(message.replace('\r', ' ').replace('\n', ' ').getBytes(UTF8));
+        put(CRLF);
+    }
+
+    public void integer(long value) {
+        line((byte)':', value);
+    }
+
+    public void bulk(byte[] bytes) {
+        bulk(bytes, 0, bytes.length);
+    }
+
+    public void bulk(byte[] bytes, int offset, int length) {
+        line((byte)'$', length);
+        put(bytes, offset, length);
+        put(CRLF);
+    }
+
+    public void bulk(String string) {
+        bulk(string.getBytes(UTF8));
+    }
+
+    public void nil() {
+        put(protocol == 3 ? NIL3 : NIL2);
+    }
+
+    /**
+     * Write a null array, the reply of an EXEC that did not run.
+     */
+    public void nilArray() {
+        put(protocol == 3 ? NIL3 : NIL_ARRAY2);
+    }
+
+    public void array(int length) {
+        line((byte)'*', length);
+    }
+
+    /**
+     * Start a map. In RESP2 a map is an array of its keys and values.
+     *
+     * @param entries The number of entries.
+     */
+    public void map(int entries) {
+        if (protocol == 3) {
+            line((byte)'%', entries);
+        }
+        else {
+            array(2 * entries);
+        }
+    }
+
+    /**
+     * Start a set. In RESP2 a set is an array.
+     *
+     * @param length The number of members.
+     */
+    public void set(int length) {
+        line(protocol == 3 ? (byte)'~' : (byte)'*', length);
+    }
+
+    /**
+     * Write a double. In RESP2 a double is a bulk string.
+     *
+     * @param value The double.
+     */
+    public void doubleValue(double value) {
+        if (protocol == 3) {
+            put((byte)',');
+            put(format(value).getBytes(UTF8));
+            put(CRLF);
+        }
+        else {
+            bulk(format(value));
+        }
+    }
+
+    /**
+     * Format a double the way redis replies with scores: whole numbers
+     * without a fraction, infinities as inf and -inf.
+     *
+     * @param value The double.
+     *
+     * @return The formatted double.
+     */
+    public static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e17) {
+            return Long.toString((long)value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Write a reply from a Java value: strings and byte arrays are bulk
+     * strings, numbers and booleans are integers, doubles are doubles,
+     * collections and arrays are arrays, sets are sets, maps are maps,
+     * exceptions are errors and null is nil.
+     *
+     * @param reply The reply.
+     * @param status Whether a string reply is a status rather than a bulk string.
+     */
+    public void reply(Object reply, boolean status) {
+        if (reply == null) {
+            nil();
+        }
+        else if (reply instanceof Exception) {
+            String message = ((Exception)reply).getMessage();
+            error(message == null ? "ERR " + reply.getClass().getSimpleName() : message);
+        }
+        else if (reply instanceof String) {
+            if (status) {
+                status((String)reply);
+            }
+            else {
+                bulk((String)reply);
+            }
+        }
+        else if (reply instanceof byte[]) {
+            bulk((byte[])reply);
+        }
+        else if (reply instanceof Boolean) {
+            integer((Boolean)reply ? 1L : 0L);
+        }
+        else if (reply instanceof Double || reply instanceof Float) {
+            doubleValue(((Number)reply).doubleValue());
+        }
+        else if (reply instanceof Number) {
+            integer(((Number)reply).longValue());
+        }
+        else if (reply instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>)reply;
+            map(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                reply(entry.getKey(), false);
+                reply(entry.getValue(), false);
+            }
+        }
+        else if (reply instanceof Collection) {
+            Collection<?> collection = (Collection<?>)reply;
+            if (reply instanceof Set) {
+                set(collection.size());
+            }
+            else {
+                array(collection.size());
+            }
+            for (Object element : collection) {
+                reply(element, false);
+            }
+        }
+        else if (reply instanceof Object[]) {
+            Object[] array = (Object[])reply;
+            array(array.length);
+            for (Object element : array) {
+                reply(element, false);
+            }
+        }
+        else {
+            bulk(reply.toString());
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.rarefiedredis.redis.server;
+
+import org.rarefiedredis.redis.IRedisClient;
+import org.rarefiedredis.redis.ScanResult;
+import org.rarefiedredis.redis.NotFloatException;
+import org.rarefiedredis.redis.NotIntegerException;
+import org.rarefiedredis.redis.IRedisSortedSet.ZsetPair;
+import org.rarefiedredis.redis.resp.RespArgs;
+import org.rarefiedredis.redis.resp.RespEncoder;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * A command the server knows, which runs a request against a client.
+ */
+abstract class Command {
+
+    /** The name of the command, in lower case. */
+    final String name;
+    /**
+     * The number of arguments, counting the command name, as redis
+     * gives it: exactly that many if positive, at least minus that many
+     * if negative.
+     */
+    final int arity;
+    /** Whether a string reply is a status rather than a bulk string. */
+    final boolean status;
+    /**
+     * Whether the command answers without touching the data, so that
+     * in a transaction it is answered at EXEC instead of queued.
+     */
+    final boolean local;
+
+    Command(final String name, final int arity, final boolean status) {
+        this(name, arity, status, false);
+    }
+
+    Command(final String name, final int arity, final boolean status, final boolean local) {
+        this.name = name;
+        this.arity = arity;
+        this.status = status;
+        this.local = local;
+    }
+
+    /**
+     * @return Whether a request has the right number of arguments.
+     */
+    final boolean accepts(final RespArgs argv) {
+        return arity >= 0 ? argv.count() == arity : argv.count() >= -arity;
+    }
+
+    /**
+     * Run the command.
+     *
+     * @param client The client to run it against.
+     * @param argv The arguments, starting with the command name.
+     *
+     * @return What the client returns.
+     *
+     * @throws Exception Whatever the client throws, or if an argument does not parse.
+     */
+    abstract Object run(IRedisClient client, RespArgs argv) throws Exception;
+
+    /**
+     * Turn what the client returned into the reply to send. Most
+     * commands send it as it is.
+     *
+     * @param result What the client returned.
+     * @param argv The arguments, starting with the command name.
+     *
+     * @return The reply.
+     */
+    Object reply(final Object result, final RespArgs argv) {
+        return result;
+    }
+
+    static String string(final RespArgs argv, final int index) {
+        return argv.string(index);
+    }
+
+    static String[] strings(final RespArgs argv, final int from) {
+        String[] strings = new String[Math.max(0, argv.count() - from)];
+        for (int idx = 0; idx < strings.length; ++idx) {
+            strings[idx] = argv.string(from + idx);
+        }
+        return strings;
+    }
+
+    static long integer(final RespArgs argv, final int index) throws NotIntegerException {
+        try {
+            return argv.integer(index);
+        }
+        catch (NumberFormatException e) {
+            throw new NotIntegerException();
+        }
+    }
+
+    static long[] integers(final RespArgs argv, final int from) throws NotIntegerException {
+        long[] integers = new long[Math.max(0, argv.count() - from)];
+        for (int idx = 0; idx < integers.length; ++idx) {
+            integers[idx] = integer(argv, from + idx);
+        }
+        return integers;
+    }
+
+    static double number(final RespArgs argv, final int index) throws NotFloatException {
+        if (argv.equalsIgnoreCase(index, "inf") || argv.equalsIgnoreCase(index, "+inf")) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (argv.equalsIgnoreCase(index, "-inf")) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        try {
+            double d = Double.parseDouble(argv.string(index));
+            if (Double.isNaN(d)) {
+                throw new NotFloatException();
+            }
+            return d;
+        }
+        catch (NumberFormatException e) {
+            throw new NotFloatException();
+        }
+    }
+
+    /**
+     * @return Whether any argument from an index on is the given option.
+     */
+    static boolean option(final RespArgs argv, final int from, final String option) {
+        for (int idx = from; idx < argv.count(); ++idx) {
+            if (argv.equalsIgnoreCase(idx, option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flatten sorted set members into a reply, each followed by its
+     * score if asked for.
+     */
+    static List<Object> pairs(final Set<ZsetPair> pairs, final boolean withscores) {
+        if (pairs == null) {
+            return null;
+        }
+        List<Object> reply = new ArrayList<Object>(withscores ? 2 * pairs.size() : pairs.size());
+        for (ZsetPair pair : pairs) {
+            reply.add(pair.member);
+            if (withscores) {
+                reply.add(RespEncoder.format(pair.score));
+            }
+        }
+        return reply;
+    }
+
+    /**
+     * Turn a scan result into a reply: the next cursor, then the results.
+     */
+    static List<Object> scan(final ScanResult<?> scan, final Object results) {
+        List<Object> reply = new ArrayList<Object>(2);
+        reply.add(String.valueOf(scan.cursor));
+        reply.add(results);
+        return reply;
+    }
+
+}
@@ -0,0 +1,754 @@
+package org.rarefiedredis.redis.server;
+
+import org.rarefiedredis.redis.IRedisClient;
+import org.rarefiedredis.redis.ScanResult;
+import org.rarefiedredis.redis.ArgException;
+import org.rarefiedredis.redis.BitArgException;
+import org.rarefiedredis.redis.SyntaxErrorException;
+import org.rarefiedredis.redis.IRedisSortedSet.ZsetPair;
+import org.rarefiedredis.redis.resp.RespArgs;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * The table of commands the server knows, by lower case name. Each
+ * command parses its arguments and calls the client method for it
+ * directly.
+ *
+ * The commands that change the state of a connection, such as MULTI
+ * and HELLO, are handled by the connection itself.
+ */
+final class Commands {
+
+    private static final Map<String, Command> commands = table();
+    /**
+     * The commands by {@link RespArgs#hashIgnoreCase(String)} of their
+     * name, so a request finds its command without decoding the name.
+     */
+    private static final Command[][] buckets = buckets(commands);
+
+    private Commands() {
+    }
+
+    /**
+     * Look up a command.
+     *
+     * @param name The name of the command, in lower case.
+     *
+     * @return The command, or null if there is no such command.
+     */
+    static Command get(final String name) {
+        return commands.get(name);
+    }
+
+    /**
+     * Look up the command of a request.
+     *
+     * @param argv The arguments of the request, starting with the
+     * command name in any case.
+     *
+     * @return The command, or null if there is no such command.
+     */
+    static Command get(final RespArgs argv) {
+        Command[] bucket = buckets[argv.hashIgnoreCase(0) & (buckets.length - 1)];
+        if (bucket != null) {
+            for (Command command : bucket) {
+                if (argv.equalsIgnoreCase(0, command.name)) {
+                    return command;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Command[][] buckets(final Map<String, Command> commands) {
+        int size = Integer.highestOneBit(2 * commands.size() - 1) << 1;
+        Command[][] buckets = new Command[size][];
+        for (Command command : commands.values()) {
+            int idx = RespArgs.hashIgnoreCase(command.name) & (size - 1);
+            Command[] bucket = buckets[idx];
+            if (bucket == null) {
+                bucket = new Command[1];
+            }
+            else {
+                bucket = Arrays.copyOf(bucket, bucket.length + 1);
+            }
+            bucket[bucket.length - 1] = command;
+            buckets[idx] = bucket;
+        }
+        return buckets;
+    }
+
+    private static void add(final Map<String, Command> table, final Command command) {
+        table.put(command.name, command);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Command> table() {
+        Map<String, Command> table = new HashMap<String, Command>();
+        /* Connection and server commands */
+        add(table, new Command("ping", -1, true, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    if (argv.count() > 2) {
+                        throw new ArgException("ping");
+                    }
+                    if (argv.count() == 2) {
+                        return argv.bytes(1);
+                    }
+                    return "PONG";
+                }
+            });
+        add(table, new Command("echo", 2, false, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return argv.bytes(1);
+                }
+            });
+        add(table, new Command("select", 2, true, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    if (integer(argv, 1) != 0L) {
+                        throw new Exception("ERR DB index is out of range");
+                    }
+                    return "OK";
+                }
+            });
+        add(table, new Command("command", -1, false, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return new ArrayList<Object>();
+                }
+            });
+        add(table, new Command("config", -2, false, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    // There is nothing to configure, so every parameter
+                    // is unknown.
+                    return new ArrayList<Object>();
+                }
+            });
+        add(table, new Command("client", -2, true, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return "OK";
+                }
+            });
+        add(table, new Command("info", -1, false, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return "# Server\r\nredis_version:" + Connection.VERSION + "\r\nredis_mode:standalone\r\n";
+                }
+            });
+        /* Key commands */
+        add(table, new Command("del", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.del(strings(argv, 1));
+                }
+            });
+        add(table, new Command("exists", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.exists(string(argv, 1));
+                }
+            });
+        add(table, new Command("expire", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.expire(string(argv, 1), (int)integer(argv, 2));
+                }
+            });
+        add(table, new Command("expireat", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.expireat(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("keys", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.keys(string(argv, 1));
+                }
+            });
+        add(table, new Command("persist", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.persist(string(argv, 1));
+                }
+            });
+        add(table, new Command("pexpire", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.pexpire(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("pexpireat", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.pexpireat(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("pttl", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.pttl(string(argv, 1));
+                }
+            });
+        add(table, new Command("randomkey", 1, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.randomkey();
+                }
+            });
+        add(table, new Command("rename", 3, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.rename(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("renamenx", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.renamenx(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("sort", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sort(string(argv, 1), strings(argv, 2));
+                }
+            });
+        add(table, new Command("ttl", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.ttl(string(argv, 1));
+                }
+            });
+        add(table, new Command("type", 2, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.type(string(argv, 1));
+                }
+            });
+        add(table, new Command("keys", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.keys(string(argv, 1));
+                }
+            });
+        add(table, new Command("scan", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.scan(integer(argv, 1), strings(argv, 2));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    ScanResult<Set<String>> scan = (ScanResult<Set<String>>)result;
+                    return scan(scan, new ArrayList<String>(scan.results));
+                }
+            });
+        /* String commands */
+        add(table, new Command("append", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.append(argv.bytes(1), argv.bytes(2));
+                }
+            });
+        add(table, new Command("bitcount", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.bitcount(string(argv, 1), integers(argv, 2));
+                }
+            });
+        add(table, new Command("bitop", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.bitop(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("bitpos", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.bitpos(string(argv, 1), integer(argv, 2), integers(argv, 3));
+                }
+            });
+        add(table, new Command("decr", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.decr(string(argv, 1));
+                }
+            });
+        add(table, new Command("decrby", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.decrby(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("get", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.get(argv.bytes(1));
+                }
+            });
+        add(table, new Command("getbit", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.getbit(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("getrange", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.getrange(argv.bytes(1), integer(argv, 2), integer(argv, 3));
+                }
+            });
+        add(table, new Command("getset", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.getset(argv.bytes(1), argv.bytes(2));
+                }
+            });
+        add(table, new Command("incr", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.incr(string(argv, 1));
+                }
+            });
+        add(table, new Command("incrby", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.incrby(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("incrbyfloat", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.incrbyfloat(string(argv, 1), number(argv, 2));
+                }
+            });
+        add(table, new Command("mget", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.mget(strings(argv, 1));
+                }
+            });
+        add(table, new Command("mset", -3, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.mset(strings(argv, 1));
+                }
+            });
+        add(table, new Command("msetnx", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.msetnx(strings(argv, 1));
+                }
+            });
+        add(table, new Command("psetex", 4, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.psetex(string(argv, 1), integer(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("set", -3, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.set(argv.bytes(1), argv.bytes(2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("setbit", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    long value = integer(argv, 3);
+                    if (value != 0L && value != 1L) {
+                        throw new BitArgException();
+                    }
+                    return client.setbit(string(argv, 1), integer(argv, 2), value == 1L);
+                }
+            });
+        add(table, new Command("setex", 4, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.setex(string(argv, 1), (int)integer(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("setnx", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.setnx(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("setrange", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.setrange(argv.bytes(1), integer(argv, 2), argv.bytes(3));
+                }
+            });
+        add(table, new Command("strlen", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.strlen(string(argv, 1));
+                }
+            });
+        /* List commands */
+        add(table, new Command("lindex", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lindex(string(argv, 1), integer(argv, 2));
+                }
+            });
+        add(table, new Command("linsert", 5, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.linsert(string(argv, 1), string(argv, 2), string(argv, 3), string(argv, 4));
+                }
+            });
+        add(table, new Command("llen", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.llen(string(argv, 1));
+                }
+            });
+        add(table, new Command("lpop", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lpop(string(argv, 1));
+                }
+            });
+        add(table, new Command("lpush", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lpush(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("lpushx", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lpushx(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("lrange", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lrange(string(argv, 1), integer(argv, 2), integer(argv, 3));
+                }
+            });
+        add(table, new Command("lrem", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lrem(string(argv, 1), integer(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("lset", 4, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.lset(string(argv, 1), integer(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("ltrim", 4, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.ltrim(string(argv, 1), integer(argv, 2), integer(argv, 3));
+                }
+            });
+        add(table, new Command("rpop", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.rpop(string(argv, 1));
+                }
+            });
+        add(table, new Command("rpoplpush", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.rpoplpush(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("rpush", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.rpush(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("rpushx", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.rpushx(string(argv, 1), string(argv, 2));
+                }
+            });
+        /* Set commands */
+        add(table, new Command("sadd", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sadd(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("scard", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.scard(string(argv, 1));
+                }
+            });
+        add(table, new Command("sdiff", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sdiff(string(argv, 1), strings(argv, 2));
+                }
+            });
+        add(table, new Command("sdiffstore", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sdiffstore(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("sinter", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sinter(string(argv, 1), strings(argv, 2));
+                }
+            });
+        add(table, new Command("sinterstore", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sinterstore(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("sismember", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sismember(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("smembers", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.smembers(string(argv, 1));
+                }
+            });
+        add(table, new Command("smove", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.smove(string(argv, 1), string(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("spop", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    if (argv.count() > 2) {
+                        return client.spop(string(argv, 1), integer(argv, 2));
+                    }
+                    return client.spop(string(argv, 1));
+                }
+            });
+        add(table, new Command("srandmember", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    if (argv.count() > 2) {
+                        return client.srandmember(string(argv, 1), integer(argv, 2));
+                    }
+                    return client.srandmember(string(argv, 1));
+                }
+            });
+        add(table, new Command("srem", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.srem(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("sunion", -2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sunion(string(argv, 1), strings(argv, 2));
+                }
+            });
+        add(table, new Command("sunionstore", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sunionstore(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("sscan", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.sscan(string(argv, 1), integer(argv, 2), strings(argv, 3));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    if (result == null) {
+                        return null;
+                    }
+                    ScanResult<Set<String>> scan = (ScanResult<Set<String>>)result;
+                    return scan(scan, new ArrayList<String>(scan.results));
+                }
+            });
+        /* Sorted set commands */
+        add(table, new Command("zadd", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    if (argv.count() % 2 != 0) {
+                        throw new SyntaxErrorException();
+                    }
+                    ZsetPair[] pairs = new ZsetPair[argv.count() / 2 - 2];
+                    for (int idx = 0; idx < pairs.length; ++idx) {
+                        pairs[idx] = new ZsetPair(number(argv, 4 + 2 * idx), string(argv, 5 + 2 * idx));
+                    }
+                    return client.zadd(string(argv, 1), new ZsetPair(number(argv, 2), string(argv, 3)), pairs);
+                }
+            });
+        add(table, new Command("zcard", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zcard(string(argv, 1));
+                }
+            });
+        add(table, new Command("zcount", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zcount(string(argv, 1), number(argv, 2), number(argv, 3));
+                }
+            });
+        add(table, new Command("zincrby", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zincrby(string(argv, 1), number(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("zinterstore", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zinterstore(string(argv, 1), (int)integer(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("zlexcount", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zlexcount(string(argv, 1), string(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("zrange", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrange(string(argv, 1), integer(argv, 2), integer(argv, 3), strings(argv, 4));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return pairs((Set<ZsetPair>)result, option(argv, 4, "withscores"));
+                }
+            });
+        add(table, new Command("zrangebylex", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrangebylex(string(argv, 1), string(argv, 2), string(argv, 3), strings(argv, 4));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return pairs((Set<ZsetPair>)result, false);
+                }
+            });
+        add(table, new Command("zrangebyscore", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrangebyscore(string(argv, 1), string(argv, 2), string(argv, 3), strings(argv, 4));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return pairs((Set<ZsetPair>)result, option(argv, 4, "withscores"));
+                }
+            });
+        add(table, new Command("zrank", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrank(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("zrem", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrem(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("zremrangebylex", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zremrangebylex(string(argv, 1), string(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("zremrangebyrank", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zremrangebyrank(string(argv, 1), integer(argv, 2), integer(argv, 3));
+                }
+            });
+        add(table, new Command("zremrangebyscore", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zremrangebyscore(string(argv, 1), string(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("zrevrange", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrevrange(string(argv, 1), integer(argv, 2), integer(argv, 3), strings(argv, 4));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return pairs((Set<ZsetPair>)result, option(argv, 4, "withscores"));
+                }
+            });
+        add(table, new Command("zrevrangebylex", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrevrangebylex(string(argv, 1), string(argv, 2), string(argv, 3), strings(argv, 4));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return pairs((Set<ZsetPair>)result, false);
+                }
+            });
+        add(table, new Command("zrevrangebyscore", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrevrangebyscore(string(argv, 1), string(argv, 2), string(argv, 3), strings(argv, 4));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return pairs((Set<ZsetPair>)result, option(argv, 4, "withscores"));
+                }
+            });
+        add(table, new Command("zrevrank", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zrevrank(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("zscore", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zscore(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("zunionstore", -4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zunionstore(string(argv, 1), (int)integer(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("zscan", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.zscan(string(argv, 1), integer(argv, 2), strings(argv, 3));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    if (result == null) {
+                        return null;
+                    }
+                    ScanResult<Set<ZsetPair>> scan = (ScanResult<Set<ZsetPair>>)result;
+                    return scan(scan, pairs(scan.results, true));
+                }
+            });
+        /* Hash commands */
+        add(table, new Command("hdel", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hdel(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("hexists", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hexists(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("hget", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hget(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("hgetall", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hgetall(string(argv, 1));
+                }
+            });
+        add(table, new Command("hincrby", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hincrby(string(argv, 1), string(argv, 2), integer(argv, 3));
+                }
+            });
+        add(table, new Command("hincrbyfloat", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hincrbyfloat(string(argv, 1), string(argv, 2), number(argv, 3));
+                }
+            });
+        add(table, new Command("hkeys", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hkeys(string(argv, 1));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    return result == null ? null : new ArrayList<Object>((Set<?>)result);
+                }
+            });
+        add(table, new Command("hlen", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hlen(string(argv, 1));
+                }
+            });
+        add(table, new Command("hmget", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hmget(string(argv, 1), string(argv, 2), strings(argv, 3));
+                }
+            });
+        add(table, new Command("hmset", -4, true) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hmset(string(argv, 1), string(argv, 2), string(argv, 3), strings(argv, 4));
+                }
+            });
+        add(table, new Command("hset", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hset(string(argv, 1), string(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("hsetnx", 4, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hsetnx(string(argv, 1), string(argv, 2), string(argv, 3));
+                }
+            });
+        add(table, new Command("hstrlen", 3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hstrlen(string(argv, 1), string(argv, 2));
+                }
+            });
+        add(table, new Command("hvals", 2, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hvals(string(argv, 1));
+                }
+            });
+        add(table, new Command("hscan", -3, false) {
+                @Override Object run(IRedisClient client, RespArgs argv) throws Exception {
+                    return client.hscan(string(argv, 1), integer(argv, 2), strings(argv, 3));
+                }
+
+                @Override Object reply(Object result, RespArgs argv) {
+                    if (result == null) {
+                        return null;
+                    }
+                    ScanResult<Map<String, String>> scan = (ScanResult<Map<String, String>>)result;
+                    List<String> flat = new ArrayList<String>(2 * scan.results.size());
+                    for (Map.Entry<String, String> entry : scan.results.entrySet()) {
+                        flat.add(entry.getKey());
+                        flat.add(entry.getValue());
+                    }
+                    return scan(scan, flat);
+                }
+            });
+        return table;
+    }
+
+}
@@ -0,0 +1,356 @@
+package org.rarefiedredis.redis.server;
+
+import org.rarefiedredis.redis.IRedisClient;
+import org.rarefiedredis.redis.ArgException;
+import org.rarefiedredis.redis.ExecWithoutMultiException;
+import org.rarefiedredis.redis.DiscardWithoutMultiException;
+
+import org.rarefiedredis.redis.resp.BufferPool;
+import org.rarefiedredis.redis.resp.ProtocolException;
+import org.rarefiedredis.redis.resp.RespArgs;
+import org.rarefiedredis.redis.resp.RespDecoder;
+import org.rarefiedredis.redis.resp.RespEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+/**
+ * A client connection to the server. It parses the requests that have
+ * arrived, runs each one against its own client and buffers the
+ * replies, so a client that pipelines its requests gets all the
+ * replies to a read back in one write.
+ */
+final class Connection {
+
+    /** The redis version the server says it is. */
+    static final String VERSION = "3.0.0";
+
+    /**
+     * A request queued in a transaction.
+     */
+    private static final class Queued {
+        private final Command command;
+        private final RespArgs argv;
+
+        private Queued(Command command, RespArgs argv) {
+            this.command = command;
+            this.argv = argv;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final IRedisClient client;
+    private final long id;
+    private final RespDecoder decoder;
+    private final RespEncoder out;
+    /** The requests queued since MULTI, or null if not in a transaction. */
+    private List<Queued> queued;
+    /** Whether a request was refused since MULTI, so EXEC must fail. */
+    private boolean aborted;
+    /** Whether to close the connection once the replies are written. */
+    private boolean closing;
+
+    Connection(final SocketChannel channel, final IRedisClient client, final long id, final BufferPool pool) {
+        this.channel = channel;
+        this.client = client;
+        this.id = id;
+        this.decoder = new RespDecoder();
+        this.out = new RespEncoder(pool);
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    /**
+     * @return Whether to close the connection once the replies are written.
+     */
+    boolean closing() {
+        return closing;
+    }
+
+    /**
+     * @return Whether there are replies waiting to be written.
+     */
+    boolean pending() {
+        return out.pending();
+    }
+
+    /**
+     * Read what the client sent, and run the requests that have fully
+     * arrived. The decoder keeps whatever part of a request has
+     * arrived, so the buffer is free for another connection afterwards.
+     *
+     * @param in The buffer to read into.
+     *
+     * @return false if the client closed the connection.
+     *
+     * @throws IOException If the read fails.
+     */
+    boolean read(final ByteBuffer in) throws IOException {
+        in.clear();
+        if (channel.read(in) < 0) {
+            return false;
+        }
+        in.flip();
+        try {
+            while (in.hasRemaining() && !closing) {
+                RespArgs argv = decoder.decode(in);
+                if (argv == null) {
+                    break;
+                }
+                if (argv.count() > 0) {
+                    process(argv);
+                }
+            }
+        }
+        catch (ProtocolException e) {
+            out.error(e.getMessage());
+            closing = true;
+        }
+        return true;
+    }
+
+    /**
+     * Write as many of the waiting replies as the socket takes.
+     *
+     * @return true if every reply was written.
+     *
+     * @throws IOException If the write fails.
+     */
+    boolean write() throws IOException {
+        return out.writeTo(channel);
+    }
+
+    /**
+     * Forget the keys the connection watches, and give back its buffers.
+     */
+    void close() {
+        out.release();
+        try {
+            client.unwatch();
+        }
+        catch (Exception e) {
+        }
+    }
+
+    private void process(final RespArgs argv) {
+        if (argv.equalsIgnoreCase(0, "multi")) {
+            multi();
+        }
+        else if (argv.equalsIgnoreCase(0, "exec")) {
+            exec();
+        }
+        else if (argv.equalsIgnoreCase(0, "discard")) {
+            discard();
+        }
+        else if (argv.equalsIgnoreCase(0, "watch")) {
+            watch(argv);
+        }
+        else if (argv.equalsIgnoreCase(0, "unwatch")) {
+            unwatch();
+        }
+        else if (argv.equalsIgnoreCase(0, "hello")) {
+            hello(argv);
+        }
+        else if (argv.equalsIgnoreCase(0, "quit")) {
+            out.status("OK");
+            closing = true;
+        }
+        else {
+            Command command = Commands.get(argv);
+            if (command == null) {
+                refuse(new Exception("ERR unknown command '" + argv.string(0).toLowerCase() + "'"));
+            }
+            else if (!command.accepts(argv)) {
+                refuse(new ArgException(command.name));
+            }
+            else if (queued != null) {
+                // The decoder reuses the arguments for the next request.
+                queued.add(new Queued(command, argv.copy()));
+                out.status("QUEUED");
+            }
+            else {
+                try {
+                    out.reply(command.reply(command.run(client, argv), argv), command.status);
+                }
+                catch (Exception e) {
+                    out.reply(e, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reply with an error to a request that could not be run. In a
+     * transaction, this makes EXEC fail.
+     */
+    private void refuse(final Exception e) {
+        if (queued != null) {
+            aborted = true;
+        }
+        out.reply(e, false);
+    }
+
+    private void multi() {
+        if (queued != null) {
+            out.error("ERR MULTI calls can not be nested");
+            return;
+        }
+        queued = new ArrayList<Queued>();
+        aborted = false;
+        out.status("OK");
+    }
+
+    private void exec() {
+        if (queued == null) {
+            out.reply(new ExecWithoutMultiException(), false);
+            return;
+        }
+        List<Queued> queued = this.queued;
+        this.queued = null;
+        if (aborted) {
+            unwatch(false);
+            out.error("EXECABORT Transaction discarded because of previous errors.");
+            return;
+        }
+        // Queue the requests in a client transaction, which runs them
+        // atomically and checks the watched keys. The requests that
+        // fail before they reach the client, or that do not touch the
+        // data, are answered here instead.
+        Exception[] answered = new Exception[queued.size()];
+        List<Object> results = null;
+        try {
+            IRedisClient multi = client.multi();
+            for (int idx = 0; idx < answered.length; ++idx) {
+                Queued request = queued.get(idx);
+                if (request.command.local) {
+                    continue;
+                }
+                try {
+                    request.command.run(multi, request.argv);
+                }
+                catch (Exception e) {
+                    answered[idx] = e;
+                }
+            }
+            results = multi.exec();
+        }
+        catch (Exception e) {
+            out.reply(e, false);
+            return;
+        }
+        if (results == null) {
+            out.nilArray();
+            return;
+        }
+        out.array(answered.length);
+        int next = 0;
+        for (int idx = 0; idx < answered.length; ++idx) {
+            Queued request = queued.get(idx);
+            if (answered[idx] != null) {
+                out.reply(answered[idx], false);
+                continue;
+            }
+            Object result;
+            if (request.command.local) {
+                try {
+                    result = request.command.run(client, request.argv);
+                }
+                catch (Exception e) {
+                    result = e;
+                }
+            }
+            else {
+                result = next < results.size() ? results.get(next++) : null;
+            }
+            if (result instanceof Exception) {
+                out.reply(result, false);
+            }
+            else {
+                out.reply(request.command.reply(result, request.argv), request.command.status);
+            }
+        }
+    }
+
+    private void discard() {
+        if (queued == null) {
+            out.reply(new DiscardWithoutMultiException(), false);
+            return;
+        }
+        queued = null;
+        unwatch(false);
+        out.status("OK");
+    }
+
+    private void watch(final RespArgs argv) {
+        if (argv.count() < 2) {
+            refuse(new ArgException("watch"));
+            return;
+        }
+        if (queued != null) {
+            refuse(new Exception("ERR WATCH inside MULTI is not allowed"));
+            return;
+        }
+        try {
+            for (int idx = 1; idx < argv.count(); ++idx) {
+                client.watch(argv.string(idx));
+            }
+            out.status("OK");
+        }
+        catch (Exception e) {
+            out.reply(e, false);
+        }
+    }
+
+    private void unwatch() {
+        unwatch(true);
+    }
+
+    private void unwatch(final boolean reply) {
+        try {
+            client.unwatch();
+            if (reply) {
+                out.status("OK");
+            }
+        }
+        catch (Exception e) {
+            if (reply) {
+                out.reply(e, false);
+            }
+        }
+    }
+
+    private void hello(final RespArgs argv) {
+        int protocol = out.protocol();
+        if (argv.count() > 1) {
+            try {
+                protocol = (int)Command.integer(argv, 1);
+            }
+            catch (Exception e) {
+                out.error("ERR Protocol version is not an integer or out of range");
+                return;
+            }
+            if (protocol != 2 && protocol != 3) {
+                out.error("NOPROTO unsupported protocol version");
+                return;
+            }
+        }
+        out.protocol(protocol);
+        Map<String, Object> hello = new LinkedHashMap<String, Object>();
+        hello.put("server", "redis");
+        hello.put("version", VERSION);
+        hello.put("proto", (long)protocol);
+        hello.put("id", id);
+        hello.put("mode", "standalone");
+        hello.put("role", "master");
+        hello.put("modules", new ArrayList<Object>());
+        out.reply(hello, false);
+    }
+
+}
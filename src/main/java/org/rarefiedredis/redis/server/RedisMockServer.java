@@ -0,0 +1,213 @@
+package org.rarefiedredis.redis.server;
+
+import org.rarefiedredis.redis.IRedisClient;
+import org.rarefiedredis.redis.resp.BufferPool;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * A server that speaks the redis wire protocol in front of a client,
+ * usually a RedisMock, so that any redis client, in any language, can
+ * use the mock as a local stand in for redis.
+ *
+ * The server listens on localhost only. One thread runs a non-blocking
+ * selector loop over every connection: it parses the requests that
+ * have arrived, runs them against the client and writes the replies
+ * back, so clients can pipeline their requests. Each connection gets
+ * its own client from createClient, so WATCH works per connection.
+ *
+ * RESP2 is spoken by default, and RESP3 after HELLO 3. Requests are
+ * decoded and replies encoded with the codec in the resp package: the
+ * loop reads every connection into one direct buffer, and replies are
+ * written from direct buffers the connections share through a pool.
+ */
+public final class RedisMockServer implements Runnable {
+
+    private final IRedisClient redis;
+    private final int port;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+    private long nextId;
+    /** The buffer every connection is read into, used by the loop thread only. */
+    private final ByteBuffer in;
+    private final BufferPool pool;
+
+    /**
+     * Constructor. Initializes a server on a free port.
+     *
+     * @param redis The client to run the requests against.
+     */
+    public RedisMockServer(IRedisClient redis) {
+        this(redis, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param redis The client to run the requests against.
+     * @param port The port to listen on, or 0 for a free port.
+     */
+    public RedisMockServer(IRedisClient redis, int port) {
+        this.redis = redis;
+        this.port = port;
+        this.nextId = 1L;
+        this.in = ByteBuffer.allocateDirect(BufferPool.DEFAULT_BUFFER_SIZE);
+        this.pool = new BufferPool();
+    }
+
+    /**
+     * Start listening, on a thread of the server's own.
+     *
+     * @return This server.
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public synchronized RedisMockServer start() throws IOException {
+        if (running) {
+            return this;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.socket().setReuseAddress(true);
+        server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this, "redis-mock-server");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server == null ? port : server.socket().getLocalPort();
+    }
+
+    /**
+     * Stop listening, and close every connection.
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = this.thread;
+            selector.wakeup();
+        }
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection)key.attachment();
+                    try {
+                        if (key.isReadable() && !connection.read(in)) {
+                            close(key);
+                            continue;
+                        }
+                        if (key.isWritable() || connection.pending()) {
+                            flush(key);
+                        }
+                    }
+                    catch (IOException e) {
+                        close(key);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+        }
+        finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    close(key);
+                }
+            }
+            try {
+                server.close();
+                selector.close();
+            }
+            catch (IOException e) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        IRedisClient client = redis.createClient();
+        if (client == null) {
+            client = redis;
+        }
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel, client, nextId++, pool));
+    }
+
+    /**
+     * Write the waiting replies of a connection. If the socket does not
+     * take them all, wait for it to be writable instead of reading more
+     * requests, so a client that does not read its replies cannot make
+     * the server buffer without bound.
+     */
+    private void flush(SelectionKey key) throws IOException {
+        Connection connection = (Connection)key.attachment();
+        if (connection.write()) {
+            if (connection.closing()) {
+                close(key);
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+        else {
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        Connection connection = (Connection)key.attachment();
+        key.cancel();
+        connection.close();
+        try {
+            connection.channel().close();
+        }
+        catch (IOException e) {
+        }
+    }
+
+}
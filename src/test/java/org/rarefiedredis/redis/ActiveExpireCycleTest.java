@@ -0,0 +1,72 @@
+package org.rarefiedredis.redis;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class ActiveExpireCycleTest {
+
+    private RedisKeyspace keyspace(int live, int expired) {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        long now = System.currentTimeMillis();
+        for (int idx = 0; idx < live; ++idx) {
+            String key = "live" + idx;
+            keyspace.setExpiration(key, keyspace.put(key, "string", "value"), now + 60000L);
+        }
+        for (int idx = 0; idx < expired; ++idx) {
+            String key = "expired" + idx;
+            keyspace.setExpiration(key, keyspace.put(key, "string", "value"), now - 1L);
+        }
+        return keyspace;
+    }
+
+    @Test public void testRunRemovesExpiredKeys() {
+        RedisKeyspace keyspace = keyspace(0, 500);
+        List<String> expired = new ActiveExpireCycle().run(keyspace);
+        assertEquals(500, expired.size());
+        assertEquals(0, keyspace.size());
+        assertEquals(0, keyspace.volatileSize());
+    }
+
+    @Test public void testRunLeavesLiveKeys() {
+        RedisKeyspace keyspace = keyspace(100, 0);
+        assertEquals(0, new ActiveExpireCycle().run(keyspace).size());
+        assertEquals(100, keyspace.size());
+        assertEquals(100, keyspace.volatileSize());
+    }
+
+    @Test public void testRunStopsOnceFewKeysAreStale() {
+        // One stale key in a thousand is below the acceptable 10%, so a
+        // single batch of 20 is sampled.
+        RedisKeyspace keyspace = keyspace(999, 1);
+        new ActiveExpireCycle().run(keyspace);
+        assertEquals(true, keyspace.size() >= 999);
+    }
+
+    @Test public void testRunKeepsToItsTimeBudget() {
+        RedisKeyspace keyspace = keyspace(0, 200000);
+        ActiveExpireCycle cycle = new ActiveExpireCycle(10, 20, 10, 1L);
+        long start = System.nanoTime();
+        cycle.run(keyspace);
+        assertEquals(true, System.nanoTime() - start < 500000000L);
+        assertEquals(true, keyspace.size() > 0);
+    }
+
+    @Test public void testRedisMockExpiresKeysThatAreNeverRead() throws InterruptedException, SyntaxErrorException {
+        ExpiryWheel wheel = new ExpiryWheel();
+        RedisMock redis = new RedisMock(wheel, new ActiveExpireCycle(100, 20, 10, 5L));
+        for (int idx = 0; idx < 100; ++idx) {
+            redis.psetex("key" + idx, 20L, "value");
+        }
+        // The cycle is the only task on the wheel, not one per key.
+        assertEquals(1, wheel.pending());
+        long deadline = System.currentTimeMillis() + 2000L;
+        while (wheel.pending() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(0, wheel.pending());
+        assertEquals(false, redis.exists("key0"));
+    }
+
+}
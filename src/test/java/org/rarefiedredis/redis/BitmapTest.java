@@ -0,0 +1,125 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class BitmapTest {
+
+    private static boolean bit(byte[] bytes, long offset) {
+        return (bytes[(int)(offset >> 3)] & (0x80 >> (int)(offset & 7))) != 0;
+    }
+
+    @Test public void bytesShouldRoundTrip() {
+        byte[] bytes = new byte[] { 1, (byte)0x80, (byte)0xFF, 0, 42, 7, 9, 11, (byte)0xAB, 3 };
+        for (int len = 0; len <= bytes.length; ++len) {
+            Bitmap bitmap = new Bitmap(bytes, len);
+            assertEquals(len, bitmap.length());
+            assertArrayEquals(Arrays.copyOf(bytes, len), bitmap.toByteArray());
+        }
+        Bitmap bitmap = new Bitmap(bytes, bytes.length);
+        assertArrayEquals(new byte[] { (byte)0xFF, 0, 42, 7, 9, 11 }, bitmap.range(2, 8));
+        assertEquals((byte)0xAB, bitmap.byteAt(8));
+    }
+
+    @Test public void bitsShouldBeNumberedFromTheMostSignificantBit() {
+        Bitmap bitmap = new Bitmap(new byte[] { (byte)0x80, 0x01 }, 2);
+        assertEquals(true, bitmap.getbit(0L));
+        assertEquals(false, bitmap.getbit(1L));
+        assertEquals(true, bitmap.getbit(15L));
+        assertEquals(false, bitmap.getbit(16L));
+        assertEquals(false, bitmap.setbit(70L, true));
+        assertEquals(9, bitmap.length());
+        assertEquals(0x02, bitmap.byteAt(8));
+        assertEquals(true, bitmap.setbit(0L, false));
+        assertEquals(0, bitmap.byteAt(0));
+    }
+
+    @Test public void operationsShouldAgreeWithAByteArray() {
+        Random random = new Random(11L);
+        Bitmap bitmap = new Bitmap();
+        byte[] expected = new byte[0];
+        for (int step = 0; step < 2000; ++step) {
+            int op = random.nextInt(4);
+            if (op == 0) {
+                long offset = random.nextInt(8 * 300);
+                boolean value = random.nextBoolean();
+                if ((offset >> 3) >= expected.length) {
+                    expected = Arrays.copyOf(expected, (int)(offset >> 3) + 1);
+                }
+                boolean old = bit(expected, offset);
+                if (value) {
+                    expected[(int)(offset >> 3)] |= (0x80 >> (int)(offset & 7));
+                }
+                else {
+                    expected[(int)(offset >> 3)] &= ~(0x80 >> (int)(offset & 7));
+                }
+                assertEquals(old, bitmap.setbit(offset, value));
+            }
+            else if (op == 1) {
+                int offset = random.nextInt(300);
+                byte[] bytes = new byte[random.nextInt(20)];
+                random.nextBytes(bytes);
+                if (offset + bytes.length > expected.length) {
+                    expected = Arrays.copyOf(expected, offset + bytes.length);
+                }
+                System.arraycopy(bytes, 0, expected, offset, bytes.length);
+                assertEquals(expected.length, bitmap.setrange(offset, bytes));
+            }
+            else if (op == 2 && expected.length > 0) {
+                int from = random.nextInt(expected.length);
+                int to = from + random.nextInt(expected.length - from + 1);
+                long count = 0L;
+                for (int idx = from; idx < to; ++idx) {
+                    count += Integer.bitCount(expected[idx] & 0xFF);
+                }
+                assertEquals(count, bitmap.bitcount(from, to));
+            }
+            else if (op == 3 && expected.length > 0) {
+                int from = random.nextInt(expected.length);
+                int to = from + random.nextInt(expected.length - from + 1);
+                boolean value = random.nextBoolean();
+                long pos = -1L;
+                for (long offset = 8L * from; offset < 8L * to; ++offset) {
+                    if (bit(expected, offset) == value) {
+                        pos = offset;
+                        break;
+                    }
+                }
+                assertEquals(pos, bitmap.bitpos(value, from, to));
+            }
+            assertEquals(expected.length, bitmap.length());
+        }
+        assertArrayEquals(expected, bitmap.toByteArray());
+    }
+
+    @Test public void bitopShouldWorkOnWholeWords() {
+        byte[] a = new byte[19];
+        byte[] b = new byte[5];
+        Random random = new Random(3L);
+        random.nextBytes(a);
+        random.nextBytes(b);
+        Bitmap ba = new Bitmap(a, a.length);
+        Bitmap bb = new Bitmap(b, b.length);
+        byte[] and = new byte[19], or = new byte[19], xor = new byte[19], not = new byte[19];
+        for (int idx = 0; idx < 19; ++idx) {
+            byte y = idx < b.length ? b[idx] : 0;
+            and[idx] = (byte)(a[idx] & y);
+            or[idx] = (byte)(a[idx] | y);
+            xor[idx] = (byte)(a[idx] ^ y);
+            not[idx] = (byte)~a[idx];
+        }
+        assertArrayEquals(and, Bitmap.bitop("and", ba, bb).toByteArray());
+        assertArrayEquals(or, Bitmap.bitop("or", bb, ba).toByteArray());
+        assertArrayEquals(xor, Bitmap.bitop("xor", ba, bb).toByteArray());
+        Bitmap inverted = Bitmap.bitop("not", ba);
+        assertArrayEquals(not, inverted.toByteArray());
+        // The bits past the end of the string stay clear.
+        assertEquals(false, inverted.setbit(19 * 8L + 3L, true));
+        assertEquals(0x10, inverted.byteAt(19));
+    }
+
+}
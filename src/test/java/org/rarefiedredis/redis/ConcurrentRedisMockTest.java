@@ -0,0 +1,202 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentRedisMockTest {
+
+    @Test public void slotShouldMatchRedisCluster() {
+        assertEquals(12739, ConcurrentRedisMock.slot("123456789"));
+        assertEquals(12182, ConcurrentRedisMock.slot("foo"));
+        assertEquals(5061, ConcurrentRedisMock.slot("bar"));
+        assertEquals(ConcurrentRedisMock.slot("user1000"), ConcurrentRedisMock.slot("{user1000}.following"));
+    }
+
+    @Test public void stripesShouldBeRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new ConcurrentRedisMock(5).stripes());
+        assertEquals(1, new ConcurrentRedisMock(1).stripes());
+    }
+
+    @Test public void msetAndMgetShouldWorkAcrossStripes() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        assertEquals("OK", redis.mset("foo", "1", "bar", "2", "baz", "3"));
+        String[] values = redis.mget("foo", "bar", "baz", "qux");
+        assertEquals("1", values[0]);
+        assertEquals("2", values[1]);
+        assertEquals("3", values[2]);
+        assertEquals(null, values[3]);
+        assertEquals(false, redis.msetnx("qux", "4", "foo", "5"));
+        assertEquals(null, redis.get("qux"));
+        assertEquals(3L, (long)redis.del("foo", "bar", "baz", "qux"));
+    }
+
+    @Test public void sinterstoreShouldWorkAcrossStripes() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.sadd("foo", "a", "b", "c");
+        redis.sadd("bar", "b", "c", "d");
+        redis.pexpire("foo", 100000L);
+        assertEquals(2L, (long)redis.sinterstore("baz", "foo", "bar"));
+        Set<String> members = redis.smembers("baz");
+        assertEquals(2, members.size());
+        assertEquals(true, members.contains("b"));
+        assertEquals(true, members.contains("c"));
+        assertEquals(3L, (long)redis.scard("foo"));
+        assertEquals(true, redis.pttl("foo") > 0L);
+        assertEquals(-1L, (long)redis.pttl("baz"));
+    }
+
+    @Test public void zunionstoreShouldWorkAcrossStripes() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.zadd("foo", 1.0, "a", 2.0, "b");
+        redis.zadd("bar", 3.0, "b", 4.0, "c");
+        assertEquals(3L, (long)redis.zunionstore("baz", 2, "foo", "bar"));
+        assertEquals(5.0, redis.zscore("baz", "b"), 0.0);
+        assertEquals(4.0, redis.zscore("baz", "c"), 0.0);
+    }
+
+    @Test public void rpoplpushAndSmoveShouldWorkAcrossStripes() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.rpush("foo", "a", "b");
+        assertEquals("b", redis.rpoplpush("foo", "bar"));
+        assertEquals(1L, (long)redis.llen("foo"));
+        assertEquals("b", redis.lindex("bar", 0L));
+        redis.sadd("baz", "a", "b");
+        assertEquals(true, redis.smove("baz", "qux", "a"));
+        assertEquals(false, redis.sismember("baz", "a"));
+        assertEquals(true, redis.sismember("qux", "a"));
+    }
+
+    @Test public void multiKeyCommandsShouldThrowWrongTypeAcrossStripes() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.set("foo", "a");
+        redis.sadd("bar", "b");
+        try {
+            redis.sinterstore("baz", "foo", "bar");
+        }
+        catch (WrongTypeException wte) {
+            assertEquals("a", redis.get("foo"));
+            assertEquals(true, redis.sismember("bar", "b"));
+            return;
+        }
+        assertEquals(false, true);
+    }
+
+    @Test public void keysMovedAcrossStripesShouldKeepTheirExpiration() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.sadd("foo", "a", "b");
+        redis.sadd("bar", "b");
+        assertEquals(true, redis.pexpire("foo", 200L));
+        // The scratch database of the thread is used over and over.
+        for (int idx = 0; idx < 3; ++idx) {
+            assertEquals(1L, (long)redis.sinterstore("baz", "foo", "bar"));
+        }
+        assertEquals(true, redis.pttl("foo") > 0L);
+        assertEquals(-1L, (long)redis.pttl("bar"));
+        assertEquals(1, redis.sinter("foo", "bar", "baz").size());
+        Thread.sleep(400L);
+        assertEquals(false, redis.exists("foo"));
+        assertEquals(true, redis.exists("bar"));
+        assertEquals(0L, (long)redis.sinterstore("baz", "foo", "bar"));
+        assertEquals(false, redis.exists("baz"));
+    }
+
+    @Test public void watchShouldFailAMultiIfAKeyChangesInAnotherStripe() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        IRedisClient client = redis.createClient();
+        assertEquals("OK", client.watch("foo"));
+        IRedisClient multi = client.multi();
+        multi.set("foo", "1");
+        redis.mset("foo", "2", "bar", "2");
+        assertEquals(null, multi.exec());
+        assertEquals("2", redis.get("foo"));
+    }
+
+    @Test public void watchShouldNotFailAMultiIfAMultiKeyCommandOnlyReadsTheKey() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        IRedisClient client = redis.createClient();
+        redis.sadd("foo", "a", "b");
+        redis.sadd("bar", "b");
+        assertEquals("OK", client.watch("foo"));
+        assertEquals(1, redis.sinter("foo", "bar").size());
+        redis.sinterstore("baz", "foo", "bar");
+        IRedisClient multi = client.multi();
+        multi.set("qux", "1");
+        assertEquals(1, multi.exec().size());
+        redis.sinterstore("foo", "foo", "bar");
+        multi = client.multi();
+        assertEquals("OK", client.watch("foo"));
+        multi.set("qux", "2");
+        redis.srem("foo", "b");
+        assertEquals(null, multi.exec());
+        assertEquals("1", redis.get("qux"));
+    }
+
+    @Test public void commandsOnDisjointKeysShouldRunFromManyThreads() throws Exception {
+        final ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        final int increments = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int idx = 0; idx < 8; ++idx) {
+            final String key = "key" + idx;
+            threads.add(new Thread(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            for (int i = 0; i < increments; ++i) {
+                                redis.incr(key);
+                                // Move an element back and forth with the other threads.
+                                redis.rpoplpush("left", "right");
+                                redis.rpoplpush("right", "left");
+                            }
+                        }
+                        catch (Exception e) {
+                        }
+                    }
+                }));
+        }
+        redis.rpush("left", "a", "b", "c");
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int idx = 0; idx < 8; ++idx) {
+            assertEquals(String.valueOf(increments), redis.get("key" + idx));
+        }
+        assertEquals(3L, (long)(redis.llen("left") + redis.llen("right")));
+    }
+
+    @Test public void execShouldBeAtomicAcrossStripes() throws Exception {
+        final ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.mset("foo", "0", "bar", "0");
+        final AtomicBoolean torn = new AtomicBoolean(false);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        Thread reader = new Thread(new Runnable() {
+                @Override public void run() {
+                    while (!done.get()) {
+                        String[] values = redis.mget("foo", "bar");
+                        if (!values[0].equals(values[1])) {
+                            torn.set(true);
+                        }
+                    }
+                }
+            });
+        reader.start();
+        IRedisClient client = redis.createClient();
+        for (int idx = 0; idx < 1000; ++idx) {
+            IRedisClient multi = client.multi();
+            multi.incr("foo");
+            multi.incr("bar");
+            assertEquals(2, multi.exec().size());
+        }
+        done.set(true);
+        reader.join();
+        assertEquals(false, torn.get());
+        assertEquals("1000", redis.get("foo"));
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Iterator;
+
+public class DictTest {
+
+    @Test public void putGetAndRemoveShouldWorkLikeAMap() {
+        Dict<String, Integer> dict = new Dict<String, Integer>();
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int idx = 0; idx < 1000; ++idx) {
+            assertEquals(null, dict.put("k" + idx, idx));
+            expected.put("k" + idx, idx);
+        }
+        assertEquals(Integer.valueOf(3), dict.put("k3", 3));
+        assertEquals(1000, dict.size());
+        assertEquals(expected, dict);
+        assertEquals(expected.hashCode(), dict.hashCode());
+        for (int idx = 0; idx < 990; ++idx) {
+            assertEquals(Integer.valueOf(idx), dict.remove("k" + idx));
+            expected.remove("k" + idx);
+        }
+        assertEquals(null, dict.remove("k0"));
+        assertEquals(false, dict.containsKey("k0"));
+        assertEquals(expected, dict);
+        assertEquals(Integer.valueOf(995), dict.get("k995"));
+    }
+
+    @Test public void iteratorShouldRemoveWhileRehashing() {
+        Dict<String, Integer> dict = new Dict<String, Integer>();
+        for (int idx = 0; idx < 64; ++idx) {
+            dict.put("k" + idx, idx);
+        }
+        assertEquals(true, dict.isRehashing());
+        Iterator<Map.Entry<String, Integer>> iter = dict.entrySet().iterator();
+        int seen = 0;
+        while (iter.hasNext()) {
+            if (iter.next().getValue() % 2 == 0) {
+                iter.remove();
+            }
+            ++seen;
+        }
+        assertEquals(64, seen);
+        assertEquals(32, dict.size());
+        assertEquals(null, dict.get("k10"));
+        assertEquals(Integer.valueOf(11), dict.get("k11"));
+    }
+
+    @Test public void scanShouldVisitEveryEntryAcrossRehashes() {
+        final Dict<String, Integer> dict = new Dict<String, Integer>();
+        Set<String> expected = new HashSet<String>();
+        for (int idx = 0; idx < 100; ++idx) {
+            dict.put("k" + idx, idx);
+            expected.add("k" + idx);
+        }
+        final Set<String> scanned = new HashSet<String>();
+        Dict.Visitor<String, Integer> visitor = new Dict.Visitor<String, Integer>() {
+            @Override public void visit(String key, Integer value) {
+                scanned.add(key);
+            }
+        };
+        long cursor = 0L;
+        int step = 0;
+        do {
+            cursor = dict.scan(cursor, visitor);
+            // Grow the table to many times its size, then shrink it back.
+            for (int idx = 0; idx < 50; ++idx) {
+                if (step < 20) {
+                    dict.put("x" + step + "." + idx, idx);
+                }
+                else {
+                    dict.remove("x" + (step - 20) + "." + idx);
+                }
+            }
+            ++step;
+        } while (cursor != 0L);
+        scanned.retainAll(expected);
+        assertEquals(expected, scanned);
+    }
+
+    @Test public void scanOfAnEmptyDictShouldEndAtOnce() {
+        Dict<String, Integer> dict = new Dict<String, Integer>();
+        assertEquals(0L, dict.scan(0L, new Dict.Visitor<String, Integer>() {
+                @Override public void visit(String key, Integer value) {
+                    assertEquals(false, true);
+                }
+            }));
+    }
+
+}
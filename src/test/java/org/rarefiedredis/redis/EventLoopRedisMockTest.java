@@ -0,0 +1,107 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+
+public class EventLoopRedisMockTest {
+
+    @Test public void commandsShouldRunOnTheEventLoop() throws Exception {
+        EventLoopRedisMock redis = new EventLoopRedisMock();
+        assertEquals("OK", redis.set("key", "value"));
+        assertEquals("value", redis.get("key"));
+        assertEquals("string", redis.type("key"));
+        assertEquals(1L, (long)redis.del("key"));
+        assertEquals(false, redis.exists("key"));
+    }
+
+    @Test public void errorsShouldBeThrownToTheCaller() throws Exception {
+        EventLoopRedisMock redis = new EventLoopRedisMock();
+        redis.sadd("key", "member");
+        try {
+            redis.get("key");
+        }
+        catch (WrongTypeException wte) {
+            assertEquals(true, true);
+            return;
+        }
+        assertEquals(false, true);
+    }
+
+    @Test public void submitShouldRunABlockWithoutWaiting() throws Exception {
+        final EventLoopRedisMock redis = new EventLoopRedisMock();
+        Future<Long> future = redis.submit(new AbstractRedisMock.Block<Long>() {
+                @Override public Long run() throws Exception {
+                    redis.incr("key");
+                    return redis.incr("key");
+                }
+            });
+        assertEquals(2L, (long)future.get());
+        assertEquals("2", redis.get("key"));
+    }
+
+    @Test public void keysShouldExpireOnTheEventLoop() throws Exception {
+        final RedisMock mock = new RedisMock();
+        final EventLoopRedisMock redis = new EventLoopRedisMock(mock);
+        redis.set("key", "value");
+        // The expiration cannot remove the key while the block holds
+        // the event loop.
+        Future<Integer> future = redis.submit(new AbstractRedisMock.Block<Integer>() {
+                @Override public Integer run() throws Exception {
+                    redis.pexpire("key", 20L);
+                    Thread.sleep(200L);
+                    return mock.size();
+                }
+            });
+        assertEquals(1, (int)future.get());
+        Thread.sleep(100L);
+        assertEquals(0, (int)redis.submit(new AbstractRedisMock.Block<Integer>() {
+                @Override public Integer run() throws Exception {
+                    return mock.size();
+                }
+            }).get());
+    }
+
+    @Test public void commandsFromManyThreadsShouldBeSerialized() throws Exception {
+        final EventLoopRedisMock redis = new EventLoopRedisMock();
+        final int increments = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int idx = 0; idx < 8; ++idx) {
+            threads.add(new Thread(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            for (int i = 0; i < increments; ++i) {
+                                redis.incr("key");
+                            }
+                        }
+                        catch (Exception e) {
+                        }
+                    }
+                }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(String.valueOf(8 * increments), redis.get("key"));
+    }
+
+    @Test public void execShouldRunTheTransactionOnTheEventLoop() throws Exception {
+        EventLoopRedisMock redis = new EventLoopRedisMock();
+        IRedisClient client = redis.createClient();
+        IRedisClient multi = client.multi();
+        multi.set("foo", "1");
+        multi.incr("foo");
+        List<Object> replies = multi.exec();
+        assertEquals(2, replies.size());
+        assertEquals("OK", replies.get(0));
+        assertEquals(2L, replies.get(1));
+        assertEquals("2", redis.get("foo"));
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.rarefiedredis.redis;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class ExpiryWheelTest {
+
+    @Test public void testSchedule() throws InterruptedException {
+        ExpiryWheel wheel = new ExpiryWheel(5L, 8);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        wheel.schedule(new Runnable() {
+                @Override public void run() {
+                    latch.countDown();
+                }
+            }, 50L);
+        assertEquals(1, wheel.pending());
+        assertEquals(true, latch.await(1L, TimeUnit.SECONDS));
+        assertEquals(true, System.currentTimeMillis() - start >= 50L);
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void testScheduleMoreThanOneRevolution() throws InterruptedException {
+        // 4 buckets of 5ms make a 20ms revolution.
+        ExpiryWheel wheel = new ExpiryWheel(5L, 4);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        wheel.schedule(new Runnable() {
+                @Override public void run() {
+                    latch.countDown();
+                }
+            }, 75L);
+        assertEquals(true, latch.await(1L, TimeUnit.SECONDS));
+        assertEquals(true, System.currentTimeMillis() - start >= 75L);
+    }
+
+    @Test public void testCancel() throws InterruptedException {
+        ExpiryWheel wheel = new ExpiryWheel(5L, 8);
+        final AtomicInteger runs = new AtomicInteger();
+        ExpiryWheel.Timeout timeout = wheel.schedule(new Runnable() {
+                @Override public void run() {
+                    runs.incrementAndGet();
+                }
+            }, 20L);
+        assertEquals(true, timeout.cancel());
+        assertEquals(false, timeout.cancel());
+        assertEquals(0, wheel.pending());
+        Thread.sleep(60L);
+        assertEquals(0, runs.get());
+    }
+
+    @Test public void testPending() throws InterruptedException {
+        ExpiryWheel wheel = new ExpiryWheel(5L, 8);
+        final CountDownLatch latch = new CountDownLatch(100);
+        for (int idx = 0; idx < 100; ++idx) {
+            wheel.schedule(new Runnable() {
+                    @Override public void run() {
+                        latch.countDown();
+                    }
+                }, 10L + idx);
+        }
+        assertEquals(100, wheel.pending());
+        assertEquals(true, latch.await(1L, TimeUnit.SECONDS));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void testWheelSizeIsRoundedUpToAPowerOfTwo() {
+        assertEquals(16, new ExpiryWheel(1L, 10).wheelSize());
+        assertEquals(ExpiryWheel.DEFAULT_WHEEL_SIZE, new ExpiryWheel().wheelSize());
+    }
+
+}
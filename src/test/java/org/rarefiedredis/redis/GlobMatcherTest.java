@@ -0,0 +1,77 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class GlobMatcherTest {
+
+    private static boolean matches(String pattern, String string) {
+        return GlobMatcher.compile(pattern).matches(string);
+    }
+
+    @Test public void starShouldMatchAnyRun() {
+        assertEquals(true, matches("*", ""));
+        assertEquals(true, matches("*", "anything"));
+        assertEquals(true, matches("tenant:123:*", "tenant:123:user:1"));
+        assertEquals(false, matches("tenant:123:*", "tenant:1234:user:1"));
+        assertEquals(true, matches("*:user:*", "tenant:123:user:1"));
+        assertEquals(true, matches("a*b*c", "aXbYbZc"));
+        assertEquals(false, matches("a*b*c", "aXbYbZ"));
+        assertEquals(true, matches("a**", "a"));
+    }
+
+    @Test public void questionMarkShouldMatchOneCharacter() {
+        assertEquals(true, matches("h?llo", "hello"));
+        assertEquals(true, matches("h?llo", "hallo"));
+        assertEquals(false, matches("h?llo", "hllo"));
+        assertEquals(false, matches("h?llo", "heello"));
+    }
+
+    @Test public void classesShouldMatchOneCharacterOfTheClass() {
+        assertEquals(true, matches("h[ae]llo", "hello"));
+        assertEquals(false, matches("h[ae]llo", "hillo"));
+        assertEquals(true, matches("h[^e]llo", "hallo"));
+        assertEquals(false, matches("h[^e]llo", "hello"));
+        assertEquals(true, matches("h[a-b]llo", "hbllo"));
+        assertEquals(true, matches("h[b-a]llo", "hallo"));
+        assertEquals(false, matches("h[a-b]llo", "hcllo"));
+        assertEquals(true, matches("[0-9]", "7"));
+        assertEquals(false, matches("[0-9]", "17"));
+        assertEquals(true, matches("[\\]]", "]"));
+        assertEquals(true, matches("a[bc", "ab"));
+    }
+
+    @Test public void backslashShouldEscape() {
+        assertEquals(true, matches("a\\*", "a*"));
+        assertEquals(false, matches("a\\*", "ab"));
+        assertEquals(true, matches("a\\?", "a?"));
+        assertEquals(true, matches("a\\", "a\\"));
+    }
+
+    @Test public void regexCharactersShouldBeLiteral() {
+        assertEquals(true, matches("a.b(c)+", "a.b(c)+"));
+        assertEquals(false, matches("a.b", "axb"));
+    }
+
+    @Test public void prefixShouldBeTheLeadingLiterals() {
+        assertEquals("tenant:123:", GlobMatcher.compile("tenant:123:*").prefix());
+        assertEquals("a*b", GlobMatcher.compile("a\\*b?").prefix());
+        assertEquals("", GlobMatcher.compile("*").prefix());
+        assertEquals(true, GlobMatcher.compile("*").matchesAll());
+        assertEquals(true, GlobMatcher.compile("key").isLiteral());
+        assertEquals(false, GlobMatcher.compile("key*").isLiteral());
+    }
+
+    @Test public void compileShouldReuseCachedPatterns() {
+        assertEquals(true, GlobMatcher.compile("cached:*") == GlobMatcher.compile("cached:*"));
+    }
+
+    @Test public void pathologicalPatternsShouldMatchQuickly() {
+        StringBuilder string = new StringBuilder();
+        for (int idx = 0; idx < 10000; ++idx) {
+            string.append('a');
+        }
+        assertEquals(false, matches("*a*a*a*a*a*a*a*a*b", string.toString()));
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+public class IntSetTest {
+
+    @Test public void isIntegerShouldOnlyAcceptCanonicalLongs() {
+        assertEquals(true, IntSet.isInteger("0"));
+        assertEquals(true, IntSet.isInteger("-42"));
+        assertEquals(true, IntSet.isInteger("9223372036854775807"));
+        assertEquals(false, IntSet.isInteger("9223372036854775808"));
+        assertEquals(false, IntSet.isInteger("007"));
+        assertEquals(false, IntSet.isInteger("-"));
+        assertEquals(false, IntSet.isInteger("+1"));
+        assertEquals(false, IntSet.isInteger("1.0"));
+        assertEquals(false, IntSet.isInteger(""));
+    }
+
+    @Test public void membersShouldBeKeptSorted() {
+        IntSet set = new IntSet();
+        assertEquals(true, set.add("5"));
+        assertEquals(true, set.add("-3"));
+        assertEquals(true, set.add("10"));
+        assertEquals(true, set.add("0"));
+        assertEquals(true, set.add("7"));
+        assertEquals(false, set.add("5"));
+        assertEquals(5, set.size());
+        Iterator<String> it = set.iterator();
+        assertEquals("-3", it.next());
+        assertEquals("0", it.next());
+        assertEquals("5", it.next());
+        assertEquals("7", it.next());
+        assertEquals("10", it.next());
+        assertEquals(false, it.hasNext());
+    }
+
+    @Test public void containsAndRemoveShouldFindMembers() {
+        IntSet set = new IntSet();
+        set.add("1");
+        set.add("2");
+        set.add("3");
+        assertEquals(true, set.contains("2"));
+        assertEquals(false, set.contains("02"));
+        assertEquals(false, set.contains("a"));
+        assertEquals(true, set.remove("2"));
+        assertEquals(false, set.remove("2"));
+        assertEquals(false, set.contains("2"));
+        Iterator<String> it = set.iterator();
+        it.next();
+        it.remove();
+        assertEquals(1, set.size());
+        assertEquals(true, set.contains("3"));
+    }
+
+}
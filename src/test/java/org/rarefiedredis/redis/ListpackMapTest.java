@@ -0,0 +1,54 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Iterator;
+
+public class ListpackMapTest {
+
+    @Test public void putGetAndRemoveShouldWorkLikeAMap() {
+        ListpackMap map = new ListpackMap();
+        Map<String, String> expected = new HashMap<String, String>();
+        for (int idx = 0; idx < 20; ++idx) {
+            map.put("f" + idx, "v" + idx);
+            expected.put("f" + idx, "v" + idx);
+        }
+        assertEquals("v3", map.put("f3", "x"));
+        assertEquals("x", map.put("f3", "v3"));
+        assertEquals(20, map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals("v7", map.remove("f7"));
+        assertEquals(null, map.remove("f7"));
+        assertEquals(false, map.containsKey("f7"));
+        assertEquals(19, map.size());
+        assertEquals("v19", map.get("f19"));
+    }
+
+    @Test public void iteratorRemoveShouldVisitEveryEntry() {
+        ListpackMap map = new ListpackMap();
+        for (int idx = 0; idx < 10; ++idx) {
+            map.put("f" + idx, "v" + idx);
+        }
+        int visited = 0;
+        Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            visited += 1;
+            if (entry.getKey().equals("f2") || entry.getKey().equals("f9")) {
+                it.remove();
+            }
+            else {
+                entry.setValue("x");
+            }
+        }
+        assertEquals(10, visited);
+        assertEquals(8, map.size());
+        assertEquals("x", map.get("f0"));
+        assertEquals(null, map.get("f9"));
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class ListpackZsetTest {
+
+    @Test public void membersShouldBeKeptInScoreOrder() {
+        ListpackZset zset = new ListpackZset();
+        for (int idx = 9; idx >= 0; --idx) {
+            assertEquals(null, zset.put("m" + idx, (double)(idx % 5)));
+        }
+        assertEquals(10, zset.size());
+        // Ties are broken by member.
+        assertEquals("m0", zset.memberAt(0));
+        assertEquals("m5", zset.memberAt(1));
+        assertEquals("m4", zset.memberAt(8));
+        assertEquals("m9", zset.memberAt(9));
+        assertEquals(4.0d, zset.put("m4", -1.0d), 0.0d);
+        assertEquals("m4", zset.memberAt(0));
+        assertEquals(0, zset.rank("m4"));
+        assertEquals(-1.0d, zset.score("m4"), 0.0d);
+        assertEquals(1.0d, zset.remove("m1"), 0.0d);
+        assertEquals(null, zset.remove("m1"));
+        assertEquals(null, zset.score("m1"));
+        assertEquals(-1, zset.rank("m1"));
+        assertEquals(9, zset.size());
+        assertEquals("m9", zset.memberAt(8));
+    }
+
+    @Test public void rangesShouldFindTheirEnds() {
+        ListpackZset zset = new ListpackZset();
+        for (int idx = 0; idx < 10; ++idx) {
+            zset.put("m" + idx, (double)idx);
+        }
+        assertEquals(2, zset.firstInRange(2.0d, false, 5.0d, false));
+        assertEquals(3, zset.firstInRange(2.0d, true, 5.0d, false));
+        assertEquals(5, zset.lastInRange(2.0d, false, 5.0d, false));
+        assertEquals(4, zset.lastInRange(2.0d, false, 5.0d, true));
+        assertEquals(-1, zset.firstInRange(10.0d, false, 20.0d, false));
+        assertEquals(-1, zset.lastInRange(-5.0d, false, -1.0d, false));
+        assertEquals(-1, zset.firstInRange(2.5d, false, 2.7d, false));
+
+        ListpackZset lex = new ListpackZset();
+        for (String member : new String[] { "d", "b", "a", "c" }) {
+            lex.put(member, 0.0d);
+        }
+        assertEquals(1, lex.firstInLexRange("b", false, null, false));
+        assertEquals(2, lex.firstInLexRange("b", true, "d", false));
+        assertEquals(0, lex.firstInLexRange(null, false, "a", false));
+        assertEquals(-1, lex.firstInLexRange("d", true, null, false));
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+public class QuickListTest {
+
+    @Test public void operationsShouldAgreeWithAnArrayList() {
+        QuickList list = new QuickList(4);
+        List<String> expected = new ArrayList<String>();
+        Random random = new Random(7L);
+        for (int step = 0; step < 5000; ++step) {
+            String element = String.valueOf(step);
+            int op = random.nextInt(7);
+            if (op == 0) {
+                list.addFirst(element);
+                expected.add(0, element);
+            }
+            else if (op == 1) {
+                list.addLast(element);
+                expected.add(element);
+            }
+            else if (op == 2) {
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, element);
+                expected.add(index, element);
+            }
+            else if (op == 3 && !expected.isEmpty()) {
+                assertEquals(expected.remove(0), list.removeFirst());
+            }
+            else if (op == 4 && !expected.isEmpty()) {
+                assertEquals(expected.remove(expected.size() - 1), list.removeLast());
+            }
+            else if (op == 5 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            }
+            else if (op == 6 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, element), list.set(index, element));
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+        for (int idx = 0; idx < expected.size(); ++idx) {
+            assertEquals(expected.get(idx), list.get(idx));
+        }
+    }
+
+    @Test public void rangeShouldCopyAcrossChunks() {
+        QuickList list = new QuickList(3);
+        for (int idx = 0; idx < 10; ++idx) {
+            list.add(String.valueOf(idx));
+        }
+        List<String> range = list.range(2, 8);
+        assertEquals(6, range.size());
+        assertEquals("2", range.get(0));
+        assertEquals("7", range.get(5));
+        list.set(2, "x");
+        assertEquals("2", range.get(0));
+        assertEquals(0, list.range(4, 4).size());
+    }
+
+    @Test public void iteratorRemoveShouldUnlinkEmptyChunks() {
+        QuickList list = new QuickList(2);
+        for (int idx = 0; idx < 9; ++idx) {
+            list.add(String.valueOf(idx % 3));
+        }
+        Iterator<String> it = list.iterator();
+        while (it.hasNext()) {
+            if (!it.next().equals("1")) {
+                it.remove();
+            }
+        }
+        assertEquals(3, list.size());
+        assertEquals("1", list.get(0));
+        assertEquals("1", list.get(2));
+        assertEquals(0, list.indexOf("1"));
+        assertEquals(-1, list.indexOf("0"));
+    }
+
+}
@@ -90,4 +90,21 @@ public class RedisHashCacheTest {
         assertEquals("hash", new RedisHashCache().type());
     }
 
+    @Test public void testEncoding() {
+        EncodingConfig config = new EncodingConfig();
+        config.hashMaxListpackEntries = 2;
+        config.hashMaxListpackValue = 5;
+        RedisHashCache cache = new RedisHashCache(new RedisKeyspace(), config);
+        String key = "key";
+        cache.set(key, "f1", "v1");
+        cache.set(key, "f2", "v2");
+        cache.set(key, "f2", "v3");
+        assertEquals(true, cache.get(key) instanceof ListpackMap);
+        cache.set(key, "f3", "v3");
+        assertEquals(true, cache.get(key) instanceof Dict);
+        assertEquals("v3", cache.get(key).get("f2"));
+        cache.set("key2", "f1", "a long value");
+        assertEquals(true, cache.get("key2") instanceof Dict);
+    }
+
 }
@@ -0,0 +1,125 @@
+package org.rarefiedredis.redis;
+
+import java.util.Set;
+import java.util.Random;
+import java.util.List;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class RedisKeyspaceTest {
+
+    @Test public void testPutAndGet() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        String key = "key";
+        assertEquals(null, keyspace.get(key));
+        keyspace.put(key, "string", "value");
+        assertEquals("string", keyspace.get(key).type);
+        assertEquals("value", keyspace.get(key).value);
+        assertEquals(-1L, keyspace.get(key).expiration);
+        assertEquals("value", keyspace.get(key, "string"));
+        assertEquals(null, keyspace.get(key, "list"));
+    }
+
+    @Test public void testRemove() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        String key = "key";
+        assertEquals(null, keyspace.remove(key));
+        keyspace.put(key, "string", "value");
+        assertEquals("value", keyspace.remove(key).value);
+        assertEquals(false, keyspace.exists(key));
+        assertEquals(0, keyspace.size());
+    }
+
+    @Test public void testType() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        assertEquals("none", keyspace.type("key"));
+        keyspace.put("key", "hash", null);
+        assertEquals("hash", keyspace.type("key"));
+    }
+
+    @Test public void testSetExpiration() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        long later = System.currentTimeMillis() + 60000L;
+        RedisKeyspace.Entry e1 = keyspace.put("k1", "string", "v1");
+        RedisKeyspace.Entry e2 = keyspace.put("k2", "string", "v2");
+        keyspace.setExpiration("k1", e1, later);
+        keyspace.setExpiration("k2", e2, later);
+        assertEquals(2, keyspace.volatileSize());
+        keyspace.setExpiration("k1", e1, -1L);
+        assertEquals(1, keyspace.volatileSize());
+        assertEquals("k2", keyspace.randomVolatileKey(new Random()));
+        keyspace.put("k2", "string", "v3");
+        assertEquals(0, keyspace.volatileSize());
+        assertEquals(null, keyspace.randomVolatileKey(new Random()));
+    }
+
+    @Test public void testExpiredKeysAreRemovedOnLookup() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        RedisKeyspace.Entry entry = keyspace.put("key", "string", "value");
+        keyspace.setExpiration("key", entry, System.currentTimeMillis() - 1L);
+        assertEquals(1, keyspace.size());
+        assertEquals(null, keyspace.get("key"));
+        assertEquals(0, keyspace.size());
+        assertEquals(0, keyspace.volatileSize());
+    }
+
+    @Test public void testCachesAreViews() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        RedisStringCache strings = new RedisStringCache(keyspace);
+        RedisSetCache sets = new RedisSetCache(keyspace);
+        String key = "key";
+        sets.set(key, "member");
+        assertEquals(true, sets.exists(key));
+        assertEquals(false, strings.exists(key));
+        assertEquals("set", keyspace.type(key));
+        strings.remove(key);
+        assertEquals(true, keyspace.exists(key));
+        Set<String> members = sets.get(key);
+        assertEquals(true, members.contains("member"));
+        sets.remove(key);
+        assertEquals(false, keyspace.exists(key));
+    }
+
+    @Test public void testPrefixScanWalksTheIndexInOrder() {
+        RedisKeyspace keyspace = new RedisKeyspace();
+        keyspace.put("tenant:2:b", "string", "v");
+        keyspace.put("tenant:1:a", "string", "v");
+        keyspace.setIndexed(true);
+        assertEquals(true, keyspace.isIndexed());
+        keyspace.put("tenant:1:c", "string", "v");
+        keyspace.put("tenant:1:b", "string", "v");
+        keyspace.put("tenant:10:a", "string", "v");
+        keyspace.remove("tenant:1:c");
+        final List<String> keys = new ArrayList<String>();
+        Dict.Visitor<String, RedisKeyspace.Entry> visitor = new Dict.Visitor<String, RedisKeyspace.Entry>() {
+            @Override public void visit(String key, RedisKeyspace.Entry entry) {
+                keys.add(key);
+            }
+        };
+        keyspace.keys("tenant:1:", visitor);
+        assertEquals("[tenant:1:a, tenant:1:b]", keys.toString());
+        keys.clear();
+        long cursor = keyspace.scan("tenant:1:", 0L, 1, visitor);
+        assertEquals("[tenant:1:a]", keys.toString());
+        // Keys added behind the cursor are not seen, keys ahead of it are.
+        keyspace.put("tenant:1:0", "string", "v");
+        keyspace.put("tenant:1:z", "string", "v");
+        while (cursor != 0L) {
+            cursor = keyspace.scan("tenant:1:", cursor, 1, visitor);
+        }
+        assertEquals("[tenant:1:a, tenant:1:b, tenant:1:z]", keys.toString());
+        // A forgotten cursor starts over rather than end the scan early.
+        keys.clear();
+        cursor = keyspace.scan("tenant:1:", 12345L, 1, visitor);
+        assertEquals("[tenant:1:0]", keys.toString());
+        while (cursor != 0L) {
+            cursor = keyspace.scan("tenant:1:", cursor, 0, visitor);
+        }
+        assertEquals("[tenant:1:0, tenant:1:a, tenant:1:b, tenant:1:z]", keys.toString());
+        keyspace.setIndexed(false);
+        assertEquals(false, keyspace.isIndexed());
+    }
+
+}
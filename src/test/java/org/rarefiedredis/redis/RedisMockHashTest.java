@@ -347,6 +347,40 @@ public class RedisMockHashTest {
         assertEquals(v + 2.22d - 3.1415d, Double.parseDouble(redis.hget(k, f)), 0.01d);
     }
 
+    @Test public void hgetallHkeysAndHvalsShouldReturnSnapshots() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 1000; ++idx) {
+            redis.hset("key", "f" + idx, "v" + idx);
+        }
+        redis.hset("small", "f", "v");
+        Map<String, String> hash = redis.hgetall("key");
+        Set<String> fields = redis.hkeys("key");
+        List<String> values = redis.hvals("key");
+        Map<String, String> small = redis.hgetall("small");
+        redis.hset("key", "f0", "changed");
+        redis.hdel("key", "f1");
+        redis.hset("key", "new", "v");
+        redis.hset("small", "f", "changed");
+        assertEquals(1000, hash.size());
+        assertEquals("v0", hash.get("f0"));
+        assertEquals("v1", hash.get("f1"));
+        assertEquals(false, hash.containsKey("new"));
+        assertEquals(1000, fields.size());
+        assertEquals(true, fields.contains("f1"));
+        assertEquals(1000, values.size());
+        assertEquals("v", small.get("f"));
+        assertEquals("changed", redis.hget("key", "f0"));
+        assertEquals(null, redis.hget("key", "f1"));
+        assertEquals("changed", redis.hget("small", "f"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void hgetallShouldNotChangeTheHash() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        redis.hset("key", "f", "v");
+        redis.hgetall("key").put("f", "changed");
+    }
+
     @Test public void hkeysShouldThrowAnErrorIfKeyIsNotAHash() throws WrongTypeException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
@@ -722,7 +756,7 @@ public class RedisMockHashTest {
         String v1 = "v1", v2 = "v2", v3 = "v3", v4 = "v4";
         redis.hmset(k, f1, v1, f2, v2, f3, v3);
         ScanResult<Map<String, String>> scan = redis.hscan(k, 0L);
-        assertEquals(3L, (long)scan.cursor);
+        assertEquals(0L, (long)scan.cursor);
         assertEquals(3, scan.results.size());
         assertEquals(redis.hget(k, f1), scan.results.get(f1));
         assertEquals(redis.hget(k, f2), scan.results.get(f2));
@@ -743,19 +777,17 @@ public class RedisMockHashTest {
         Map<String, String> scanned = new HashMap<String, String>();
         while (true) {
             scan = redis.hscan(k, scan.cursor);
-            if (scan.results.size() == 0) {
-                break;
-            }
             for (String key : scan.results.keySet()) {
                 scanned.put(key, scan.results.get(key));
             }
+            if (scan.cursor == 0L) {
+                break;
+            }
         }
         assertEquals(hash.size(), scanned.size());
         for (String key : scanned.keySet()) {
             assertEquals(hash.get(key), scanned.get(key));
         }
-        scan = redis.hscan(k, scan.cursor);
-        assertEquals(0, scan.results.size());
     }
 
     @Test public void hscanShouldScanThroughALargeSetWithCursoringAndACount() throws WrongTypeException {
@@ -773,19 +805,17 @@ public class RedisMockHashTest {
         Long count = 5L;
         while (true) {
             scan = redis.hscan(k, scan.cursor, "count", String.valueOf(count));
-            if (scan.results.size() == 0) {
-                break;
-            }
             for (String key : scan.results.keySet()) {
                 scanned.put(key, scan.results.get(key));
             }
+            if (scan.cursor == 0L) {
+                break;
+            }
         }
         assertEquals(hash.size(), scanned.size());
         for (String key : scanned.keySet()) {
             assertEquals(hash.get(key), scanned.get(key));
         }
-        scan = redis.hscan(k, scan.cursor, "count", String.valueOf(count));
-        assertEquals(0, scan.results.size());
     }
 
     @Test public void hscanShouldScanThroughALargeSetWithCursoringAndAMatch() throws WrongTypeException {
@@ -803,19 +833,17 @@ public class RedisMockHashTest {
         String match = "[0-9]"; // All single digit #s.
         while (true) {
             scan = redis.hscan(k, scan.cursor, "match", match);
-            if (scan.results.size() == 0) {
-                break;
-            }
             for (String key : scan.results.keySet()) {
                 scanned.put(key, scan.results.get(key));
             }
+            if (scan.cursor == 0L) {
+                break;
+            }
         }
         assertEquals(10, scanned.size());
         for (String key : scanned.keySet()) {
             assertEquals(hash.get(key), scanned.get(key));
         }
-        scan = redis.hscan(k, scan.cursor, "match", match);
-        assertEquals(0, scan.results.size());
     }
 
     @Test public void hscanShouldScanThroughALargeSetWithCursoringACountAndAMatch() throws WrongTypeException {
@@ -834,19 +862,17 @@ public class RedisMockHashTest {
         String match = "[0-9]"; // All single digit #s.
         while (true) {
             scan = redis.hscan(k, scan.cursor, "count", String.valueOf(count), "match", match);
-            if (scan.results.size() == 0) {
-                break;
-            }
             for (String key : scan.results.keySet()) {
                 scanned.put(key, scan.results.get(key));
             }
+            if (scan.cursor == 0L) {
+                break;
+            }
         }
         assertEquals(10, scanned.size());
         for (String key : scanned.keySet()) {
             assertEquals(hash.get(key), scanned.get(key));
         }
-        scan = redis.hscan(k, scan.cursor, "match", match, "count", String.valueOf(count));
-        assertEquals(0, scan.results.size());
     }
 
 }
\ No newline at end of file
@@ -4,6 +4,10 @@ import org.junit.Test;
 import org.junit.Ignore;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Arrays;
+
 public class RedisMockKeysTest {
 
     @Test public void delShouldDeleteAString() throws WrongTypeException, SyntaxErrorException {
@@ -93,7 +97,16 @@ public class RedisMockKeysTest {
     @Test public void expireat() {
     }
 
-    @Test public void keys() {
+    @Test public void keysShouldReturnTheKeysMatchingAPattern() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        redis.set("one", "1");
+        redis.set("two", "2");
+        redis.sadd("three", "3");
+        redis.set("four", "4");
+        Set<String> keys = new HashSet<String>(Arrays.asList(redis.keys("t*")));
+        assertEquals(new HashSet<String>(Arrays.asList("two", "three")), keys);
+        assertEquals(4, redis.keys("*").length);
+        assertEquals(0, redis.keys("nokey").length);
     }
 
     @Ignore("UNIMPLEMENTED") @Test public void migrate() {
@@ -105,7 +118,64 @@ public class RedisMockKeysTest {
     @Ignore("UNIMPLEMENTED") @Test public void object() {
     }
 
-    @Test public void persist() {
+    @Test public void persistShouldRemoveTheExpiration() throws InterruptedException, SyntaxErrorException {
+        ExpiryWheel wheel = new ExpiryWheel();
+        RedisMock redis = new RedisMock(wheel);
+        String key = "key";
+        String value = "value";
+        assertEquals(false, redis.persist(key));
+        redis.set(key, value);
+        assertEquals(false, redis.persist(key));
+        assertEquals(true, redis.pexpire(key, 100));
+        assertEquals(1, wheel.pending());
+        assertEquals(true, redis.persist(key));
+        assertEquals(0, wheel.pending());
+        assertEquals(-1L, (long)redis.pttl(key));
+        Thread.sleep(200);
+        assertEquals(true, redis.exists(key));
+    }
+
+    @Test public void delShouldCancelThePendingExpiration() throws SyntaxErrorException {
+        ExpiryWheel wheel = new ExpiryWheel();
+        RedisMock redis = new RedisMock(wheel);
+        String key = "key";
+        redis.set(key, "value");
+        assertEquals(true, redis.expire(key, 10));
+        assertEquals(1, wheel.pending());
+        assertEquals(1L, (long)redis.del(key));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test public void setShouldNotBeExpiredByAnEarlierExpiration() throws InterruptedException, WrongTypeException, SyntaxErrorException {
+        ExpiryWheel wheel = new ExpiryWheel();
+        RedisMock redis = new RedisMock(wheel);
+        String key = "key";
+        redis.set(key, "v1");
+        assertEquals(true, redis.pexpire(key, 100));
+        redis.set(key, "v2");
+        assertEquals(0, wheel.pending());
+        Thread.sleep(200);
+        assertEquals("v2", redis.get(key));
+    }
+
+    @Test public void pexpireShouldDeleteTheKeyIfTheTimeIsNotPositive() throws SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        String key = "key";
+        redis.set(key, "value");
+        assertEquals(true, redis.pexpire(key, 0));
+        assertEquals(false, redis.exists(key));
+    }
+
+    @Test public void expiredKeysShouldBeRemovedWhenTheyAreAccessed() throws InterruptedException, WrongTypeException, SyntaxErrorException {
+        // A wheel that ticks far slower than the expiration leaves the work to lookups.
+        RedisMock redis = new RedisMock(new ExpiryWheel(60000L, 8));
+        String key = "key";
+        redis.set(key, "value");
+        assertEquals(true, redis.pexpire(key, 50));
+        Thread.sleep(100);
+        assertEquals(null, redis.get(key));
+        assertEquals(false, redis.exists(key));
+        assertEquals(-2L, (long)redis.pttl(key));
     }
 
     @Test public void pexpireShouldReturnFalseIfTheKeyDoesNotExist() {
@@ -207,7 +277,49 @@ public class RedisMockKeysTest {
         assertEquals(-2L, (long)redis.pttl(key));
     }
 
-    @Test public void randomkey() {
+    @Test public void randomkeyShouldReturnNothingIfThereAreNoKeys() {
+        RedisMock redis = new RedisMock();
+        assertEquals(null, redis.randomkey());
+    }
+
+    @Test public void randomkeyShouldPickEveryKey() throws Exception {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 20; ++idx) {
+            redis.set("key" + idx, "value");
+        }
+        redis.del("key3", "key11");
+        redis.sadd("set", "member");
+        Set<String> picked = new HashSet<String>();
+        for (int idx = 0; idx < 2000; ++idx) {
+            picked.add(redis.randomkey());
+        }
+        assertEquals(19, picked.size());
+        assertEquals(false, picked.contains("key3"));
+        assertEquals(true, picked.contains("set"));
+    }
+
+    @Test public void randomkeyShouldSkipExpiredKeys() throws Exception {
+        RedisMock redis = new RedisMock();
+        redis.set("gone", "value");
+        redis.pexpire("gone", 1L);
+        redis.set("kept", "value");
+        Thread.sleep(5L);
+        for (int idx = 0; idx < 100; ++idx) {
+            assertEquals("kept", redis.randomkey());
+        }
+        assertEquals(false, redis.exists("gone"));
+    }
+
+    @Test public void randomkeyShouldPickAcrossStripes() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(8);
+        for (int idx = 0; idx < 50; ++idx) {
+            redis.set("key" + idx, "value");
+        }
+        Set<String> picked = new HashSet<String>();
+        for (int idx = 0; idx < 5000; ++idx) {
+            picked.add(redis.randomkey());
+        }
+        assertEquals(50, picked.size());
     }
 
     @Ignore("UNIMPLEMENTED") @Test public void renamenx() {
@@ -225,7 +337,113 @@ public class RedisMockKeysTest {
     @Test public void type() {
     }
 
-    @Ignore("UNIMPLEMENTED") @Test public void scan() {
+    @Test public void scanShouldReturnEveryKeyWithACursor() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        Set<String> expected = new HashSet<String>();
+        for (int idx = 0; idx < 500; ++idx) {
+            redis.set("key" + idx, "value");
+            expected.add("key" + idx);
+        }
+        Set<String> scanned = new HashSet<String>();
+        ScanResult<Set<String>> scan = new ScanResult<Set<String>>();
+        do {
+            scan = redis.scan(scan.cursor, "count", "20");
+            scanned.addAll(scan.results);
+        } while (scan.cursor != 0L);
+        assertEquals(expected, scanned);
+        scanned.clear();
+        do {
+            scan = redis.scan(scan.cursor, "match", "key1?");
+            scanned.addAll(scan.results);
+        } while (scan.cursor != 0L);
+        assertEquals(10, scanned.size());
+    }
+
+    @Test public void scanShouldReturnEveryKeyThatStaysWhileTheKeyspaceResizes() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        Set<String> expected = new HashSet<String>();
+        for (int idx = 0; idx < 300; ++idx) {
+            redis.set("key" + idx, "value");
+            expected.add("key" + idx);
+        }
+        Set<String> scanned = new HashSet<String>();
+        ScanResult<Set<String>> scan = new ScanResult<Set<String>>();
+        int round = 0;
+        do {
+            scan = redis.scan(scan.cursor, "count", "5");
+            scanned.addAll(scan.results);
+            // Grow the keyspace, then shrink it, in the middle of the scan.
+            for (int idx = 0; idx < 100; ++idx) {
+                if (round < 10) {
+                    redis.set("other" + round + "." + idx, "value");
+                }
+                else if (round < 20) {
+                    redis.del("other" + (round - 10) + "." + idx);
+                }
+            }
+            ++round;
+        } while (scan.cursor != 0L);
+        scanned.retainAll(expected);
+        assertEquals(expected, scanned);
+    }
+
+    @Test public void keysAndScanShouldOnlyWalkThePrefixWithAKeyIndex() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        redis.setKeyIndex(true);
+        for (int tenant = 0; tenant < 50; ++tenant) {
+            for (int idx = 0; idx < 20; ++idx) {
+                redis.set("tenant:" + tenant + ":" + idx, "value");
+            }
+        }
+        assertEquals(20, redis.keys("tenant:12:*").length);
+        assertEquals(10, redis.keys("tenant:12:1?").length);
+        assertEquals(1000, redis.keys("*").length);
+        Set<String> scanned = new HashSet<String>();
+        ScanResult<Set<String>> scan = new ScanResult<Set<String>>();
+        int calls = 0;
+        do {
+            scan = redis.scan(scan.cursor, "match", "tenant:12:*", "count", "5");
+            scanned.addAll(scan.results);
+            redis.del("tenant:12:" + calls);
+            ++calls;
+        } while (scan.cursor != 0L);
+        assertEquals(4, calls);
+        assertEquals(20, scanned.size());
+        redis.setKeyIndex(false);
+        assertEquals(16, redis.keys("tenant:12:*").length);
+    }
+
+    @Test public void scanWithAKeyIndexShouldLookAtOneKeyAtLeast() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        redis.setKeyIndex(true);
+        for (int idx = 0; idx < 3; ++idx) {
+            redis.set("tenant:1:" + idx, "value");
+        }
+        Set<String> scanned = new HashSet<String>();
+        ScanResult<Set<String>> scan = new ScanResult<Set<String>>();
+        int calls = 0;
+        do {
+            scan = redis.scan(scan.cursor, "match", "tenant:1:*", "count", "0");
+            scanned.addAll(scan.results);
+            ++calls;
+        } while (scan.cursor != 0L);
+        assertEquals(3, scanned.size());
+        assertEquals(3, calls);
+    }
+
+    @Test public void concurrentScanShouldVisitEveryStripe() throws WrongTypeException, SyntaxErrorException {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(8);
+        for (int idx = 0; idx < 200; ++idx) {
+            redis.set("key" + idx, "value");
+        }
+        Set<String> scanned = new HashSet<String>();
+        ScanResult<Set<String>> scan = new ScanResult<Set<String>>();
+        do {
+            scan = redis.scan(scan.cursor);
+            scanned.addAll(scan.results);
+        } while (scan.cursor != 0L);
+        assertEquals(200, scanned.size());
+        assertEquals(200, redis.keys("key*").length);
     }
 
 }
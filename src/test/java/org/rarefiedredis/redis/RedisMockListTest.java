@@ -605,4 +605,25 @@ public class RedisMockListTest {
         assertEquals(v3, redis.lindex(k, -1L));
     }
         
-}
\ No newline at end of file
+
+    @Test public void lrangeShouldReturnACopyOfTheRange() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        redis.rpush(k, "a", "b", "c");
+        List<String> range = redis.lrange(k, 0L, -1L);
+        redis.lpop(k);
+        assertEquals(3, range.size());
+        assertEquals("a", range.get(0));
+    }
+
+    @Test public void ltrimShouldKeepTheRangeCountedFromTheEnd() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        redis.rpush(k, "a", "b", "c", "d", "a");
+        assertEquals("OK", redis.ltrim(k, 1L, -2L));
+        assertEquals(3L, (long)redis.llen(k));
+        assertEquals("b", redis.lindex(k, 0L));
+        assertEquals("d", redis.lindex(k, -1L));
+    }
+
+}
@@ -0,0 +1,54 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+public class RedisMockPipelineTest {
+
+    private void pipelineShouldBufferCommandsUntilSync(IRedisClient redis) throws Exception {
+        String k = "key";
+        String l = "list";
+        IRedisClient pipeline = redis.pipelined();
+        assertEquals(null, pipeline.set(k, "v"));
+        assertEquals(null, pipeline.get(k));
+        pipeline.lpush(k, "v");
+        pipeline.rpush(l, "a", "b");
+        assertEquals("none", redis.type(l));
+        List<Object> replies = pipeline.sync();
+        assertEquals(4, replies.size());
+        assertEquals("OK", replies.get(0));
+        assertEquals("v", replies.get(1));
+        assertEquals(WrongTypeException.class, replies.get(2).getClass());
+        assertEquals(2L, replies.get(3));
+        assertEquals(2L, (long)redis.llen(l));
+        // The pipeline can be used again after a sync.
+        pipeline.lpop(l);
+        replies = pipeline.sync();
+        assertEquals(1, replies.size());
+        assertEquals("a", replies.get(0));
+        assertEquals(0, pipeline.sync().size());
+    }
+
+    @Test public void pipelineShouldBufferCommandsUntilSync() throws Exception {
+        pipelineShouldBufferCommandsUntilSync(new RedisMock());
+    }
+
+    @Test public void pipelineOfAClientShouldBufferCommandsUntilSync() throws Exception {
+        pipelineShouldBufferCommandsUntilSync(new RedisMock().createClient());
+    }
+
+    @Test public void pipelineOfAConcurrentMockShouldBufferCommandsUntilSync() throws Exception {
+        pipelineShouldBufferCommandsUntilSync(new ConcurrentRedisMock());
+    }
+
+    @Test public void pipelineOfAnEventLoopMockShouldBufferCommandsUntilSync() throws Exception {
+        pipelineShouldBufferCommandsUntilSync(new EventLoopRedisMock());
+    }
+
+    @Test public void syncShouldReturnNothingOutsideAPipeline() throws Exception {
+        assertEquals(0, new RedisMock().sync().size());
+    }
+
+}
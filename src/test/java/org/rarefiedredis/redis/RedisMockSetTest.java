@@ -8,6 +8,8 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
 
 public class RedisMockSetTest {
 
@@ -564,6 +566,79 @@ public class RedisMockSetTest {
         assertEquals(4, randos.size());
     }
      
+    @Test public void srandmemberShouldPickMembersUniformly() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 1000; ++idx) {
+            redis.sadd("key", "m" + idx);
+        }
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int idx = 0; idx < 100000; ++idx) {
+            String member = redis.srandmember("key");
+            counts.put(member, counts.containsKey(member) ? counts.get(member) + 1 : 1);
+        }
+        assertEquals(1000, counts.size());
+        for (int count : counts.values()) {
+            // 100 expected, with a standard deviation of about 10.
+            assertEquals(true, count > 40 && count < 160);
+        }
+    }
+
+    @Test public void srandmemberShouldReturnDistinctMembersForAPositiveCount() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 1000; ++idx) {
+            redis.sadd("key", "m" + idx);
+        }
+        assertEquals(100, new HashSet<String>(redis.srandmember("key", 100L)).size());
+        assertEquals(900, new HashSet<String>(redis.srandmember("key", 900L)).size());
+        assertEquals(0, redis.srandmember("key", 0L).size());
+        assertEquals(0, redis.srandmember("missing", 5L).size());
+    }
+
+    @Test public void spopWithACountShouldRemoveThatManyMembers() throws WrongTypeException, NotIntegerException {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 1000; ++idx) {
+            redis.sadd("key", "m" + idx);
+        }
+        Set<String> popped = redis.spop("key", 300L);
+        assertEquals(300, popped.size());
+        assertEquals(700L, (long)redis.scard("key"));
+        for (String member : popped) {
+            assertEquals(false, redis.sismember("key", member));
+        }
+        assertEquals(700, redis.spop("key", 1000L).size());
+        assertEquals(false, redis.exists("key"));
+        assertEquals(0, redis.spop("key", 1L).size());
+    }
+
+    @Test(expected = NotIntegerException.class)
+    public void spopShouldRejectANegativeCount() throws WrongTypeException, NotIntegerException {
+        RedisMock redis = new RedisMock();
+        redis.sadd("key", "v");
+        redis.spop("key", -1L);
+    }
+
+    @Test public void smembersShouldReturnASnapshot() throws WrongTypeException {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 1000; ++idx) {
+            redis.sadd("key", "m" + idx);
+        }
+        Set<String> members = redis.smembers("key");
+        redis.sadd("small", "1", "2");
+        Set<String> small = redis.smembers("small");
+        redis.srem("key", "m0");
+        redis.sadd("key", "new");
+        redis.sadd("small", "3");
+        redis.del("small");
+        assertEquals(1000, members.size());
+        assertEquals(true, members.contains("m0"));
+        assertEquals(false, members.contains("new"));
+        assertEquals(1000, new HashSet<String>(members).size());
+        assertEquals(2, small.size());
+        assertEquals(1000L, (long)redis.scard("key"));
+        assertEquals(true, redis.sismember("key", "new"));
+        assertEquals(0, redis.smembers("missing").size());
+    }
+
     @Test public void sremShouldThrowAnErrorIfKeyIsNotASet() throws WrongTypeException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
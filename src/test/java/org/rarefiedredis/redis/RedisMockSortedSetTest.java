@@ -237,6 +237,19 @@ public class RedisMockSortedSetTest {
         assertEquals(4.0, map.get(v2), 0.01);
     }
 
+    @Test public void zinterstoreShouldReadTheDestinationBeforeReplacingIt() throws WrongTypeException, SyntaxErrorException, NotFloatException {
+        RedisMock redis = new RedisMock();
+        redis.zadd("k1", 1.0, "v1", 2.0, "v2");
+        redis.zadd("k2", 5.0, "v2");
+        redis.pexpire("k1", 100000L);
+        assertEquals(1L, (long)redis.zinterstore("k1", 2, "k1", "k2", "AGGREGATE", "MAX"));
+        assertEquals(5.0, redis.zscore("k1", "v2"), 0.01);
+        assertEquals(null, redis.zscore("k1", "v1"));
+        assertEquals(-1L, (long)redis.ttl("k1"));
+        assertEquals(0L, (long)redis.zinterstore("k1", 2, "k1", "missing"));
+        assertEquals(false, redis.exists("k1"));
+    }
+
     @Test public void zinterstoreShouldStoreAnInterOfNZsetsIntoDestination() throws WrongTypeException, SyntaxErrorException, NotFloatException {
         RedisMock redis = new RedisMock();
         String d = "destination", k1 = "k1", k2= "k2", k3 = "k3", k4 = "k4", k5 = "k5";
@@ -1441,6 +1454,25 @@ public class RedisMockSortedSetTest {
         assertEquals(false, iter.hasNext());
     }
 
+    @Test public void zunionstoreShouldStoreALargeUnion() throws WrongTypeException, SyntaxErrorException, NotFloatException {
+        RedisMock redis = new RedisMock();
+        for (int idx = 0; idx < 24; ++idx) {
+            for (int member = 0; member < 100; ++member) {
+                redis.zadd("hour:" + idx, (double)(member * idx), "m" + member);
+            }
+        }
+        String[] keys = new String[24];
+        for (int idx = 0; idx < 24; ++idx) {
+            keys[idx] = "hour:" + idx;
+        }
+        assertEquals(100L, (long)redis.zunionstore("day", 24, keys));
+        assertEquals(0L, (long)redis.zrank("day", "m0"));
+        assertEquals(99L, (long)redis.zrank("day", "m99"));
+        assertEquals(99.0 * 276.0, redis.zscore("day", "m99"), 0.01);
+        redis.zadd("day", -1.0, "m99");
+        assertEquals(0L, (long)redis.zrank("day", "m99"));
+    }
+
     @Test public void zunionstoreShouldStoreAUnionOfNZsetsIntoDestination() throws WrongTypeException, SyntaxErrorException, NotFloatException {
         RedisMock redis = new RedisMock();
         String d = "d", k1 = "k1", k2 = "k2", k3 = "k3", k4 = "k4", k5 = "k5";
@@ -1813,4 +1845,33 @@ public class RedisMockSortedSetTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test public void zrangebyscoreShouldIncludeNegativeScoresFromMinusInf() throws Exception {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        redis.zadd(k, -2.0, "a", 0.0, "b", 3.0, "c");
+        Set<ZsetPair> range = redis.zrangebyscore(k, "-inf", "+inf", "withscores");
+        assertEquals(3, range.size());
+        Iterator<ZsetPair> it = range.iterator();
+        assertEquals("a", it.next().member);
+        assertEquals(2, redis.zrangebyscore(k, "(-2", "+inf").size());
+        assertEquals(0, redis.zrangebyscore(k, "(3", "+inf").size());
+    }
+
+    @Test public void zrangebyscoreShouldSkipTheOffsetAndStopAtTheCount() throws Exception {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        for (int idx = 0; idx < 10; ++idx) {
+            redis.zadd(k, (double)idx, "m" + idx);
+        }
+        Set<ZsetPair> range = redis.zrangebyscore(k, "2", "8", "withscores", "limit", "3", "2");
+        assertEquals(2, range.size());
+        Iterator<ZsetPair> it = range.iterator();
+        assertEquals("m5", it.next().member);
+        assertEquals("m6", it.next().member);
+        assertEquals(4, redis.zrangebyscore(k, "2", "8", "limit", "3", "-1").size());
+        assertEquals(0, redis.zrangebyscore(k, "2", "8", "limit", "-1", "2").size());
+        assertEquals(5L, (long)redis.zrank(k, "m5"));
+        assertEquals(4L, (long)redis.zrevrank(k, "m5"));
+    }
+
+}
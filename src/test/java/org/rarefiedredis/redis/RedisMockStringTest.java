@@ -3,6 +3,7 @@ package org.rarefiedredis.redis;
 import org.junit.Test;
 import org.junit.Ignore;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 
 public class RedisMockStringTest {
 
@@ -187,16 +188,16 @@ public class RedisMockStringTest {
         String v1 = "123", v2 = "321";
         redis.set(k1, v1);
         assertEquals(3L, (long)redis.bitop("not", dk, k1));
-        String gdk = redis.get(dk);
-        assertEquals(65536 - 50, Character.codePointAt(gdk, 0));
-        assertEquals(65536 - 51, Character.codePointAt(gdk, 1));
-        assertEquals(65536 - 52, Character.codePointAt(gdk, 2));
+        byte[] gdk = redis.get(dk.getBytes());
+        assertEquals((byte)(255 - 49), gdk[0]);
+        assertEquals((byte)(255 - 50), gdk[1]);
+        assertEquals((byte)(255 - 51), gdk[2]);
         redis.set(k1, v2);
         assertEquals(3L, (long)redis.bitop("not", dk, k1));
-        gdk = redis.get(dk);
-        assertEquals(65536 - 50, Character.codePointAt(gdk, 2));
-        assertEquals(65536 - 51, Character.codePointAt(gdk, 1));
-        assertEquals(65536 - 52, Character.codePointAt(gdk, 0));
+        gdk = redis.get(dk.getBytes());
+        assertEquals((byte)(255 - 49), gdk[2]);
+        assertEquals((byte)(255 - 50), gdk[1]);
+        assertEquals((byte)(255 - 51), gdk[0]);
     }
 
     @Ignore @Test public void bitopShouldZeroPadOutDifferentlyLengthedStrings() {
@@ -255,10 +256,8 @@ public class RedisMockStringTest {
     @Test public void bitposShouldReturnOffTheEndForKeyThatIsAllOnesAndClearBitSpecified() throws WrongTypeException, BitArgException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        v += v;
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF, (byte)0xFF };
+        redis.set(k.getBytes(), v);
         assertEquals(16L, (long)redis.bitpos(k, 0L));
     }
 
@@ -273,10 +272,8 @@ public class RedisMockStringTest {
     @Test public void bitposShouldReturnOffTheEndForKeyThatIsAllOnesClearBitSpecifiedAndOnlyStartSpecified() throws WrongTypeException, BitArgException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        v = v + v + v;
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF };
+        redis.set(k.getBytes(), v);
         assertEquals(24L, (long)redis.bitpos(k, 0L, 1L));
         assertEquals(24L, (long)redis.bitpos(k, 0L, 2L));
     }
@@ -284,10 +281,8 @@ public class RedisMockStringTest {
     @Test public void bitposShouldReturnNegOneForKeyThatIsAllOnesClearBitSpecifiedAndStartAndEndBothSpecified() throws WrongTypeException, BitArgException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        v = v + v + v + v;
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF };
+        redis.set(k.getBytes(), v);
         assertEquals(-1L, (long)redis.bitpos(k, 0L, 1L, 2L));
         assertEquals(-1L, (long)redis.bitpos(k, 0L, 0L, 3L));
     }
@@ -313,21 +308,16 @@ public class RedisMockStringTest {
     @Test public void bitposShouldReturnFirstZeroPosForKeyWithClearBitSpecified() throws WrongTypeException, BitArgException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        v += (char)(0XCF);
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF, (byte)0xCF };
+        redis.set(k.getBytes(), v);
         assertEquals(10L, (long)redis.bitpos(k, 0L));
     }
 
     @Test public void bitposShouldReturnFirstZeroPosForKeyWithClearBitSpecifiedFromStart() throws WrongTypeException, BitArgException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        v += (char)(0xFF);
-        v += (char)(0xDF);
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xDF };
+        redis.set(k.getBytes(), v);
         assertEquals(18L, (long)redis.bitpos(k, 0L, 1L));
         assertEquals(18L, (long)redis.bitpos(k, 0L, 0L));
         assertEquals(-1L, (long)redis.bitpos(k, 0L, 3L));
@@ -336,13 +326,8 @@ public class RedisMockStringTest {
     @Test public void bitposShouldReturnFirstZeroPosForKeyWithClearBitSpecifiedBetweenStartAndEnd() throws WrongTypeException, BitArgException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        v += (char)(0xFF);
-        v += (char)(0xFF);
-        v += (char)(0xDF);
-        v += (char)(0xFF);
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xDF, (byte)0xFF };
+        redis.set(k.getBytes(), v);
         assertEquals(26L, (long)redis.bitpos(k, 0L, 2L, 5L));
         assertEquals(26L, (long)redis.bitpos(k, 0L, 1L, 4L));
         assertEquals(-1L, (long)redis.bitpos(k, 0L, 0L, 1L));
@@ -559,30 +544,30 @@ public class RedisMockStringTest {
         String k = "key";
         String v = "12?";
         redis.set(k, v);
-        assertEquals(true, redis.getbit(k, 0L));
+        assertEquals(false, redis.getbit(k, 0L));
         assertEquals(false, redis.getbit(k, 1L));
-        assertEquals(false, redis.getbit(k, 2L));
-        assertEquals(false, redis.getbit(k, 3L));
-        assertEquals(true, redis.getbit(k, 4L));
-        assertEquals(true, redis.getbit(k, 5L));
+        assertEquals(true, redis.getbit(k, 2L));
+        assertEquals(true, redis.getbit(k, 3L));
+        assertEquals(false, redis.getbit(k, 4L));
+        assertEquals(false, redis.getbit(k, 5L));
         assertEquals(false, redis.getbit(k, 6L));
-        assertEquals(false, redis.getbit(k, 7L));
+        assertEquals(true, redis.getbit(k, 7L));
         assertEquals(false, redis.getbit(k, 8L));
-        assertEquals(true, redis.getbit(k, 9L));
-        assertEquals(false, redis.getbit(k, 10L));
-        assertEquals(false, redis.getbit(k, 11L));
-        assertEquals(true, redis.getbit(k, 12L));
-        assertEquals(true, redis.getbit(k, 13L));
-        assertEquals(false, redis.getbit(k, 14L));
+        assertEquals(false, redis.getbit(k, 9L));
+        assertEquals(true, redis.getbit(k, 10L));
+        assertEquals(true, redis.getbit(k, 11L));
+        assertEquals(false, redis.getbit(k, 12L));
+        assertEquals(false, redis.getbit(k, 13L));
+        assertEquals(true, redis.getbit(k, 14L));
         assertEquals(false, redis.getbit(k, 15L));
-        assertEquals(true, redis.getbit(k, 16L));
-        assertEquals(true, redis.getbit(k, 17L));
+        assertEquals(false, redis.getbit(k, 16L));
+        assertEquals(false, redis.getbit(k, 17L));
         assertEquals(true, redis.getbit(k, 18L));
         assertEquals(true, redis.getbit(k, 19L));
         assertEquals(true, redis.getbit(k, 20L));
         assertEquals(true, redis.getbit(k, 21L));
-        assertEquals(false, redis.getbit(k, 22L));
-        assertEquals(false, redis.getbit(k, 23L));
+        assertEquals(true, redis.getbit(k, 22L));
+        assertEquals(true, redis.getbit(k, 23L));
         assertEquals(false, redis.getbit(k, 24L));
         assertEquals(false, redis.getbit(k, 25L));
     }
@@ -1059,17 +1044,14 @@ public class RedisMockStringTest {
     @Test public void setbitShouldSetTheBitAtOffset() throws WrongTypeException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFD);
-        v += (char)(0XEF);
-        v += "\0";
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFD, (byte)0xEF, 0 };
+        redis.set(k.getBytes(), v);
         assertEquals(0L, (long)redis.setbit(k, 6L, true));
-        assertEquals(0xFF, redis.get(k).codePointAt(0));
+        assertEquals((byte)0xFF, redis.get(k.getBytes())[0]);
         assertEquals(1L, (long)redis.setbit(k, 0L, true));
-        assertEquals(0xFF, redis.get(k).codePointAt(0));
+        assertEquals((byte)0xFF, redis.get(k.getBytes())[0]);
         assertEquals(0L, (long)redis.setbit(k, 11L, true));
-        assertEquals(0xFF, redis.get(k).codePointAt(1));
+        assertEquals((byte)0xFF, redis.get(k.getBytes())[1]);
     }
 
     @Test public void setbitShouldClearTheBitAtOffset() throws WrongTypeException, SyntaxErrorException {
@@ -1104,18 +1086,32 @@ public class RedisMockStringTest {
     @Test public void setbitShouldPadTheStringOutThenClearTheBitAtOffset() throws WrongTypeException, SyntaxErrorException {
         RedisMock redis = new RedisMock();
         String k = "key";
-        String v = "";
-        v += (char)(0xFF);
-        redis.set(k, v);
+        byte[] v = new byte[] { (byte)0xFF };
+        redis.set(k.getBytes(), v);
         assertEquals(0L, (long)redis.setbit(k, 11L, false));
-        assertEquals(2L, redis.get(k).length());
-        assertEquals(0L, redis.get(k).codePointAt(1));
+        assertEquals(2L, (long)redis.strlen(k));
+        assertEquals(0, redis.get(k.getBytes())[1]);
         assertEquals(1L, (long)redis.setbit(k, 0L, false));
-        assertEquals(2, redis.get(k).length());
-        assertEquals(0x7F, redis.get(k).codePointAt(0));
+        assertEquals(2L, (long)redis.strlen(k));
+        assertEquals(0x7F, redis.get(k.getBytes())[0]);
         assertEquals(0L, (long)redis.setbit(k, 37L, false));
-        assertEquals(5, redis.get(k).length());
-        assertEquals(0, redis.get(k).codePointAt(4));
+        assertEquals(5L, (long)redis.strlen(k));
+        assertEquals(0, redis.get(k.getBytes())[4]);
+    }
+
+    @Test public void bitCommandsShouldHandleLargeBitmaps() throws WrongTypeException, BitArgException {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        for (long offset = 0L; offset < 100000000L; offset += 9999991L) {
+            assertEquals(0L, (long)redis.setbit(k, offset, true));
+        }
+        assertEquals(false, redis.getbit(k, 1L));
+        assertEquals(11L, (long)redis.bitcount(k));
+        assertEquals(9999991L, (long)redis.bitpos(k, 1L, 1L));
+        assertEquals(1L, (long)redis.bitpos(k, 0L));
+        assertEquals(12499989L, (long)redis.strlen(k));
+        assertEquals(12499989L, (long)redis.bitop("not", "dk", k));
+        assertEquals(12499989L * 8L - 11L, (long)redis.bitcount("dk"));
     }
 
     @Test public void setexShouldSetAndExpireKeyInSeconds() throws WrongTypeException, InterruptedException {
@@ -1223,4 +1219,39 @@ public class RedisMockStringTest {
         assertEquals((long)v.length(), (long)redis.strlen(k));
     }
 
-}
\ No newline at end of file
+    @Test public void strlenShouldReturnTheLengthInBytes() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        String v = "h\u00e9llo";
+        redis.set(k, v);
+        assertEquals(6L, (long)redis.strlen(k));
+        assertEquals(v, redis.get(k));
+    }
+
+    @Test public void binaryValuesShouldRoundTrip() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        byte[] k = "key".getBytes();
+        byte[] v = new byte[] { 0, (byte)0x80, (byte)0xFF, (byte)0xC3 };
+        assertEquals("OK", redis.set(k, v));
+        assertArrayEquals(v, redis.get(k));
+        assertEquals(4L, (long)redis.strlen("key"));
+        assertEquals(6L, (long)redis.append(k, new byte[] { 1, 2 }));
+        assertArrayEquals(new byte[] { (byte)0xFF, (byte)0xC3, 1 }, redis.getrange(k, 2L, -2L));
+        assertEquals(8L, (long)redis.setrange(k, 7L, new byte[] { 7 }));
+        assertArrayEquals(new byte[] { 0, (byte)0x80, (byte)0xFF, (byte)0xC3, 1, 2, 0, 7 }, redis.get(k));
+        assertArrayEquals(new byte[] { 0, (byte)0x80, (byte)0xFF, (byte)0xC3, 1, 2, 0, 7 }, redis.getset(k, new byte[] { 5 }));
+        assertArrayEquals(new byte[] { 5 }, redis.get(k));
+        assertEquals(null, redis.get("nokey".getBytes()));
+    }
+
+    @Test public void binarySetShouldHonorOptions() throws WrongTypeException, SyntaxErrorException {
+        RedisMock redis = new RedisMock();
+        byte[] k = "key".getBytes();
+        assertEquals("OK", redis.set(k, new byte[] { 1 }, "nx"));
+        assertEquals(null, redis.set(k, new byte[] { 2 }, "nx"));
+        assertArrayEquals(new byte[] { 1 }, redis.get(k));
+        assertEquals("OK", redis.set(k, new byte[] { 3 }, "xx", "ex", "10"));
+        assertEquals(true, redis.ttl("key") > 0L);
+    }
+
+}
@@ -172,6 +172,29 @@ public class RedisMockTransactionTest {
         assertEquals(false, true);
     }
 
+    @Test public void multiShouldReturnTheErrorOfAFailedCommandAndRunTheRest() {
+        RedisMock redis = new RedisMock();
+        String k = "key";
+        String v = "v";
+        try {
+            redis.set(k, v);
+            IRedisClient multi = redis.multi();
+            multi.lpush(k, v);
+            multi.mget(k, "other");
+            multi.incrby("counter", 5L);
+            List<Object> replies = multi.exec();
+            assertEquals(3, replies.size());
+            assertEquals(WrongTypeException.class, replies.get(0).getClass());
+            assertEquals(v, ((String[])replies.get(1))[0]);
+            assertEquals(null, ((String[])replies.get(1))[1]);
+            assertEquals(5L, (long)(Long)replies.get(2));
+            return;
+        }
+        catch (Exception e) {
+        }
+        assertEquals(false, true);
+    }
+
     @Test public void multiShouldFailIfAKeyInAMultiCommandIsBeingWatchedAndChanges() {
         RedisMock redis = new RedisMock();
         String k = "key";
@@ -268,7 +291,126 @@ public class RedisMockTransactionTest {
     @Ignore("pending") @Test public void multiShouldBeAbleToExecuteEveryCommand() {
     }
 
-    @Ignore("pending") @Test public void unwatchShouldUnwatch() {
+    @Test public void unwatchShouldUnwatch() throws Exception {
+        RedisMock redis = new RedisMock();
+        IRedisClient c1 = redis.createClient(), c2 = redis.createClient();
+        assertEquals("OK", c1.watch("key"));
+        assertEquals("OK", c2.watch("key"));
+        assertEquals("OK", c1.unwatch());
+        redis.set("key", "v");
+        IRedisClient m1 = c1.multi();
+        IRedisClient m2 = c2.multi();
+        m1.set("other", "v1");
+        m2.set("other", "v2");
+        assertEquals(1, m1.exec().size());
+        assertEquals(null, m2.exec());
+        assertEquals("v1", redis.get("other"));
+    }
+
+    @Test public void watchShouldFailAMultiIfTheKeyIsReplacedWithTheSameValue() throws Exception {
+        RedisMock redis = new RedisMock();
+        redis.set("key", "v");
+        assertEquals("OK", redis.watch("key"));
+        redis.del("key");
+        redis.set("key", "v");
+        IRedisClient multi = redis.multi();
+        multi.set("other", "v");
+        assertEquals(null, multi.exec());
+        assertEquals(null, redis.get("other"));
+    }
+
+    @Test public void watchShouldFailAMultiIfAMissingKeyIsCreatedAndRemoved() throws Exception {
+        RedisMock redis = new RedisMock();
+        assertEquals("OK", redis.watch("key"));
+        redis.sadd("key", "m");
+        redis.del("key");
+        assertEquals(false, redis.exists("key"));
+        IRedisClient multi = redis.multi();
+        multi.set("key", "v");
+        assertEquals(null, multi.exec());
+        assertEquals(false, redis.exists("key"));
+    }
+
+    @Test public void watchShouldFailAMultiIfASortedSetChanges() throws Exception {
+        RedisMock redis = new RedisMock();
+        redis.zadd("key", 1.0, "a", 2.0, "b", 3.0, "c");
+        IRedisClient client = redis.createClient();
+        // A score update, an increment, and removals that leave members.
+        assertEquals("OK", client.watch("key"));
+        redis.zadd("key", 5.0, "a");
+        IRedisClient multi = client.multi();
+        multi.set("other", "1");
+        assertEquals(null, multi.exec());
+        assertEquals("OK", client.watch("key"));
+        redis.zincrby("key", 1.0, "b");
+        multi = client.multi();
+        multi.set("other", "2");
+        assertEquals(null, multi.exec());
+        assertEquals("OK", client.watch("key"));
+        redis.zrem("key", "c");
+        multi = client.multi();
+        multi.set("other", "3");
+        assertEquals(null, multi.exec());
+        assertEquals("OK", client.watch("key"));
+        redis.zremrangebyscore("key", "3", "3");
+        multi = client.multi();
+        multi.set("other", "4");
+        assertEquals(null, multi.exec());
+        assertEquals(null, redis.get("other"));
+        assertEquals(1L, (long)redis.zcard("key"));
+    }
+
+    @Test public void watchShouldFailAMultiIfTheExpirationOfTheKeyChanges() throws Exception {
+        RedisMock redis = new RedisMock();
+        redis.set("key", "v");
+        IRedisClient client = redis.createClient();
+        assertEquals("OK", client.watch("key"));
+        redis.expire("key", 100);
+        IRedisClient multi = client.multi();
+        multi.set("other", "1");
+        assertEquals(null, multi.exec());
+        assertEquals("OK", client.watch("key"));
+        redis.persist("key");
+        multi = client.multi();
+        multi.set("other", "2");
+        assertEquals(null, multi.exec());
+        assertEquals("OK", client.watch("key"));
+        redis.persist("key");
+        multi = client.multi();
+        multi.set("other", "3");
+        assertEquals(1, multi.exec().size());
+        assertEquals("3", redis.get("other"));
+        assertEquals(-1L, (long)redis.ttl("key"));
+    }
+
+    @Test public void watchShouldFailAMultiIfASortedSetChangesInAConcurrentMock() throws Exception {
+        ConcurrentRedisMock redis = new ConcurrentRedisMock(16);
+        redis.zadd("key", 1.0, "a", 2.0, "b");
+        IRedisClient client = redis.createClient();
+        assertEquals("OK", client.watch("key"));
+        redis.zadd("key", 3.0, "a");
+        IRedisClient multi = client.multi();
+        multi.set("other", "1");
+        assertEquals(null, multi.exec());
+        assertEquals("OK", client.watch("key"));
+        redis.pexpire("key", 100000L);
+        multi = client.multi();
+        multi.set("other", "2");
+        assertEquals(null, multi.exec());
+        assertEquals(null, redis.get("other"));
+    }
+
+    @Test public void watchShouldNotFailAMultiIfTheKeyIsOnlyRead() throws Exception {
+        RedisMock redis = new RedisMock();
+        redis.set("key", "v");
+        assertEquals("OK", redis.watch("key"));
+        assertEquals("OK", redis.watch("key"));
+        assertEquals("v", redis.get("key"));
+        redis.set("other", "v");
+        IRedisClient multi = redis.multi();
+        multi.set("key", "v2");
+        assertEquals(1, multi.exec().size());
+        assertEquals("v2", redis.get("key"));
     }
 
 }
@@ -3,6 +3,12 @@ package org.rarefiedredis.redis;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Random;
+
 public class RedisSetCacheTest {
 
     @Test public void testExists() {
@@ -69,4 +75,87 @@ public class RedisSetCacheTest {
         assertEquals("set", new RedisSetCache().type());
     }
 
+    @Test public void testEncoding() {
+        EncodingConfig config = new EncodingConfig();
+        config.setMaxIntsetEntries = 3;
+        config.setMaxListpackEntries = 4;
+        RedisSetCache cache = new RedisSetCache(new RedisKeyspace(), config);
+        String key = "key";
+        cache.set(key, "1");
+        cache.set(key, "2");
+        cache.set(key, "3");
+        assertEquals(true, cache.get(key) instanceof IntSet);
+        cache.set(key, "4");
+        assertEquals(true, cache.get(key) instanceof ListpackSet);
+        cache.set(key, "a");
+        assertEquals(true, cache.get(key) instanceof DictSet);
+        assertEquals(5, cache.get(key).size());
+        assertEquals(true, cache.get(key).contains("1"));
+        assertEquals(true, cache.get(key).contains("a"));
+        cache.set("key2", "a");
+        assertEquals(true, cache.get("key2") instanceof ListpackSet);
+    }
+
+    @Test public void storeShouldPickTheEncodingOnce() {
+        EncodingConfig config = new EncodingConfig();
+        config.setMaxIntsetEntries = 3;
+        config.setMaxListpackEntries = 4;
+        RedisKeyspace keyspace = new RedisKeyspace();
+        RedisSetCache cache = new RedisSetCache(keyspace, config);
+        keyspace.put("key", "string", "value");
+        cache.store("key", Arrays.asList("1", "2", "3"));
+        assertEquals(true, cache.get("key") instanceof IntSet);
+        cache.store("key", Arrays.asList("1", "2", "3", "4"));
+        assertEquals(true, cache.get("key") instanceof ListpackSet);
+        DictSet<String> members = new DictSet<String>(Arrays.asList("1", "2", "3", "4", "a"));
+        cache.store("key", members);
+        assertEquals(true, cache.get("key") == members);
+        cache.store("key", new ArrayList<String>());
+        assertEquals(false, keyspace.exists("key"));
+    }
+
+    @Test public void randomShouldPickFromEveryEncoding() {
+        EncodingConfig config = new EncodingConfig();
+        config.setMaxIntsetEntries = 3;
+        config.setMaxListpackEntries = 4;
+        RedisSetCache cache = new RedisSetCache(new RedisKeyspace(), config);
+        Random random = new Random(1);
+        assertEquals(null, cache.random("key", random));
+        String[] members = new String[] { "1", "2", "3", "a", "b" };
+        Class<?>[] encodings = new Class<?>[] { IntSet.class, IntSet.class, IntSet.class, ListpackSet.class, DictSet.class };
+        for (int idx = 0; idx < members.length; ++idx) {
+            cache.set("key", members[idx]);
+            assertEquals(encodings[idx], cache.get("key").getClass());
+            Set<String> picked = new HashSet<String>();
+            for (int pick = 0; pick < 200; ++pick) {
+                picked.add(cache.random("key", random));
+            }
+            assertEquals(new HashSet<String>(Arrays.asList(members).subList(0, idx + 1)), picked);
+        }
+        // Removing fills the hole, so the removed member is never picked.
+        cache.removeValue("key", "1");
+        for (int pick = 0; pick < 200; ++pick) {
+            assertEquals(false, "1".equals(cache.random("key", random)));
+        }
+    }
+
+    @Test public void snapshotShouldOnlyBeCopiedOnTheNextWrite() {
+        RedisSetCache cache = new RedisSetCache();
+        for (int idx = 0; idx < 1000; ++idx) {
+            cache.set("key", "m" + idx);
+        }
+        Set<String> live = cache.get("key");
+        Set<String> snapshot = cache.snapshot("key");
+        cache.snapshot("key");
+        assertEquals(true, cache.get("key") == live);
+        cache.set("key", "new");
+        assertEquals(false, cache.get("key") == live);
+        assertEquals(1001, cache.get("key").size());
+        assertEquals(1000, snapshot.size());
+        Set<String> copy = cache.get("key");
+        cache.removeValue("key", "m0");
+        assertEquals(true, cache.get("key") == copy);
+        assertEquals(null, cache.snapshot("missing"));
+    }
+
 }
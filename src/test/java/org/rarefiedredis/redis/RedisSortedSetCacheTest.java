@@ -75,4 +75,40 @@ public class RedisSortedSetCacheTest {
         assertEquals("zset", new RedisSortedSetCache().type());
     }
 
+    @Test public void testEncoding() {
+        EncodingConfig config = new EncodingConfig();
+        config.zsetMaxListpackEntries = 16;
+        RedisSortedSetCache packed = new RedisSortedSetCache(new RedisKeyspace(), config);
+        RedisSortedSetCache unpacked = new RedisSortedSetCache(new RedisKeyspace(), config);
+        String key = "key";
+        for (int idx = 0; idx < 16; ++idx) {
+            packed.set(key, "m" + idx, (double)(idx / 2));
+            unpacked.set(key, "m" + idx, (double)(idx / 2));
+        }
+        unpacked.set(key, "a long member that is not packed", 100.0d);
+        unpacked.removeValue(key, "a long member that is not packed");
+        // Both encodings answer range queries the same way.
+        for (RedisSortedSetCache cache : new RedisSortedSetCache[] { packed, unpacked }) {
+            assertEquals(16L, cache.getLength(key));
+            assertEquals(3L, (long)cache.getRank(key, "m3"));
+            assertEquals(null, cache.getRank(key, "m16"));
+            assertEquals(4L, cache.firstInRange(key, 2.0d, false, 5.0d, true));
+            assertEquals(9L, cache.lastInRange(key, 2.0d, false, 5.0d, true));
+            assertEquals(-1L, cache.firstInRange(key, 8.0d, false, 9.0d, false));
+            assertEquals(-1L, cache.firstInRange("key2", 0.0d, false, 9.0d, false));
+            RedisSortedSetCache.Cursor cursor = cache.getRange(key, 14L);
+            assertEquals(true, cursor.next());
+            assertEquals("m14", cursor.member);
+            assertEquals(7.0d, cursor.score, 0.0d);
+            assertEquals(true, cursor.next());
+            assertEquals("m15", cursor.member);
+            assertEquals(false, cursor.next());
+            assertEquals(false, cache.getRange("key2", 0L).next());
+            assertEquals(16L, cache.getSkipList(key).length());
+        }
+        packed.set(key, "m16", 8.0d);
+        assertEquals(17L, packed.getLength(key));
+        assertEquals(16L, packed.firstInRange(key, 8.0d, false, 9.0d, false));
+    }
+
 }
@@ -0,0 +1,74 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+public class SdsTest {
+
+    @Test public void stringsShouldBeStoredAsUTF8() {
+        Sds sds = new Sds("hé");
+        assertEquals(3, sds.length());
+        assertEquals("hé", sds.toString());
+        sds.append("é".getBytes(Sds.UTF8));
+        assertEquals(5, sds.length());
+        assertEquals("héé", sds.toString());
+    }
+
+    @Test public void appendShouldGrowInPlace() {
+        Sds sds = new Sds();
+        StringBuilder expected = new StringBuilder();
+        for (int idx = 0; idx < 1000; ++idx) {
+            sds.append(String.valueOf(idx).getBytes(Sds.UTF8));
+            expected.append(idx);
+        }
+        assertEquals(expected.length(), sds.length());
+        assertEquals(expected.toString(), sds.toString());
+    }
+
+    @Test public void setrangeShouldZeroPadPastTheEnd() {
+        Sds sds = new Sds("ab");
+        assertEquals(6, sds.setrange(4, new byte[] { 1, 2 }));
+        assertArrayEquals(new byte[] { 'a', 'b', 0, 0, 1, 2 }, sds.toByteArray());
+        assertEquals(6, sds.setrange(1, new byte[] { 9 }));
+        assertArrayEquals(new byte[] { 'a', 9, 0, 0, 1, 2 }, sds.toByteArray());
+        assertArrayEquals(new byte[] { 9, 0 }, sds.range(1, 3));
+    }
+
+    @Test public void bitsShouldBeNumberedFromTheMostSignificantBit() {
+        Sds sds = new Sds();
+        assertEquals(false, sds.setbit(1L, true));
+        assertEquals(1, sds.length());
+        assertEquals(0x40, sds.byteAt(0));
+        assertEquals(true, sds.getbit(1L));
+        assertEquals(false, sds.getbit(0L));
+        assertEquals(false, sds.getbit(100L));
+        assertEquals(false, sds.setbit(23L, true));
+        assertEquals(3, sds.length());
+        assertEquals(0x01, sds.byteAt(2));
+        assertEquals(true, sds.setbit(1L, false));
+        assertEquals(0, sds.byteAt(0));
+    }
+
+    @Test public void bitcountAndBitposShouldScanBytes() {
+        Sds sds = new Sds(new byte[] { 0, (byte)0xFF, 0x10, (byte)0xF0 });
+        assertEquals(13L, sds.bitcount(0, 4));
+        assertEquals(1L, sds.bitcount(2, 3));
+        assertEquals(8L, sds.bitpos(true, 0, 4));
+        assertEquals(0L, sds.bitpos(false, 0, 4));
+        assertEquals(16L, sds.bitpos(false, 1, 4));
+        assertEquals(19L, sds.bitpos(true, 2, 4));
+        assertEquals(-1L, sds.bitpos(false, 1, 2));
+    }
+
+    @Test public void bitopShouldZeroPadShorterValues() {
+        Sds a = new Sds(new byte[] { (byte)0xF0, (byte)0x0F });
+        Sds b = new Sds(new byte[] { (byte)0x3C });
+        assertArrayEquals(new byte[] { 0x30, 0 }, Sds.bitop("and", a, b).toByteArray());
+        assertArrayEquals(new byte[] { (byte)0xFC, 0x0F }, Sds.bitop("or", a, b).toByteArray());
+        assertArrayEquals(new byte[] { (byte)0xCC, 0x0F }, Sds.bitop("xor", a, b).toByteArray());
+        assertArrayEquals(new byte[] { 0x0F, (byte)0xF0 }, Sds.bitop("not", a).toByteArray());
+        assertArrayEquals(new byte[] { 0, 0 }, Sds.bitop("and", a, null).toByteArray());
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class SetAlgebraTest {
+
+    /**
+     * A set that counts the lookups made in it.
+     */
+    private static final class CountingSet extends HashSet<String> {
+        private int probes;
+
+        @Override public boolean contains(Object member) {
+            ++probes;
+            return super.contains(member);
+        }
+    }
+
+    private static Set<String> set(String ... members) {
+        return new HashSet<String>(Arrays.asList(members));
+    }
+
+    private static CountingSet range(String prefix, int size) {
+        CountingSet set = new CountingSet();
+        for (int idx = 0; idx < size; ++idx) {
+            set.add(prefix + idx);
+        }
+        return set;
+    }
+
+    @Test public void intersectShouldWalkTheSmallestSet() {
+        CountingSet large = range("m", 10000);
+        CountingSet larger = range("m", 20000);
+        Set<String> small = set("m1", "m2", "x");
+        Set<String> inter = new HashSet<String>();
+        assertEquals(2, SetAlgebra.intersect(Arrays.<Set<String>>asList(large, larger, small), inter));
+        assertEquals(set("m1", "m2"), inter);
+        assertEquals(3, large.probes);
+        // "x" is not in the smaller of the two, so it is never looked
+        // up in the larger.
+        assertEquals(2, larger.probes);
+    }
+
+    @Test public void intersectShouldStopAtAnEmptyOrMissingSet() {
+        CountingSet large = range("m", 100);
+        List<String> inter = new ArrayList<String>();
+        assertEquals(0, SetAlgebra.intersect(Arrays.<Set<String>>asList(large, new HashSet<String>()), inter));
+        assertEquals(0, SetAlgebra.intersect(Arrays.<Set<String>>asList(large, null), inter));
+        assertEquals(0, large.probes);
+        assertEquals(0, inter.size());
+    }
+
+    @Test public void intersectOfOneSetShouldBeTheSet() {
+        List<String> inter = new ArrayList<String>();
+        assertEquals(3, SetAlgebra.intersect(Arrays.asList(set("a", "b", "c")), inter));
+        assertEquals(set("a", "b", "c"), new HashSet<String>(inter));
+    }
+
+    @Test public void unionShouldAddEachMemberOnce() {
+        Set<String> union = new DictSet<String>();
+        assertEquals(4, SetAlgebra.union(Arrays.asList(set("a", "b"), null, set("b", "c", "d")), union));
+        assertEquals(set("a", "b", "c", "d"), union);
+    }
+
+    @Test public void differenceShouldProbeWhenTheFirstSetIsSmall() {
+        CountingSet large = range("m", 10000);
+        List<String> diff = new ArrayList<String>();
+        assertEquals(2, SetAlgebra.difference(Arrays.<Set<String>>asList(set("m1", "x", "y"), null, large), diff));
+        assertEquals(set("x", "y"), new HashSet<String>(diff));
+        assertEquals(3, large.probes);
+    }
+
+    @Test public void differenceShouldRemoveWhenTheOtherSetsAreSmall() {
+        CountingSet large = range("m", 10000);
+        Set<String> small = set("m1", "m2", "x");
+        List<String> diff = new ArrayList<String>();
+        assertEquals(9998, SetAlgebra.difference(Arrays.<Set<String>>asList(large, small, small, small), diff));
+        assertEquals(0, large.probes);
+        assertEquals(9998, new HashSet<String>(diff).size());
+    }
+
+    @Test public void differenceFromItselfShouldBeEmpty() {
+        Set<String> set = set("a", "b");
+        List<String> diff = new ArrayList<String>();
+        assertEquals(0, SetAlgebra.difference(Arrays.asList(set, set), diff));
+        assertEquals(0, SetAlgebra.difference(Arrays.<Set<String>>asList(null, set), diff));
+        assertEquals(0, diff.size());
+    }
+
+}
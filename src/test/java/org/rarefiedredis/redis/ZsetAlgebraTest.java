@@ -0,0 +1,92 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Arrays;
+
+public class ZsetAlgebraTest {
+
+    /**
+     * A map that counts the lookups made in it.
+     */
+    private static final class CountingMap extends HashMap<String, Double> {
+        private int lookups;
+
+        @Override public Double get(Object member) {
+            ++lookups;
+            return super.get(member);
+        }
+    }
+
+    private static ZsetSkipList list(Map<String, Double> scores) {
+        ZsetSkipList list = new ZsetSkipList();
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            list.insert(entry.getKey(), entry.getValue());
+        }
+        return list;
+    }
+
+    private static CountingMap scores(Object ... pairs) {
+        CountingMap scores = new CountingMap();
+        for (int idx = 0; idx < pairs.length; idx += 2) {
+            scores.put((String)pairs[idx], (Double)pairs[idx + 1]);
+        }
+        return scores;
+    }
+
+    private static List<String> members(ZsetSkipList list) {
+        List<String> members = new ArrayList<String>();
+        for (ZsetSkipList.Node node = list.first(); node != null; node = node.next()) {
+            members.add(node.member + "=" + node.score);
+        }
+        return members;
+    }
+
+    @Test public void unionShouldWeighAndAggregate() {
+        List<ZsetSkipList> lists = Arrays.asList(list(scores("a", 1.0, "b", 2.0)), null, list(scores("b", 3.0, "c", 0.5)));
+        double[] weights = new double[] { 2.0, 1.0, 1.0 };
+        assertEquals(Arrays.asList("c=0.5", "a=2.0", "b=7.0"), members(ZsetAlgebra.union(lists, weights, ZsetAlgebra.SUM)));
+        assertEquals(Arrays.asList("c=0.5", "a=2.0", "b=3.0"), members(ZsetAlgebra.union(lists, weights, ZsetAlgebra.MIN)));
+        assertEquals(Arrays.asList("c=0.5", "a=2.0", "b=4.0"), members(ZsetAlgebra.union(lists, weights, ZsetAlgebra.MAX)));
+    }
+
+    @Test public void intersectShouldWalkTheSmallestSet() {
+        CountingMap large = new CountingMap();
+        for (int idx = 0; idx < 1000; ++idx) {
+            large.put("m" + idx, (double)idx);
+        }
+        CountingMap small = scores("m1", 10.0, "m2", 20.0, "x", 30.0);
+        List<ZsetSkipList> lists = Arrays.asList(list(large), list(small));
+        List<Map<String, Double>> maps = Arrays.<Map<String, Double>>asList(large, small);
+        ZsetSkipList inter = ZsetAlgebra.intersect(lists, maps, new double[] { 1.0, 1.0 }, ZsetAlgebra.SUM);
+        assertEquals(Arrays.asList("m1=11.0", "m2=22.0"), members(inter));
+        assertEquals(3, large.lookups);
+        assertEquals(0, small.lookups);
+    }
+
+    @Test public void intersectShouldBeEmptyIfASetIsMissing() {
+        CountingMap scores = scores("a", 1.0);
+        List<ZsetSkipList> lists = Arrays.asList(list(scores), null);
+        List<Map<String, Double>> maps = Arrays.<Map<String, Double>>asList(scores, null);
+        assertEquals(0L, ZsetAlgebra.intersect(lists, maps, new double[] { 1.0, 1.0 }, ZsetAlgebra.SUM).length());
+        assertEquals(0, scores.lookups);
+    }
+
+    @Test public void infinitiesShouldNotMakeNaN() {
+        List<ZsetSkipList> lists = Arrays.asList(list(scores("a", Double.POSITIVE_INFINITY)), list(scores("a", Double.NEGATIVE_INFINITY, "b", Double.POSITIVE_INFINITY)));
+        assertEquals(Arrays.asList("a=0.0", "b=Infinity"), members(ZsetAlgebra.union(lists, new double[] { 1.0, 1.0 }, ZsetAlgebra.SUM)));
+        assertEquals(Arrays.asList("b=0.0", "a=Infinity"), members(ZsetAlgebra.union(lists, new double[] { 1.0, 0.0 }, ZsetAlgebra.SUM)));
+    }
+
+    @Test(expected = SyntaxErrorException.class)
+    public void aggregateShouldRejectUnknownNames() throws SyntaxErrorException {
+        assertEquals(ZsetAlgebra.MAX, ZsetAlgebra.aggregate("MAX"));
+        ZsetAlgebra.aggregate("avg");
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.rarefiedredis.redis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+public class ZsetSkipListTest {
+
+    private static List<String> sorted(final Map<String, Double> scores) {
+        List<String> members = new ArrayList<String>(scores.keySet());
+        Collections.sort(members, new Comparator<String>() {
+                @Override public int compare(String a, String b) {
+                    int cmp = Double.compare(scores.get(a), scores.get(b));
+                    return cmp != 0 ? cmp : a.compareTo(b);
+                }
+            });
+        return members;
+    }
+
+    @Test public void insertShouldKeepTheMembersInOrder() {
+        ZsetSkipList list = new ZsetSkipList();
+        list.insert("c", 2.0);
+        list.insert("a", 2.0);
+        list.insert("b", 1.0);
+        assertEquals(3L, list.length());
+        assertEquals("b", list.first().member);
+        assertEquals("a", list.first().next().member);
+        assertEquals("c", list.last().member);
+        assertEquals("a", list.last().previous().member);
+        assertEquals(null, list.first().previous());
+    }
+
+    @Test public void rankAndByRankShouldAgreeWithASortedList() {
+        ZsetSkipList list = new ZsetSkipList();
+        Map<String, Double> scores = new HashMap<String, Double>();
+        Random random = new Random(42L);
+        for (int idx = 0; idx < 2000; ++idx) {
+            String member = "m" + random.nextInt(1000);
+            double score = random.nextInt(100);
+            Double old = scores.put(member, score);
+            if (old != null) {
+                assertEquals(true, list.delete(member, old));
+            }
+            list.insert(member, score);
+        }
+        List<String> members = sorted(scores);
+        assertEquals((long)members.size(), list.length());
+        for (int idx = 0; idx < members.size(); ++idx) {
+            String member = members.get(idx);
+            assertEquals(idx + 1L, list.rank(member, scores.get(member)));
+            assertEquals(member, list.byRank(idx + 1L).member);
+        }
+        assertEquals(null, list.byRank(0L));
+        assertEquals(null, list.byRank(members.size() + 1L));
+        assertEquals(0L, list.rank("missing", 1.0));
+    }
+
+    @Test public void deleteShouldUnlinkTheMember() {
+        ZsetSkipList list = new ZsetSkipList();
+        list.insert("a", 1.0);
+        list.insert("b", 2.0);
+        list.insert("c", 3.0);
+        assertEquals(false, list.delete("b", 1.0));
+        assertEquals(true, list.delete("b", 2.0));
+        assertEquals(2L, list.length());
+        assertEquals(2L, list.rank("c", 3.0));
+        assertEquals("a", list.last().previous().member);
+        assertEquals(true, list.delete("c", 3.0));
+        assertEquals("a", list.last().member);
+    }
+
+    @Test public void scoreRangesShouldSeekToTheirEnds() {
+        ZsetSkipList list = new ZsetSkipList();
+        for (int idx = 0; idx < 10; ++idx) {
+            list.insert("m" + idx, (double)idx);
+        }
+        assertEquals("m3", list.firstInRange(3.0, false, 6.0, false).member);
+        assertEquals("m4", list.firstInRange(3.0, true, 6.0, false).member);
+        assertEquals("m6", list.lastInRange(3.0, false, 6.0, false).member);
+        assertEquals("m5", list.lastInRange(3.0, false, 6.0, true).member);
+        assertEquals(null, list.firstInRange(10.0, false, 20.0, false));
+        assertEquals(null, list.lastInRange(-5.0, false, -1.0, false));
+        assertEquals("m0", list.firstInRange(Double.NEGATIVE_INFINITY, false, Double.POSITIVE_INFINITY, false).member);
+    }
+
+    @Test public void lexRangesShouldSeekToTheirStart() {
+        ZsetSkipList list = new ZsetSkipList();
+        for (String member : new String[] { "a", "b", "c", "d", "e" }) {
+            list.insert(member, 0.0);
+        }
+        assertEquals("b", list.firstInLexRange("b", false, "d", false).member);
+        assertEquals("c", list.firstInLexRange("b", true, "d", false).member);
+        assertEquals("a", list.firstInLexRange(null, false, null, false).member);
+        assertEquals(null, list.firstInLexRange("f", false, null, false));
+        assertEquals(false, ZsetSkipList.inLexRange("d", "b", false, "d", true));
+        assertEquals(true, ZsetSkipList.inLexRange("d", "b", false, "d", false));
+    }
+
+    @Test public void builderShouldBuildTheSameListAsInsert() {
+        Random random = new Random(7);
+        Map<String, Double> scores = new HashMap<String, Double>();
+        for (int idx = 0; idx < 1000; ++idx) {
+            scores.put("m" + idx, (double)random.nextInt(100));
+        }
+        List<String> members = sorted(scores);
+        ZsetSkipList.Builder builder = new ZsetSkipList.Builder();
+        for (String member : members) {
+            builder.append(member, scores.get(member));
+        }
+        ZsetSkipList list = builder.build();
+        assertEquals(1000L, list.length());
+        for (int idx = 0; idx < members.size(); ++idx) {
+            String member = members.get(idx);
+            assertEquals(idx + 1L, list.rank(member, scores.get(member)));
+            assertEquals(member, list.byRank(idx + 1L).member);
+        }
+        assertEquals(members.get(999), list.last().member);
+        assertEquals(members.get(998), list.last().previous().member);
+        // The built list takes changes like any other.
+        assertEquals(true, list.delete(members.get(500), scores.get(members.get(500))));
+        list.insert("new", -1.0);
+        assertEquals("new", list.first().member);
+        assertEquals(1000L, list.length());
+        assertEquals(members.get(499), list.byRank(501L).member);
+        assertEquals(members.get(501), list.byRank(502L).member);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderShouldRejectMembersOutOfOrder() {
+        new ZsetSkipList.Builder().append("b", 1.0).append("a", 1.0);
+    }
+
+}
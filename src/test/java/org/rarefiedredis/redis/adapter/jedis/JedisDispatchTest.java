@@ -0,0 +1,49 @@
+package org.rarefiedredis.redis.adapter.jedis;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import org.rarefiedredis.redis.ArgException;
+import org.rarefiedredis.redis.WrongTypeException;
+import org.rarefiedredis.redis.NotIntegerException;
+import org.rarefiedredis.redis.NotIntegerHashException;
+
+import java.util.Map;
+import java.util.HashMap;
+
+import java.lang.reflect.Method;
+
+public class JedisDispatchTest {
+
+    @Test public void methodsShouldBeResolvedByArgumentShapeAndCached() throws Exception {
+        Method set = JedisDispatch.method(Jedis.class, "set", "k", "v");
+        assertEquals(String.class, set.getParameterTypes()[0]);
+        assertEquals(set, JedisDispatch.method(Jedis.class, "set", "k2", "v2"));
+        Method binarySet = JedisDispatch.method(Jedis.class, "set", "k".getBytes(), "v".getBytes());
+        assertEquals(byte[].class, binarySet.getParameterTypes()[0]);
+        Method incrby = JedisDispatch.method(Jedis.class, "incrBy", "k", 1L);
+        assertEquals(long.class, incrby.getParameterTypes()[1]);
+        Method hmset = JedisDispatch.method(Jedis.class, "hmset", "k", new HashMap<String, String>());
+        assertEquals(Map.class, hmset.getParameterTypes()[1]);
+    }
+
+    @Test(expected=NoSuchMethodException.class) public void unknownMethodsShouldThrow() throws Exception {
+        JedisDispatch.method(Jedis.class, "nosuchcommand", "k");
+    }
+
+    @Test public void errorsShouldMapToExceptions() {
+        assertEquals(WrongTypeException.class, JedisDispatch.error(new JedisDataException("WRONGTYPE Operation against a key holding the wrong kind of value")).getClass());
+        assertEquals(NotIntegerHashException.class, JedisDispatch.error(new JedisDataException("ERR hash value is not an integer")).getClass());
+        assertEquals(NotIntegerException.class, JedisDispatch.error(new JedisDataException("ERR value is not an integer or out of range")).getClass());
+        Exception arg = JedisDispatch.error(new JedisDataException("ERR wrong number of arguments for 'get' command"));
+        assertEquals(ArgException.class, arg.getClass());
+        assertEquals("ERR wrong number of arguments for 'get' command", arg.getMessage());
+        assertEquals(null, JedisDispatch.error(new JedisDataException("ERR something else")));
+        // A remembered match gives the same answer.
+        assertEquals(NotIntegerHashException.class, JedisDispatch.error(new JedisDataException("ERR hash value is not an integer")).getClass());
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.rarefiedredis.redis.adapter.jedis;
+
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertEquals;
+
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import org.rarefiedredis.redis.IRedisClient;
+import org.rarefiedredis.redis.RandomKey;
+import org.rarefiedredis.redis.WrongTypeException;
+
+import java.util.List;
+
+public class JedisIRedisClientPipelineIT {
+
+    private JedisPool pool;
+    private JedisIRedisClient redis;
+    private RandomKey rander;
+
+    @Before public void initPool() {
+        pool = new JedisPool(new JedisPoolConfig(), "localhost");
+        redis = new JedisIRedisClient(pool);
+        rander = new RandomKey();
+    }
+
+    @Test public void pipelineShouldSendTheCommandsOnSync() throws Exception {
+        String k = rander.randkey();
+        String l = rander.randkey();
+        JedisIRedisClientPipeline pipeline = redis.pipelined();
+        assertEquals(null, pipeline.set(k, "v"));
+        assertEquals(null, pipeline.get(k));
+        pipeline.lpush(k, "v");
+        pipeline.rpush(l, "a", "b");
+        assertEquals("none", redis.type(l));
+        List<Object> replies = pipeline.sync();
+        assertEquals(4, replies.size());
+        assertEquals("OK", replies.get(0));
+        assertEquals("v", replies.get(1));
+        assertEquals(WrongTypeException.class, replies.get(2).getClass());
+        assertEquals(2L, replies.get(3));
+        assertEquals(2L, (long)redis.llen(l));
+        // The pipeline can be used again after a sync.
+        pipeline.lpop(l);
+        replies = pipeline.sync();
+        assertEquals(1, replies.size());
+        assertEquals("a", replies.get(0));
+        pipeline.close();
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.rarefiedredis.redis.resp;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+
+public class RespDecoderTest {
+
+    private static ByteBuffer buffer(String s) throws Exception {
+        return ByteBuffer.wrap(s.getBytes("UTF-8"));
+    }
+
+    @Test public void decodeShouldReturnTheArgumentsOfARequest() throws Exception {
+        RespDecoder decoder = new RespDecoder();
+        RespArgs args = decoder.decode(buffer("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$5\r\nvalue\r\n"));
+        assertEquals(3, args.count());
+        assertEquals("SET", args.string(0));
+        assertEquals("key", args.string(1));
+        assertEquals("value", args.string(2));
+        assertEquals(true, args.equalsIgnoreCase(0, "set"));
+        assertEquals(false, args.equalsIgnoreCase(0, "get"));
+        assertEquals(RespArgs.hashIgnoreCase("set"), args.hashIgnoreCase(0));
+    }
+
+    @Test public void decodeShouldResumeAPartialRequest() throws Exception {
+        RespDecoder decoder = new RespDecoder();
+        byte[] bytes = "*2\r\n$3\r\nGET\r\n$10\r\n0123456789\r\n*1\r\n$4\r\nPING\r\n".getBytes("UTF-8");
+        RespArgs args = null;
+        int idx = 0;
+        for (; args == null; ++idx) {
+            args = decoder.decode(ByteBuffer.wrap(bytes, idx, 1));
+        }
+        assertEquals(2, args.count());
+        assertEquals("0123456789", args.string(1));
+        assertEquals(10, args.length(1));
+        ByteBuffer rest = ByteBuffer.wrap(bytes, idx, bytes.length - idx);
+        args = decoder.decode(rest);
+        assertEquals(1, args.count());
+        assertEquals("PING", args.string(0));
+        assertEquals(0, rest.remaining());
+        assertEquals(null, decoder.decode(ByteBuffer.allocate(0)));
+    }
+
+    @Test public void decodeShouldBeBinarySafe() throws Exception {
+        byte[] value = new byte[] { 0, (byte)0xFF, '\r', '\n', (byte)0x80 };
+        ByteBuffer in = ByteBuffer.allocate(64);
+        in.put("*1\r\n$5\r\n".getBytes("UTF-8")).put(value).put("\r\n".getBytes("UTF-8")).flip();
+        RespArgs args = new RespDecoder().decode(in);
+        assertArrayEquals(value, args.bytes(0));
+        assertEquals(5, args.slice(0).remaining());
+        assertEquals((byte)0xFF, args.byteAt(0, 1));
+    }
+
+    @Test public void decodeShouldSplitInlineCommands() throws Exception {
+        RespDecoder decoder = new RespDecoder();
+        ByteBuffer in = buffer("SET  key value\r\n\r\nPING\n");
+        RespArgs args = decoder.decode(in);
+        assertEquals(3, args.count());
+        assertEquals("SET", args.string(0));
+        assertEquals("key", args.string(1));
+        assertEquals("value", args.string(2));
+        assertEquals(0, decoder.decode(in).count());
+        args = decoder.decode(in);
+        assertEquals(1, args.count());
+        assertEquals("PING", args.string(0));
+    }
+
+    @Test public void decodeShouldOnlyGrowAsTheBytesOfABigArgumentArrive() throws Exception {
+        RespDecoder decoder = new RespDecoder();
+        RespArgs args = decoder.decode(buffer("*1\r\n$4\r\nPING\r\n"));
+        // A bulk length alone reserves no more than the cap.
+        assertEquals(null, decoder.decode(buffer("*2\r\n$3\r\nSET\r\n$536870912\r\n")));
+        assertEquals(true, args.capacity() < 2 * RespArgs.MAX_RESERVED);
+        decoder = new RespDecoder();
+        int length = 1024 * 1024;
+        StringBuilder request = new StringBuilder("*1\r\n$" + length + "\r\n");
+        for (int idx = 0; idx < length; ++idx) {
+            request.append('x');
+        }
+        args = decoder.decode(buffer(request.append("\r\n").toString()));
+        assertEquals(length, args.length(0));
+        assertEquals(true, args.capacity() >= length);
+        // The memory of the big request is given back on the next one.
+        assertEquals(args, decoder.decode(buffer("*1\r\n$4\r\nPING\r\n")));
+        assertEquals("PING", args.string(0));
+        assertEquals(true, args.capacity() <= RespArgs.MAX_RESERVED);
+    }
+
+    @Test public void copyShouldOutliveTheNextRequest() throws Exception {
+        RespDecoder decoder = new RespDecoder();
+        ByteBuffer in = buffer("*1\r\n$3\r\nfoo\r\n*1\r\n$3\r\nbar\r\n");
+        RespArgs copy = decoder.decode(in).copy();
+        assertEquals("bar", decoder.decode(in).string(0));
+        assertEquals("foo", copy.string(0));
+    }
+
+    @Test public void decodeShouldRefuseMalformedRequests() throws Exception {
+        String[] requests = new String[] {
+            "*1\r\n+foo\r\n",
+            "*x\r\n",
+            "*1\r\n$-1\r\n",
+            "*1\r\n$3\r\nfooX\n",
+            "*1\r\n$3\r\n"
+        };
+        int refused = 0;
+        for (String request : requests) {
+            try {
+                new RespDecoder().decode(buffer(request));
+            }
+            catch (ProtocolException e) {
+                assertEquals(true, e.getMessage().startsWith("ERR Protocol error: "));
+                ++refused;
+            }
+        }
+        assertEquals(requests.length - 1, refused);
+    }
+
+    @Test public void integerShouldParseWithoutDecoding() throws Exception {
+        RespArgs args = new RespDecoder().decode(buffer("1 -42 9223372036854775807 -9223372036854775808 9223372036854775808 4x -\r\n"));
+        assertEquals(1L, args.integer(0));
+        assertEquals(-42L, args.integer(1));
+        assertEquals(Long.MAX_VALUE, args.integer(2));
+        assertEquals(Long.MIN_VALUE, args.integer(3));
+        for (int idx = 4; idx < args.count(); ++idx) {
+            try {
+                args.integer(idx);
+                assertEquals(false, true);
+            }
+            catch (NumberFormatException e) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package org.rarefiedredis.redis.resp;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RespEncoderTest {
+
+    private static String written(RespEncoder encoder) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(true, encoder.writeTo(Channels.newChannel(bytes)));
+        assertEquals(false, encoder.pending());
+        return new String(bytes.toByteArray(), "UTF-8");
+    }
+
+    @Test public void repliesShouldBeEncodedInResp2() throws Exception {
+        RespEncoder encoder = new RespEncoder(new BufferPool());
+        encoder.status("OK");
+        encoder.error("ERR bad\r\nthing");
+        encoder.integer(Long.MIN_VALUE);
+        encoder.nil();
+        encoder.nilArray();
+        encoder.reply(Arrays.<Object>asList("a", 1L, 2.5, null), false);
+        assertEquals(true, encoder.pending());
+        assertEquals("+OK\r\n-ERR bad  thing\r\n:-9223372036854775808\r\n$-1\r\n*-1\r\n"
+                     + "*4\r\n$1\r\na\r\n:1\r\n$3\r\n2.5\r\n$-1\r\n", written(encoder));
+    }
+
+    @Test public void repliesShouldBeEncodedInResp3() throws Exception {
+        RespEncoder encoder = new RespEncoder(new BufferPool());
+        encoder.protocol(3);
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("f", 3.0);
+        encoder.reply(map, false);
+        encoder.reply(new HashSet<String>(Arrays.asList("m")), false);
+        encoder.doubleValue(Double.NEGATIVE_INFINITY);
+        encoder.nil();
+        assertEquals("%1\r\n$1\r\nf\r\n,3\r\n~1\r\n$1\r\nm\r\n,-inf\r\n_\r\n", written(encoder));
+    }
+
+    @Test public void repliesBiggerThanABufferShouldSpanBuffers() throws Exception {
+        BufferPool pool = new BufferPool(16, 4);
+        RespEncoder encoder = new RespEncoder(pool);
+        List<Object> reply = new ArrayList<Object>();
+        StringBuilder expected = new StringBuilder("*10\r\n");
+        for (int idx = 0; idx < 10; ++idx) {
+            reply.add("value" + idx);
+            expected.append("$6\r\nvalue").append(idx).append("\r\n");
+        }
+        encoder.reply(reply, false);
+        assertEquals(expected.toString(), written(encoder));
+        assertEquals(4, pool.pooled());
+        encoder.status("OK");
+        assertEquals(3, pool.pooled());
+        encoder.release();
+        assertEquals(4, pool.pooled());
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.rarefiedredis.redis.server;
+
+import org.junit.Test;
+import org.junit.Before;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import org.rarefiedredis.redis.RedisMock;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class RedisMockServerTest {
+
+    private RedisMock redis;
+    private RedisMockServer server;
+    private Jedis jedis;
+
+    @Before public void startServer() throws Exception {
+        redis = new RedisMock();
+        server = new RedisMockServer(redis).start();
+        jedis = new Jedis("127.0.0.1", server.getPort());
+    }
+
+    @After public void stopServer() {
+        jedis.close();
+        server.stop();
+    }
+
+    @Test public void commandsShouldReachTheMock() throws Exception {
+        assertEquals("PONG", jedis.ping());
+        assertEquals("OK", jedis.set("key", "value"));
+        assertEquals("value", jedis.get("key"));
+        assertEquals("value", redis.get("key"));
+        assertEquals("string", jedis.type("key"));
+        assertEquals(2L, (long)jedis.rpush("list", "a", "b"));
+        assertEquals("[a, b]", jedis.lrange("list", 0L, -1L).toString());
+        assertEquals(1L, (long)jedis.hset("hash", "f", "v"));
+        Map<String, String> hash = jedis.hgetAll("hash");
+        assertEquals("v", hash.get("f"));
+        assertEquals(1L, (long)jedis.zadd("zset", 1.5, "m"));
+        assertEquals(1.5, jedis.zscore("zset", "m"), 0.0);
+        Set<String> members = jedis.zrange("zset", 0L, -1L);
+        assertEquals(1, members.size());
+        assertEquals(null, jedis.get("nokey"));
+        assertEquals(true, jedis.exists("key"));
+        assertEquals(1L, (long)jedis.del("key"));
+    }
+
+    @Test public void errorsShouldBeRepliedWithTheirMessage() throws Exception {
+        jedis.set("key", "value");
+        try {
+            jedis.lpush("key", "v");
+        }
+        catch (JedisDataException e) {
+            assertEquals("WRONGTYPE Operation against a key holding the wrong kind of value", e.getMessage());
+            return;
+        }
+        assertEquals(false, true);
+    }
+
+    @Test public void valuesShouldBeBinarySafe() throws Exception {
+        byte[] value = new byte[] { 0, (byte)0xFF, '\r', '\n', (byte)0x80 };
+        assertEquals("OK", jedis.set("key".getBytes(), value));
+        assertArrayEquals(value, jedis.get("key".getBytes()));
+        assertArrayEquals(value, redis.get("key".getBytes()));
+    }
+
+    @Test public void pipelinedRequestsShouldAllBeAnswered() throws Exception {
+        Pipeline pipeline = jedis.pipelined();
+        for (int idx = 0; idx < 1000; ++idx) {
+            pipeline.incr("counter");
+        }
+        List<Object> replies = pipeline.syncAndReturnAll();
+        assertEquals(1000, replies.size());
+        assertEquals(1000L, replies.get(999));
+        assertEquals("1000", redis.get("counter"));
+    }
+
+    @Test public void transactionsShouldRunAtExec() throws Exception {
+        Transaction multi = jedis.multi();
+        multi.set("key", "value");
+        multi.incr("key");
+        multi.ping();
+        multi.get("key");
+        List<Object> replies = multi.exec();
+        assertEquals(4, replies.size());
+        assertEquals("OK", replies.get(0));
+        assertEquals(JedisDataException.class, replies.get(1).getClass());
+        assertEquals("PONG", replies.get(2));
+        assertEquals("value", replies.get(3));
+    }
+
+    @Test public void watchShouldFailAnExecIfTheKeyChanges() throws Exception {
+        jedis.watch("key");
+        redis.set("key", "other");
+        Transaction multi = jedis.multi();
+        multi.set("key", "value");
+        assertEquals(null, multi.exec());
+        assertEquals("other", redis.get("key"));
+    }
+
+    @Test public void inlineCommandsShouldBeParsed() throws Exception {
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        socket.setSoTimeout(5000);
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write("SET key  value\r\nGET key\r\nNOSUCH\r\n".getBytes("UTF-8"));
+            out.flush();
+            String expected = "+OK\r\n$5\r\nvalue\r\n-ERR unknown command 'nosuch'\r\n";
+            assertEquals(expected, read(socket.getInputStream(), expected.length()));
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    @Test public void helloShouldSwitchToResp3() throws Exception {
+        redis.hmset("hash", "f", "v");
+        Socket socket = new Socket("127.0.0.1", server.getPort());
+        socket.setSoTimeout(5000);
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write("*2\r\n$5\r\nHELLO\r\n$1\r\n3\r\n".getBytes("UTF-8"));
+            out.write("*2\r\n$7\r\nHGETALL\r\n$4\r\nhash\r\n*2\r\n$3\r\nGET\r\n$2\r\nno\r\n".getBytes("UTF-8"));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String hello = read(in, 4);
+            assertEquals("%7\r\n", hello);
+            StringBuilder rest = new StringBuilder();
+            String tail = "%1\r\n$1\r\nf\r\n$1\r\nv\r\n_\r\n";
+            while (!rest.toString().endsWith(tail)) {
+                rest.append(read(in, 1));
+            }
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    private static String read(InputStream in, int length) throws Exception {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(bytes, read, length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return new String(bytes, 0, read, "UTF-8");
+    }
+
+}